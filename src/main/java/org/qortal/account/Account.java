@@ -360,6 +360,11 @@ public class Account {
 		if (accountData == null)
 			return 0;
 
+		return getEffectiveMintingLevel(accountData);
+	}
+
+	/** Returns 'effective' minting level of already-fetched account data, as per {@link #getEffectiveMintingLevel()}. */
+	public static int getEffectiveMintingLevel(AccountData accountData) {
 		// Founders are assigned a different effective minting level, as long as they have no penalty
 		if (Account.isFounder(accountData.getFlags()) && accountData.getBlocksMintedPenalty() == 0)
 			return BlockChain.getInstance().getFounderEffectiveMintingLevel();
@@ -0,0 +1,179 @@
+package org.qortal.account;
+
+import org.qortal.data.account.RewardShareData;
+import org.qortal.repository.AccountRepository;
+import org.qortal.repository.DataException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * In-memory array of all reward-shares, as committed to the repository, in reward-share index order,
+ * i.e. sorted by reward-share public key.
+ * <p>
+ * Blocks encode their online accounts as reward-share indexes, so with this cache, decoding them
+ * is an array lookup per index, instead of a query that walks the whole RewardShares table.
+ * <p>
+ * Reward-shares only change when REWARD_SHARE transactions are processed or orphaned. Each repository
+ * session notes whether it has changed any reward-shares, and if so, {@link #invalidate()} is called
+ * after a successful commit. Until then, that session should read reward-shares from the repository instead.
+ * The array is reloaded on next use.
+ */
+public class RewardShareIndexCache {
+
+	private static final RewardShareIndexCache instance = new RewardShareIndexCache();
+
+	/** Reward-shares, in index order, or null if not loaded. Guarded by lock on instance. */
+	private RewardShareData[] rewardShares;
+	/** Incremented whenever committed reward-shares change, or cache is cleared. Guarded by lock on instance. */
+	private long version = 0;
+
+	/** Only one thread loads reward-shares at a time */
+	private final Object loadLock = new Object();
+
+	private RewardShareIndexCache() {
+	}
+
+	public static RewardShareIndexCache getInstance() {
+		return instance;
+	}
+
+	// Lookups
+
+	/**
+	 * Returns reward-shares for passed indexes, in same order as indexes.
+	 *
+	 * @return reward-shares, or null if any index is out of bounds, as per {@link AccountRepository#getRewardSharesByIndexes(int[])}
+	 */
+	public List<RewardShareData> getRewardSharesByIndexes(AccountRepository accountRepository, int[] indexes) throws DataException {
+		RewardShareData[] rewardShares = this.getRewardShares(accountRepository);
+
+		List<RewardShareData> indexedRewardShares = new ArrayList<>(indexes.length);
+		for (int index : indexes) {
+			if (index < 0 || index >= rewardShares.length)
+				return null;
+
+			indexedRewardShares.add(rewardShares[index]);
+		}
+
+		return indexedRewardShares;
+	}
+
+	/** Returns all reward-share public keys, in index order. */
+	public List<byte[]> getRewardSharePublicKeys(AccountRepository accountRepository) throws DataException {
+		RewardShareData[] rewardShares = this.getRewardShares(accountRepository);
+
+		List<byte[]> rewardSharePublicKeys = new ArrayList<>(rewardShares.length);
+		for (RewardShareData rewardShareData : rewardShares)
+			rewardSharePublicKeys.add(rewardShareData.getRewardSharePublicKey());
+
+		return rewardSharePublicKeys;
+	}
+
+	/** Returns current version, which changes whenever committed reward-shares change. */
+	public synchronized long getVersion() {
+		return this.version;
+	}
+
+	// Updates
+
+	/**
+	 * Discards cached reward-shares, e.g. because reward-shares have been committed to repository.
+	 */
+	public synchronized void invalidate() {
+		this.rewardShares = null;
+		++this.version;
+	}
+
+	/**
+	 * Clears cache, e.g. because repository has been replaced.
+	 */
+	public void clear() {
+		this.invalidate();
+	}
+
+	/**
+	 * Compares cached reward-shares with repository, replacing cached reward-shares if they differ.
+	 *
+	 * @return descriptions of any differences found
+	 */
+	public List<String> verify(AccountRepository accountRepository) throws DataException {
+		synchronized (this.loadLock) {
+			RewardShareData[] cachedRewardShares;
+			long loadVersion;
+
+			synchronized (this) {
+				if (this.rewardShares == null)
+					// Nothing cached yet
+					return Collections.emptyList();
+
+				cachedRewardShares = this.rewardShares;
+				loadVersion = this.version;
+			}
+
+			RewardShareData[] loadedRewardShares = load(accountRepository);
+
+			List<String> differences = new ArrayList<>();
+			if (cachedRewardShares.length != loadedRewardShares.length)
+				differences.add(String.format("reward-share count: cached %d, repository %d", cachedRewardShares.length, loadedRewardShares.length));
+
+			int count = Math.min(cachedRewardShares.length, loadedRewardShares.length);
+			for (int index = 0; index < count; ++index)
+				if (!isSameRewardShare(cachedRewardShares[index], loadedRewardShares[index]))
+					differences.add(String.format("reward-share index %d: cached %s, repository %s", index, cachedRewardShares[index], loadedRewardShares[index]));
+
+			if (!differences.isEmpty())
+				synchronized (this) {
+					if (this.version == loadVersion)
+						this.rewardShares = loadedRewardShares;
+				}
+
+			return differences;
+		}
+	}
+
+	private RewardShareData[] getRewardShares(AccountRepository accountRepository) throws DataException {
+		synchronized (this) {
+			if (this.rewardShares != null)
+				return this.rewardShares;
+		}
+
+		synchronized (this.loadLock) {
+			long loadVersion;
+
+			synchronized (this) {
+				// Another thread might have loaded reward-shares while we waited
+				if (this.rewardShares != null)
+					return this.rewardShares;
+
+				loadVersion = this.version;
+			}
+
+			RewardShareData[] loadedRewardShares = load(accountRepository);
+
+			synchronized (this) {
+				// Don't cache if reward-shares were committed while we were loading
+				if (this.version == loadVersion)
+					this.rewardShares = loadedRewardShares;
+			}
+
+			return loadedRewardShares;
+		}
+	}
+
+	private static RewardShareData[] load(AccountRepository accountRepository) throws DataException {
+		// Already in index order
+		return accountRepository.getRewardShares().toArray(new RewardShareData[0]);
+	}
+
+	private static boolean isSameRewardShare(RewardShareData a, RewardShareData b) {
+		return Arrays.equals(a.getRewardSharePublicKey(), b.getRewardSharePublicKey())
+				&& Arrays.equals(a.getMinterPublicKey(), b.getMinterPublicKey())
+				&& a.getMinter().equals(b.getMinter())
+				&& a.getRecipient().equals(b.getRecipient())
+				&& a.getSharePercent() == b.getSharePercent();
+	}
+
+}
@@ -0,0 +1,220 @@
+package org.qortal.api;
+
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
+import org.eclipse.persistence.jaxb.MarshallerProperties;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryCursor;
+import org.qortal.repository.RepositoryManager;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes API list responses as a JSON array, one entry at a time, as entries are read from a repository cursor.
+ * <p>
+ * Normally, list endpoints build a complete <tt>List</tt> in memory, which is then marshalled into a single buffer,
+ * so large <tt>limit</tt>s cause heap spikes and delay the first byte of the response.
+ * Here, only one entry (plus a small output buffer) is held at a time.
+ * <p>
+ * Output is flushed every {@link #FLUSH_INTERVAL} entries. As servlet output blocks when the client isn't
+ * keeping up, the cursor is only advanced as fast as the client reads the response.
+ * <p>
+ * As a streamed response keeps its repository session (and snapshot) open until the client has read it all,
+ * only {@link #MAX_CONCURRENT_STREAMS} responses are streamed at once. Other requests have their entries
+ * read into memory first, like the equivalent <tt>List</tt>-returning endpoint, so their session is closed
+ * before anything is written. Streamed responses are also aborted if they take longer than
+ * {@link #MAX_STREAM_DURATION}, so slow clients can't keep hold of a session indefinitely.
+ * <p>
+ * The output is the same JSON array that would be produced for the equivalent <tt>List</tt>.
+ * <p>
+ * Also holds the JAXB contexts used for JSON marshalling by both API responses and websockets.
+ */
+public class StreamingJsonOutput {
+
+	/** Number of entries written between flushes */
+	public static final int FLUSH_INTERVAL = 50;
+
+	/** Maximum number of responses streamed at once, each holding a repository session */
+	public static final int MAX_CONCURRENT_STREAMS = 4;
+	/** Maximum time to spend streaming a response, in milliseconds, before aborting it */
+	public static final long MAX_STREAM_DURATION = 2 * 60 * 1000L; // ms
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final Semaphore STREAM_PERMITS = new Semaphore(MAX_CONCURRENT_STREAMS);
+
+	/** JAXB contexts are expensive to create, but thread-safe, so we only create one per class */
+	private static final Map<Class<?>, JAXBContext> JAXB_CONTEXTS_BY_CLASS = new ConcurrentHashMap<>();
+
+	private StreamingJsonOutput() {
+	}
+
+	/** Opens the cursor to be streamed, using the repository session provided. */
+	@FunctionalInterface
+	public interface CursorOpener<T> {
+		public RepositoryCursor<? extends T> open(Repository repository) throws DataException;
+	}
+
+	/**
+	 * Returns response entity that writes entries from a cursor as a JSON array.
+	 * <p>
+	 * The cursor is opened, using a new repository session, only when the response is written.
+	 * If fewer than {@link #MAX_CONCURRENT_STREAMS} responses are being streamed, entries are written
+	 * as they are read, and the session is closed once the whole response has been written,
+	 * or {@link #MAX_STREAM_DURATION} has passed. Otherwise, all entries are read, and the session closed,
+	 * before the response is written.
+	 * <p>
+	 * The first entry is read before anything is written, so that repository errors when starting the query
+	 * can still be reported as a normal API error. Errors after that point can only abort the response.
+	 *
+	 * @param entryClass declared class of entries, as used by the equivalent <tt>List</tt>-returning endpoint
+	 */
+	public static <T> StreamingOutput stream(HttpServletRequest request, Class<T> entryClass, CursorOpener<T> cursorOpener) {
+		return outputStream -> {
+			if (!STREAM_PERMITS.tryAcquire()) {
+				// Too many sessions held by streamed responses already, so don't hold another while client reads
+				List<T> entries;
+				try (final Repository repository = RepositoryManager.getRepository();
+						RepositoryCursor<? extends T> cursor = cursorOpener.open(repository)) {
+					entries = readAll(cursor);
+				} catch (DataException e) {
+					throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.REPOSITORY_ISSUE, e);
+				}
+
+				try {
+					write(outputStream, entryClass, listCursor(entries));
+				} catch (DataException e) {
+					// List cursor doesn't use repository
+					throw new IOException("Unable to write API response", e);
+				}
+
+				return;
+			}
+
+			try (final Repository repository = RepositoryManager.getRepository();
+					RepositoryCursor<? extends T> cursor = cursorOpener.open(repository)) {
+				write(outputStream, entryClass, cursor, System.currentTimeMillis() + MAX_STREAM_DURATION);
+			} catch (DataException e) {
+				throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.REPOSITORY_ISSUE, e);
+			} finally {
+				STREAM_PERMITS.release();
+			}
+		};
+	}
+
+	/**
+	 * Writes entries from cursor to output stream, as a JSON array.
+	 * <p>
+	 * Nothing is written to the output stream until the first entry has been read.
+	 *
+	 * @return number of entries written
+	 */
+	public static <T> int write(OutputStream outputStream, Class<T> entryClass, RepositoryCursor<? extends T> cursor) throws IOException, DataException {
+		return write(outputStream, entryClass, cursor, null);
+	}
+
+	/**
+	 * Writes entries from cursor to output stream, as a JSON array, giving up if deadline passes.
+	 * <p>
+	 * Nothing is written to the output stream until the first entry has been read.
+	 * Deadline is checked each time output is flushed, so a client that stops reading altogether
+	 * is left to the server's idle timeout.
+	 *
+	 * @param deadline time, in milliseconds, after which response is aborted, or null for no deadline
+	 * @return number of entries written
+	 * @throws IOException if deadline passes before all entries are written
+	 */
+	public static <T> int write(OutputStream outputStream, Class<T> entryClass, RepositoryCursor<? extends T> cursor, Long deadline) throws IOException, DataException {
+		T firstEntry = cursor.next();
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+		Marshaller marshaller;
+		try {
+			marshaller = createMarshaller(entryClass);
+		} catch (JAXBException e) {
+			throw new IOException("Unable to create API marshaller", e);
+		}
+
+		int entryCount = 0;
+		writer.write('[');
+
+		for (T entry = firstEntry; entry != null; entry = cursor.next()) {
+			if (entryCount > 0)
+				writer.write(',');
+
+			try {
+				marshaller.marshal(entry, writer);
+			} catch (JAXBException e) {
+				throw new IOException("Unable to marshall API response entry", e);
+			}
+
+			if (++entryCount % FLUSH_INTERVAL == 0) {
+				writer.flush();
+
+				if (deadline != null && System.currentTimeMillis() > deadline)
+					throw new IOException("Client too slow reading streamed API response");
+			}
+		}
+
+		writer.write(']');
+		writer.flush();
+
+		return entryCount;
+	}
+
+	private static <T> List<T> readAll(RepositoryCursor<? extends T> cursor) throws DataException {
+		List<T> entries = new ArrayList<>();
+
+		T entry;
+		while ((entry = cursor.next()) != null)
+			entries.add(entry);
+
+		return entries;
+	}
+
+	private static <T> RepositoryCursor<T> listCursor(List<T> entries) {
+		Iterator<T> iterator = entries.iterator();
+		return () -> iterator.hasNext() ? iterator.next() : null;
+	}
+
+	/**
+	 * Returns new JSON marshaller for objects of <tt>objectClass</tt>, without a JSON root element.
+	 * <p>
+	 * JAXB contexts are cached, but marshallers aren't thread-safe, so a new marshaller is created per call.
+	 */
+	public static Marshaller createMarshaller(Class<?> objectClass) throws JAXBException {
+		// Create (or reuse) JAXB context aware of object's class
+		JAXBContext jc = JAXB_CONTEXTS_BY_CLASS.get(objectClass);
+		if (jc == null) {
+			jc = JAXBContextFactory.createContext(new Class[] { objectClass }, null);
+			JAXB_CONTEXTS_BY_CLASS.putIfAbsent(objectClass, jc);
+		}
+
+		Marshaller marshaller = jc.createMarshaller();
+
+		// Set the marshaller media type to JSON
+		marshaller.setProperty(MarshallerProperties.MEDIA_TYPE, "application/json");
+
+		// Tell marshaller not to include JSON root element in the output
+		marshaller.setProperty(MarshallerProperties.JSON_INCLUDE_ROOT, false);
+
+		return marshaller;
+	}
+
+}
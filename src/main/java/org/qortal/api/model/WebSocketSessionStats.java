@@ -0,0 +1,56 @@
+package org.qortal.api.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+/**
+ * Delivery statistics for a websocket session's push queue.
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+public class WebSocketSessionStats {
+
+	@Schema(description = "websocket type", example = "blocks")
+	public String websocket;
+
+	public String remoteAddress;
+
+	@Schema(description = "number of frames waiting to be sent")
+	public int queuedFrames;
+
+	@Schema(description = "whether a frame is currently being written")
+	public boolean isSending;
+
+	public long sentFrames;
+
+	@Schema(description = "number of frames dropped, in favour of later frames, because session wasn't keeping up")
+	public long droppedFrames;
+
+	@Schema(description = "age of oldest queued frame, in milliseconds")
+	public long lag;
+
+	@Schema(description = "time from queuing to completed write for most recent frame, in milliseconds")
+	public long lastDeliveryTime;
+
+	@Schema(description = "longest time from queuing to completed write, in milliseconds")
+	public long maxDeliveryTime;
+
+	protected WebSocketSessionStats() {
+		/* For JAXB */
+	}
+
+	public WebSocketSessionStats(String websocket, String remoteAddress, int queuedFrames, boolean isSending,
+			long sentFrames, long droppedFrames, long lag, long lastDeliveryTime, long maxDeliveryTime) {
+		this.websocket = websocket;
+		this.remoteAddress = remoteAddress;
+		this.queuedFrames = queuedFrames;
+		this.isSending = isSending;
+		this.sentFrames = sentFrames;
+		this.droppedFrames = droppedFrames;
+		this.lag = lag;
+		this.lastDeliveryTime = lastDeliveryTime;
+		this.maxDeliveryTime = maxDeliveryTime;
+	}
+
+}
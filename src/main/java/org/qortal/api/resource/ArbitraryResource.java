@@ -76,7 +76,9 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
 
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
@@ -499,7 +501,7 @@ public class ArbitraryResource {
 	@ApiErrors({
 		ApiError.INVALID_CRITERIA, ApiError.REPOSITORY_ISSUE
 	})
-	public List<TransactionData> searchTransactions(@QueryParam("startBlock") Integer startBlock, @QueryParam("blockLimit") Integer blockLimit,
+	public Response searchTransactions(@QueryParam("startBlock") Integer startBlock, @QueryParam("blockLimit") Integer blockLimit,
 			@QueryParam("txGroupId") Integer txGroupId,
 			@QueryParam("service") Service service,
 			@QueryParam("name") String name,
@@ -512,7 +514,9 @@ public class ArbitraryResource {
 				ref = "offset"
 			) @QueryParam("offset") Integer offset, @Parameter(
 				ref = "reverse"
-			) @QueryParam("reverse") Boolean reverse) {
+			) @QueryParam("reverse") Boolean reverse, @Parameter(
+				ref = "stream"
+			) @QueryParam("stream") Boolean stream) {
 		// Must have at least one of txType / address / limit <= 20
 		if (service == null && (address == null || address.isEmpty()) && (limit == null || limit > 20))
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_CRITERIA);
@@ -524,6 +528,16 @@ public class ArbitraryResource {
 		List<TransactionType> txTypes = new ArrayList<>();
 		txTypes.add(TransactionType.ARBITRARY);
 
+		if (stream != null && stream) {
+			// Expand signatures to transactions as they are written
+			StreamingOutput output = StreamingJsonOutput.stream(request, TransactionData.class, repository ->
+					repository.getTransactionRepository().getSignatureCursorMatchingCriteria(startBlock, blockLimit, txGroupId, txTypes,
+							service, name, address, confirmationStatus, limit, offset, reverse)
+					.map(signature -> repository.getTransactionRepository().fromSignature(signature)));
+
+			return Response.ok(output, MediaType.APPLICATION_JSON).build();
+		}
+
 		try (final Repository repository = RepositoryManager.getRepository()) {
 			List<byte[]> signatures = repository.getTransactionRepository().getSignaturesMatchingCriteria(startBlock, blockLimit, txGroupId, txTypes,
 					service, name, address, confirmationStatus, limit, offset, reverse);
@@ -533,7 +547,7 @@ public class ArbitraryResource {
 			for (byte[] signature : signatures)
 				transactions.add(repository.getTransactionRepository().fromSignature(signature));
 
-			return transactions;
+			return Response.ok(new GenericEntity<List<TransactionData>>(transactions) {}).build();
 		} catch (DataException e) {
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.REPOSITORY_ISSUE, e);
 		}
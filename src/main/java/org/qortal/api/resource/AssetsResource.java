@@ -12,6 +12,7 @@ import org.qortal.api.ApiError;
 import org.qortal.api.ApiErrors;
 import org.qortal.api.ApiException;
 import org.qortal.api.ApiExceptionFactory;
+import org.qortal.api.StreamingJsonOutput;
 import org.qortal.api.model.AggregatedOrder;
 import org.qortal.api.model.TradeWithOrderInfo;
 import org.qortal.api.resource.TransactionsResource.ConfirmationStatus;
@@ -43,7 +44,10 @@ import org.qortal.utils.Base58;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -465,7 +469,7 @@ public class AssetsResource {
 	@ApiErrors({
 		ApiError.INVALID_ASSET_ID, ApiError.REPOSITORY_ISSUE
 	})
-	public List<TradeWithOrderInfo> getAssetTrades(@Parameter(
+	public Response getAssetTrades(@Parameter(
 		ref = "assetid"
 	) @PathParam("assetid") int assetId, @Parameter(
 		ref = "otherassetid"
@@ -475,7 +479,9 @@ public class AssetsResource {
 		ref = "offset"
 	) @QueryParam("offset") Integer offset, @Parameter(
 		ref = "reverse"
-	) @QueryParam("reverse") Boolean reverse) {
+	) @QueryParam("reverse") Boolean reverse, @Parameter(
+		ref = "stream"
+	) @QueryParam("stream") Boolean stream) {
 		try (final Repository repository = RepositoryManager.getRepository()) {
 			if (!repository.getAssetRepository().assetExists(assetId))
 				throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_ASSET_ID);
@@ -483,6 +489,9 @@ public class AssetsResource {
 			if (!repository.getAssetRepository().assetExists(otherAssetId))
 				throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_ASSET_ID);
 
+			if (stream != null && stream)
+				return Response.ok(streamAssetTrades(assetId, otherAssetId, limit, offset, reverse), MediaType.APPLICATION_JSON).build();
+
 			List<TradeData> trades = repository.getAssetRepository().getTrades(assetId, otherAssetId, limit, offset, reverse);
 
 			// Expanding remaining entries
@@ -493,12 +502,23 @@ public class AssetsResource {
 				fullTrades.add(new TradeWithOrderInfo(tradeData, initiatingOrderData, targetOrderData));
 			}
 
-			return fullTrades;
+			return Response.ok(new GenericEntity<List<TradeWithOrderInfo>>(fullTrades) {}).build();
 		} catch (DataException e) {
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.REPOSITORY_ISSUE, e);
 		}
 	}
 
+	private StreamingOutput streamAssetTrades(long assetId, long otherAssetId, Integer limit, Integer offset, Boolean reverse) {
+		// Expand trades as they are written
+		return StreamingJsonOutput.stream(request, TradeWithOrderInfo.class, repository ->
+				repository.getAssetRepository().getTradeCursor(assetId, otherAssetId, limit, offset, reverse)
+				.map(tradeData -> {
+					OrderData initiatingOrderData = repository.getAssetRepository().fromOrderId(tradeData.getInitiator());
+					OrderData targetOrderData = repository.getAssetRepository().fromOrderId(tradeData.getTarget());
+					return new TradeWithOrderInfo(tradeData, initiatingOrderData, targetOrderData);
+				}));
+	}
+
 	@GET
 	@Path("/order/{orderid}")
 	@Operation(
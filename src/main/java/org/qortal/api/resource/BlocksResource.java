@@ -12,6 +12,7 @@ import org.qortal.account.Account;
 import org.qortal.api.ApiError;
 import org.qortal.api.ApiErrors;
 import org.qortal.api.ApiExceptionFactory;
+import org.qortal.api.StreamingJsonOutput;
 import org.qortal.api.model.BlockMintingInfo;
 import org.qortal.api.model.BlockSignerSummary;
 import org.qortal.block.Block;
@@ -25,6 +26,7 @@ import org.qortal.data.transaction.TransactionData;
 import org.qortal.repository.BlockArchiveReader;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryCursor;
 import org.qortal.repository.RepositoryManager;
 import org.qortal.transform.TransformationException;
 import org.qortal.transform.block.BlockTransformer;
@@ -38,7 +40,9 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -651,39 +655,62 @@ public class BlocksResource {
 	@ApiErrors({
 		ApiError.REPOSITORY_ISSUE
 	})
-	public List<BlockData> getBlockRange(@PathParam("height") int height,
-										 @Parameter(ref = "count") @QueryParam("count") int count,
-										 @Parameter(ref = "reverse") @QueryParam("reverse") Boolean reverse,
-										 @QueryParam("includeOnlineSignatures") Boolean includeOnlineSignatures) {
+	public Response getBlockRange(@PathParam("height") int height,
+								  @Parameter(ref = "count") @QueryParam("count") int count,
+								  @Parameter(ref = "reverse") @QueryParam("reverse") Boolean reverse,
+								  @QueryParam("includeOnlineSignatures") Boolean includeOnlineSignatures,
+								  @Parameter(ref = "stream") @QueryParam("stream") Boolean stream) {
+		if (stream != null && stream)
+			return Response.ok(StreamingJsonOutput.stream(request, BlockData.class,
+					repository -> getBlockRangeCursor(repository, height, count, reverse, includeOnlineSignatures)), MediaType.APPLICATION_JSON).build();
+
 		try (final Repository repository = RepositoryManager.getRepository()) {
+			RepositoryCursor<BlockData> blockCursor = getBlockRangeCursor(repository, height, count, reverse, includeOnlineSignatures);
+
 			List<BlockData> blocks = new ArrayList<>();
-			boolean shouldReverse = (reverse != null && reverse);
 
-			int i = 0;
-			while (i < count) {
+			BlockData blockData;
+			while ((blockData = blockCursor.next()) != null)
+				blocks.add(blockData);
+
+			return Response.ok(new GenericEntity<List<BlockData>>(blocks) {}).build();
+		} catch (DataException e) {
+			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.REPOSITORY_ISSUE, e);
+		}
+	}
+
+	private static RepositoryCursor<BlockData> getBlockRangeCursor(Repository repository, int startHeight, int count, Boolean reverse, Boolean includeOnlineSignatures) {
+		boolean shouldReverse = (reverse != null && reverse);
+
+		return new RepositoryCursor<>() {
+			private int height = startHeight;
+			private int i = 0;
+
+			@Override
+			public BlockData next() throws DataException {
+				if (i >= count)
+					return null;
+
 				BlockData blockData = repository.getBlockRepository().fromHeight(height);
 				if (blockData == null) {
 					// Not found - try the archive
 					blockData = repository.getBlockArchiveRepository().fromHeight(height);
 					if (blockData == null) {
 						// Run out of blocks!
-						break;
+						i = count;
+						return null;
 					}
 				}
 				if (includeOnlineSignatures == null || !includeOnlineSignatures) {
 					blockData.setOnlineAccountsSignatures(null);
 				}
 
-				blocks.add(blockData);
-
 				height = shouldReverse ? height - 1 : height + 1;
 				i++;
-			}
 
-			return blocks;
-		} catch (DataException e) {
-			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.REPOSITORY_ISSUE, e);
-		}
+				return blockData;
+			}
+		};
 	}
 
 	@GET
@@ -50,7 +50,8 @@ public class ChatResource {
 	@Path("/messages")
 	@Operation(
 		summary = "Find chat messages",
-		description = "Returns CHAT messages that match criteria. Must provide EITHER 'txGroupId' OR two 'involving' addresses.",
+		description = "Returns CHAT messages that match criteria. Must provide EITHER 'txGroupId' OR two 'involving' addresses.<br>"
+				+ "To page through long chats, pass the signature of the last message received as 'cursor', instead of increasing 'offset'.",
 		responses = {
 			@ApiResponse(
 				description = "CHAT messages",
@@ -73,6 +74,7 @@ public class ChatResource {
 			@QueryParam("haschatreference") Boolean hasChatReference,
 			@QueryParam("sender") String sender,
 			@QueryParam("encoding") Encoding encoding,
+			@Parameter(description = "signature of last message from previous page; results continue after it, in the requested order") @QueryParam("cursor") String cursor,
 			@Parameter(ref = "limit") @QueryParam("limit") Integer limit,
 			@Parameter(ref = "offset") @QueryParam("offset") Integer offset,
 			@Parameter(ref = "reverse") @QueryParam("reverse") Boolean reverse) {
@@ -99,7 +101,21 @@ public class ChatResource {
 		if (chatReference != null)
 			chatReferenceBytes = Base58.decode(chatReference);
 
+		byte[] cursorBytes = null;
+		if (cursor != null)
+			cursorBytes = Base58.decode(cursor);
+
 		try (final Repository repository = RepositoryManager.getRepository()) {
+			// Cursor message is only looked up once, here, then passed to repository
+			ChatTransactionData cursorTransactionData = null;
+			if (cursorBytes != null) {
+				TransactionData transactionData = repository.getTransactionRepository().fromSignature(cursorBytes);
+				if (transactionData == null || transactionData.getType() != TransactionType.CHAT)
+					throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_CRITERIA);
+
+				cursorTransactionData = (ChatTransactionData) transactionData;
+			}
+
 			return repository.getChatRepository().getMessagesMatchingCriteria(
 					before,
 					after,
@@ -110,6 +126,7 @@ public class ChatResource {
 					involvingAddresses,
 					sender,
 					encoding,
+					cursorTransactionData,
 					limit, offset, reverse);
 		} catch (DataException e) {
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.REPOSITORY_ISSUE, e);
@@ -179,6 +196,7 @@ public class ChatResource {
 					involvingAddresses,
 					sender,
 					encoding,
+					null,
 					limit, offset, reverse).size();
 		} catch (DataException e) {
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.REPOSITORY_ISSUE, e);
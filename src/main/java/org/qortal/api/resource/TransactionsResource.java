@@ -32,7 +32,10 @@ import org.qortal.utils.NTP;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.lang.reflect.Constructor;
@@ -355,7 +358,7 @@ public class TransactionsResource {
 	@ApiErrors({
 		ApiError.INVALID_CRITERIA, ApiError.REPOSITORY_ISSUE
 	})
-	public List<TransactionData> searchTransactions(@QueryParam("startBlock") Integer startBlock, @QueryParam("blockLimit") Integer blockLimit,
+	public Response searchTransactions(@QueryParam("startBlock") Integer startBlock, @QueryParam("blockLimit") Integer blockLimit,
 			@QueryParam("txGroupId") Integer txGroupId,
 			@QueryParam("txType") List<TransactionType> txTypes, @QueryParam("address") String address, @Parameter(
 				description = "whether to include confirmed, unconfirmed or both",
@@ -366,7 +369,9 @@ public class TransactionsResource {
 				ref = "offset"
 			) @QueryParam("offset") Integer offset, @Parameter(
 				ref = "reverse"
-			) @QueryParam("reverse") Boolean reverse) {
+			) @QueryParam("reverse") Boolean reverse, @Parameter(
+				ref = "stream"
+			) @QueryParam("stream") Boolean stream) {
 		// Must have at least one of txType / address / limit <= 20
 		if ((txTypes == null || txTypes.isEmpty()) && (address == null || address.isEmpty()) && (limit == null || limit > 20))
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_CRITERIA);
@@ -375,6 +380,16 @@ public class TransactionsResource {
 		if (confirmationStatus != ConfirmationStatus.CONFIRMED && (startBlock != null || blockLimit != null))
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_CRITERIA);
 
+		if (stream != null && stream) {
+			// Expand signatures to transactions as they are written
+			StreamingOutput output = StreamingJsonOutput.stream(request, TransactionData.class, repository ->
+					repository.getTransactionRepository().getSignatureCursorMatchingCriteria(startBlock, blockLimit, txGroupId,
+							txTypes, null, null, address, confirmationStatus, limit, offset, reverse)
+					.map(signature -> repository.getTransactionRepository().fromSignature(signature)));
+
+			return Response.ok(output, MediaType.APPLICATION_JSON).build();
+		}
+
 		try (final Repository repository = RepositoryManager.getRepository()) {
 			List<byte[]> signatures = repository.getTransactionRepository().getSignaturesMatchingCriteria(startBlock, blockLimit, txGroupId,
 					txTypes, null, null, address, confirmationStatus, limit, offset, reverse);
@@ -384,7 +399,7 @@ public class TransactionsResource {
 			for (byte[] signature : signatures)
 				transactions.add(repository.getTransactionRepository().fromSignature(signature));
 
-			return transactions;
+			return Response.ok(new GenericEntity<List<TransactionData>>(transactions) {}).build();
 		} catch (ApiException e) {
 			throw e;
 		} catch (DataException e) {
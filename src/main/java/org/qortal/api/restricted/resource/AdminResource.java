@@ -24,6 +24,8 @@ import org.qortal.api.model.ActivitySummary;
 import org.qortal.api.model.CertificateSanInfo;
 import org.qortal.api.model.NodeInfo;
 import org.qortal.api.model.NodeStatus;
+import org.qortal.api.model.WebSocketSessionStats;
+import org.qortal.api.websocket.WebSocketPushPipeline;
 import org.qortal.block.BlockChain;
 import org.qortal.controller.BootstrapNode;
 import org.qortal.controller.Controller;
@@ -263,6 +265,7 @@ public class AdminResource {
 	@Parameter(in = ParameterIn.QUERY, name = "limit", description = "Maximum number of entries to return, 0 means unlimited", schema = @Schema(type = "integer", defaultValue = "20"))
 	@Parameter(in = ParameterIn.QUERY, name = "offset", description = "Starting entry in results, 0 is first entry", schema = @Schema(type = "integer"))
 	@Parameter(in = ParameterIn.QUERY, name = "reverse", description = "Reverse results", schema = @Schema(type = "boolean"))
+	@Parameter(in = ParameterIn.QUERY, name = "stream", description = "Stream results as they are read from the repository, to reduce memory use with large result sets", schema = @Schema(type = "boolean"))
 	public String globalParameters() {
 		return "";
 	}
@@ -569,6 +572,31 @@ public class AdminResource {
 		return Controller.getInstance().getStatsSnapshot();
 	}
 
+	@GET
+	@Path("/websockets")
+	@Operation(
+		summary = "Fetch push queue statistics for websocket sessions",
+		description = "Returns queued, sent and dropped frame counts, plus lag, for each blocks/status websocket session",
+		responses = {
+			@ApiResponse(
+				content = @Content(
+					mediaType = MediaType.APPLICATION_JSON,
+					array = @ArraySchema(
+						schema = @Schema(
+							implementation = WebSocketSessionStats.class
+						)
+					)
+				)
+			)
+		}
+	)
+	@SecurityRequirement(name = "apiKey")
+	public List<WebSocketSessionStats> getWebSocketStats(@HeaderParam(Security.API_KEY_HEADER) String apiKey) {
+		Security.checkApiCallAllowed(request);
+
+		return WebSocketPushPipeline.getAllSessionStats();
+	}
+
 	@GET
 	@Path("/mintingaccounts")
 	@Operation(
@@ -0,0 +1,184 @@
+package org.qortal.api.websocket;
+
+import org.qortal.data.chat.ActiveChats;
+import org.qortal.data.chat.ActiveChats.DirectChat;
+import org.qortal.data.chat.ActiveChats.GroupChat;
+import org.qortal.data.chat.ActiveChatsDelta;
+import org.qortal.data.transaction.ChatTransactionData;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.qortal.data.chat.ChatMessage.Encoding;
+
+/**
+ * In-memory active chats summary for one address, i.e. the latest message per group and per direct chat partner.
+ * <p>
+ * Seeded from a full {@link ActiveChats} repository query, then updated incrementally from new CHAT transactions,
+ * so that active chats websockets don't need to re-query the repository for every message.
+ * <p>
+ * As with the repository query, a group's latest message can be any message with that txGroupId,
+ * including direct messages, except for groupless chat (group 0), which only has messages without a recipient.
+ * Direct messages count towards direct chats whatever their txGroupId.
+ */
+public class ActiveChatsState {
+
+	private final String address;
+	private final Encoding encoding;
+	private final Boolean hasChatReference;
+
+	private final Map<Integer, GroupChat> groupChats = new LinkedHashMap<>();
+	private final Map<String, DirectChat> directChats = new LinkedHashMap<>();
+
+	public ActiveChatsState(String address, Encoding encoding, Boolean hasChatReference, ActiveChats activeChats) {
+		this.address = address;
+		this.encoding = encoding;
+		this.hasChatReference = hasChatReference;
+
+		if (activeChats.getGroups() != null)
+			for (GroupChat groupChat : activeChats.getGroups())
+				this.groupChats.put(groupChat.getGroupId(), groupChat);
+
+		if (activeChats.getDirect() != null)
+			for (DirectChat directChat : activeChats.getDirect())
+				this.directChats.put(directChat.getAddress(), directChat);
+	}
+
+	public ActiveChats toActiveChats() {
+		return new ActiveChats(new ArrayList<>(this.groupChats.values()), new ArrayList<>(this.directChats.values()));
+	}
+
+	/**
+	 * @return IDs of groups that our address is a member of, i.e. excluding groupless chat (group 0)
+	 */
+	public Set<Integer> getGroupIds() {
+		Set<Integer> groupIds = new HashSet<>(this.groupChats.keySet());
+		groupIds.remove(0);
+		return groupIds;
+	}
+
+	/**
+	 * @return whether a CHAT transaction could change our active chats
+	 */
+	public boolean isInterestedIn(ChatTransactionData chatTransactionData) {
+		if (isGroupChat(chatTransactionData) && this.groupChats.containsKey(chatTransactionData.getTxGroupId()))
+			return true;
+
+		String recipient = chatTransactionData.getRecipient();
+		return recipient != null && (recipient.equals(this.address) || chatTransactionData.getSender().equals(this.address));
+	}
+
+	/**
+	 * Applies a new CHAT transaction (if not null), and drops messages older than cutoffTimestamp.
+	 *
+	 * @param chatTransactionData new CHAT transaction, or null to only apply the cutoff
+	 * @param senderName primary name of the sender, if any
+	 * @param recipientName primary name of the recipient, if any
+	 * @param cutoffTimestamp messages before this are no longer considered active
+	 * @return the resulting changes, which may be empty
+	 */
+	public ActiveChatsDelta apply(ChatTransactionData chatTransactionData, String senderName, String recipientName, long cutoffTimestamp) {
+		ActiveChatsDelta delta = new ActiveChatsDelta();
+
+		this.expire(cutoffTimestamp, delta);
+
+		if (chatTransactionData != null && chatTransactionData.getTimestamp() >= cutoffTimestamp && this.matchesChatReferenceFilter(chatTransactionData)) {
+			if (isGroupChat(chatTransactionData))
+				this.applyGroupChat(chatTransactionData, senderName, delta);
+
+			if (chatTransactionData.getRecipient() != null)
+				this.applyDirectChat(chatTransactionData, senderName, recipientName, delta);
+		}
+
+		return delta;
+	}
+
+	private void expire(long cutoffTimestamp, ActiveChatsDelta delta) {
+		for (Map.Entry<Integer, GroupChat> entry : this.groupChats.entrySet()) {
+			GroupChat groupChat = entry.getValue();
+			if (groupChat.getTimestamp() != null && groupChat.getTimestamp() < cutoffTimestamp) {
+				// Group remains listed, but without a latest message
+				GroupChat expiredGroupChat = new GroupChat(groupChat.getGroupId(), groupChat.getGroupName(), null, null, null, null, this.encoding, null);
+				entry.setValue(expiredGroupChat);
+				delta.getGroups().add(expiredGroupChat);
+			}
+		}
+
+		Iterator<DirectChat> iterator = this.directChats.values().iterator();
+		while (iterator.hasNext()) {
+			DirectChat directChat = iterator.next();
+			if (directChat.getTimestamp() < cutoffTimestamp) {
+				iterator.remove();
+				delta.getRemovedDirect().add(directChat.getAddress());
+			}
+		}
+	}
+
+	private void applyGroupChat(ChatTransactionData chatTransactionData, String senderName, ActiveChatsDelta delta) {
+		int groupId = chatTransactionData.getTxGroupId();
+
+		GroupChat existingGroupChat = this.groupChats.get(groupId);
+		if (existingGroupChat == null)
+			// Not a member of this group
+			return;
+
+		if (existingGroupChat.getTimestamp() != null && existingGroupChat.getTimestamp() > chatTransactionData.getTimestamp())
+			// Older than the latest message we already have
+			return;
+
+		GroupChat groupChat = new GroupChat(groupId, existingGroupChat.getGroupName(), chatTransactionData.getTimestamp(),
+				chatTransactionData.getSender(), senderName, chatTransactionData.getSignature(), this.encoding, chatTransactionData.getData());
+		this.groupChats.put(groupId, groupChat);
+
+		delta.getGroups().removeIf(changedGroupChat -> changedGroupChat.getGroupId() == groupId);
+		delta.getGroups().add(groupChat);
+	}
+
+	private void applyDirectChat(ChatTransactionData chatTransactionData, String senderName, String recipientName, ActiveChatsDelta delta) {
+		String sender = chatTransactionData.getSender();
+		String recipient = chatTransactionData.getRecipient();
+
+		String otherAddress;
+		String otherName;
+		if (sender.equals(this.address)) {
+			otherAddress = recipient;
+			otherName = recipientName;
+		} else if (recipient.equals(this.address)) {
+			otherAddress = sender;
+			otherName = senderName;
+		} else {
+			// Not involving our address
+			return;
+		}
+
+		DirectChat existingDirectChat = this.directChats.get(otherAddress);
+		if (existingDirectChat != null && existingDirectChat.getTimestamp() > chatTransactionData.getTimestamp())
+			// Older than the latest message we already have
+			return;
+
+		DirectChat directChat = new DirectChat(otherAddress, otherName, chatTransactionData.getTimestamp(), sender, senderName);
+		this.directChats.put(otherAddress, directChat);
+
+		delta.getDirect().add(directChat);
+		delta.getRemovedDirect().remove(otherAddress);
+	}
+
+	/**
+	 * @return whether message counts towards its group's latest message
+	 */
+	private static boolean isGroupChat(ChatTransactionData chatTransactionData) {
+		return chatTransactionData.getRecipient() == null || chatTransactionData.getTxGroupId() != 0;
+	}
+
+	private boolean matchesChatReferenceFilter(ChatTransactionData chatTransactionData) {
+		if (this.hasChatReference == null)
+			return true;
+
+		return this.hasChatReference == (chatTransactionData.getChatReference() != null);
+	}
+
+}
@@ -4,20 +4,27 @@ import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.eclipse.jetty.websocket.api.annotations.*;
 import org.eclipse.jetty.websocket.server.JettyWebSocketServletFactory;
+import org.qortal.block.BlockChain;
 import org.qortal.controller.ChatNotifier;
 import org.qortal.crypto.Crypto;
 import org.qortal.data.chat.ActiveChats;
+import org.qortal.data.chat.ActiveChatsDelta;
+import org.qortal.data.chat.ChatMessage;
+import org.qortal.data.group.GroupData;
 import org.qortal.data.transaction.ChatTransactionData;
+import org.qortal.group.GroupMembershipCache;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
+import org.qortal.utils.NTP;
 
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.qortal.data.chat.ChatMessage.Encoding;
 
@@ -47,12 +54,12 @@ public class ActiveChatsWebSocket extends ApiWebSocket {
 			return;
 		}
 
-		AtomicReference<String> previousOutput = new AtomicReference<>(null);
+		ActiveChatsContext context = new ActiveChatsContext(address, getTargetEncoding(session), getHasChatReference(session), isDeltaMode(session));
 
-		ChatNotifier.Listener listener = chatTransactionData -> onNotify(session, chatTransactionData, address, previousOutput);
-		ChatNotifier.getInstance().register(session, listener);
+		ChatNotifier.Listener listener = chatTransactionData -> onNotify(session, chatTransactionData, context);
+		ChatNotifier.getInstance().registerForAddress(session, address, listener);
 
-		this.onNotify(session, null, address, previousOutput);
+		this.sendFullState(session, context);
 	}
 
 	@OnWebSocketClose
@@ -75,37 +82,138 @@ public class ActiveChatsWebSocket extends ApiWebSocket {
 		}
 	}
 
-	private void onNotify(Session session, ChatTransactionData chatTransactionData, String ourAddress, AtomicReference<String> previousOutput) {
-		// If CHAT has a recipient (i.e. direct message, not group-based) and we're neither sender nor recipient, then it's of no interest
-		if (chatTransactionData != null) {
-			String recipient = chatTransactionData.getRecipient();
+	/** Per-session state */
+	private static class ActiveChatsContext {
+		private final String address;
+		private final Encoding encoding;
+		private final Boolean hasChatReference;
+		private final boolean deltaMode;
 
-			if (recipient != null && (!recipient.equals(ourAddress) && !chatTransactionData.getSender().equals(ourAddress)))
-				return;
+		private ActiveChatsState state;
+		private String previousOutput;
+		/** Group membership cache version when our groups were last loaded */
+		private long groupMembershipVersion;
+
+		private ActiveChatsContext(String address, Encoding encoding, Boolean hasChatReference, boolean deltaMode) {
+			this.address = address;
+			this.encoding = encoding;
+			this.hasChatReference = hasChatReference;
+			this.deltaMode = deltaMode;
 		}
+	}
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
-			Boolean hasChatReference = getHasChatReference(session);
+	/**
+	 * Loads active chats from the repository, and sends them as a full document.
+	 */
+	private void sendFullState(Session session, ActiveChatsContext context) {
+		synchronized (context) {
+			// Before loading, so that we don't miss changes made while loading
+			long groupMembershipVersion = GroupMembershipCache.getInstance().getVersion();
 
-			ActiveChats activeChats = repository.getChatRepository().getActiveChats(ourAddress, getTargetEncoding(session), hasChatReference);
+			try (final Repository repository = RepositoryManager.getRepository()) {
+				ActiveChats activeChats = repository.getChatRepository().getActiveChats(context.address, context.encoding, context.hasChatReference);
+				context.state = new ActiveChatsState(context.address, context.encoding, context.hasChatReference, activeChats);
+				context.groupMembershipVersion = groupMembershipVersion;
 
-			StringWriter stringWriter = new StringWriter();
+				this.sendIfChanged(session, context, activeChats);
+			} catch (DataException | IOException e) {
+				// No output this time
+			}
+		}
+	}
 
-			marshall(stringWriter, activeChats);
+	private void onNotify(Session session, ChatTransactionData chatTransactionData, ActiveChatsContext context) {
+		synchronized (context) {
+			if (context.state == null) {
+				// Initial load failed, so try again
+				this.sendFullState(session, context);
+				return;
+			}
 
-			// Only output if something has changed
-			String output = stringWriter.toString();
-			if (output.equals(previousOutput.get()))
+			Long now = NTP.getTime();
+			if (now == null)
 				return;
 
-			previousOutput.set(output);
+			long cutoffTimestamp = now - BlockChain.getInstance().getTransactionExpiryPeriod();
 
-			// Ensure session is still open before sending
-			if (session.isOpen()) {
-				session.getRemote().sendString(output, WriteCallback.NOOP);
+			if (chatTransactionData == null) {
+				// Group-membership change - but most won't involve us, which cache can tell without a repository query
+				GroupMembershipCache groupMembershipCache = GroupMembershipCache.getInstance();
+				long groupMembershipVersion = groupMembershipCache.getVersion();
+
+				boolean hasChanged = groupMembershipCache.hasMembershipChanged(context.address, context.groupMembershipVersion);
+				context.groupMembershipVersion = groupMembershipVersion;
+
+				if (!hasChanged)
+					return;
 			}
-		} catch (DataException | IOException e) {
-			// No output this time
+
+			try (final Repository repository = RepositoryManager.getRepository()) {
+				String senderName = null;
+				String recipientName = null;
+
+				if (chatTransactionData == null) {
+					// Group-membership change - only reload everything if our groups have actually changed
+					Set<Integer> groupIds = repository.getGroupRepository().getGroupsWithMember(context.address).stream()
+							.map(GroupData::getGroupId)
+							.collect(Collectors.toSet());
+
+					if (!groupIds.equals(context.state.getGroupIds())) {
+						this.sendFullState(session, context);
+						return;
+					}
+				} else {
+					if (!context.state.isInterestedIn(chatTransactionData))
+						return;
+
+					ChatMessage chatMessage = repository.getChatRepository().toChatMessage(chatTransactionData, context.encoding);
+					if (chatMessage != null) {
+						senderName = chatMessage.getSenderName();
+						recipientName = chatMessage.getRecipientName();
+					}
+				}
+
+				ActiveChatsDelta delta = context.state.apply(chatTransactionData, senderName, recipientName, cutoffTimestamp);
+				if (delta.isEmpty())
+					return;
+
+				if (context.deltaMode)
+					this.send(session, context, delta);
+				else
+					this.sendIfChanged(session, context, context.state.toActiveChats());
+
+			} catch (DataException | IOException e) {
+				// No output this time
+			}
+		}
+	}
+
+	private void sendIfChanged(Session session, ActiveChatsContext context, ActiveChats activeChats) throws IOException {
+		StringWriter stringWriter = new StringWriter();
+		marshall(stringWriter, activeChats);
+
+		// Only output if something has changed
+		String output = stringWriter.toString();
+		if (output.equals(context.previousOutput))
+			return;
+
+		context.previousOutput = output;
+
+		// Ensure session is still open before sending
+		if (session.isOpen()) {
+			session.getRemote().sendString(output, WriteCallback.NOOP);
+		}
+	}
+
+	private void send(Session session, ActiveChatsContext context, ActiveChatsDelta delta) throws IOException {
+		StringWriter stringWriter = new StringWriter();
+		marshall(stringWriter, delta);
+
+		// Full output no longer matches what the client has
+		context.previousOutput = null;
+
+		if (session.isOpen()) {
+			session.getRemote().sendString(stringWriter.toString(), WriteCallback.NOOP);
 		}
 	}
 
@@ -121,6 +229,16 @@ public class ActiveChatsWebSocket extends ApiWebSocket {
 		}
 	}
 
+	/**
+	 * Clients can opt in to receiving {@link ActiveChatsDelta} frames, after the initial full document,
+	 * by connecting with delta=true
+	 */
+	private boolean isDeltaMode(Session session) {
+		Map<String, List<String>> queryParams = session.getUpgradeRequest().getParameterMap();
+		List<String> deltaList = queryParams.get("delta");
+		return deltaList != null && deltaList.size() == 1 && Boolean.parseBoolean(deltaList.get(0));
+	}
+
 	private Boolean getHasChatReference(Session session) {
 		Map<String, List<String>> queryParams = session.getUpgradeRequest().getParameterMap();
 		List<String> hasChatReferenceList = queryParams.get("haschatreference");
@@ -11,7 +11,6 @@ import org.qortal.event.EventBus;
 import org.qortal.event.Listener;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.concurrent.atomic.AtomicReference;
 
 @WebSocket
@@ -20,6 +19,9 @@ public class AdminStatusWebSocket extends ApiWebSocket implements Listener {
 
 	private static final AtomicReference<String> previousOutput = new AtomicReference<>(null);
 
+	/** Only the latest status is queued for slow clients */
+	private static final WebSocketPushPipeline pushPipeline = WebSocketPushPipeline.create("status", 1);
+
 	/**
 	 * Jetty 10 uses JettyWebSocketServletFactory and requires manual mapping.
 	 */
@@ -55,22 +57,25 @@ public class AdminStatusWebSocket extends ApiWebSocket implements Listener {
 		if (newOutput.equals(oldOutput))
 			return;
 
-		for (Session session : getSessions())
-			this.sendStatus(session, newOutput);
+		pushPipeline.push(newOutput);
 	}
 
 	@OnWebSocketConnect
 	@Override
 	public void onWebSocketConnect(Session session) {
-		// Initial status push
-		this.sendStatus(session, previousOutput.get());
-
 		super.onWebSocketConnect(session);
+		pushPipeline.addSession(session);
+
+		// Initial status push
+		String status = previousOutput.get();
+		if (status != null)
+			pushPipeline.send(session, status);
 	}
 
 	@OnWebSocketClose
 	@Override
 	public void onWebSocketClose(Session session, int statusCode, String reason) {
+		pushPipeline.removeSession(session);
 		super.onWebSocketClose(session, statusCode, reason);
 	}
 
@@ -88,15 +93,6 @@ public class AdminStatusWebSocket extends ApiWebSocket implements Listener {
 
 	private static String buildStatusString() throws IOException {
 		NodeStatus nodeStatus = new NodeStatus();
-		StringWriter stringWriter = new StringWriter();
-		marshall(stringWriter, nodeStatus);
-		return stringWriter.toString();
-	}
-
-	private void sendStatus(Session session, String status) {
-		if (session.isOpen() && status != null) {
-			// Using NOOP as we don't need to track the success of this specific push
-			session.getRemote().sendString(status, WriteCallback.NOOP);
-		}
+		return WebSocketBroadcaster.marshall(nodeStatus);
 	}
 }
\ No newline at end of file
@@ -6,12 +6,10 @@ import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.server.JettyServerUpgradeRequest;
 import org.eclipse.jetty.websocket.server.JettyWebSocketServlet;
 import org.eclipse.jetty.websocket.server.JettyWebSocketServletFactory;
-import org.eclipse.persistence.jaxb.JAXBContextFactory;
-import org.eclipse.persistence.jaxb.MarshallerProperties;
 import org.qortal.api.ApiError;
 import org.qortal.api.ApiErrorRoot;
+import org.qortal.api.StreamingJsonOutput;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import java.io.IOException;
@@ -93,12 +91,8 @@ public abstract class ApiWebSocket extends JettyWebSocketServlet {
 
 	private static Marshaller createMarshaller(Class<?> objectClass) {
 		try {
-			// Create JAXB context aware of object's class
-			JAXBContext jc = JAXBContextFactory.createContext(new Class[] { objectClass }, null);
-			Marshaller marshaller = jc.createMarshaller();
-			marshaller.setProperty(MarshallerProperties.MEDIA_TYPE, "application/json");
-			marshaller.setProperty(MarshallerProperties.JSON_INCLUDE_ROOT, false);
-			return marshaller;
+			// Reuses JAXB contexts shared with streamed API responses
+			return StreamingJsonOutput.createMarshaller(objectClass);
 		} catch (JAXBException e) {
 			throw new RuntimeException("Unable to create websocket marshaller", e);
 		}
@@ -17,7 +17,6 @@ import org.qortal.repository.RepositoryManager;
 import org.qortal.utils.Base58;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.List;
 import java.util.Objects;
 
@@ -25,6 +24,11 @@ import java.util.Objects;
 @SuppressWarnings("serial")
 public class BlocksWebSocket extends ApiWebSocket implements Listener {
 
+	/** Frames queued per session before intermediate blocks are dropped, e.g. for slow clients during sync */
+	private static final int MAX_QUEUED_FRAMES = 10;
+
+	private static final WebSocketPushPipeline pushPipeline = WebSocketPushPipeline.create("blocks", MAX_QUEUED_FRAMES);
+
 	/**
 	 * Jetty 10 implementation of configure.
 	 */
@@ -44,19 +48,29 @@ public class BlocksWebSocket extends ApiWebSocket implements Listener {
 		BlockData blockData = ((Controller.NewBlockEvent) event).getBlockData();
 		BlockSummaryData blockSummary = new BlockSummaryData(blockData);
 
-		for (Session session : getSessions())
-			sendBlockSummary(session, blockSummary);
+		// Marshal once for all sessions
+		String output;
+		try {
+			output = WebSocketBroadcaster.marshall(blockSummary);
+		} catch (IOException e) {
+			// No output this time
+			return;
+		}
+
+		pushPipeline.push(output);
 	}
 
 	@OnWebSocketConnect
 	@Override
 	public void onWebSocketConnect(Session session) {
 		super.onWebSocketConnect(session);
+		pushPipeline.addSession(session);
 	}
 
 	@OnWebSocketClose
 	@Override
 	public void onWebSocketClose(Session session, int statusCode, String reason) {
+		pushPipeline.removeSession(session);
 		super.onWebSocketClose(session, statusCode, reason);
 	}
 
@@ -140,18 +154,11 @@ public class BlocksWebSocket extends ApiWebSocket implements Listener {
 	}
 
 	private void sendBlockSummary(Session session, BlockSummaryData blockSummary) {
-		StringWriter stringWriter = new StringWriter();
-
 		try {
-			marshall(stringWriter, blockSummary);
-
-			// In Jetty 10, sendStringByFuture is replaced by sendString with a Callback.
-			if (session.isOpen()) {
-				session.getRemote().sendString(stringWriter.toString(), WriteCallback.NOOP);
-			}
+			// Queued behind any pushed blocks, so that replies stay in order
+			pushPipeline.send(session, WebSocketBroadcaster.marshall(blockSummary));
 		} catch (IOException e) {
-			// No output this time. Specific catch for WebSocketException is no longer 
-			// required here as transport errors are handled by IO or Callbacks.
+			// No output this time
 		}
 	}
 }
\ No newline at end of file
@@ -69,6 +69,7 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 						null,
 						null,
 						encoding,
+						null,
 						limit, offset, reverse);
 
 				sendMessages(session, chatMessages);
@@ -79,7 +80,7 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 			}
 
 			ChatNotifier.Listener listener = chatTransactionData -> onNotify(session, chatTransactionData, txGroupId);
-			ChatNotifier.getInstance().register(session, listener);
+			ChatNotifier.getInstance().registerForGroup(session, txGroupId, listener);
 
 			return;
 		}
@@ -101,6 +102,7 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 					involvingAddresses,
 					null,
 					encoding,
+					null,
 					limit, offset, reverse);
 
 			sendMessages(session, chatMessages);
@@ -110,7 +112,7 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 		}
 
 		ChatNotifier.Listener listener = chatTransactionData -> onNotify(session, chatTransactionData, involvingAddresses);
-		ChatNotifier.getInstance().register(session, listener);
+		ChatNotifier.getInstance().registerForAddressPair(session, involvingAddresses.get(0), involvingAddresses.get(1), listener);
 	}
 
 	@OnWebSocketClose
@@ -25,7 +25,6 @@ import org.qortal.utils.ByteArray;
 import org.qortal.utils.NTP;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -54,6 +53,9 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 
 	private static final Map<Session, String> sessionBlockchain = Collections.synchronizedMap(new HashMap<>());
 
+	/** Marshalled initial data, keyed by session options. Synchronized, and cleared, along with cachedInfoByBlockchain. */
+	private static final Map<String, String> initialOutputs = new HashMap<>();
+
 	/**
 	 * Updated for Jetty 10.
 	 */
@@ -83,30 +85,19 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 		// Process any new info
 
 		try (final Repository repository = RepositoryManager.getRepository()) {
-			// Find any new/changed trade ATs since this block
-			final Boolean isFinished = null;
-			final Integer dataByteOffset = null;
-			final Long expectedValue = null;
-			final Integer minimumFinalHeight = blockData.getHeight();
-
-			for (SupportedBlockchain blockchain : SupportedBlockchain.values()) {
-				Map<ByteArray, Supplier<ACCT>> acctsByCodeHash = SupportedBlockchain.getFilteredAcctMap(blockchain);
+			// Find trade ATs that changed state in this block, grouped by blockchain then ACCT
+			Map<SupportedBlockchain, Map<ACCT, List<ATStateData>>> changedAtStates = getChangedTradeAtStates(repository, blockData.getHeight());
+
+			for (Map.Entry<SupportedBlockchain, Map<ACCT, List<ATStateData>>> blockchainEntry : changedAtStates.entrySet()) {
+				SupportedBlockchain blockchain = blockchainEntry.getKey();
 				List<CrossChainOfferSummary> crossChainOfferSummaries = new ArrayList<>();
 
+				for (Map.Entry<ACCT, List<ATStateData>> acctEntry : blockchainEntry.getValue().entrySet())
+					crossChainOfferSummaries.addAll(produceSummaries(repository, acctEntry.getKey(), acctEntry.getValue(), blockData.getTimestamp()));
+
 				synchronized (cachedInfoByBlockchain) {
 					CachedOfferInfo cachedInfo = cachedInfoByBlockchain.computeIfAbsent(blockchain.name(), k -> new CachedOfferInfo());
 
-					for (Map.Entry<ByteArray, Supplier<ACCT>> acctInfo : acctsByCodeHash.entrySet()) {
-						byte[] codeHash = acctInfo.getKey().value;
-						ACCT acct = acctInfo.getValue().get();
-
-						List<ATStateData> atStates = repository.getATRepository().getMatchingFinalATStates(codeHash, null, null,
-								isFinished, dataByteOffset, expectedValue, minimumFinalHeight,
-								null, null, null);
-
-						crossChainOfferSummaries.addAll(produceSummaries(repository, acct, atStates, blockData.getTimestamp()));
-					}
-
 					// Remove any entries unchanged from last time
 					crossChainOfferSummaries.removeIf(offerSummary -> cachedInfo.previousAtModes.get(offerSummary.getQortalAtAddress()) == offerSummary.getMode());
 
@@ -141,21 +132,63 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 					// Remove any historic offers that are over 24 hours old
 					final long tooOldTimestamp = NTP.getTime() - 24 * 60 * 60 * 1000L;
 					cachedInfo.historicSummaries.values().removeIf(historicSummary -> historicSummary.getTimestamp() < tooOldTimestamp);
+
+					// Initial data for new sessions is now out of date
+					initialOutputs.clear();
 				}
 
-				// Notify sessions
-				for (Session session : getSessions()) {
-					// Only send if this session has this/no preferred blockchain
-					String preferredBlockchain = sessionBlockchain.get(session);
-					if (preferredBlockchain == null || preferredBlockchain.equals(blockchain.name()))
-						sendOfferSummaries(session, crossChainOfferSummaries);
+				// Notify sessions, marshalling the changes only once for all of them
+				String output;
+				try {
+					output = WebSocketBroadcaster.marshall(crossChainOfferSummaries);
+				} catch (IOException e) {
+					continue;
 				}
+
+				// Only send if session has this/no preferred blockchain
+				WebSocketBroadcaster.broadcast(getSessions(), session -> {
+					String preferredBlockchain = sessionBlockchain.get(session);
+					return preferredBlockchain == null || preferredBlockchain.equals(blockchain.name());
+				}, output);
 			}
 		} catch (DataException e) {
 			// No output this time
 		}
 	}
 
+	/**
+	 * Returns final states of trade ATs that ran in the block at given height,
+	 * grouped by blockchain and then ACCT.
+	 * <p>
+	 * AT states are fetched using a single query, filtered by ACCT code hashes.
+	 */
+	private static Map<SupportedBlockchain, Map<ACCT, List<ATStateData>>> getChangedTradeAtStates(Repository repository, int height) throws DataException {
+		Map<SupportedBlockchain, Map<ACCT, List<ATStateData>>> changedAtStates = new EnumMap<>(SupportedBlockchain.class);
+
+		Set<ByteArray> codeHashes = new HashSet<>();
+		for (SupportedBlockchain blockchain : SupportedBlockchain.values())
+			codeHashes.addAll(SupportedBlockchain.getFilteredAcctMap(blockchain).keySet());
+
+		Map<ByteArray, List<ATStateData>> atStatesByCodeHash = repository.getATRepository().getATStatesAtHeightByCodeHash(height,
+				codeHashes.stream().map(codeHash -> codeHash.value).collect(Collectors.toList()));
+		if (atStatesByCodeHash.isEmpty())
+			return changedAtStates;
+
+		for (SupportedBlockchain blockchain : SupportedBlockchain.values()) {
+			for (Map.Entry<ByteArray, Supplier<ACCT>> acctEntry : SupportedBlockchain.getFilteredAcctMap(blockchain).entrySet()) {
+				List<ATStateData> atStates = atStatesByCodeHash.get(acctEntry.getKey());
+				if (atStates == null)
+					continue;
+
+				changedAtStates.computeIfAbsent(blockchain, k -> new HashMap<>())
+						.computeIfAbsent(acctEntry.getValue().get(), k -> new ArrayList<>())
+						.addAll(atStates);
+			}
+		}
+
+		return changedAtStates;
+	}
+
 	@OnWebSocketConnect
 	@Override
 	public void onWebSocketConnect(Session session) {
@@ -176,31 +209,16 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 		if (foreignBlockchain != null)
 			sessionBlockchain.put(session, foreignBlockchain);
 
-		List<CrossChainOfferSummary> crossChainOfferSummaries = new ArrayList<>();
-
 		// We might need to exclude the initial data from the response
-		if (!excludeInitialData) {
-			synchronized (cachedInfoByBlockchain) {
-				Collection<CachedOfferInfo> cachedInfos;
-				if (foreignBlockchain == null)
-					// No preferred blockchain, so iterate through all of them
-					cachedInfos = cachedInfoByBlockchain.values();
-				else
-					cachedInfos = Collections.singleton(cachedInfoByBlockchain.computeIfAbsent(foreignBlockchain, k -> new CachedOfferInfo()));
-
-				for (CachedOfferInfo cachedInfo : cachedInfos) {
-					crossChainOfferSummaries.addAll(cachedInfo.currentSummaries.values());
-					if (includeHistoric)
-						crossChainOfferSummaries.addAll(cachedInfo.historicSummaries.values());
-				}
-			}
-		}
+		String output = excludeInitialData ? "[]" : getInitialOutput(foreignBlockchain, includeHistoric);
 
-		if (!sendOfferSummaries(session, crossChainOfferSummaries)) {
+		if (output == null || !session.isOpen()) {
 			session.close(4002, "websocket issue");
 			return;
 		}
 
+		session.getRemote().sendString(output, WriteCallback.NOOP);
+
 		super.onWebSocketConnect(session);
 	}
 
@@ -224,21 +242,41 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 		}
 	}
 
-	private boolean sendOfferSummaries(Session session, List<CrossChainOfferSummary> crossChainOfferSummaries) {
-		if (session.isOpen()) {
-			try {
-				StringWriter stringWriter = new StringWriter();
-				marshall(stringWriter, crossChainOfferSummaries);
-				String output = stringWriter.toString();
+	/**
+	 * Returns marshalled initial data for new sessions, shared between sessions with the same options
+	 * until the cached offers change.
+	 */
+	private static String getInitialOutput(String foreignBlockchain, boolean includeHistoric) {
+		String key = (foreignBlockchain != null ? foreignBlockchain : "") + "|" + includeHistoric;
+
+		synchronized (cachedInfoByBlockchain) {
+			String output = initialOutputs.get(key);
+			if (output != null)
+				return output;
+
+			Collection<CachedOfferInfo> cachedInfos;
+			if (foreignBlockchain == null)
+				// No preferred blockchain, so iterate through all of them
+				cachedInfos = cachedInfoByBlockchain.values();
+			else
+				cachedInfos = Collections.singleton(cachedInfoByBlockchain.computeIfAbsent(foreignBlockchain, k -> new CachedOfferInfo()));
+
+			List<CrossChainOfferSummary> crossChainOfferSummaries = new ArrayList<>();
+			for (CachedOfferInfo cachedInfo : cachedInfos) {
+				crossChainOfferSummaries.addAll(cachedInfo.currentSummaries.values());
+				if (includeHistoric)
+					crossChainOfferSummaries.addAll(cachedInfo.historicSummaries.values());
+			}
 
-				// Updated for Jetty 10 async send pattern
-				session.getRemote().sendString(output, WriteCallback.NOOP);
-				return true;
+			try {
+				output = WebSocketBroadcaster.marshall(crossChainOfferSummaries);
 			} catch (IOException e) {
-				return false;
+				return null;
 			}
+
+			initialOutputs.put(key, output);
+			return output;
 		}
-		return false;
 	}
 
 	private static void populateCurrentSummaries(Repository repository) throws DataException {
@@ -0,0 +1,59 @@
+package org.qortal.api.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * Helpers for sending the same update to many websocket sessions.
+ * <p>
+ * Updates are marshalled once, and the resulting output is shared by every recipient session,
+ * rather than being marshalled again for each session.
+ */
+public class WebSocketBroadcaster {
+
+	private WebSocketBroadcaster() {
+	}
+
+	/**
+	 * Marshals a collection to JSON, for sharing between sessions.
+	 */
+	public static String marshall(Collection<?> collection) throws IOException {
+		StringWriter stringWriter = new StringWriter();
+		ApiWebSocket.marshall(stringWriter, collection);
+		return stringWriter.toString();
+	}
+
+	/**
+	 * Marshals an object to JSON, for sharing between sessions.
+	 */
+	public static String marshall(Object object) throws IOException {
+		StringWriter stringWriter = new StringWriter();
+		ApiWebSocket.marshall(stringWriter, object);
+		return stringWriter.toString();
+	}
+
+	/**
+	 * Sends output to every open session accepted by filter.
+	 *
+	 * @return number of sessions that output was sent to
+	 */
+	public static int broadcast(Collection<Session> sessions, Predicate<Session> filter, String output) {
+		int sent = 0;
+
+		for (Session session : sessions) {
+			if (!session.isOpen() || !filter.test(session))
+				continue;
+
+			session.getRemote().sendString(output, WriteCallback.NOOP);
+			++sent;
+		}
+
+		return sent;
+	}
+
+}
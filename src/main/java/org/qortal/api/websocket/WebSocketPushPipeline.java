@@ -0,0 +1,244 @@
+package org.qortal.api.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.qortal.api.model.WebSocketSessionStats;
+
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * Pushes already-marshalled output to websocket sessions, via a bounded queue per session.
+ * <p>
+ * Each session has at most one frame being written at a time. The next queued frame is only sent
+ * once the previous write has completed, so a slow client can't make frames pile up inside Jetty.
+ * <p>
+ * If a session's queue is full when a new frame is pushed, the queued (unsent) frames are dropped
+ * in favour of the new frame, i.e. pushes are coalesced. With a queue size of 1, a slow session
+ * only ever receives the latest output, which suits status updates. With larger queues, intermediate
+ * frames (e.g. blocks during a fast sync) are dropped, but the session always catches up with the latest.
+ * <p>
+ * Output sent to one session, e.g. a reply to a request, is never coalesced and doesn't count towards the
+ * queue size, so a client always receives answers to its own requests.
+ * <p>
+ * Per-session delivery and lag metrics are available via {@link #getAllSessionStats()}.
+ */
+public class WebSocketPushPipeline {
+
+	private static final List<WebSocketPushPipeline> PIPELINES = new CopyOnWriteArrayList<>();
+
+	private static class Frame {
+		private final String output;
+		private final long queuedWhen;
+		/** Whether frame was pushed to all sessions, and so can be coalesced */
+		private final boolean isPushed;
+
+		private Frame(String output, long queuedWhen, boolean isPushed) {
+			this.output = output;
+			this.queuedWhen = queuedWhen;
+			this.isPushed = isPushed;
+		}
+	}
+
+	private class SessionQueue {
+		private final Session session;
+		private final Deque<Frame> frames = new ArrayDeque<>();
+		private int pushedFrameCount = 0;
+		private boolean isSending = false;
+
+		private long sentCount = 0;
+		private long droppedCount = 0;
+		private long lastDeliveryTime = 0;
+		private long maxDeliveryTime = 0;
+
+		private SessionQueue(Session session) {
+			this.session = session;
+		}
+
+		private void push(String output, boolean isPushed) {
+			synchronized (this) {
+				if (isPushed) {
+					if (this.pushedFrameCount >= maxQueuedFrames) {
+						// Coalesce: drop unsent pushed frames in favour of latest
+						this.droppedCount += this.pushedFrameCount;
+						this.frames.removeIf(queuedFrame -> queuedFrame.isPushed);
+						this.pushedFrameCount = 0;
+					}
+
+					++this.pushedFrameCount;
+				}
+
+				this.frames.addLast(new Frame(output, clock.getAsLong(), isPushed));
+
+				if (this.isSending)
+					// Will be sent when current write completes
+					return;
+
+				this.isSending = true;
+			}
+
+			this.sendNext();
+		}
+
+		private void sendNext() {
+			Frame frame;
+
+			synchronized (this) {
+				frame = this.frames.pollFirst();
+				if (frame != null && frame.isPushed)
+					--this.pushedFrameCount;
+
+				if (frame == null || !this.session.isOpen()) {
+					this.isSending = false;
+					return;
+				}
+			}
+
+			try {
+				this.session.getRemote().sendString(frame.output, new WriteCallback() {
+					@Override
+					public void writeFailed(Throwable x) {
+						onWriteFailed();
+					}
+
+					@Override
+					public void writeSuccess() {
+						onWriteSuccess(frame);
+					}
+				});
+			} catch (RuntimeException e) {
+				// Session probably closed
+				this.onWriteFailed();
+			}
+		}
+
+		private void onWriteSuccess(Frame frame) {
+			synchronized (this) {
+				long deliveryTime = clock.getAsLong() - frame.queuedWhen;
+
+				++this.sentCount;
+				this.lastDeliveryTime = deliveryTime;
+				this.maxDeliveryTime = Math.max(this.maxDeliveryTime, deliveryTime);
+			}
+
+			this.sendNext();
+		}
+
+		private void onWriteFailed() {
+			synchronized (this) {
+				// Session is probably closing, so don't bother with remaining frames
+				this.droppedCount += this.frames.size();
+				this.frames.clear();
+				this.pushedFrameCount = 0;
+				this.isSending = false;
+			}
+		}
+
+		private synchronized WebSocketSessionStats getStats(long now) {
+			Frame oldestFrame = this.frames.peekFirst();
+			long lag = oldestFrame != null ? now - oldestFrame.queuedWhen : 0;
+
+			SocketAddress remoteAddress = this.session.getRemoteAddress();
+
+			return new WebSocketSessionStats(name, remoteAddress != null ? remoteAddress.toString() : null,
+					this.frames.size(), this.isSending, this.sentCount, this.droppedCount,
+					lag, this.lastDeliveryTime, this.maxDeliveryTime);
+		}
+	}
+
+	private final String name;
+	private final int maxQueuedFrames;
+	private final LongSupplier clock;
+
+	private final Map<Session, SessionQueue> sessionQueues = new ConcurrentHashMap<>();
+
+	/**
+	 * @param name name of websocket, for metrics
+	 * @param maxQueuedFrames maximum number of unsent frames per session, before coalescing
+	 * @param clock source of current time, in milliseconds
+	 */
+	public WebSocketPushPipeline(String name, int maxQueuedFrames, LongSupplier clock) {
+		this.name = name;
+		this.maxQueuedFrames = Math.max(1, maxQueuedFrames);
+		this.clock = clock;
+	}
+
+	/**
+	 * Creates pipeline, which is included in {@link #getAllSessionStats()}.
+	 */
+	public static WebSocketPushPipeline create(String name, int maxQueuedFrames) {
+		WebSocketPushPipeline pipeline = new WebSocketPushPipeline(name, maxQueuedFrames, System::currentTimeMillis);
+		PIPELINES.add(pipeline);
+		return pipeline;
+	}
+
+	public void addSession(Session session) {
+		this.sessionQueues.putIfAbsent(session, new SessionQueue(session));
+	}
+
+	public void removeSession(Session session) {
+		SessionQueue sessionQueue = this.sessionQueues.remove(session);
+		if (sessionQueue == null)
+			return;
+
+		synchronized (sessionQueue) {
+			sessionQueue.frames.clear();
+			sessionQueue.pushedFrameCount = 0;
+		}
+	}
+
+	/**
+	 * Queues output for all sessions.
+	 */
+	public void push(String output) {
+		for (SessionQueue sessionQueue : this.sessionQueues.values())
+			sessionQueue.push(output, true);
+	}
+
+	/**
+	 * Queues output for one session, e.g. a reply to a request, keeping its order relative to pushed output.
+	 * Such output is never dropped by coalescing.
+	 */
+	public void send(Session session, String output) {
+		SessionQueue sessionQueue = this.sessionQueues.get(session);
+		if (sessionQueue != null) {
+			sessionQueue.push(output, false);
+			return;
+		}
+
+		// Not (yet) registered, e.g. initial output during connect
+		if (session.isOpen())
+			session.getRemote().sendString(output, WriteCallback.NOOP);
+	}
+
+	public int getSessionCount() {
+		return this.sessionQueues.size();
+	}
+
+	public List<WebSocketSessionStats> getSessionStats() {
+		long now = this.clock.getAsLong();
+
+		List<WebSocketSessionStats> sessionStats = new ArrayList<>();
+		for (SessionQueue sessionQueue : this.sessionQueues.values())
+			sessionStats.add(sessionQueue.getStats(now));
+
+		return sessionStats;
+	}
+
+	public static List<WebSocketSessionStats> getAllSessionStats() {
+		List<WebSocketSessionStats> sessionStats = new ArrayList<>();
+
+		for (WebSocketPushPipeline pipeline : PIPELINES)
+			sessionStats.addAll(pipeline.getSessionStats());
+
+		return sessionStats;
+	}
+
+}
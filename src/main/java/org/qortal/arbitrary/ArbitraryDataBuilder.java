@@ -65,9 +65,14 @@ public class ArbitraryDataBuilder {
      * Build the latest state of a given resource
      */
     public void build() throws DataException, IOException, MissingDataException {
+        final long startTime = System.currentTimeMillis();
+
         this.process();
         this.buildLatestState();
         this.cacheLatestSignature();
+
+        LOGGER.debug("Built {} {} {} in {} ms", this.name, this.service, this.identifierString(),
+                System.currentTimeMillis() - startTime);
     }
 
     private void fetchTransactions() throws DataException {
@@ -39,6 +39,15 @@ public class ArbitraryDataCache {
     }
 
     public boolean shouldInvalidate() {
+        boolean shouldInvalidate = this.shouldInvalidateCachedData();
+        if (shouldInvalidate) {
+            // Any pages rendered from the existing cached data are now stale too
+            ArbitraryDataRenderCache.getInstance().invalidate(this.getArbitraryDataResource().getUniqueKey());
+        }
+        return shouldInvalidate;
+    }
+
+    private boolean shouldInvalidateCachedData() {
         try {
             // If the user has requested an overwrite, always invalidate the cache
             if (this.overwrite) {
@@ -0,0 +1,338 @@
+package org.qortal.arbitrary;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.settings.Settings;
+import org.qortal.utils.Base58;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Precompressed (gzip) variants of built text assets, for serving via the gateway,
+ * domain map and render endpoints.
+ *
+ * Variants are stored on disk alongside the reader cache, in a "compressed" directory next to
+ * the built "data" directory, and are keyed by the signature of the built state. A rebuilt
+ * resource therefore never serves a stale variant, and variants are removed along with the
+ * rest of the reader cache.
+ *
+ * The total size of variants is kept within a byte budget, by evicting the least recently
+ * served variants first. Variants left on disk by a previous run count towards the budget too.
+ */
+public class ArbitraryDataCompressionCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(ArbitraryDataCompressionCache.class);
+
+    /** Files smaller than this aren't worth compressing */
+    public static final int MIN_COMPRESS_BYTES = 1024; // 1KiB
+    /** Files larger than this are served uncompressed, to avoid long stalls on first request */
+    public static final long MAX_COMPRESS_BYTES = 32 * 1024 * 1024L; // 32MiB
+    /** Variants must save at least this fraction of the original size to be kept */
+    private static final double MIN_SAVING = 0.1;
+    /** Maximum number of files remembered as not worth compressing */
+    private static final int MAX_INCOMPRESSIBLE_ENTRIES = 1000;
+
+    private static final List<String> COMPRESSIBLE_EXTENSIONS = List.of(
+            "html", "htm", "css", "js", "mjs", "json", "map", "svg", "txt", "xml", "csv", "md", "wasm", "webmanifest");
+
+    private static ArbitraryDataCompressionCache instance;
+
+    /** Size of each known variant, keyed by path, in access order */
+    private final LinkedHashMap<Path, Long> variants = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Files that didn't compress well enough, so that we don't keep retrying them */
+    private final Map<Path, Boolean> incompressible = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Boolean> eldest) {
+            return this.size() > MAX_INCOMPRESSIBLE_ENTRIES;
+        }
+    };
+
+    private final long maxCacheBytes;
+    private long totalBytes = 0;
+
+    public ArbitraryDataCompressionCache(long maxCacheBytes) {
+        this.maxCacheBytes = maxCacheBytes;
+    }
+
+    public static synchronized ArbitraryDataCompressionCache getInstance() {
+        if (instance == null) {
+            instance = new ArbitraryDataCompressionCache(Settings.getInstance().getCompressedVariantCacheSize());
+            instance.addExistingVariants(Paths.get(Settings.getInstance().getTempDataPath(), "reader"));
+        }
+        return instance;
+    }
+
+    public static boolean isCompressible(String filename) {
+        if (filename == null) {
+            return false;
+        }
+        int index = filename.lastIndexOf('.');
+        if (index < 0) {
+            return false;
+        }
+        return COMPRESSIBLE_EXTENSIONS.contains(filename.substring(index + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return true if an Accept-Encoding header value allows gzip
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String candidate : acceptEncoding.split(",")) {
+            String[] parts = candidate.trim().split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim().toLowerCase(Locale.ROOT);
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return gzip-compressed data, or null if it wouldn't be worth serving compressed
+     */
+    public static byte[] gzipIfWorthwhile(byte[] data) {
+        if (data == null || data.length < MIN_COMPRESS_BYTES || data.length > MAX_COMPRESS_BYTES) {
+            return null;
+        }
+        try {
+            byte[] compressed = gzip(data);
+            return compressed.length <= data.length * (1 - MIN_SAVING) ? compressed : null;
+
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 2);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(data);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Returns the path of a gzip variant of a built file, creating it if needed.
+     *
+     * @param builtPath the built "data" directory of the resource, as returned by ArbitraryDataReader
+     * @param signature the signature of the built state
+     * @param relativePath the path of the file, relative to builtPath
+     * @return the variant path, or null if the file shouldn't be served compressed
+     */
+    public Path getGzipVariant(Path builtPath, byte[] signature, String relativePath) {
+        if (builtPath == null || signature == null || relativePath == null || builtPath.getParent() == null) {
+            return null;
+        }
+
+        Path sourcePath = builtPath.resolve(relativePath).normalize();
+        Path variantDirectory = builtPath.getParent().resolve("compressed").resolve(Base58.encode(signature));
+        Path variantPath = variantDirectory.resolve(relativePath + ".gz").normalize();
+        if (!sourcePath.startsWith(builtPath) || !variantPath.startsWith(variantDirectory)) {
+            return null;
+        }
+
+        synchronized (this) {
+            if (this.incompressible.containsKey(variantPath)) {
+                return null;
+            }
+            // Use get() rather than containsKey(), so that the access order is updated
+            if (this.variants.get(variantPath) != null) {
+                if (Files.exists(variantPath)) {
+                    return variantPath;
+                }
+                // Removed along with the reader cache
+                this.remove(variantPath);
+            }
+        }
+
+        try {
+            if (!Files.isRegularFile(sourcePath)) {
+                return null;
+            }
+            long sourceSize = Files.size(sourcePath);
+            if (sourceSize < MIN_COMPRESS_BYTES || sourceSize > MAX_COMPRESS_BYTES) {
+                return null;
+            }
+
+            if (!Files.exists(variantPath)) {
+                byte[] compressed = gzipIfWorthwhile(Files.readAllBytes(sourcePath));
+                if (compressed == null) {
+                    synchronized (this) {
+                        this.incompressible.put(variantPath, Boolean.TRUE);
+                    }
+                    return null;
+                }
+
+                // Write to a temporary file first, so that a partial variant is never served
+                Files.createDirectories(variantPath.getParent());
+                Path tempPath = Files.createTempFile(variantPath.getParent(), ".variant", ".tmp");
+                try {
+                    Files.write(tempPath, compressed);
+                    Files.move(tempPath, variantPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tempPath);
+                }
+            }
+
+            long variantSize = Files.size(variantPath);
+            synchronized (this) {
+                Long previous = this.variants.put(variantPath, variantSize);
+                if (previous != null) {
+                    this.totalBytes -= previous;
+                }
+                this.totalBytes += variantSize;
+                this.evict(variantPath);
+
+                return this.variants.containsKey(variantPath) ? variantPath : null;
+            }
+
+        } catch (IOException e) {
+            LOGGER.debug("Unable to create compressed variant of {}: {}", sourcePath, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Counts variants already on disk, e.g. from a previous run, towards the budget,
+     * evicting the least recently modified ones if over budget.
+     *
+     * @param readerPath directory containing built resources, each with "data" and "compressed" directories
+     */
+    public void addExistingVariants(Path readerPath) {
+        if (readerPath == null || !Files.isDirectory(readerPath)) {
+            return;
+        }
+
+        List<Path> existingVariants = new ArrayList<>();
+        try {
+            Files.walkFileTree(readerPath, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    String name = dir.getFileName().toString();
+                    if (name.equals("data") && Files.isDirectory(dir.resolveSibling("compressed"))) {
+                        // Built files, not variants
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (name.equals("compressed") && Files.isDirectory(dir.resolveSibling("data"))) {
+                        try (Stream<Path> paths = Files.walk(dir)) {
+                            existingVariants.addAll(paths
+                                    .filter(path -> path.getFileName().toString().endsWith(".gz") && Files.isRegularFile(path))
+                                    .collect(Collectors.toList()));
+                        }
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.debug("Unable to scan for existing compressed variants in {}: {}", readerPath, e.getMessage());
+        }
+
+        // Least recently modified first, as they'll be the first to be evicted
+        List<Path> sortedVariants = existingVariants.stream()
+                .sorted(Comparator.comparingLong(ArbitraryDataCompressionCache::getLastModified))
+                .collect(Collectors.toList());
+
+        synchronized (this) {
+            for (Path variantPath : sortedVariants) {
+                try {
+                    long variantSize = Files.size(variantPath);
+                    Long previous = this.variants.putIfAbsent(variantPath, variantSize);
+                    if (previous == null) {
+                        this.totalBytes += variantSize;
+                    }
+                } catch (IOException e) {
+                    // Removed in the meantime
+                }
+            }
+            this.evict(null);
+        }
+
+        if (!sortedVariants.isEmpty()) {
+            LOGGER.debug("Found {} existing compressed variants, using {} bytes", this.getVariantCount(), this.getTotalBytes());
+        }
+    }
+
+    private static long getLastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    public synchronized int getVariantCount() {
+        return this.variants.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return this.totalBytes;
+    }
+
+    /**
+     * Evicts least recently served variants until we're back within budget.
+     * The most recent variant, if any, is only evicted if it exceeds the budget by itself.
+     */
+    private void evict(Path mostRecent) {
+        Iterator<Map.Entry<Path, Long>> iterator = this.variants.entrySet().iterator();
+        while (this.totalBytes > this.maxCacheBytes && iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (entry.getKey().equals(mostRecent) && this.variants.size() > 1) {
+                continue;
+            }
+            iterator.remove();
+            this.totalBytes -= entry.getValue();
+            this.deleteVariant(entry.getKey());
+        }
+    }
+
+    private void remove(Path variantPath) {
+        Long size = this.variants.remove(variantPath);
+        if (size != null) {
+            this.totalBytes -= size;
+        }
+    }
+
+    private void deleteVariant(Path variantPath) {
+        try {
+            Files.deleteIfExists(variantPath);
+        } catch (IOException e) {
+            LOGGER.debug("Unable to delete compressed variant {}: {}", variantPath, e.getMessage());
+        }
+    }
+
+}
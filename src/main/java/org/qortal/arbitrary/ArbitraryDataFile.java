@@ -8,6 +8,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -24,8 +27,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -78,6 +83,7 @@ public class ArbitraryDataFile {
     protected static final int MAX_CHUNK_SIZE = 1 * 1024 * 1024; // 1MiB
     public static final int CHUNK_SIZE = 512 * 1024; // 0.5MiB
     public static int SHORT_DIGEST_LENGTH = 8;
+    private static final int SPLIT_MAX_THREADS = 4;
 
     protected Path filePath;
     protected byte[] fileContent;
@@ -390,6 +396,109 @@ public class ArbitraryDataFile {
         return this.chunks.size();
     }
 
+    /**
+     * Splits this file into chunks using a bounded pool of worker threads.
+     *
+     * The source file is memory-mapped one chunk-sized region at a time. Each region is
+     * hashed and written to its chunk file by a worker, while the calling thread feeds the
+     * same regions, in order, into the whole-file digest. This avoids the heap copies made
+     * by split(), and the resulting digests are cached so that neither the file nor its
+     * chunks need to be re-read when building and validating the metadata.
+     *
+     * Chunk boundaries, and therefore chunk hashes, are identical to split().
+     *
+     * @param chunkSize the maximum size of each chunk, in bytes
+     * @return the number of chunks created
+     * @throws DataException if the file couldn't be split, or changed while being split
+     */
+    public int splitParallel(int chunkSize) throws DataException {
+        File file = this.getFile();
+        this.chunks = new ArrayList<>();
+
+        if (file == null) {
+            return 0;
+        }
+        long fileSize = file.length();
+        if (fileSize <= chunkSize) {
+            // No need to split into chunks if we're already below the chunk size
+            return 0;
+        }
+
+        int chunkCount = (int) ((fileSize + chunkSize - 1) / chunkSize);
+        int threadCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), SPLIT_MAX_THREADS));
+
+        ExecutorService splitPool = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread t = new Thread(r);
+            t.setName("ChunkSplitter-" + t.getId());
+            t.setDaemon(true);
+            return t;
+        });
+
+        List<Future<ArbitraryDataFileChunk>> futures = new ArrayList<>(chunkCount);
+
+        try (FileChannel channel = FileChannel.open(this.filePath, StandardOpenOption.READ)) {
+            MessageDigest fileDigest = MessageDigest.getInstance("SHA-256");
+
+            for (int i = 0; i < chunkCount; i++) {
+                long offset = (long) i * chunkSize;
+                long length = Math.min(chunkSize, fileSize - offset);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+
+                // Workers get their own view of the region, so the positions don't interfere
+                ByteBuffer chunkRegion = region.duplicate();
+                futures.add(splitPool.submit(() -> this.writeChunk(chunkRegion)));
+
+                // Whole-file digest is computed in order, in the same pass
+                fileDigest.update(region);
+            }
+
+            // Collect in submission order, so that chunk order matches split()
+            for (Future<ArbitraryDataFileChunk> future : futures) {
+                this.chunks.add(future.get());
+            }
+
+            byte[] digest = fileDigest.digest();
+            if (this.hash58 != null && !this.hash58.equals(Base58.encode(digest))) {
+                throw new DataException(String.format("File %s changed while being split into chunks", this));
+            }
+            this.cachedDigest = digest;
+
+        } catch (IOException | NoSuchAlgorithmException | ExecutionException e) {
+            throw new DataException("Unable to split file into chunks", e);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataException("Interrupted while splitting file into chunks");
+
+        } finally {
+            splitPool.shutdownNow();
+        }
+
+        return this.chunks.size();
+    }
+
+    private ArbitraryDataFileChunk writeChunk(ByteBuffer region) throws DataException, IOException {
+        byte[] hash = Crypto.digest(region.duplicate());
+        ArbitraryDataFileChunk chunk = ArbitraryDataFileChunk.fromHash(hash, this.signature);
+
+        Path chunkPath = getOutputFilePath(chunk.getHash58(), this.signature, true);
+        try (FileChannel out = FileChannel.open(chunkPath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (region.hasRemaining()) {
+                out.write(region);
+            }
+        }
+
+        ValidationResult validationResult = chunk.isValid();
+        if (validationResult != ValidationResult.OK) {
+            throw new DataException(String.format("Chunk %s is invalid", chunk));
+        }
+
+        // Chunk contents were hashed on the way in, so there's no need to read them back
+        chunk.setCachedDigest(hash);
+        return chunk;
+    }
+
     /**
      * Joins all chunks into a single file using parallel pre-reading
      * and computes the file hash incrementally during the write process.
@@ -698,6 +807,10 @@ public class ArbitraryDataFile {
         this.cachedDigest = null;
     }
 
+    protected void setCachedDigest(byte[] digest) {
+        this.cachedDigest = digest;
+    }
+
 
     /* Helper methods */
 
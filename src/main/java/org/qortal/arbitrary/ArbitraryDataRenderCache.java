@@ -0,0 +1,187 @@
+package org.qortal.arbitrary;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.crypto.Crypto;
+import org.qortal.utils.Base58;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-memory cache of rewritten HTML for rendered QDN resources.
+ *
+ * Rendering an HTML file involves a full Jsoup parse and serialize (see HTMLParser), which is
+ * repeated on every navigation within an app. The rewritten output only depends on the built
+ * state of the resource and on the render parameters, so it can be cached and served directly,
+ * along with a precomputed ETag so that conditional requests can be answered with a 304.
+ *
+ * Entries are keyed by resource, the signature of the built state, and a render variant
+ * (path, prefix, theme, lang, etc). All entries for a resource are dropped whenever its
+ * cached data is invalidated.
+ */
+public class ArbitraryDataRenderCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(ArbitraryDataRenderCache.class);
+
+    /** Total size of cached pages, in bytes */
+    private static final long MAX_CACHE_BYTES = 32L * 1024 * 1024; // 32MiB
+    /** Pages larger than this aren't cached */
+    private static final int MAX_PAGE_BYTES = 2 * 1024 * 1024; // 2MiB
+
+    private static ArbitraryDataRenderCache instance;
+
+    public static class RenderedPage {
+        private final String resourceKey;
+        private final byte[] data;
+        private final String filename;
+        private final byte[] gzipData;
+        private final String etag;
+
+        public RenderedPage(String resourceKey, byte[] data, String filename) {
+            this.resourceKey = resourceKey;
+            this.data = data;
+            this.gzipData = ArbitraryDataCompressionCache.gzipIfWorthwhile(data);
+            this.filename = filename;
+            this.etag = String.format("\"%s\"", Base58.encode(Crypto.digest(data)));
+        }
+
+        public byte[] getData() {
+            return this.data;
+        }
+
+        /** Returns the page compressed with gzip, or null if it isn't worth serving compressed */
+        public byte[] getGzipData() {
+            return this.gzipData;
+        }
+
+        /** Returns the number of bytes held for this page, including its compressed variant */
+        public long getSize() {
+            return this.data.length + (this.gzipData != null ? this.gzipData.length : 0);
+        }
+
+        public String getFilename() {
+            return this.filename;
+        }
+
+        public String getEtag() {
+            return this.etag;
+        }
+    }
+
+    /** Signature of the built state that cached pages were rendered from, keyed by resource */
+    private final Map<String, byte[]> signatureByResource = new HashMap<>();
+
+    /** Cached pages in access order, so that the least recently used page is evicted first */
+    private final LinkedHashMap<String, RenderedPage> pages = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final long maxCacheBytes;
+    private long totalBytes = 0;
+
+    public ArbitraryDataRenderCache(long maxCacheBytes) {
+        this.maxCacheBytes = maxCacheBytes;
+    }
+
+    public static synchronized ArbitraryDataRenderCache getInstance() {
+        if (instance == null) {
+            instance = new ArbitraryDataRenderCache(MAX_CACHE_BYTES);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns a previously rendered page, or null if there isn't one for the current state of the resource.
+     */
+    public synchronized RenderedPage get(String resourceKey, String variant) {
+        byte[] signature = this.signatureByResource.get(resourceKey);
+        if (signature == null) {
+            return null;
+        }
+        return this.pages.get(pageKey(resourceKey, signature, variant));
+    }
+
+    /**
+     * Adds a rendered page, built from the resource state with the given signature.
+     * If the resource was previously cached at a different signature, those pages are dropped.
+     */
+    public synchronized void put(String resourceKey, byte[] signature, String variant, RenderedPage page) {
+        if (signature == null || page == null || page.data.length > MAX_PAGE_BYTES) {
+            return;
+        }
+
+        byte[] existingSignature = this.signatureByResource.get(resourceKey);
+        if (existingSignature != null && !Arrays.equals(existingSignature, signature)) {
+            this.invalidate(resourceKey);
+        }
+        this.signatureByResource.put(resourceKey, signature);
+
+        RenderedPage previous = this.pages.put(pageKey(resourceKey, signature, variant), page);
+        if (previous != null) {
+            this.totalBytes -= previous.getSize();
+        }
+        this.totalBytes += page.getSize();
+
+        // Evict least recently used pages until we're back within budget
+        Iterator<RenderedPage> iterator = this.pages.values().iterator();
+        while (this.totalBytes > this.maxCacheBytes && iterator.hasNext()) {
+            RenderedPage evicted = iterator.next();
+            iterator.remove();
+            this.totalBytes -= evicted.getSize();
+        }
+    }
+
+    /**
+     * Drops all rendered pages for a resource.
+     * Called whenever the resource's cached data is invalidated.
+     */
+    public synchronized void invalidate(String resourceKey) {
+        if (this.signatureByResource.remove(resourceKey) == null) {
+            return;
+        }
+
+        Iterator<RenderedPage> iterator = this.pages.values().iterator();
+        while (iterator.hasNext()) {
+            RenderedPage page = iterator.next();
+            if (page.resourceKey.equals(resourceKey)) {
+                iterator.remove();
+                this.totalBytes -= page.getSize();
+            }
+        }
+        LOGGER.trace("Cleared rendered pages for {}", resourceKey);
+    }
+
+    public synchronized int getPageCount() {
+        return this.pages.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return this.totalBytes;
+    }
+
+    /**
+     * @return true if an If-None-Match header value matches the given ETag
+     */
+    public static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String pageKey(String resourceKey, byte[] signature, String variant) {
+        return String.format("%s|%s|%s", resourceKey, Base58.encode(signature), variant);
+    }
+
+}
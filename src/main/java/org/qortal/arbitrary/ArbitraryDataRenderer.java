@@ -9,9 +9,13 @@ import org.apache.logging.log4j.Logger;
 import org.qortal.api.HTMLParser;
 import org.qortal.arbitrary.ArbitraryDataFile.ResourceIdType;
 import org.qortal.arbitrary.exception.MissingDataException;
+import org.qortal.arbitrary.metadata.ArbitraryDataMetadataCache;
 import org.qortal.arbitrary.misc.Service;
 import org.qortal.controller.Controller;
+import org.qortal.crypto.Crypto;
+import org.qortal.repository.DataException;
 import org.qortal.settings.Settings;
+import org.qortal.utils.Base58;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
@@ -122,6 +126,20 @@ public class ArbitraryDataRenderer {
         }
         String unzippedPath = path.toString();
 
+        // Serve previously rewritten HTML if we have it for the current state of this resource
+        ArbitraryDataRenderCache renderCache = ArbitraryDataRenderCache.getInstance();
+        String resourceKey = new ArbitraryDataResource(resourceId, resourceIdType, service, identifier).getUniqueKey();
+        String renderVariant = this.getRenderVariant();
+        ArbitraryDataRenderCache.RenderedPage cachedPage = renderCache.get(resourceKey, renderVariant);
+        if (cachedPage != null) {
+            try {
+                return this.writeRenderedPage(cachedPage);
+            } catch (IOException e) {
+                LOGGER.info("Unable to serve cached page at path {}: {}", inPath, e.getMessage());
+                return ArbitraryDataRenderer.getResponse(response, 500, "Error 500: Internal Server Error");
+            }
+        }
+
         // Set path automatically for single file resources (except for apps, which handle routing differently)
         String[] files = ArrayUtils.removeElement(new File(unzippedPath).list(), ".qortal");
         if (files.length == 1 && this.service != Service.APP) {
@@ -179,27 +197,44 @@ public class ArbitraryDataRenderer {
                 }
                 HTMLParser htmlParser = new HTMLParser(encodedResourceId, inPath, prefix, includeResourceIdInPrefix, data, qdnContext, service, identifier, theme, usingCustomRouting, lang);
                 htmlParser.addAdditionalHeaderTags();
-                response.addHeader(
-                    "Content-Security-Policy",
-                    "default-src 'self' 'unsafe-inline' 'unsafe-eval'; " +
-                    "font-src 'self' data:; " +
 
-                    // allow localhost for media
-                    "media-src 'self' data: blob: http://127.0.0.1:* http://localhost:*; " +
-
-                    "img-src 'self' data: blob:; " +
-                    "connect-src 'self' wss: blob:;"
-                );
-                response.setContentType(context.getMimeType(filename));
-                response.setContentLength(htmlParser.getData().length);
-                response.getOutputStream().write(htmlParser.getData());
+                ArbitraryDataRenderCache.RenderedPage page = new ArbitraryDataRenderCache.RenderedPage(resourceKey, htmlParser.getData(), filename);
+                renderCache.put(resourceKey, this.getBuiltSignature(path), renderVariant, page);
+                return this.writeRenderedPage(page);
             }
             else {
                 // Regular file - can be streamed directly
                 File file = filePath.toFile();
-                FileInputStream inputStream = new FileInputStream(file);
                 response.addHeader("Content-Security-Policy", "default-src 'self'");
                 response.setContentType(context.getMimeType(filename));
+
+                byte[] builtSignature = this.getBuiltSignature(path);
+                if (builtSignature != null) {
+                    // The built signature identifies the content, so it can be used to answer conditional requests
+                    String relativePath = path.relativize(filePath).toString();
+                    String etag = getEtag(builtSignature, relativePath);
+
+                    if (ArbitraryDataCompressionCache.isCompressible(filename)) {
+                        response.setHeader("Vary", "Accept-Encoding");
+                        if (this.acceptsGzip()) {
+                            Path variantPath = ArbitraryDataCompressionCache.getInstance().getGzipVariant(path, builtSignature, relativePath);
+                            if (variantPath != null) {
+                                file = variantPath.toFile();
+                                etag = getGzipEtag(etag);
+                                response.setHeader("Content-Encoding", "gzip");
+                            }
+                        }
+                    }
+
+                    response.setHeader("ETag", etag);
+                    response.setHeader("Cache-Control", this.getCacheControl());
+                    if (request != null && ArbitraryDataRenderCache.etagMatches(request.getHeader("If-None-Match"), etag)) {
+                        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                        return response;
+                    }
+                }
+
+                FileInputStream inputStream = new FileInputStream(file);
                 int bytesRead, length = 0;
                 byte[] buffer = new byte[10240];
                 while ((bytesRead = inputStream.read(buffer)) != -1) {
@@ -219,6 +254,91 @@ public class ArbitraryDataRenderer {
         return ArbitraryDataRenderer.getResponse(response, 404, "Error 404: File Not Found");
     }
 
+    private HttpServletResponse writeRenderedPage(ArbitraryDataRenderCache.RenderedPage page) throws IOException {
+        response.addHeader(
+            "Content-Security-Policy",
+            "default-src 'self' 'unsafe-inline' 'unsafe-eval'; " +
+            "font-src 'self' data:; " +
+
+            // allow localhost for media
+            "media-src 'self' data: blob: http://127.0.0.1:* http://localhost:*; " +
+
+            "img-src 'self' data: blob:; " +
+            "connect-src 'self' wss: blob:;"
+        );
+
+        byte[] data = page.getData();
+        String etag = page.getEtag();
+        if (page.getGzipData() != null) {
+            response.setHeader("Vary", "Accept-Encoding");
+            if (this.acceptsGzip()) {
+                data = page.getGzipData();
+                etag = getGzipEtag(etag);
+                response.setHeader("Content-Encoding", "gzip");
+            }
+        }
+
+        // Clients revalidating can use the ETag to avoid a full download
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", this.getCacheControl());
+        if (request != null && ArbitraryDataRenderCache.etagMatches(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return response;
+        }
+
+        response.setContentType(context.getMimeType(page.getFilename()));
+        response.setContentLength(data.length);
+        response.getOutputStream().write(data);
+        return response;
+    }
+
+    private boolean acceptsGzip() {
+        return request != null && ArbitraryDataCompressionCache.acceptsGzip(request.getHeader("Accept-Encoding"));
+    }
+
+    /**
+     * Content requested by signature never changes, so can be cached indefinitely.
+     * Names can be updated, so clients must revalidate using the ETag.
+     */
+    private String getCacheControl() {
+        if (resourceIdType == ResourceIdType.SIGNATURE) {
+            return String.format("%s, max-age=31536000, immutable", secret58 != null ? "private" : "public");
+        }
+        return "no-cache";
+    }
+
+    private static String getEtag(byte[] builtSignature, String relativePath) {
+        byte[] pathBytes = relativePath.getBytes(StandardCharsets.UTF_8);
+        return String.format("\"%s\"", Base58.encode(Crypto.digest(builtSignature, pathBytes)));
+    }
+
+    /**
+     * Gzip and identity bodies differ, so each needs its own strong ETag.
+     */
+    private static String getGzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * Returns everything, other than the state of the resource itself, that affects the rewritten HTML.
+     */
+    private String getRenderVariant() {
+        return String.join("|", resourceId, inPath, String.valueOf(prefix), String.valueOf(includeResourceIdInPrefix),
+                String.valueOf(qdnContext), theme, lang);
+    }
+
+    private byte[] getBuiltSignature(Path builtPath) {
+        try {
+            ArbitraryDataMetadataCache cache = new ArbitraryDataMetadataCache(builtPath);
+            cache.read();
+            return cache.getSignature();
+
+        } catch (IOException | DataException e) {
+            // Without a signature we can't safely cache the rendered page
+            return null;
+        }
+    }
+
     private String getFilename(String directory, String userPath) {
         if (userPath == null || userPath.endsWith("/") || userPath.isEmpty()) {
             // Locate index file
@@ -342,7 +342,7 @@ public class ArbitraryDataWriter {
             throw new IOException("No file available when trying to split");
         }
 
-        int chunkCount = this.arbitraryDataFile.split(this.chunkSize);
+        int chunkCount = this.arbitraryDataFile.splitParallel(this.chunkSize);
         if (chunkCount > 0) {
             LOGGER.info(String.format("Successfully split into %d chunk%s", chunkCount, (chunkCount == 1 ? "" : "s")));
         }
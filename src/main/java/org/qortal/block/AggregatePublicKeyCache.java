@@ -0,0 +1,182 @@
+package org.qortal.block;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.crypto.Qortal25519Extras;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of aggregate public keys of blocks' online accounts, keyed by online accounts timestamp and encoded online accounts.
+ * <p>
+ * Blocks minted around the same time usually have nearly the same online accounts, so rather than aggregating
+ * thousands of public keys for every block, a missing aggregate public key is derived from the most recently
+ * used one by adding public keys that are new, and subtracting those that have gone.
+ * <p>
+ * Encoded online accounts are only reward-share indexes, which shift as reward-shares are created or removed,
+ * so cached entries also keep the public keys they were built from, and are only reused if those still match.
+ */
+public class AggregatePublicKeyCache {
+
+	private static final Logger LOGGER = LogManager.getLogger(AggregatePublicKeyCache.class);
+
+	private static final int MAX_ENTRIES = 32;
+
+	private static final AggregatePublicKeyCache instance = new AggregatePublicKeyCache();
+
+	private static class Key {
+		private final long timestamp;
+		private final byte[] encodedOnlineAccounts;
+		private final int hash;
+
+		private Key(long timestamp, byte[] encodedOnlineAccounts) {
+			this.timestamp = timestamp;
+			this.encodedOnlineAccounts = encodedOnlineAccounts;
+			this.hash = 31 * Long.hashCode(timestamp) + Arrays.hashCode(encodedOnlineAccounts);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (other == this)
+				return true;
+
+			if (!(other instanceof Key))
+				return false;
+
+			Key otherKey = (Key) other;
+			return otherKey.timestamp == this.timestamp && Arrays.equals(otherKey.encodedOnlineAccounts, this.encodedOnlineAccounts);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+
+	private static class Entry {
+		/** Public keys, in unsigned order */
+		private final byte[][] publicKeys;
+		private final byte[] aggregatePublicKey;
+
+		private Entry(byte[][] publicKeys, byte[] aggregatePublicKey) {
+			this.publicKeys = publicKeys;
+			this.aggregatePublicKey = aggregatePublicKey;
+		}
+	}
+
+	/** Guarded by lock on {@link AggregatePublicKeyCache} instance. In access order, for eviction. */
+	private final Map<Key, Entry> entries = new LinkedHashMap<>(MAX_ENTRIES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			return this.size() > MAX_ENTRIES;
+		}
+	};
+
+	/** Most recently used entry, as a starting point for new aggregate public keys. Guarded by lock on instance. */
+	private Entry latestEntry;
+
+	private AggregatePublicKeyCache() {
+	}
+
+	public static AggregatePublicKeyCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns aggregate public key of <tt>publicKeys</tt>, as per {@link Qortal25519Extras#aggregatePublicKeys(java.util.Collection)}.
+	 *
+	 * @param timestamp online accounts timestamp
+	 * @param encodedOnlineAccounts block's encoded online accounts
+	 * @param publicKeys online reward-share public keys, e.g. from {@link org.qortal.repository.AccountRepository#getRewardSharesByIndexes(int[])}
+	 * @return aggregate public key, or null if any public key fails to decode
+	 */
+	public byte[] getAggregatePublicKey(long timestamp, byte[] encodedOnlineAccounts, List<byte[]> publicKeys) {
+		byte[][] sortedPublicKeys = publicKeys.toArray(new byte[0][]);
+		Arrays.sort(sortedPublicKeys, Arrays::compareUnsigned);
+
+		Key key = new Key(timestamp, encodedOnlineAccounts.clone());
+
+		Entry baseEntry;
+		synchronized (this) {
+			Entry entry = this.entries.get(key);
+			if (entry != null && Arrays.deepEquals(entry.publicKeys, sortedPublicKeys)) {
+				this.latestEntry = entry;
+				return entry.aggregatePublicKey.clone();
+			}
+
+			baseEntry = this.latestEntry;
+		}
+
+		byte[] aggregatePublicKey = null;
+
+		if (baseEntry != null)
+			aggregatePublicKey = updateAggregatePublicKey(baseEntry, sortedPublicKeys);
+
+		if (aggregatePublicKey == null)
+			aggregatePublicKey = Qortal25519Extras.aggregatePublicKeys(publicKeys);
+
+		if (aggregatePublicKey == null)
+			return null;
+
+		Entry entry = new Entry(sortedPublicKeys, aggregatePublicKey);
+
+		synchronized (this) {
+			this.entries.put(key, entry);
+			this.latestEntry = entry;
+		}
+
+		return aggregatePublicKey.clone();
+	}
+
+	public synchronized void clear() {
+		this.entries.clear();
+		this.latestEntry = null;
+	}
+
+	/** Returns aggregate public key derived from <tt>baseEntry</tt>, or null if too many differences to be worthwhile. */
+	private static byte[] updateAggregatePublicKey(Entry baseEntry, byte[][] sortedPublicKeys) {
+		byte[][] basePublicKeys = baseEntry.publicKeys;
+
+		// Each difference costs one point addition, so stop once it's cheaper to start afresh
+		int maxDifferences = sortedPublicKeys.length - 1;
+
+		List<byte[]> addedPublicKeys = new ArrayList<>();
+		List<byte[]> removedPublicKeys = new ArrayList<>();
+
+		int b = 0;
+		int s = 0;
+		while (b < basePublicKeys.length || s < sortedPublicKeys.length) {
+			int comparison;
+			if (b == basePublicKeys.length)
+				comparison = 1;
+			else if (s == sortedPublicKeys.length)
+				comparison = -1;
+			else
+				comparison = Arrays.compareUnsigned(basePublicKeys[b], sortedPublicKeys[s]);
+
+			if (comparison == 0) {
+				++b;
+				++s;
+				continue;
+			}
+
+			if (comparison < 0)
+				removedPublicKeys.add(basePublicKeys[b++]);
+			else
+				addedPublicKeys.add(sortedPublicKeys[s++]);
+
+			if (addedPublicKeys.size() + removedPublicKeys.size() > maxDifferences)
+				return null;
+		}
+
+		LOGGER.trace(() -> String.format("Updating aggregate public key with %d added and %d removed public keys",
+				addedPublicKeys.size(), removedPublicKeys.size()));
+
+		return Qortal25519Extras.updateAggregatePublicKey(baseEntry.aggregatePublicKey, addedPublicKeys, removedPublicKeys);
+	}
+
+}
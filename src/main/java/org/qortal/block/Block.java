@@ -113,7 +113,7 @@ public class Block {
 	/** Number of left-shifts to apply to block's online accounts count when calculating block's weight. */
 	private static final int ACCOUNTS_COUNT_SHIFT = Transformer.PUBLIC_KEY_LENGTH * 8;
 	/** Number of left-shifts to apply to previous block's weight when calculating a chain's weight. */
-	private static final int CHAIN_WEIGHT_SHIFT = 8;
+	static final int CHAIN_WEIGHT_SHIFT = 8;
 
 	/** Sorted list of transactions attached to this block */
 	protected List<Transaction> transactions;
@@ -953,11 +953,11 @@ public class Block {
 	}
 
 	public static byte[] calcIdealMinterPublicKey(int parentBlockHeight, byte[] parentBlockSignature) {
-		return Crypto.digest(Bytes.concat(Longs.toByteArray(parentBlockHeight), parentBlockSignature));
+		return Crypto.digest(Longs.toByteArray(parentBlockHeight), parentBlockSignature);
 	}
 
 	public static byte[] calcHeightPerturbedPublicKey(int height, byte[] publicKey) {
-		return Crypto.digest(Bytes.concat(Longs.toByteArray(height), publicKey));
+		return Crypto.digest(Longs.toByteArray(height), publicKey);
 	}
 
 	public static BigInteger calcKeyDistance(int parentHeight, byte[] parentBlockSignature, byte[] publicKey, int accountLevel) {
@@ -991,7 +991,7 @@ public class Block {
 			if (isLogging)
 				stringBuilder.append(formatter.format(cumulativeWeight)).append(" + ");
 
-			BigInteger blockWeight = calcBlockWeight(parentHeight, parentBlockSignature, blockSummaryData);
+			BigInteger blockWeight = ChainWeightCalculator.calcBlockWeight(parentHeight, parentBlockSignature, blockSummaryData);
 			if (isLogging)
 				stringBuilder.append("(height: ")
 						.append(parentHeight + 1)
@@ -1263,12 +1263,15 @@ public class Block {
 		// Extract online accounts' timestamp signatures from block data. Only one signature if aggregated.
 		List<byte[]> onlineAccountsSignatures = BlockTransformer.decodeTimestampSignatures(encodedOnlineAccountSignatures);
 
-		// Aggregate all public keys
-		Collection<byte[]> publicKeys = onlineRewardShares.stream()
+		// Aggregate all public keys, most likely starting from a similar, recent block's aggregate public key
+		List<byte[]> publicKeys = onlineRewardShares.stream()
 				.map(RewardShareData::getRewardSharePublicKey)
 				.collect(Collectors.toList());
 
-		byte[] aggregatePublicKey = Qortal25519Extras.aggregatePublicKeys(publicKeys);
+		byte[] aggregatePublicKey = AggregatePublicKeyCache.getInstance()
+				.getAggregatePublicKey(onlineTimestamp, this.blockData.getEncodedOnlineAccounts(), publicKeys);
+		if (aggregatePublicKey == null)
+			return ValidationResult.ONLINE_ACCOUNT_SIGNATURE_INCORRECT;
 
 		byte[] aggregateSignature = onlineAccountsSignatures.get(0);
 
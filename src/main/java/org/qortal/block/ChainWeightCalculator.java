@@ -0,0 +1,154 @@
+package org.qortal.block;
+
+import org.qortal.data.block.BlockSummaryData;
+import org.qortal.utils.NTP;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates chain weights, as per {@link Block#calcChainWeight(int, byte[], List, int)}, of chains sharing the same common block.
+ * <p>
+ * Peers sharing a common block usually have mostly the same blocks after it, and those blocks are compared
+ * again every synchronization round. So block weights are memoized, keyed by everything they are calculated from,
+ * and cumulative weights are kept for each distinct run of blocks after the common block,
+ * so chains that share leading blocks only pay for the blocks where they differ.
+ */
+public class ChainWeightCalculator {
+
+	private static final int MAX_CACHED_BLOCK_WEIGHTS = 10_000;
+
+	private static class BlockWeightKey {
+		private final int parentHeight;
+		private final byte[] parentBlockSignature;
+		private final byte[] minterPublicKey;
+		private final int minterLevel;
+		private final int onlineAccountsCount;
+		private final int hash;
+
+		private BlockWeightKey(int parentHeight, byte[] parentBlockSignature, BlockSummaryData blockSummaryData) {
+			this.parentHeight = parentHeight;
+			this.parentBlockSignature = parentBlockSignature;
+			this.minterPublicKey = blockSummaryData.getMinterPublicKey();
+			this.minterLevel = blockSummaryData.getMinterLevel();
+			this.onlineAccountsCount = blockSummaryData.getOnlineAccountsCount();
+
+			int hash = 31 * parentHeight + Arrays.hashCode(parentBlockSignature);
+			hash = 31 * hash + Arrays.hashCode(this.minterPublicKey);
+			hash = 31 * hash + this.minterLevel;
+			this.hash = 31 * hash + this.onlineAccountsCount;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (other == this)
+				return true;
+
+			if (!(other instanceof BlockWeightKey))
+				return false;
+
+			BlockWeightKey otherKey = (BlockWeightKey) other;
+			return otherKey.parentHeight == this.parentHeight
+					&& otherKey.minterLevel == this.minterLevel
+					&& otherKey.onlineAccountsCount == this.onlineAccountsCount
+					&& Arrays.equals(otherKey.parentBlockSignature, this.parentBlockSignature)
+					&& Arrays.equals(otherKey.minterPublicKey, this.minterPublicKey);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+
+	/** Guarded by lock on itself. In access order, for eviction. */
+	private static final Map<BlockWeightKey, BigInteger> BLOCK_WEIGHTS = new LinkedHashMap<>(1024, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<BlockWeightKey, BigInteger> eldest) {
+			return this.size() > MAX_CACHED_BLOCK_WEIGHTS;
+		}
+	};
+
+	/** Cumulative weight of a run of blocks after common block, with runs that carry on from it. */
+	private static class Node {
+		private final BigInteger cumulativeWeight;
+		private final Map<BlockWeightKey, Node> children = new HashMap<>();
+
+		private Node(BigInteger cumulativeWeight) {
+			this.cumulativeWeight = cumulativeWeight;
+		}
+	}
+
+	private final int commonBlockHeight;
+	private final byte[] commonBlockSignature;
+	private final Node root = new Node(BigInteger.ZERO);
+
+	public ChainWeightCalculator(int commonBlockHeight, byte[] commonBlockSignature) {
+		this.commonBlockHeight = commonBlockHeight;
+		this.commonBlockSignature = commonBlockSignature;
+	}
+
+	/**
+	 * Returns cumulative weight of <tt>blockSummaries</tt>, which follow on from common block.
+	 * <p>
+	 * Same result as {@link Block#calcChainWeight(int, byte[], List, int)} with this calculator's common block.
+	 */
+	public BigInteger calcChainWeight(List<BlockSummaryData> blockSummaries, int maxHeight) {
+		// After this timestamp, we only compare the same number of blocks
+		final boolean usingSameLengthChainWeight = NTP.getTime() >= BlockChain.getInstance().getCalcChainWeightTimestamp();
+
+		Node node = this.root;
+		int parentHeight = this.commonBlockHeight;
+		byte[] parentBlockSignature = this.commonBlockSignature;
+
+		for (BlockSummaryData blockSummaryData : blockSummaries) {
+			BlockWeightKey key = new BlockWeightKey(parentHeight, parentBlockSignature, blockSummaryData);
+
+			Node parentNode = node;
+			node = parentNode.children.computeIfAbsent(key, k -> new Node(parentNode.cumulativeWeight.shiftLeft(Block.CHAIN_WEIGHT_SHIFT)
+					.add(getBlockWeight(k, blockSummaryData))));
+
+			parentHeight = blockSummaryData.getHeight();
+			parentBlockSignature = blockSummaryData.getSignature();
+
+			if (usingSameLengthChainWeight && parentHeight >= maxHeight)
+				break;
+		}
+
+		return node.cumulativeWeight;
+	}
+
+	/** Returns block's weight, as per {@link Block#calcBlockWeight(int, byte[], BlockSummaryData)}, using cached value if possible. */
+	public static BigInteger calcBlockWeight(int parentHeight, byte[] parentBlockSignature, BlockSummaryData blockSummaryData) {
+		return getBlockWeight(new BlockWeightKey(parentHeight, parentBlockSignature, blockSummaryData), blockSummaryData);
+	}
+
+	/** Discards cached block weights. */
+	public static void clearBlockWeights() {
+		synchronized (BLOCK_WEIGHTS) {
+			BLOCK_WEIGHTS.clear();
+		}
+	}
+
+	private static BigInteger getBlockWeight(BlockWeightKey key, BlockSummaryData blockSummaryData) {
+		synchronized (BLOCK_WEIGHTS) {
+			BigInteger blockWeight = BLOCK_WEIGHTS.get(key);
+			if (blockWeight != null)
+				return blockWeight;
+		}
+
+		// Calculate outside lock, as this is the expensive part
+		BigInteger blockWeight = Block.calcBlockWeight(key.parentHeight, key.parentBlockSignature, blockSummaryData);
+
+		synchronized (BLOCK_WEIGHTS) {
+			BLOCK_WEIGHTS.put(key, blockWeight);
+		}
+
+		return blockWeight;
+	}
+
+}
@@ -475,7 +475,7 @@ public class BlockMinter extends Thread {
 	}
 
 	/**
-	 * Adds unconfirmed transactions to passed block.
+	 * Adds unconfirmed transactions to passed block, highest fee-per-byte first.
 	 * <p>
 	 * NOTE: calls Transaction.getUnconfirmedTransactions which discards uncommitted
 	 * repository changes.
@@ -483,54 +483,10 @@ public class BlockMinter extends Thread {
 	 * @param repository
 	 * @param newBlock
 	 * @throws DataException
+	 * @see BlockTemplate
 	 */
 	private static void addUnconfirmedTransactions(Repository repository, Block newBlock) throws DataException {
-		// Grab all valid unconfirmed transactions (already sorted)
-		List<TransactionData> unconfirmedTransactions = Transaction.getUnconfirmedTransactions(repository);
-
-		Iterator<TransactionData> unconfirmedTransactionsIterator = unconfirmedTransactions.iterator();
-		final long newBlockTimestamp = newBlock.getBlockData().getTimestamp();
-		final int newBlockHeight = newBlock.getBlockData().getHeight();
-		while (unconfirmedTransactionsIterator.hasNext()) {
-			TransactionData transactionData = unconfirmedTransactionsIterator.next();
-
-			// Ignore transactions that have timestamp later than block's timestamp (not yet valid)
-			// Ignore transactions that have expired before this block - they will be cleaned up later
-			if (transactionData.getTimestamp() > newBlockTimestamp || Transaction.getDeadline(transactionData) <= newBlockTimestamp)
-				unconfirmedTransactionsIterator.remove();
-
-			// Ignore transactions that are unconfirmable at this block height
-			Transaction transaction = Transaction.fromData(repository, transactionData);
-			if (!transaction.isConfirmableAtHeight(newBlockHeight)) {
-				unconfirmedTransactionsIterator.remove();
-			}
-		}
-
-		// Sign to create block's signature, needed by Block.isValid()
-		newBlock.sign();
-
-		// User-defined limit per block
-		int limit = Settings.getInstance().getMaxTransactionsPerBlock();
-
-		// Attempt to add transactions until block is full, or we run out
-		// If a transaction makes the block invalid then skip it and it'll either expire or be in next block.
-		for (TransactionData transactionData : unconfirmedTransactions) {
-			if (!newBlock.addTransaction(transactionData))
-				break;
-
-			// If newBlock is no longer valid then we can't use transaction
-			ValidationResult validationResult = newBlock.isValid();
-			if (validationResult != ValidationResult.OK) {
-				LOGGER.debug(() -> String.format("Skipping invalid transaction %s during block minting", Base58.encode(transactionData.getSignature())));
-				newBlock.deleteTransaction(transactionData);
-			}
-
-			// User-defined limit per block
-			List<Transaction> transactions = newBlock.getTransactions();
-			if (transactions != null && transactions.size() >= limit) {
-				break;
-			}
-		}
+		BlockTemplate.addTransactions(repository, newBlock);
 	}
 
 	public void shutdown() {
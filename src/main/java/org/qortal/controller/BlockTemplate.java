@@ -0,0 +1,170 @@
+package org.qortal.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.block.Block;
+import org.qortal.block.Block.ValidationResult;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.settings.Settings;
+import org.qortal.transaction.Transaction;
+import org.qortal.utils.Base58;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Selection of unconfirmed transactions for a to-be-minted block.
+ * <p>
+ * Candidate transactions are tried in order of highest fee-per-byte first, then in the usual
+ * timestamp/signature order. Each candidate is added to the block, and kept only if the block remains valid.
+ * <p>
+ * As the block always processes its transactions in timestamp order, a candidate that was skipped
+ * might become valid once a lower-fee candidate has been added, e.g. one that funds it.
+ * So skipped candidates are tried again after each successful addition, so that fee ordering
+ * doesn't leave out a transaction just because it was tried before the transaction it depends on.
+ */
+public class BlockTemplate {
+
+	private static final Logger LOGGER = LogManager.getLogger(BlockTemplate.class);
+
+	/** Highest fee-per-byte first, then usual transaction order. */
+	private static final Comparator<Candidate> CANDIDATE_COMPARATOR = Comparator.comparingLong((Candidate candidate) -> candidate.feePerByte).reversed()
+			.thenComparing(candidate -> candidate.transactionData, Transaction.getDataComparator());
+
+	private enum AddResult {
+		ADDED, INVALID, BLOCK_FULL
+	}
+
+	private static class Candidate {
+		private final TransactionData transactionData;
+		private final long feePerByte;
+
+		private Candidate(TransactionData transactionData, long feePerByte) {
+			this.transactionData = transactionData;
+			this.feePerByte = feePerByte;
+		}
+	}
+
+	private BlockTemplate() {
+	}
+
+	/**
+	 * Adds unconfirmed transactions to passed block, highest fee-per-byte first.
+	 * <p>
+	 * NOTE: calls Transaction.getUnconfirmedTransactions which discards uncommitted
+	 * repository changes.
+	 */
+	public static void addTransactions(Repository repository, Block newBlock) throws DataException {
+		List<Candidate> candidates = getCandidates(repository, newBlock);
+
+		// Sign to create block's signature, needed by Block.isValid()
+		newBlock.sign();
+
+		// User-defined limit per block
+		int limit = Settings.getInstance().getMaxTransactionsPerBlock();
+
+		// Candidates that made block invalid, in the order they were tried
+		List<Candidate> skippedCandidates = new ArrayList<>();
+
+		// Attempt to add transactions until block is full, or we run out
+		// If a transaction makes the block invalid then skip it and it'll either expire or be in next block.
+		for (Candidate candidate : candidates) {
+			AddResult addResult = addTransaction(newBlock, candidate, limit);
+
+			if (addResult == AddResult.BLOCK_FULL)
+				break;
+
+			if (addResult == AddResult.INVALID) {
+				skippedCandidates.add(candidate);
+				continue;
+			}
+
+			// Block has changed, so previously skipped candidates might now be valid
+			if (!retrySkippedCandidates(newBlock, skippedCandidates, limit))
+				break;
+		}
+	}
+
+	/**
+	 * Tries adding skipped candidates to block again, until none can be added.
+	 *
+	 * @return false if block is now full, true otherwise
+	 */
+	private static boolean retrySkippedCandidates(Block newBlock, List<Candidate> skippedCandidates, int limit) throws DataException {
+		boolean hasAddedCandidate;
+
+		do {
+			hasAddedCandidate = false;
+
+			Iterator<Candidate> iterator = skippedCandidates.iterator();
+			while (iterator.hasNext()) {
+				AddResult addResult = addTransaction(newBlock, iterator.next(), limit);
+
+				if (addResult == AddResult.BLOCK_FULL)
+					return false;
+
+				if (addResult == AddResult.ADDED) {
+					iterator.remove();
+					// Which might make yet more skipped candidates valid
+					hasAddedCandidate = true;
+				}
+			}
+		} while (hasAddedCandidate);
+
+		return true;
+	}
+
+	/** Adds candidate's transaction to block, but only keeps it if block remains valid. */
+	private static AddResult addTransaction(Block newBlock, Candidate candidate, int limit) throws DataException {
+		if (newBlock.getTransactions().size() >= limit)
+			return AddResult.BLOCK_FULL;
+
+		TransactionData transactionData = candidate.transactionData;
+
+		if (!newBlock.addTransaction(transactionData))
+			return AddResult.BLOCK_FULL;
+
+		// If newBlock is no longer valid then we can't use transaction
+		ValidationResult validationResult = newBlock.isValid();
+		if (validationResult != ValidationResult.OK) {
+			LOGGER.debug(() -> String.format("Skipping invalid transaction %s during block minting", Base58.encode(transactionData.getSignature())));
+			newBlock.deleteTransaction(transactionData);
+			return AddResult.INVALID;
+		}
+
+		return AddResult.ADDED;
+	}
+
+	/** Returns unconfirmed transactions that could go into passed block, in the order they should be tried. */
+	private static List<Candidate> getCandidates(Repository repository, Block newBlock) throws DataException {
+		// Grab all valid unconfirmed transactions
+		List<TransactionData> unconfirmedTransactions = Transaction.getUnconfirmedTransactions(repository);
+
+		final long newBlockTimestamp = newBlock.getBlockData().getTimestamp();
+		final int newBlockHeight = newBlock.getBlockData().getHeight();
+
+		List<Candidate> candidates = new ArrayList<>(unconfirmedTransactions.size());
+		for (TransactionData transactionData : unconfirmedTransactions) {
+			// Ignore transactions that have timestamp later than block's timestamp (not yet valid)
+			// Ignore transactions that have expired before this block - they will be cleaned up later
+			if (transactionData.getTimestamp() > newBlockTimestamp || Transaction.getDeadline(transactionData) <= newBlockTimestamp)
+				continue;
+
+			// Ignore transactions that are unconfirmable at this block height
+			Transaction transaction = Transaction.fromData(repository, transactionData);
+			if (!transaction.isConfirmableAtHeight(newBlockHeight))
+				continue;
+
+			candidates.add(new Candidate(transactionData, transaction.feePerByte()));
+		}
+
+		candidates.sort(CANDIDATE_COMPARATOR);
+
+		return candidates;
+	}
+
+}
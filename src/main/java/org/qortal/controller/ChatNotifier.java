@@ -1,62 +1,395 @@
 package org.qortal.controller;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.eclipse.jetty.websocket.api.Session;
 import org.qortal.data.transaction.ChatTransactionData;
+import org.qortal.group.GroupMembershipCache;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.utils.DaemonThreadFactory;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
+/**
+ * Dispatches new CHAT transactions, and group-membership changes, to websocket listeners.
+ * <p>
+ * Listeners are indexed by what they are interested in, so that each CHAT transaction is only
+ * passed to the listeners that could want it, rather than every connected session:
+ * <ul>
+ *   <li>group listeners, by txGroupId, receive group (recipient-less) messages for that group</li>
+ *   <li>address-pair listeners receive direct messages between those two addresses</li>
+ *   <li>address listeners receive direct messages sent or received by that address,
+ *   messages in groups that address is a member of (including direct messages with a txGroupId,
+ *   which count as their group's latest message), all messages in group 0,
+ *   and group-membership changes (as {@code null})</li>
+ * </ul>
+ * Listeners registered via {@link #register(Session, Listener)} receive everything.
+ * <p>
+ * Each session has its own bounded queue of notifications, drained by a small pool of dedicated threads,
+ * so callers (e.g. block processing) are never held up by listeners, a slow listener only holds up its
+ * own session, and each listener sees notifications in the order they occurred.
+ * <p>
+ * Group-membership changes are coalesced, as listeners only need to know that one has happened.
+ * CHAT transactions are never dropped: if a session's queue is full, the session is closed instead,
+ * so that its client reconnects and re-fetches rather than silently missing messages.
+ */
 public class ChatNotifier {
 
+	private static final Logger LOGGER = LogManager.getLogger(ChatNotifier.class);
+
 	private static ChatNotifier instance;
 
+	/** Maximum number of notifications waiting for each session, before session is closed */
+	public static final int MAX_QUEUED_NOTIFICATIONS = 500;
+	private static final int DISPATCH_THREAD_COUNT = 4;
+
+	/** Websocket close code for sessions that couldn't keep up */
+	public static final int CLOSE_CODE_TOO_SLOW = 4004;
+
 	@FunctionalInterface
 	public interface Listener {
 		void notify(ChatTransactionData chatTransactionData);
 	}
 
-	private final Map<Session, Listener> listenersBySession = new HashMap<>();
+	@FunctionalInterface
+	public interface GroupMembers {
+		Collection<String> getMembers(int groupId) throws DataException;
+	}
 
-	private ChatNotifier() {
+	private enum RouteType {
+		ALL, GROUP, ADDRESS_PAIR, ADDRESS
+	}
+
+	private static class Route {
+		private final RouteType type;
+		private final Object key;
+
+		private Route(RouteType type, Object key) {
+			this.type = type;
+			this.key = key;
+		}
+	}
+
+	/** Notifications waiting for a session's listener. Only one thread delivers them at a time. */
+	private class SessionQueue implements Runnable {
+		private final Session session;
+		private final Listener listener;
+		/** May contain null, for group-membership changes */
+		private final Deque<ChatTransactionData> notifications = new LinkedList<>();
+		private boolean isScheduled = false;
+		/** Whether a group-membership change is already waiting, as listener only needs to hear about one */
+		private boolean isMembershipChangeQueued = false;
+		/** Set once queue has overflowed, after which nothing more is delivered */
+		private boolean isClosed = false;
+
+		private SessionQueue(Session session, Listener listener) {
+			this.session = session;
+			this.listener = listener;
+		}
+
+		private void add(ChatTransactionData chatTransactionData) {
+			boolean hasOverflowed;
+
+			synchronized (this) {
+				if (this.isClosed)
+					return;
+
+				// Listener will already hear about a group-membership change
+				if (chatTransactionData == null && this.isMembershipChangeQueued)
+					return;
+
+				hasOverflowed = this.notifications.size() >= MAX_QUEUED_NOTIFICATIONS;
+
+				if (hasOverflowed) {
+					this.notifications.clear();
+					this.isClosed = true;
+				} else {
+					this.notifications.addLast(chatTransactionData);
+					if (chatTransactionData == null)
+						this.isMembershipChangeQueued = true;
+
+					if (this.isScheduled)
+						// Will be delivered by already scheduled run
+						return;
+
+					this.isScheduled = true;
+				}
+			}
+
+			if (!hasOverflowed) {
+				executor.execute(this);
+				return;
+			}
+
+			// Dropping a message would leave client silently out of date, so make it reconnect and re-fetch instead
+			LOGGER.debug("Chat listener too slow - closing websocket session {}", this.session.getRemoteAddress());
+			deregister(this.session);
+			this.session.close(CLOSE_CODE_TOO_SLOW, "too many notifications, please reconnect");
+		}
+
+		private synchronized void clear() {
+			this.notifications.clear();
+			this.isMembershipChangeQueued = false;
+			this.isClosed = true;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				ChatTransactionData chatTransactionData;
+
+				synchronized (this) {
+					if (this.notifications.isEmpty()) {
+						this.isScheduled = false;
+						return;
+					}
+
+					chatTransactionData = this.notifications.removeFirst();
+					if (chatTransactionData == null)
+						this.isMembershipChangeQueued = false;
+				}
+
+				try {
+					this.listener.notify(chatTransactionData);
+				} catch (RuntimeException e) {
+					LOGGER.debug("Chat listener failed: {}", e.getMessage());
+				}
+			}
+		}
+	}
+
+	private final Executor executor;
+	private final GroupMembers groupMembers;
+
+	private final Map<Session, Route> routesBySession = new HashMap<>();
+	private final Map<Session, SessionQueue> allListeners = new LinkedHashMap<>();
+	private final Map<Integer, Map<Session, SessionQueue>> listenersByGroup = new HashMap<>();
+	private final Map<String, Map<Session, SessionQueue>> listenersByAddressPair = new HashMap<>();
+	private final Map<String, Map<Session, SessionQueue>> listenersByAddress = new HashMap<>();
+
+	public ChatNotifier(Executor executor, GroupMembers groupMembers) {
+		this.executor = executor;
+		this.groupMembers = groupMembers;
 	}
 
 	public static synchronized ChatNotifier getInstance() {
 		if (instance == null)
-			instance = new ChatNotifier();
+			instance = new ChatNotifier(Executors.newFixedThreadPool(DISPATCH_THREAD_COUNT, new DaemonThreadFactory("ChatNotifier", Thread.NORM_PRIORITY)),
+					ChatNotifier::getGroupMembers);
 
 		return instance;
 	}
 
-	public void register(Session session, Listener listener) {
-		synchronized (this.listenersBySession) {
-			this.listenersBySession.put(session, listener);
+	private static Collection<String> getGroupMembers(int groupId) throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			return GroupMembershipCache.getInstance().getMembers(repository.getGroupRepository(), groupId);
 		}
 	}
 
+	/** Registers a listener for all CHAT transactions and group-membership changes. */
+	public void register(Session session, Listener listener) {
+		this.register(session, new Route(RouteType.ALL, null), listener);
+	}
+
+	/** Registers a listener for group messages with given txGroupId. */
+	public void registerForGroup(Session session, int txGroupId, Listener listener) {
+		this.register(session, new Route(RouteType.GROUP, txGroupId), listener);
+	}
+
+	/** Registers a listener for direct messages between two addresses (which can be the same address). */
+	public void registerForAddressPair(Session session, String address1, String address2, Listener listener) {
+		this.register(session, new Route(RouteType.ADDRESS_PAIR, addressPairKey(address1, address2)), listener);
+	}
+
+	/** Registers a listener for direct messages involving an address, messages in that address's groups, and group-membership changes. */
+	public void registerForAddress(Session session, String address, Listener listener) {
+		this.register(session, new Route(RouteType.ADDRESS, address), listener);
+	}
+
 	public void deregister(Session session) {
-		synchronized (this.listenersBySession) {
-			this.listenersBySession.remove(session);
+		synchronized (this.routesBySession) {
+			Route route = this.routesBySession.remove(session);
+			if (route == null)
+				return;
+
+			SessionQueue sessionQueue = null;
+			switch (route.type) {
+				case ALL:
+					sessionQueue = this.allListeners.remove(session);
+					break;
+
+				case GROUP:
+					sessionQueue = removeIndexed(this.listenersByGroup, (Integer) route.key, session);
+					break;
+
+				case ADDRESS_PAIR:
+					sessionQueue = removeIndexed(this.listenersByAddressPair, (String) route.key, session);
+					break;
+
+				case ADDRESS:
+					sessionQueue = removeIndexed(this.listenersByAddress, (String) route.key, session);
+					break;
+			}
+
+			// Don't bother delivering anything still queued
+			if (sessionQueue != null)
+				sessionQueue.clear();
 		}
 	}
 
 	public void onNewChatTransaction(ChatTransactionData chatTransactionData) {
-		for (Listener listener : getAllListeners())
-			listener.notify(chatTransactionData);
+		// Look up group members before taking lock, as this might need repository
+		Collection<String> members = null;
+		int txGroupId = chatTransactionData.getTxGroupId();
+		if (txGroupId != 0) {
+			try {
+				members = this.groupMembers.getMembers(txGroupId);
+			} catch (DataException e) {
+				LOGGER.debug("Couldn't fetch members of group {} - notifying all active chats listeners: {}", txGroupId, e.getMessage());
+			}
+		}
+
+		this.dispatch(this.getListeners(chatTransactionData, members), chatTransactionData);
 	}
 
 	public void onGroupMembershipChange() {
-		for (Listener listener : getAllListeners())
-			listener.notify(null);
+		this.dispatch(this.getListeners(null, null), null);
+	}
+
+	public int getListenerCount() {
+		synchronized (this.routesBySession) {
+			return this.routesBySession.size();
+		}
 	}
 
-	private Collection<Listener> getAllListeners() {
-		// Make a copy of listeners to both avoid concurrent modification
-		// and reduce synchronization time
-		synchronized (this.listenersBySession) {
-			return new ArrayList<>(this.listenersBySession.values());
+	private void register(Session session, Route route, Listener listener) {
+		synchronized (this.routesBySession) {
+			// A session only has one listener, so replace any existing one
+			this.deregister(session);
+
+			this.routesBySession.put(session, route);
+			SessionQueue sessionQueue = new SessionQueue(session, listener);
+
+			switch (route.type) {
+				case ALL:
+					this.allListeners.put(session, sessionQueue);
+					break;
+
+				case GROUP:
+					this.listenersByGroup.computeIfAbsent((Integer) route.key, k -> new LinkedHashMap<>()).put(session, sessionQueue);
+					break;
+
+				case ADDRESS_PAIR:
+					this.listenersByAddressPair.computeIfAbsent((String) route.key, k -> new LinkedHashMap<>()).put(session, sessionQueue);
+					break;
+
+				case ADDRESS:
+					this.listenersByAddress.computeIfAbsent((String) route.key, k -> new LinkedHashMap<>()).put(session, sessionQueue);
+					break;
+			}
 		}
 	}
 
+	/**
+	 * Returns the queues of listeners interested in a CHAT transaction, or in a group-membership change if null.
+	 * <p>
+	 * <tt>members</tt> are the addresses of the transaction's group members, or null if not known
+	 * (or for group 0), in which case every address listener is included.
+	 */
+	private Collection<SessionQueue> getListeners(ChatTransactionData chatTransactionData, Collection<String> members) {
+		synchronized (this.routesBySession) {
+			// Set, as an address listener can qualify more than once, e.g. as sender and group member
+			Set<SessionQueue> listeners = new LinkedHashSet<>(this.allListeners.values());
+
+			if (chatTransactionData == null) {
+				// Group-membership change, which only affects active chats
+				for (Map<Session, SessionQueue> addressListeners : this.listenersByAddress.values())
+					listeners.addAll(addressListeners.values());
+
+				return listeners;
+			}
+
+			String sender = chatTransactionData.getSender();
+			String recipient = chatTransactionData.getRecipient();
+
+			if (recipient == null) {
+				// Group message
+				addIndexed(listeners, this.listenersByGroup, chatTransactionData.getTxGroupId());
+				this.addGroupMemberListeners(listeners, members);
+
+				return listeners;
+			}
+
+			// Direct message
+			addIndexed(listeners, this.listenersByAddressPair, addressPairKey(sender, recipient));
+			if (!sender.equals(recipient)) {
+				// Listeners for a pair of identical addresses want all direct messages involving that address
+				addIndexed(listeners, this.listenersByAddressPair, addressPairKey(sender, sender));
+				addIndexed(listeners, this.listenersByAddressPair, addressPairKey(recipient, recipient));
+			}
+
+			addIndexed(listeners, this.listenersByAddress, sender);
+			if (!sender.equals(recipient))
+				addIndexed(listeners, this.listenersByAddress, recipient);
+
+			if (chatTransactionData.getTxGroupId() != 0)
+				// Also latest message in its group
+				this.addGroupMemberListeners(listeners, members);
+
+			return listeners;
+		}
+	}
+
+	/** Adds address listeners for group members, or all address listeners if members aren't known. */
+	private void addGroupMemberListeners(Set<SessionQueue> listeners, Collection<String> members) {
+		if (members == null) {
+			for (Map<Session, SessionQueue> addressListeners : this.listenersByAddress.values())
+				listeners.addAll(addressListeners.values());
+
+			return;
+		}
+
+		for (String member : members)
+			addIndexed(listeners, this.listenersByAddress, member);
+	}
+
+	private void dispatch(Collection<SessionQueue> listeners, ChatTransactionData chatTransactionData) {
+		for (SessionQueue sessionQueue : listeners)
+			sessionQueue.add(chatTransactionData);
+	}
+
+	private static String addressPairKey(String address1, String address2) {
+		// Order-independent, as either address could be the sender
+		return address1.compareTo(address2) <= 0 ? address1 + "|" + address2 : address2 + "|" + address1;
+	}
+
+	private static <K> void addIndexed(Collection<SessionQueue> listeners, Map<K, Map<Session, SessionQueue>> index, K key) {
+		Map<Session, SessionQueue> indexedListeners = index.get(key);
+		if (indexedListeners != null)
+			listeners.addAll(indexedListeners.values());
+	}
+
+	private static <K> SessionQueue removeIndexed(Map<K, Map<Session, SessionQueue>> index, K key, Session session) {
+		Map<Session, SessionQueue> indexedListeners = index.get(key);
+		if (indexedListeners == null)
+			return null;
+
+		SessionQueue sessionQueue = indexedListeners.remove(session);
+		if (indexedListeners.isEmpty())
+			index.remove(key);
+
+		return sessionQueue;
+	}
+
 }
@@ -262,6 +262,21 @@ public class Controller extends Thread {
 		}
 		public GetNameMessageStats getNameMessageStats = new GetNameMessageStats();
 
+		public static class TransactionImportQueueStats {
+			public AtomicLong queueSize = new AtomicLong();
+			public AtomicLong validatedSignatures = new AtomicLong();
+			public AtomicLong invalidSignatures = new AtomicLong();
+			/** Time spent in import queue by recent transactions, in milliseconds */
+			public AtomicLong latencyP50 = new AtomicLong();
+			public AtomicLong latencyP90 = new AtomicLong();
+			public AtomicLong latencyP99 = new AtomicLong();
+			public AtomicLong latencyMax = new AtomicLong();
+
+			public TransactionImportQueueStats() {
+			}
+		}
+		public TransactionImportQueueStats transactionImportQueueStats = new TransactionImportQueueStats();
+
 		public AtomicLong latestBlocksCacheRefills = new AtomicLong();
 
 		public StatsSnapshot() {
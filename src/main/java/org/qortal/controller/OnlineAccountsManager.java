@@ -14,6 +14,7 @@ import org.qortal.crypto.Qortal25519Extras;
 import org.qortal.data.account.MintingAccountData;
 import org.qortal.data.account.RewardShareData;
 import org.qortal.data.group.GroupMemberData;
+import org.qortal.data.network.CompactOnlineAccounts;
 import org.qortal.data.network.OnlineAccountData;
 import org.qortal.network.Network;
 import org.qortal.network.Peer;
@@ -25,6 +26,7 @@ import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
 import org.qortal.settings.Settings;
 import org.qortal.utils.Base58;
+import org.qortal.utils.DaemonThreadFactory;
 import org.qortal.utils.Groups;
 import org.qortal.utils.NTP;
 import org.qortal.utils.NamedThreadFactory;
@@ -85,6 +87,11 @@ public class OnlineAccountsManager {
     private static long[] POW_VERIFY_WORK_BUFFER = new long[getPoWBufferSize() / 8];
 
     private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(4, new NamedThreadFactory("OnlineAccounts", Thread.NORM_PRIORITY));
+    /**
+     * Pool for searching for our online accounts' nonces, alongside the thread that asked for the nonce.
+     * Sized once, so each pool thread allocates its work buffer once, or null if only one thread is used.
+     */
+    private final ExecutorService powWorkerPool;
     private volatile boolean isStopping = false;
 
     private final Set<OnlineAccountData> onlineAccountsImportQueue = ConcurrentHashMap.newKeySet();
@@ -92,7 +99,11 @@ public class OnlineAccountsManager {
     /**
      * Cache of 'current' online accounts, keyed by timestamp
      */
-    private final Map<Long, Set<OnlineAccountData>> currentOnlineAccounts = new ConcurrentHashMap<>();
+    private final Map<Long, CompactOnlineAccounts> currentOnlineAccounts = new ConcurrentHashMap<>();
+    /**
+     * Lock for adding to 'current' online accounts, as each addition replaces a timestamp's (immutable) online accounts.
+     */
+    private final Object currentOnlineAccountsLock = new Object();
     /**
      * Cache of hash-summary of 'current' online accounts, keyed by timestamp, then leading byte of public key.
      */
@@ -102,7 +113,7 @@ public class OnlineAccountsManager {
      * Cache of online accounts for latest blocks - not necessarily 'current' / now.
      * <i>Probably</i> only accessed / modified by a single Synchronizer thread.
      */
-    private final SortedMap<Long, Set<OnlineAccountData>> latestBlocksOnlineAccounts = new ConcurrentSkipListMap<>();
+    private final SortedMap<Long, CompactOnlineAccounts> latestBlocksOnlineAccounts = new ConcurrentSkipListMap<>();
 
     private long lastOnlineAccountsRequest = 0;
 
@@ -153,6 +164,10 @@ public class OnlineAccountsManager {
     }
 
     private OnlineAccountsManager() {
+        int powThreadCount = Settings.getInstance().getOnlineAccountsPoWThreadCount();
+        this.powWorkerPool = powThreadCount > 1
+                ? Executors.newFixedThreadPool(powThreadCount - 1, new DaemonThreadFactory("OnlineAccounts-PoW", Thread.NORM_PRIORITY))
+                : null;
     }
 
     private static class SingletonContainer {
@@ -182,6 +197,9 @@ public class OnlineAccountsManager {
     public void shutdown() {
         isStopping = true;
         executor.shutdownNow();
+
+        if (powWorkerPool != null)
+            powWorkerPool.shutdownNow();
     }
 
     // Testing support
@@ -240,8 +258,8 @@ public class OnlineAccountsManager {
                     return;
 
                 // Skip this account if it's already validated
-                Set<OnlineAccountData> onlineAccounts = this.currentOnlineAccounts.get(onlineAccountData.getTimestamp());
-                if (onlineAccounts != null && onlineAccounts.contains(onlineAccountData)) {
+                CompactOnlineAccounts onlineAccounts = this.currentOnlineAccounts.get(onlineAccountData.getTimestamp());
+                if (onlineAccounts != null && onlineAccounts.isKnown(onlineAccountData)) {
                     // We have already validated this online account
                     onlineAccountsImportQueue.remove(onlineAccountData);
                     continue;
@@ -267,52 +285,6 @@ public class OnlineAccountsManager {
         }
     }
 
-    /**
-     * Check if supplied onlineAccountData is superior (i.e. has a nonce value) than existing record.
-     * Two entries are considered equal even if the nonce differs, to prevent multiple variations
-     * co-existing. For this reason, we need to be able to check if a new OnlineAccountData entry should
-     * replace the existing one, which may be missing the nonce.
-     * @param onlineAccountData
-     * @return true if supplied data is superior to existing entry
-     */
-    private boolean isOnlineAccountsDataSuperior(OnlineAccountData onlineAccountData) {
-        if (onlineAccountData.getNonce() == null || onlineAccountData.getNonce() < 0) {
-            // New online account data has no usable nonce value, so it won't be better than anything we already have
-            return false;
-        }
-
-        // New online account data has a nonce value, so check if there is any existing data to compare against
-        Set<OnlineAccountData> existingOnlineAccountsForTimestamp = this.currentOnlineAccounts.get(onlineAccountData.getTimestamp());
-        if (existingOnlineAccountsForTimestamp == null) {
-            // No existing online accounts data with this timestamp yet
-            return false;
-        }
-
-        // Check if a duplicate entry exists
-        OnlineAccountData existingOnlineAccountData = null;
-        for (OnlineAccountData existingAccount : existingOnlineAccountsForTimestamp) {
-            if (existingAccount.equals(onlineAccountData)) {
-                // Found existing online account data
-                existingOnlineAccountData = existingAccount;
-                break;
-            }
-        }
-
-        if (existingOnlineAccountData == null) {
-            // No existing online accounts data, so nothing to compare
-            return false;
-        }
-
-        if (existingOnlineAccountData.getNonce() == null || existingOnlineAccountData.getNonce() < 0) {
-            // Existing data has no usable nonce value(s) so we want to replace it with the new one
-            return true;
-        }
-
-        // Both new and old data have nonce values so the new data isn't considered superior
-        return false;
-    }
-
-
     // Utilities
 
     public static byte[] xorByteArrayInPlace(byte[] inplaceArray, byte[] otherArray) {
@@ -383,74 +355,56 @@ public class OnlineAccountsManager {
         return true;
     }
 
-    /** Adds accounts, maybe rebuilds hashes, returns whether any new accounts were added / hashes rebuilt. */
+    /**
+     * Adds accounts, maybe rebuilds hashes, returns whether any new accounts were added / hashes rebuilt.
+     * <p>
+     * An account that is already present is only replaced if the existing entry is missing a usable nonce,
+     * so that multiple variations don't co-exist.
+     */
     private boolean addAccounts(Collection<OnlineAccountData> onlineAccountsToAdd) {
-        // For keeping track of which hashes to rebuild
-        Map<Long, Set<Byte>> hashesToRebuild = new HashMap<>();
-
-        for (OnlineAccountData onlineAccountData : onlineAccountsToAdd) {
-            boolean isNewEntry = this.addAccount(onlineAccountData);
-
-            if (isNewEntry)
-                hashesToRebuild.computeIfAbsent(onlineAccountData.getTimestamp(), k -> new HashSet<>()).add(onlineAccountData.getPublicKey()[0]);
-        }
+        Map<Long, List<OnlineAccountData>> onlineAccountsByTimestamp = onlineAccountsToAdd.stream()
+                .collect(Collectors.groupingBy(OnlineAccountData::getTimestamp));
 
-        if (hashesToRebuild.isEmpty())
-            return false;
+        boolean hasInfoChanged = false;
 
-        for (var entry : hashesToRebuild.entrySet()) {
+        for (var entry : onlineAccountsByTimestamp.entrySet()) {
             Long timestamp = entry.getKey();
 
-            LOGGER.trace(() -> String.format("Rehashing for timestamp %d and leading bytes %s",
-                            timestamp,
-                            entry.getValue().stream().sorted(Byte::compareUnsigned).map(leadingByte -> String.format("%02x", leadingByte)).collect(Collectors.joining(", "))
-                    )
-            );
+            // For keeping track of which hashes to rebuild
+            Set<Byte> hashesToRebuild = new HashSet<>();
 
-            for (Byte leadingByte : entry.getValue()) {
-                byte[] pubkeyHash = currentOnlineAccounts.get(timestamp).stream()
-                        .map(OnlineAccountData::getPublicKey)
-                        .filter(publicKey -> leadingByte == publicKey[0])
-                        .reduce(null, OnlineAccountsManager::xorByteArrayInPlace);
-
-                currentOnlineAccountsHashes.computeIfAbsent(timestamp, k -> new ConcurrentHashMap<>()).put(leadingByte, pubkeyHash);
-
-                LOGGER.trace(() -> String.format("Rebuilt hash %s for timestamp %d and leading byte %02x using %d public keys",
-                        HashCode.fromBytes(pubkeyHash),
-                        timestamp,
-                        leadingByte,
-                        currentOnlineAccounts.get(timestamp).stream()
-                                .map(OnlineAccountData::getPublicKey)
-                                .filter(publicKey -> leadingByte == publicKey[0])
-                                .count()
-                ));
-            }
-        }
+            CompactOnlineAccounts onlineAccounts;
+            synchronized (this.currentOnlineAccountsLock) {
+                onlineAccounts = this.currentOnlineAccounts.getOrDefault(timestamp, CompactOnlineAccounts.empty(timestamp, true))
+                        .add(entry.getValue(), hashesToRebuild);
 
-        LOGGER.trace(String.format("we have online accounts for timestamps: %s", String.join(", ", this.currentOnlineAccounts.keySet().stream().map(l -> Long.toString(l)).collect(Collectors.joining(", ")))));
+                if (hashesToRebuild.isEmpty())
+                    continue;
 
-        return true;
-    }
+                this.currentOnlineAccounts.put(timestamp, onlineAccounts);
 
-    private boolean addAccount(OnlineAccountData onlineAccountData) {
-        byte[] rewardSharePublicKey = onlineAccountData.getPublicKey();
-        long onlineAccountTimestamp = onlineAccountData.getTimestamp();
+                // Rebuild hashes while still locked, so they always match latest online accounts
+                Map<Byte, byte[]> hashes = currentOnlineAccountsHashes.computeIfAbsent(timestamp, k -> new ConcurrentHashMap<>());
+                for (Byte leadingByte : hashesToRebuild)
+                    hashes.put(leadingByte, onlineAccounts.getHash(leadingByte));
+            }
 
-        Set<OnlineAccountData> onlineAccounts = this.currentOnlineAccounts.computeIfAbsent(onlineAccountTimestamp, k -> ConcurrentHashMap.newKeySet());
+            hasInfoChanged = true;
 
-        boolean isSuperiorEntry = isOnlineAccountsDataSuperior(onlineAccountData);
-        if (isSuperiorEntry)
-            // Remove existing inferior entry so it can be re-added below (it's likely the existing copy is missing a nonce value)
-            onlineAccounts.removeIf(a -> Arrays.equals(a.getPublicKey(), onlineAccountData.getPublicKey()));
+            LOGGER.trace(() -> String.format("Rehashed for timestamp %d and leading bytes %s, now %d online accounts",
+                            timestamp,
+                            hashesToRebuild.stream().sorted(Byte::compareUnsigned).map(leadingByte -> String.format("%02x", leadingByte)).collect(Collectors.joining(", ")),
+                            onlineAccounts.size()
+                    )
+            );
+        }
 
-        boolean isNewEntry = onlineAccounts.add(onlineAccountData);
+        if (!hasInfoChanged)
+            return false;
 
-        if (isNewEntry)
-            LOGGER.trace(() -> String.format("Added online account %s with timestamp %d", Base58.encode(rewardSharePublicKey), onlineAccountTimestamp));
-        else
-            LOGGER.trace(() -> String.format("Not updating existing online account %s with timestamp %d", Base58.encode(rewardSharePublicKey), onlineAccountTimestamp));
+        LOGGER.trace(String.format("we have online accounts for timestamps: %s", String.join(", ", this.currentOnlineAccounts.keySet().stream().map(l -> Long.toString(l)).collect(Collectors.joining(", ")))));
 
-        return isNewEntry;
+        return true;
     }
 
     /**
@@ -573,6 +527,13 @@ public class OnlineAccountsManager {
             byte[] timestampBytes = Longs.toByteArray(onlineAccountsTimestamp);
             List<OnlineAccountData> ourOnlineAccounts = new ArrayList<>();
 
+            // All nonces in this round must be computed before the next online timestamp starts,
+            // so use a fixed deadline rather than a fresh timeout for each account
+            Long now = NTP.getTime();
+            if (now == null)
+                return false;
+            final long deadline = toOnlineAccountTimestamp(now) + getOnlineTimestampModulus();
+
             int remaining = mintingAccounts.size();
             for (MintingAccountData mintingAccountData : mintingAccounts) {
                 remaining--;
@@ -580,8 +541,8 @@ public class OnlineAccountsManager {
                 byte[] publicKey = Crypto.toPublicKey(privateKey);
 
                 // We don't want to compute the online account nonce and signature again if it already exists
-                Set<OnlineAccountData> onlineAccounts = this.currentOnlineAccounts.computeIfAbsent(onlineAccountsTimestamp, k -> ConcurrentHashMap.newKeySet());
-                boolean alreadyExists = onlineAccounts.stream().anyMatch(a -> Arrays.equals(a.getPublicKey(), publicKey));
+                CompactOnlineAccounts onlineAccounts = this.currentOnlineAccounts.computeIfAbsent(onlineAccountsTimestamp, k -> CompactOnlineAccounts.empty(k, true));
+                boolean alreadyExists = onlineAccounts.indexOf(publicKey) >= 0;
                 if (alreadyExists) {
                     this.hasOurOnlineAccounts = true;
 
@@ -606,7 +567,7 @@ public class OnlineAccountsManager {
                 // Compute nonce
                 Integer nonce;
                 try {
-                    nonce = this.computeMemoryPoW(mempowBytes, publicKey, onlineAccountsTimestamp);
+                    nonce = this.computeMemoryPoW(mempowBytes, publicKey, onlineAccountsTimestamp, deadline);
                     if (nonce == null) {
                         // A nonce is required
                         return false;
@@ -640,8 +601,9 @@ public class OnlineAccountsManager {
 
             if (!hasInfoChanged) {
                 if (!ourOnlineAccounts.isEmpty()) {
-                    long matchingCount = this.currentOnlineAccounts.getOrDefault(onlineAccountsTimestamp, Collections.emptySet()).stream()
-                            .filter(a -> ourOnlineAccounts.stream().anyMatch(our -> Arrays.equals(our.getPublicKey(), a.getPublicKey())))
+                    CompactOnlineAccounts onlineAccounts = this.currentOnlineAccounts.getOrDefault(onlineAccountsTimestamp, CompactOnlineAccounts.empty(onlineAccountsTimestamp, true));
+                    long matchingCount = ourOnlineAccounts.stream()
+                            .filter(our -> onlineAccounts.indexOf(our.getPublicKey()) >= 0)
                             .count();
                     LOGGER.info("No online-account cache update for timestamp {} despite {} locally verified account(s); matching pubkey entries currently in cache: {}",
                             onlineAccountsTimestamp, ourOnlineAccounts.size(), matchingCount);
@@ -673,16 +635,18 @@ public class OnlineAccountsManager {
         return outputStream.toByteArray();
     }
 
-    private Integer computeMemoryPoW(byte[] bytes, byte[] publicKey, long onlineAccountsTimestamp) throws TimeoutException {
+    private Integer computeMemoryPoW(byte[] bytes, byte[] publicKey, long onlineAccountsTimestamp, long deadline) throws TimeoutException {
         LOGGER.info(String.format("Computing nonce for account %.8s and timestamp %d...", Base58.encode(publicKey), onlineAccountsTimestamp));
 
-        // Calculate the time until the next online timestamp and use it as a timeout when computing the nonce
+        // Use the time until the deadline as a timeout when computing the nonce
         Long startTime = NTP.getTime();
-        final long nextOnlineAccountsTimestamp = toOnlineAccountTimestamp(startTime) + getOnlineTimestampModulus();
-        long timeUntilNextTimestamp = nextOnlineAccountsTimestamp - startTime;
+        long timeUntilDeadline = deadline - startTime;
+        if (timeUntilDeadline <= 0)
+            throw new TimeoutException("Deadline already passed");
 
         int difficulty = getPoWDifficulty(onlineAccountsTimestamp);
-        Integer nonce = MemoryPoW.compute2(bytes, getPoWBufferSize(), difficulty, timeUntilNextTimestamp);
+        int threadCount = Settings.getInstance().getOnlineAccountsPoWThreadCount();
+        Integer nonce = MemoryPoW.compute2(bytes, getPoWBufferSize(), difficulty, timeUntilDeadline, this.powWorkerPool, threadCount);
 
         double totalSeconds = (NTP.getTime() - startTime) / 1000.0f;
         int minutes = (int) ((totalSeconds % 3600) / 60);
@@ -756,7 +720,11 @@ public class OnlineAccountsManager {
     public List<OnlineAccountData> getOnlineAccounts(long onlineTimestamp) {
         LOGGER.debug(String.format("caller's timestamp: %d, our timestamps: %s", onlineTimestamp, String.join(", ", this.currentOnlineAccounts.keySet().stream().map(l -> Long.toString(l)).collect(Collectors.joining(", ")))));
 
-        return new ArrayList<>(Set.copyOf(this.currentOnlineAccounts.getOrDefault(onlineTimestamp, Collections.emptySet())));
+        CompactOnlineAccounts onlineAccounts = this.currentOnlineAccounts.get(onlineTimestamp);
+        if (onlineAccounts == null)
+            return new ArrayList<>();
+
+        return onlineAccounts.getOnlineAccounts();
     }
 
     /**
@@ -782,14 +750,14 @@ public class OnlineAccountsManager {
      * Typically called by {@link Block#areOnlineAccountsValid()}
      */
     public void removeKnown(Set<OnlineAccountData> blocksOnlineAccounts, Long timestamp) {
-        Set<OnlineAccountData> onlineAccounts = this.currentOnlineAccounts.get(timestamp);
+        CompactOnlineAccounts onlineAccounts = this.currentOnlineAccounts.get(timestamp);
 
         // If not 'current' timestamp - try block cache instead
         if (onlineAccounts == null)
             onlineAccounts = this.latestBlocksOnlineAccounts.get(timestamp);
 
         if (onlineAccounts != null)
-            blocksOnlineAccounts.removeAll(onlineAccounts);
+            onlineAccounts.removeKnown(blocksOnlineAccounts);
     }
 
     /**
@@ -807,9 +775,9 @@ public class OnlineAccountsManager {
         if (this.currentOnlineAccounts.containsKey(timestamp))
             return;
 
-        // Add to block cache instead
-        this.latestBlocksOnlineAccounts.computeIfAbsent(timestamp, k -> ConcurrentHashMap.newKeySet())
-                .addAll(blocksOnlineAccounts);
+        // Add to block cache instead - without signatures, as blocks only have aggregate signature
+        this.latestBlocksOnlineAccounts.compute(timestamp, (k, onlineAccounts) ->
+                (onlineAccounts != null ? onlineAccounts : CompactOnlineAccounts.empty(k, false)).add(blocksOnlineAccounts, null));
 
         // If block cache has grown too large then we need to trim.
         if (this.latestBlocksOnlineAccounts.size() > MAX_BLOCKS_CACHED_ONLINE_ACCOUNTS) {
@@ -841,7 +809,7 @@ public class OnlineAccountsManager {
 
         // Warning: no double-checking/fetching - we must be ConcurrentMap compatible!
         // So no contains()-then-get() or multiple get()s on the same key/map.
-        // We also use getOrDefault() with emptySet() on currentOnlineAccounts in case corresponding timestamp entry isn't there.
+        // We also use getOrDefault() with empty online accounts on currentOnlineAccounts in case corresponding timestamp entry isn't there.
         for (var ourOuterMapEntry : currentOnlineAccountsHashes.entrySet()) {
             Long timestamp = ourOuterMapEntry.getKey();
 
@@ -850,7 +818,7 @@ public class OnlineAccountsManager {
 
             if (peersInnerMap == null) {
                 // Peer doesn't have this timestamp, so if it's valid (i.e. not too old) then we'd have to send all of ours
-                Set<OnlineAccountData> timestampsOnlineAccounts = this.currentOnlineAccounts.getOrDefault(timestamp, Collections.emptySet());
+                List<OnlineAccountData> timestampsOnlineAccounts = this.currentOnlineAccounts.getOrDefault(timestamp, CompactOnlineAccounts.empty(timestamp, true)).getOnlineAccounts();
                 outgoingOnlineAccounts.addAll(timestampsOnlineAccounts);
 
                 LOGGER.trace(() -> String.format("Going to send all %d online accounts for timestamp %d", timestampsOnlineAccounts.size(), timestamp));
@@ -872,9 +840,8 @@ public class OnlineAccountsManager {
 
                 int beforeAddSize = outgoingOnlineAccounts.size();
 
-                this.currentOnlineAccounts.getOrDefault(timestamp, Collections.emptySet()).stream()
-                        .filter(account -> outgoingLeadingBytes.contains(account.getPublicKey()[0]))
-                        .forEach(outgoingOnlineAccounts::add);
+                outgoingOnlineAccounts.addAll(this.currentOnlineAccounts.getOrDefault(timestamp, CompactOnlineAccounts.empty(timestamp, true))
+                        .getOnlineAccounts(outgoingLeadingBytes));
 
                 if (outgoingOnlineAccounts.size() > beforeAddSize)
                     LOGGER.trace(String.format("Going to send %d online accounts for timestamp %d and leading bytes %s",
@@ -902,8 +869,8 @@ public class OnlineAccountsManager {
         // Add any online accounts to the queue that aren't already present
         for (OnlineAccountData onlineAccountData : peersOnlineAccounts) {
 
-            Set<OnlineAccountData> onlineAccounts = this.currentOnlineAccounts.computeIfAbsent(onlineAccountData.getTimestamp(), k -> ConcurrentHashMap.newKeySet());
-            if (onlineAccounts.contains(onlineAccountData))
+            CompactOnlineAccounts onlineAccounts = this.currentOnlineAccounts.computeIfAbsent(onlineAccountData.getTimestamp(), k -> CompactOnlineAccounts.empty(k, true));
+            if (onlineAccounts.isKnown(onlineAccountData))
                 // We have already validated this online account
                 continue;
 
@@ -7,6 +7,8 @@ import org.qortal.account.PublicKeyAccount;
 import org.qortal.block.Block;
 import org.qortal.block.Block.ValidationResult;
 import org.qortal.block.BlockChain;
+import org.qortal.block.ChainWeightCalculator;
+import org.qortal.data.account.AccountData;
 import org.qortal.data.block.BlockData;
 import org.qortal.data.block.BlockSummaryData;
 import org.qortal.data.block.CommonBlockData;
@@ -24,6 +26,7 @@ import org.qortal.settings.Settings;
 import org.qortal.transaction.Transaction;
 import org.qortal.utils.Base58;
 import org.qortal.utils.ByteArray;
+import org.qortal.utils.DaemonThreadFactory;
 import org.qortal.utils.NTP;
 
 import java.math.BigInteger;
@@ -31,6 +34,13 @@ import java.security.SecureRandom;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
@@ -92,6 +102,10 @@ public class Synchronizer extends Thread {
 	public Long timeValidBlockLastReceived = null;
 	public Long timeInvalidBlockLastReceived = null;
 
+	/** Searches for common blocks with peers, several at a time. Threads are only started when needed. */
+	private final ExecutorService commonBlockSearchExecutor = Executors.newFixedThreadPool(Settings.getInstance().getCommonBlockSearchThreadCount(),
+			new DaemonThreadFactory("Common block search", Settings.getInstance().getSynchronizerThreadPriority()));
+
 	private static Synchronizer instance;
 
 	public enum SynchronizationResult {
@@ -169,6 +183,7 @@ public class Synchronizer extends Thread {
 
 	public void shutdown() {
 		this.running = false;
+		this.commonBlockSearchExecutor.shutdownNow();
 		this.interrupt();
 	}
 
@@ -500,10 +515,47 @@ public class Synchronizer extends Thread {
 	}
 
 
+	/** Search for our common block with a peer, using its own repository session. */
+	private class CommonBlockSearch implements Callable<CommonBlockSearch> {
+		private final Peer peer;
+		/** Peer's chain tip when search was submitted */
+		private final BlockSummaryData chainTipData;
+		/** When search started running (ms), or 0 if still waiting for a thread */
+		private volatile long startTime = 0L;
+		private Future<CommonBlockSearch> future;
+
+		private CommonBlockSearch(Peer peer) {
+			this.peer = peer;
+			this.chainTipData = peer.getChainTipData();
+		}
+
+		@Override
+		public CommonBlockSearch call() {
+			this.startTime = System.currentTimeMillis();
+
+			try (final Repository repository = RepositoryManager.getRepository()) {
+				try {
+					findCommonBlockWithPeer(this.peer, repository);
+				} finally {
+					repository.discardChanges(); // Free repository locks, if any
+				}
+			} catch (DataException e) {
+				LOGGER.error(String.format("Repository issue while searching for common block with peer %s", this.peer), e);
+			} catch (InterruptedException e) {
+				// Search was cancelled
+			}
+
+			return this;
+		}
+	}
+
 	/**
 	 * Iterate through a list of supplied peers, and attempt to find our common block with each.
 	 * If a common block is found, its summary will be retained in the peer's commonBlockSummary property, for processing later.
 	 * <p>
+	 * Several peers are searched at once, each with a time limit. Peers on the same chain tip share the same common block,
+	 * so once it is found with one of them, searches with the others are cancelled.
+	 * <p>
 	 * Will return <tt>SynchronizationResult.OK</tt> on success.
 	 * <p>
 	 * @param peers
@@ -532,34 +584,82 @@ public class Synchronizer extends Thread {
 
 				LOGGER.debug(String.format("Searching for common blocks with %d peers...", peers.size()));
 				final long startTime = System.currentTimeMillis();
-				int commonBlocksFound = 0;
-				boolean wereNewRequestsMade = false;
+				final long searchTimeout = Settings.getInstance().getCommonBlockSearchTimeout();
 
-				for (Peer peer : peers) {
-					// Are we shutting down?
-					if (Controller.isStopping())
-						return SynchronizationResult.SHUTTING_DOWN;
+				// Searches not yet finished, and searches grouped by peer's chain tip
+				List<CommonBlockSearch> pendingSearches = new ArrayList<>();
+				Map<ByteArray, List<CommonBlockSearch>> searchesByChainTip = new HashMap<>();
+				CompletionService<CommonBlockSearch> completionService = new ExecutorCompletionService<>(this.commonBlockSearchExecutor);
 
+				for (Peer peer : peers) {
 					// Check if we can use the cached common block data, by comparing the peer's current chain tip against the peer's chain tip when we last found our common block
 					if (peer.canUseCachedCommonBlockData()) {
 						LOGGER.debug(String.format("Skipping peer %s because we already have the latest common block data in our cache. Cached common block sig is %.08s", peer, Base58.encode(peer.getCommonBlockData().getCommonBlockSummary().getSignature())));
-						commonBlocksFound++;
 						continue;
 					}
 
 					// Cached data is stale, so clear it and repopulate
 					peer.setCommonBlockData(null);
 
-					// Search for the common block
-					Synchronizer.getInstance().findCommonBlockWithPeer(peer, repository);
-					if (peer.getCommonBlockData() != null)
-						commonBlocksFound++;
+					CommonBlockSearch search = new CommonBlockSearch(peer);
+					pendingSearches.add(search);
+					searchesByChainTip.computeIfAbsent(ByteArray.wrap(search.chainTipData.getSignature()), k -> new ArrayList<>()).add(search);
 
-					// This round wasn't served entirely from the cache, so we may want to log the results
-					wereNewRequestsMade = true;
+					search.future = completionService.submit(search);
+				}
+
+				// This round wasn't served entirely from the cache, so we may want to log the results
+				final boolean wereNewRequestsMade = !pendingSearches.isEmpty();
+
+				try {
+					while (!pendingSearches.isEmpty()) {
+						// Are we shutting down?
+						if (Controller.isStopping())
+							return SynchronizationResult.SHUTTING_DOWN;
+
+						Future<CommonBlockSearch> future = completionService.poll(100L, TimeUnit.MILLISECONDS);
+						if (future != null && !future.isCancelled()) {
+							CommonBlockSearch search = future.get();
+							pendingSearches.remove(search);
+
+							CommonBlockData commonBlockData = search.peer.getCommonBlockData();
+							if (commonBlockData != null) {
+								// Peers on the same chain tip agree on our common block, so no need to keep asking them
+								for (CommonBlockSearch otherSearch : searchesByChainTip.get(ByteArray.wrap(search.chainTipData.getSignature()))) {
+									if (!pendingSearches.remove(otherSearch))
+										continue;
+
+									otherSearch.future.cancel(true);
+									otherSearch.peer.setCommonBlockData(new CommonBlockData(commonBlockData.getCommonBlockSummary(), otherSearch.chainTipData));
+									LOGGER.trace(String.format("Peer %s has same chain tip as peer %s, so using same common block", otherSearch.peer, search.peer));
+								}
+							}
+						}
+
+						// Give up on peers that are taking too long
+						final long now = System.currentTimeMillis();
+						Iterator<CommonBlockSearch> pendingSearchesIterator = pendingSearches.iterator();
+						while (pendingSearchesIterator.hasNext()) {
+							CommonBlockSearch search = pendingSearchesIterator.next();
+
+							if (search.startTime == 0L || now - search.startTime < searchTimeout)
+								continue;
+
+							LOGGER.debug(String.format("Giving up search for common block with peer %s after %d ms", search.peer, now - search.startTime));
+							search.future.cancel(true);
+							pendingSearchesIterator.remove();
+						}
+					}
+				} catch (ExecutionException e) {
+					LOGGER.error("Unexpected failure searching for common blocks with peers", e.getCause());
+				} finally {
+					// Don't leave searches running, e.g. if we're shutting down
+					for (CommonBlockSearch search : pendingSearches)
+						search.future.cancel(true);
 				}
 
 				if (wereNewRequestsMade) {
+					final int commonBlocksFound = (int) peers.stream().filter(peer -> peer.getCommonBlockData() != null).count();
 					final long totalTimeTaken = System.currentTimeMillis() - startTime;
 					LOGGER.debug(String.format("Finished searching for common blocks with %d peer%s. Found: %d. Total time taken: %d ms", peers.size(), (peers.size() != 1 ? "s" : ""), commonBlocksFound, totalTimeTaken));
 				}
@@ -795,10 +895,13 @@ public class Synchronizer extends Thread {
 					// Calculate max height for chain weight comparisons
 					int maxHeightForChainWeightComparisons = commonBlockSummary.getHeight() + minChainLength;
 
+					// Chains sharing this common block usually share many of the same blocks, so only weigh those once
+					ChainWeightCalculator chainWeightCalculator = new ChainWeightCalculator(commonBlockSummary.getHeight(), commonBlockSummary.getSignature());
+
 					// Calculate our chain weight
 					BigInteger ourChainWeight = BigInteger.valueOf(0);
 					if (!ourBlockSummaries.isEmpty())
-						ourChainWeight = Block.calcChainWeight(commonBlockSummary.getHeight(), commonBlockSummary.getSignature(), ourBlockSummaries, maxHeightForChainWeightComparisons);
+						ourChainWeight = chainWeightCalculator.calcChainWeight(ourBlockSummaries, maxHeightForChainWeightComparisons);
 
 					LOGGER.debug(String.format("Our chain weight based on %d blocks is %s", (usingSameLengthChainWeight ? minChainLength : ourBlockSummaries.size()), accurateFormatter.format(ourChainWeight)));
 
@@ -830,7 +933,7 @@ public class Synchronizer extends Thread {
 
 						// Calculate cumulative chain weight of this blockchain subset, from common block to highest mutual block held by all peers in this group.
 						LOGGER.debug(String.format("About to calculate chain weight based on %d blocks for peer %s with common block %.8s (peer has %d blocks after common block)", (usingSameLengthChainWeight ? minChainLength : peerBlockSummariesAfterCommonBlock.size()), peer, Base58.encode(commonBlockSummary.getSignature()), peerAdditionalBlocksAfterCommonBlock));
-						BigInteger peerChainWeight = Block.calcChainWeight(commonBlockSummary.getHeight(), commonBlockSummary.getSignature(), peerBlockSummariesAfterCommonBlock, maxHeightForChainWeightComparisons);
+						BigInteger peerChainWeight = chainWeightCalculator.calcChainWeight(peerBlockSummariesAfterCommonBlock, maxHeightForChainWeightComparisons);
 						peer.getCommonBlockData().setChainWeight(peerChainWeight);
 						LOGGER.debug(String.format("Chain weight of peer %s based on %d blocks (%d - %d) is %s", peer, (usingSameLengthChainWeight ? minChainLength : peerBlockSummariesAfterCommonBlock.size()), peerBlockSummariesAfterCommonBlock.get(0).getHeight(), peerBlockSummariesAfterCommonBlock.get(peerBlockSummariesAfterCommonBlock.size()-1).getHeight(), accurateFormatter.format(peerChainWeight)));
 
@@ -1858,23 +1961,42 @@ public class Synchronizer extends Thread {
 	public void populateBlockSummariesMinterLevels(Repository repository, List<BlockSummaryData> blockSummaries) throws DataException {
 		final int firstBlockHeight = blockSummaries.get(0).getHeight();
 
+		// Qortal: minter is always a reward-share, so find actual minters, all at once, to get their effective minting levels
+		Set<ByteArray> rewardSharePublicKeys = new HashSet<>();
+		for (BlockSummaryData blockSummary : blockSummaries)
+			rewardSharePublicKeys.add(ByteArray.wrap(blockSummary.getMinterPublicKey()));
+
+		Map<ByteArray, AccountData> minterAccounts = repository.getAccountRepository()
+				.getRewardShareMinterAccounts(rewardSharePublicKeys.stream().map(rewardSharePublicKey -> rewardSharePublicKey.value).collect(Collectors.toList()));
+
+		// Only fetched if needed
+		List<RewardShareTransactionData> rewardShareTransactions = null;
+
 		for (int i = 0; i < blockSummaries.size(); ++i) {
 			if (Controller.isStopping())
 				return;
 
 			BlockSummaryData blockSummary = blockSummaries.get(i);
 
-			// Qortal: minter is always a reward-share, so find actual minter and get their effective minting level
-			int minterLevel = Account.getRewardShareEffectiveMintingLevel(repository, blockSummary.getMinterPublicKey());
+			AccountData minterAccount = minterAccounts.get(ByteArray.wrap(blockSummary.getMinterPublicKey()));
+			int minterLevel = minterAccount != null ? Account.getEffectiveMintingLevel(minterAccount) : 0;
 			if (minterLevel == 0) {
 				// It looks like this block's minter's reward-share has been cancelled.
 				// So search for REWARD_SHARE transactions since common block to find missing minter info
-				List<byte[]> transactionSignatures = repository.getTransactionRepository().getSignaturesMatchingCriteria(Transaction.TransactionType.REWARD_SHARE, null, firstBlockHeight, null);
+				if (rewardShareTransactions == null) {
+					rewardShareTransactions = new ArrayList<>();
+
+					List<byte[]> transactionSignatures = repository.getTransactionRepository().getSignaturesMatchingCriteria(Transaction.TransactionType.REWARD_SHARE, null, firstBlockHeight, null);
+					for (byte[] transactionSignature : transactionSignatures) {
+						RewardShareTransactionData transactionData = (RewardShareTransactionData) repository.getTransactionRepository().fromSignature(transactionSignature);
 
-				for (byte[] transactionSignature : transactionSignatures) {
-					RewardShareTransactionData transactionData = (RewardShareTransactionData) repository.getTransactionRepository().fromSignature(transactionSignature);
+						if (transactionData != null)
+							rewardShareTransactions.add(transactionData);
+					}
+				}
 
-					if (transactionData != null && Arrays.equals(transactionData.getRewardSharePublicKey(), blockSummary.getMinterPublicKey())) {
+				for (RewardShareTransactionData transactionData : rewardShareTransactions) {
+					if (Arrays.equals(transactionData.getRewardSharePublicKey(), blockSummary.getMinterPublicKey())) {
 						Account rewardShareMinter = new PublicKeyAccount(repository, transactionData.getMinterPublicKey());
 						minterLevel = rewardShareMinter.getEffectiveMintingLevel();
 						break;
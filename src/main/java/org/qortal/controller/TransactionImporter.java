@@ -3,6 +3,7 @@ package org.qortal.controller;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.controller.arbitrary.PeerMessage;
+import org.qortal.crypto.MemoryPoW;
 import org.qortal.data.block.BlockData;
 import org.qortal.data.transaction.TransactionData;
 import org.qortal.network.Network;
@@ -19,11 +20,15 @@ import org.qortal.transaction.Transaction;
 import org.qortal.transform.TransformationException;
 import org.qortal.utils.Base58;
 import org.qortal.utils.NTP;
+import org.qortal.utils.NamedThreadFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
@@ -39,6 +44,14 @@ public class TransactionImporter extends Thread {
 
     private static final int MAX_INCOMING_TRANSACTIONS = 5000;
 
+    /** Maximum transactions to validate signatures of per cycle, highest priority first */
+    public static final int MAX_VALIDATE_TRANSACTIONS_PER_CYCLE = 1000;
+    /** Number of threads validating transaction signatures and proof-of-work nonces */
+    private static final int VALIDATION_THREAD_COUNT = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() / 2, 4));
+    /** Minimum transactions per validation task, so small queues aren't split up for nothing */
+    private static final int MIN_TRANSACTIONS_PER_VALIDATION_TASK = 16;
+    /** Number of recent transactions used for queue latency percentiles */
+    private static final int QUEUE_LATENCY_SAMPLES = 1000;
     /** Maximum transactions to import per cycle */
     private static final int MAX_IMPORT_TRANSACTIONS_PER_CYCLE = 50;
     /** Maximum GET_TRANSACTION messages to process per cycle */
@@ -64,6 +77,34 @@ public class TransactionImporter extends Thread {
     /** Map of incoming transaction that are in the import queue. Key is transaction data, value is whether signature has been validated. */
     private final Map<TransactionData, Boolean> incomingTransactions = Collections.synchronizedMap(new HashMap<>());
 
+    /** Map of when each transaction in the import queue was queued, for latency stats. Key is base58 transaction signature, value is System.nanoTime(). */
+    private final Map<String, Long> incomingTransactionQueueTimes = new ConcurrentHashMap<>();
+
+    /** Recent import queue latencies, in milliseconds, used as a ring buffer */
+    private final long[] queueLatencies = new long[QUEUE_LATENCY_SAMPLES];
+    private int queueLatencyCount = 0;
+
+    /** Transaction types that need proof-of-work nonces checking, which is much slower than signature verification */
+    private static final EnumSet<Transaction.TransactionType> POW_TRANSACTION_TYPES = EnumSet.of(
+            Transaction.TransactionType.CHAT,
+            Transaction.TransactionType.MESSAGE,
+            Transaction.TransactionType.ARBITRARY,
+            Transaction.TransactionType.PRESENCE
+    );
+
+    /**
+     * Validation and import priority: higher fee first, then types without proof-of-work, then oldest first.
+     * Signature is the final tie-break so order is deterministic.
+     */
+    private static final Comparator<TransactionData> IMPORT_PRIORITY = Comparator
+            .comparingLong((TransactionData transactionData) -> transactionData.getFee() != null ? transactionData.getFee() : 0L).reversed()
+            .thenComparing(transactionData -> POW_TRANSACTION_TYPES.contains(transactionData.getType()))
+            .thenComparingLong(TransactionData::getTimestamp)
+            .thenComparing(TransactionData::getSignature, Arrays::compare);
+
+    private final ExecutorService validationExecutor = Executors.newFixedThreadPool(VALIDATION_THREAD_COUNT,
+            new NamedThreadFactory("Transaction validator", Thread.NORM_PRIORITY));
+
     /** Map of recent invalid unconfirmed transactions. Key is base58 transaction signature, value is do-not-request expiry timestamp. */
     private final Map<String, Long> invalidUnconfirmedTransactions = Collections.synchronizedMap(new HashMap<>());
 
@@ -99,6 +140,8 @@ public class TransactionImporter extends Thread {
 
                 // Clean up invalid incoming transactions list
                 cleanupInvalidTransactionsList(NTP.getTime());
+
+                updateQueueStats();
             }
         } catch (InterruptedException e) {
             // Fall through to exit thread
@@ -116,6 +159,7 @@ public class TransactionImporter extends Thread {
             getUnconfirmedTransactionsMessageScheduler.shutdownNow();
             signatureMessageScheduler.shutdownNow();
             getTransactionReplyExecutor.shutdownNow();
+            validationExecutor.shutdownNow();
 
             if (!getTransactionMessageScheduler.awaitTermination(5, TimeUnit.SECONDS)) {
                 LOGGER.warn("getTransactionMessageScheduler did not terminate in time");
@@ -129,6 +173,9 @@ public class TransactionImporter extends Thread {
             if (!getTransactionReplyExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
                 LOGGER.warn("getTransactionReplyExecutor did not terminate in time");
             }
+            if (!validationExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOGGER.warn("validationExecutor did not terminate in time");
+            }
         } catch (InterruptedException e) {
             LOGGER.warn("Interrupted while waiting for TransactionImporter schedulers to terminate", e);
             Thread.currentThread().interrupt();
@@ -146,6 +193,11 @@ public class TransactionImporter extends Thread {
 
     private void removeIncomingTransaction(byte[] signature) {
         incomingTransactions.keySet().removeIf(t -> Arrays.equals(t.getSignature(), signature));
+
+        Long queueTime = incomingTransactionQueueTimes.remove(Base58.encode(signature));
+        if (queueTime != null) {
+            recordQueueLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queueTime));
+        }
     }
 
     /**
@@ -195,6 +247,9 @@ public class TransactionImporter extends Thread {
             // We need the latest block in order to check for expired transactions
             BlockData latestBlock = Controller.getInstance().getChainTip();
 
+            // Transactions whose signatures need validating in this round
+            List<Transaction> transactionsToValidate = new ArrayList<>();
+
             // Signature validation round - does not require blockchain lock
             for (Map.Entry<TransactionData, Boolean> transactionEntry : incomingTransactionsCopy.entrySet()) {
                 // Quick exit?
@@ -231,36 +286,61 @@ public class TransactionImporter extends Thread {
                         continue;
                     }
 
-                    if (!transaction.isSignatureValid()) {
-                        LOGGER.debug("Ignoring {} transaction {} with invalid signature", transactionData.getType().name(), signature58);
-                        removeIncomingTransaction(transactionData.getSignature());
-
-                        // Also add to invalidIncomingTransactions map
-                        now = NTP.getTime();
-                        if (now != null) {
-                            Long expiry = now + INVALID_TRANSACTION_RECHECK_INTERVAL;
-                            LOGGER.trace("Adding invalid transaction {} to invalidUnconfirmedTransactions...", signature58);
-                            // Add to invalidUnconfirmedTransactions so that we don't keep requesting it
-                            invalidUnconfirmedTransactions.put(signature58, expiry);
-                        }
+                    // Validated below, as a batch
+                    transactionsToValidate.add(transaction);
+                    continue;
+                }
 
-                        // We're done with this transaction
-                        continue;
-                    }
+                LOGGER.trace(() -> String.format("Transaction %s known to have valid signature", Base58.encode(transactionData.getSignature())));
+
+                // Signature valid - add to shortlist
+                sigValidTransactions.add(transaction);
+            }
 
-                    // Count the number that were validated in this round, for logging purposes
-                    validatedCount++;
+            // Highest priority first, in case there are more than we can validate in this round
+            transactionsToValidate = getTransactionsToValidate(transactionsToValidate);
 
-                    // Add mark signature as valid if transaction still exists in import queue
-                    incomingTransactions.computeIfPresent(transactionData, (k, v) -> Boolean.TRUE);
+            Boolean[] areSignaturesValid = validateSignatures(transactionsToValidate);
 
-                    // Signature validated in this round
-                    newlyValidSignatures.add(transactionData.getSignature());
+            for (int i = 0; i < transactionsToValidate.size(); ++i) {
+                Transaction transaction = transactionsToValidate.get(i);
+                TransactionData transactionData = transaction.getTransactionData();
 
-                } else {
-                    LOGGER.trace(() -> String.format("Transaction %s known to have valid signature", Base58.encode(transactionData.getSignature())));
+                if (areSignaturesValid[i] == null) {
+                    // Not checked in this round, so left in queue for next round
+                    continue;
+                }
+
+                if (!areSignaturesValid[i]) {
+                    Controller.getInstance().getStatsSnapshot().transactionImportQueueStats.invalidSignatures.incrementAndGet();
+
+                    String signature58 = Base58.encode(transactionData.getSignature());
+                    LOGGER.debug("Ignoring {} transaction {} with invalid signature", transactionData.getType().name(), signature58);
+                    removeIncomingTransaction(transactionData.getSignature());
+
+                    // Also add to invalidIncomingTransactions map
+                    Long now = NTP.getTime();
+                    if (now != null) {
+                        Long expiry = now + INVALID_TRANSACTION_RECHECK_INTERVAL;
+                        LOGGER.trace("Adding invalid transaction {} to invalidUnconfirmedTransactions...", signature58);
+                        // Add to invalidUnconfirmedTransactions so that we don't keep requesting it
+                        invalidUnconfirmedTransactions.put(signature58, expiry);
+                    }
+
+                    // We're done with this transaction
+                    continue;
                 }
 
+                // Count the number that were validated in this round, for logging purposes
+                validatedCount++;
+                Controller.getInstance().getStatsSnapshot().transactionImportQueueStats.validatedSignatures.incrementAndGet();
+
+                // Add mark signature as valid if transaction still exists in import queue
+                incomingTransactions.computeIfPresent(transactionData, (k, v) -> Boolean.TRUE);
+
+                // Signature validated in this round
+                newlyValidSignatures.add(transactionData.getSignature());
+
                 // Signature valid - add to shortlist
                 sigValidTransactions.add(transaction);
             }
@@ -274,6 +354,120 @@ public class TransactionImporter extends Thread {
         }
     }
 
+    /**
+     * Returns transactions to validate in one round, in {@link #IMPORT_PRIORITY} order,
+     * capped at {@link #MAX_VALIDATE_TRANSACTIONS_PER_CYCLE}.
+     */
+    public static List<Transaction> getTransactionsToValidate(List<Transaction> transactions) {
+        List<Transaction> transactionsToValidate = new ArrayList<>(transactions);
+        transactionsToValidate.sort(Comparator.comparing(Transaction::getTransactionData, IMPORT_PRIORITY));
+
+        if (transactionsToValidate.size() > MAX_VALIDATE_TRANSACTIONS_PER_CYCLE) {
+            LOGGER.debug("Capping validation cycle at {} (queue has {})", MAX_VALIDATE_TRANSACTIONS_PER_CYCLE, transactionsToValidate.size());
+            transactionsToValidate = transactionsToValidate.subList(0, MAX_VALIDATE_TRANSACTIONS_PER_CYCLE);
+        }
+
+        return transactionsToValidate;
+    }
+
+    /**
+     * Validates signatures, and any proof-of-work nonces, using validation worker threads.
+     * <p>
+     * Transactions are split into contiguous slices, one per task, so results are in the same order as passed transactions,
+     * regardless of which task finishes first.
+     *
+     * @return whether each transaction's signature is valid, or null if it couldn't be checked in this round
+     */
+    public Boolean[] validateSignatures(List<Transaction> transactions) {
+        Boolean[] results = new Boolean[transactions.size()];
+        if (transactions.isEmpty()) {
+            return results;
+        }
+
+        int taskCount = Math.min(VALIDATION_THREAD_COUNT,
+                (transactions.size() + MIN_TRANSACTIONS_PER_VALIDATION_TASK - 1) / MIN_TRANSACTIONS_PER_VALIDATION_TASK);
+        int taskSize = (transactions.size() + taskCount - 1) / taskCount;
+
+        List<Future<boolean[]>> futures = new ArrayList<>(taskCount);
+        try {
+            for (int from = 0; from < transactions.size(); from += taskSize) {
+                List<TransactionData> slice = transactions.subList(from, Math.min(from + taskSize, transactions.size())).stream()
+                        .map(Transaction::getTransactionData)
+                        .collect(Collectors.toList());
+
+                futures.add(validationExecutor.submit(() -> validateSignatureSlice(slice)));
+            }
+
+            for (int task = 0; task < futures.size(); ++task) {
+                try {
+                    boolean[] taskResults = futures.get(task).get();
+
+                    for (int i = 0; i < taskResults.length; ++i) {
+                        results[task * taskSize + i] = taskResults[i];
+                    }
+                } catch (ExecutionException e) {
+                    LOGGER.error("Unable to validate signatures in incoming transactions queue", e.getCause());
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            futures.forEach(future -> future.cancel(true));
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+        }
+
+        return results;
+    }
+
+    private static boolean[] validateSignatureSlice(List<TransactionData> transactionsData) throws DataException {
+        // Validation workers check lots of proof-of-work nonces, so keep work buffer between transactions
+        MemoryPoW.retainWorkBuffer();
+
+        // Each task needs its own repository session, as some nonce checks look up account balances
+        try (final Repository repository = RepositoryManager.getRepository()) {
+            List<Transaction> transactions = new ArrayList<>(transactionsData.size());
+            for (TransactionData transactionData : transactionsData) {
+                transactions.add(Transaction.fromData(repository, transactionData));
+            }
+
+            return Transaction.areSignaturesValid(transactions);
+        }
+    }
+
+    private void recordQueueLatency(long latency) {
+        synchronized (this.queueLatencies) {
+            this.queueLatencies[this.queueLatencyCount % QUEUE_LATENCY_SAMPLES] = latency;
+            this.queueLatencyCount++;
+        }
+    }
+
+    private void updateQueueStats() {
+        long[] latencies;
+        synchronized (this.queueLatencies) {
+            latencies = Arrays.copyOf(this.queueLatencies, Math.min(this.queueLatencyCount, QUEUE_LATENCY_SAMPLES));
+        }
+
+        Controller.StatsSnapshot.TransactionImportQueueStats stats = Controller.getInstance().getStatsSnapshot().transactionImportQueueStats;
+        stats.queueSize.set(this.incomingTransactions.size());
+
+        if (latencies.length == 0) {
+            return;
+        }
+
+        Arrays.sort(latencies);
+        stats.latencyP50.set(percentile(latencies, 50));
+        stats.latencyP90.set(percentile(latencies, 90));
+        stats.latencyP99.set(percentile(latencies, 99));
+        stats.latencyMax.set(latencies[latencies.length - 1]);
+    }
+
+    /** Returns nearest-rank percentile of sorted, non-empty, values */
+    private static long percentile(long[] sortedValues, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(rank, 1) - 1];
+    }
+
     /**
      * Import any transactions in the queue that have valid signatures.
      *
@@ -298,6 +492,9 @@ public class TransactionImporter extends Thread {
             return;
         }
 
+        // Highest priority first, in case there are more than we can import in this cycle
+        sigValidTransactions.sort(IMPORT_PRIORITY);
+
         ReentrantLock blockchainLock = Controller.getInstance().getBlockchainLock();
         if (!blockchainLock.tryLock()) {
             LOGGER.debug("Too busy to import incoming transactions queue");
@@ -438,6 +635,7 @@ public class TransactionImporter extends Thread {
             synchronized (this.incomingTransactions) {
                 if (!incomingTransactionQueueContains(transactionData.getSignature())) {
                     this.incomingTransactions.put(transactionData, Boolean.FALSE);
+                    this.incomingTransactionQueueTimes.put(Base58.encode(transactionData.getSignature()), System.nanoTime());
                 }
             }
         }
@@ -110,17 +110,18 @@ public class ArbitraryDataFileManager extends Thread {
     private final Map<String, Long> completedSignaturesWithTime = new ConcurrentHashMap<>();
     private static final long COMPLETED_SIGNATURE_TTL_MS = 12 * 1000L; // 12 seconds
 
-    /** In-flight request: hash58 -> (signature58, peerAddress). Cleared on receive or when cleanup expires the request. */
-    private final Map<String, InFlightRequestInfo> inFlightRequestsByHash = new ConcurrentHashMap<>();
+    /** In-flight requests: hash58 -> peerAddress -> (signature58, request time). A chunk can be in flight with several peers during endgame.
+     * Each peer's entry is cleared when that peer responds, or when cleanup expires the request. */
+    private final Map<String, Map<String, InFlightRequestInfo>> inFlightRequestsByHash = new ConcurrentHashMap<>();
     /** Peers we already tried for this chunk (timed out or in flight). Key: signature58 + "|" + hash58. Used to retry from another peer. */
     private final Map<String, Set<String>> triedPeersByChunk = new ConcurrentHashMap<>();
 
     private static class InFlightRequestInfo {
         final String signature58;
-        final String peerAddress;
-        InFlightRequestInfo(String signature58, String peerAddress) {
+        final long requestTime;
+        InFlightRequestInfo(String signature58, long requestTime) {
             this.signature58 = signature58;
-            this.peerAddress = peerAddress;
+            this.requestTime = requestTime;
         }
     }
 
@@ -771,14 +772,46 @@ public class ArbitraryDataFileManager extends Thread {
      * Records that we requested a chunk from a peer. Used so we can retry from a different peer on timeout.
      */
     public void recordChunkRequested(String hash58, String signature58, String peerAddress) {
-        inFlightRequestsByHash.put(hash58, new InFlightRequestInfo(signature58, peerAddress));
+        Long now = NTP.getTime();
+        if (now != null) {
+            inFlightRequestsByHash.computeIfAbsent(hash58, k -> new ConcurrentHashMap<>()).put(peerAddress, new InFlightRequestInfo(signature58, now));
+        }
         triedPeersByChunk.computeIfAbsent(signature58 + "|" + hash58, k -> ConcurrentHashMap.newKeySet()).add(peerAddress);
     }
 
     /**
-     * Clears in-flight and tried state when we successfully receive the chunk.
+     * Returns the number of requests currently in flight for each peer address.
+     */
+    public Map<String, Integer> getInFlightCountsByPeer() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map<String, InFlightRequestInfo> requestsByPeer : inFlightRequestsByHash.values()) {
+            for (String peerAddress : requestsByPeer.keySet()) {
+                counts.merge(peerAddress, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Clears the in-flight request for a chunk with one peer, e.g. because that peer responded.
+     * Requests for the same chunk with other peers (endgame duplicates) stay in flight.
+     *
+     * @return the time the request was sent to this peer, or null if it wasn't in flight
+     */
+    private Long clearChunkRequested(String hash58, String peerAddress) {
+        InFlightRequestInfo[] removed = new InFlightRequestInfo[1];
+        inFlightRequestsByHash.computeIfPresent(hash58, (k, requestsByPeer) -> {
+            removed[0] = requestsByPeer.remove(peerAddress);
+            return requestsByPeer.isEmpty() ? null : requestsByPeer;
+        });
+        return removed[0] != null ? removed[0].requestTime : null;
+    }
+
+    /**
+     * Clears all in-flight and tried state for a chunk, once it has been received and saved, or we've given up on it.
+     * In-flight requests with other peers (endgame duplicates) no longer count towards those peers' windows.
      */
-    public void clearChunkReceived(String hash58, String signature58) {
+    public void clearChunk(String hash58, String signature58) {
         inFlightRequestsByHash.remove(hash58);
         triedPeersByChunk.remove(signature58 + "|" + hash58);
     }
@@ -826,12 +859,12 @@ public class ArbitraryDataFileManager extends Thread {
         // Always remove after timeout so chunk becomes re-requestable; don't block on queue state (avoids stuck IDLE)
         arbitraryDataFileRequests.entrySet().removeIf(entry -> {
             Long value = entry.getValue();
-            if (value == null || value < requestMinimumTimestamp) {
-                String hash58 = entry.getKey();
-                inFlightRequestsByHash.remove(hash58);
-                return true;
-            }
-            return false;
+            return value == null || value < requestMinimumTimestamp;
+        });
+        // In-flight requests expire individually, as endgame duplicates are sent later than the first request
+        inFlightRequestsByHash.values().removeIf(requestsByPeer -> {
+            requestsByPeer.values().removeIf(info -> info.requestTime < requestMinimumTimestamp);
+            return requestsByPeer.isEmpty();
         });
 
         // Clean up validation guard map with longer timeout (3 minutes to handle slow networks)
@@ -940,11 +973,12 @@ public class ArbitraryDataFileManager extends Thread {
        
 
         // Get request timestamp BEFORE removing it (for download speed tracking)
-        Long requestTime = arbitraryDataFileRequests.get(hash58);
-        
-       
-        
-        arbitraryDataFileRequests.remove(hash58);
+        // Prefer the time we asked this particular peer, as endgame duplicates are sent after the first request
+        Long requestTime = clearChunkRequested(hash58, peer.getPeerData().getAddress().toString());
+        Long firstRequestTime = arbitraryDataFileRequests.remove(hash58);
+        if (requestTime == null) {
+            requestTime = firstRequestTime;
+        }
         LOGGER.trace(String.format("Removed hash %.8s from arbitraryDataFileRequests", hash58));
         
         // Check if any peers requested this hash from us (for relaying)
@@ -1159,7 +1193,7 @@ public class ArbitraryDataFileManager extends Thread {
             removeGuardTracking(hash58);
             // Clear in-flight/tried state and notify request thread to remove chunk from batch pending (enables retry on timeout)
             String signature58 = Base58.encode(signature);
-            clearChunkReceived(hash58, signature58);
+            clearChunk(hash58, signature58);
             ArbitraryDataFileRequestThread.getInstance().onChunkReceived(signature58, hash58);
         } catch (DataException de) {
             LOGGER.error("FAILED to write hash chunk to disk!");
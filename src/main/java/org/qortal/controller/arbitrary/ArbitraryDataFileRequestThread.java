@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -51,6 +52,8 @@ public class ArbitraryDataFileRequestThread {
     private static final long BATCH_RAMP_UP_MS = 5000L; // Use INITIAL_BATCH_SIZE until this many ms since fetch started
     private static final long BATCH_INTERVAL_MS = 2000L;  // Interval between batches
     private static final long STALE_BATCH_TIMEOUT_MS = 300000L; // 5 minutes - remove batches that haven't completed
+    private static final long MAX_USABLE_RTT_MS = 10_000L; // Skip peers slower than this until their RTT resets
+    private static final long MAX_QUEUE_DRAIN_TIME_MS = 120_000L; // Maximum queued work per peer (2 minutes)
 
     // Inner class to track pending chunks with their available peers
     // Store PeerData instead of Peer to prevent memory leaks from stale Peer objects
@@ -717,232 +720,16 @@ public class ArbitraryDataFileRequestThread {
         }
     }
 
-    /**
-     * Selects a peer for a chunk using tier-based load balancing with capacity-proportional distribution.
-     * 
-     * Selection strategy:
-     * 1. Categorize peers by tier (based on hop count):
-     *    - Tier 1: Hops 0-1 (BEST - directly connected)
-     *    - Tier 2: Hops 2-3 (MEDIUM)
-     *    - Tier 3: Hops 4+ (WORST)
-     * 
-     * 2. Always select from best available tier (quality-first prioritization)
-     * 
-     * 3. Within tier, sort by CAPACITY-WEIGHTED load (not raw load):
-     *    - Fast peers can handle more chunks before being deprioritized
-     *    - Capacity = 1000.0 / RTT (chunks per second)
-     *    - Weighted load = currentLoad / capacity (normalized workload)
-     *    - Then RTT, queue size as tie-breakers
-     * 
-     * 4. No artificial per-batch load limits - only real queue capacity matters
-     *    (checked later in sendBatchForSignature using RTT-aware calculation)
-     * 
-     * This ensures:
-     * - Fast peers get proportionally more work than slow peers
-     * - Better quality peers always preferred over worse ones
-     * - Slow peers aren't excluded, just get less work
-     * - Load is balanced proportionally within each quality tier
-     * 
-     * @param chunk the chunk to assign
-     * @param peerSnapshots map of chunks to their available peers
-     * @param availablePeersMap map of PeerData to connected Peer objects
-     * @param chunksByPeer current assignment of chunks to peers (for load tracking)
-     * @param signature58 the file signature (for cooldown checking)
-     * @param adfm the ArbitraryDataFileManager instance
-     * @param now current timestamp (unused - kept for compatibility)
-     * @param staleThreshold threshold for "recent" data (unused - kept for compatibility)
-     * @return selected peer, or null if no peer available
-     */
-    private Peer selectPeerWithLoadBalancing(
-            PendingChunk chunk,
-            Map<PendingChunk, List<Peer>> peerSnapshots,
-            Map<PeerData, Peer> availablePeersMap,
-            Map<Peer, List<PendingChunk>> chunksByPeer,
-            String signature58,
-            ArbitraryDataFileManager adfm,
-            Long now,
-            long staleThreshold) {
-        
-        // No artificial per-batch load limits - only real queue capacity matters
-        // Tiers are used for quality-based prioritization, not capacity limiting
-        
-        // Get chunk's hop count to determine preferred quality
-        Integer chunkHops = chunk.responseInfo.getRequestHops();
-        int hopCount = (chunkHops != null) ? chunkHops : 100; // Treat null as high hops
-        
-        // Collect all available peers for this chunk with their tier and metrics
-        List<PeerCandidate> tier1 = new ArrayList<>(); // Low hops (0-1)
-        List<PeerCandidate> tier2 = new ArrayList<>(); // Medium hops (2-3)
-        List<PeerCandidate> tier3 = new ArrayList<>(); // High hops (4+)
-        
-        Set<String> triedPeers = adfm.getTriedPeersForChunk(signature58, chunk.responseInfo.getHash58());
-        for (Peer peer : peerSnapshots.get(chunk)) {
-            Peer connectedPeer = availablePeersMap.get(peer.getPeerData());
-            if (connectedPeer == null) {
-                continue; // Skip disconnected peers
-            }
-            
-            String peerAddress = connectedPeer.getPeerData().getAddress().toString();
-            if (triedPeers.contains(peerAddress)) {
-                continue; // Already tried this peer for this chunk (timeout or in-flight); retry from another peer
-            }
-            
-            // Check if this peer is in cooldown for this file (sent invalid data for ANY chunk of this file before)
-            if (adfm.isSignaturePeerInCooldown(signature58, peerAddress)) {
-                LOGGER.debug("Skipping peer {} for file {} - in 10min cooldown due to previous hash mismatch on this file", 
-                    peerAddress, signature58);
-                continue; // Skip this peer - they sent invalid data for this file before
-            }
-            
-            // Factor 1: Current load (chunks assigned in this batch)
-            int currentLoad = chunksByPeer.getOrDefault(connectedPeer, Collections.emptyList()).size();
-            
-            // Factor 2: Queue size (number of queued messages)
-            PeerSendManager sendManager = PeerSendManagement.getInstance().getOrCreateSendManager(connectedPeer, true);
-            int queueSize = sendManager.getQueueMessageSize() + connectedPeer.getSendQueueSize();
-            
-            // Factor 3: Round trip time (lower is better)
-            Long transferTime = connectedPeer.getDownloadSpeedTracker().getLatestRoundTripTime();
-            long roundTripTime = (transferTime != null && transferTime > 0) ? transferTime : Long.MAX_VALUE;
-            
-            // Skip peers with RTT > 10 seconds - they're too slow and would block download progress
-            // Peer will automatically get another chance after 10 seconds of inactivity (RTT reset)
-            final long MAX_USABLE_RTT_MS = 10_000L; // 10 seconds
-            if (roundTripTime != Long.MAX_VALUE && roundTripTime > MAX_USABLE_RTT_MS) {
-                LOGGER.debug("Skipping peer {} for chunk {} - RTT {}ms exceeds maximum usable threshold of {}ms (will retry after idle reset)",
-                    connectedPeer, chunk.responseInfo.getHash58(), roundTripTime, MAX_USABLE_RTT_MS);
-                continue; // Skip this peer temporarily
-            }
-            
-            // Create candidate
-            PeerCandidate candidate = new PeerCandidate(
-                connectedPeer, 
-                currentLoad, 
-                hopCount,
-                queueSize,
-                roundTripTime
-            );
-            
-            // Categorize by tier based on hop count - NO LOAD LIMITS
-            // All peers in a tier are eligible regardless of load
-            // Real queue capacity check happens later in sendBatchForSignature()
-            if (hopCount <= 1) {
-                // Tier 1: Low hops (0-1) - BEST quality
-                tier1.add(candidate);
-            } else if (hopCount <= 3) {
-                // Tier 2: Medium hops (2-3) - MEDIUM quality
-                tier2.add(candidate);
-            } else {
-                // Tier 3: High hops (4+) - WORST quality
-                tier3.add(candidate);
-            }
-        }
-        
-       
-        
-        // Select from best available tier (quality-based prioritization)
-        List<PeerCandidate> selectedTier = null;
-        String tierName = "";
-        if (!tier1.isEmpty()) {
-            selectedTier = tier1;
-            tierName = "Tier1";
-        } else if (!tier2.isEmpty()) {
-            selectedTier = tier2;
-            tierName = "Tier2";
-        } else if (!tier3.isEmpty()) {
-            selectedTier = tier3;
-            tierName = "Tier3";
-        } else {
-            // No peers available for this chunk
-            return null;
-        }
-        
-        // Sort within tier by: capacity-weighted load, RTT, queue size, hop count
-        // CAPACITY-PROPORTIONAL: Fast peers can accumulate more chunks before being deprioritized
-        // Weighted load = currentLoad / capacity, where capacity = 1000.0 / RTT (chunks/sec)
-        selectedTier.sort((c1, c2) -> {
-            // 1. Calculate capacity-weighted load (normalized workload)
-            // Capacity = 1000 / RTT (chunks per second)
-            // Weighted load = currentLoad / capacity (how "full" the peer is relative to its speed)
-            // For peers with no RTT data (0 or Long.MAX_VALUE), assume a default RTT of 5000ms
-            // This gives them a fair chance to establish their actual RTT instead of being permanently penalized
-            final long DEFAULT_RTT_MS = 5000L;
-            
-            long effectiveRTT1 = (c1.roundTripTime != Long.MAX_VALUE && c1.roundTripTime > 0)
-                ? c1.roundTripTime : DEFAULT_RTT_MS;
-            long effectiveRTT2 = (c2.roundTripTime != Long.MAX_VALUE && c2.roundTripTime > 0)
-                ? c2.roundTripTime : DEFAULT_RTT_MS;
-            
-            double capacity1 = 1000.0 / effectiveRTT1;
-            double capacity2 = 1000.0 / effectiveRTT2;
-            
-            double weightedLoad1 = c1.currentLoad / capacity1;
-            double weightedLoad2 = c2.currentLoad / capacity2;
-            
-            // Lower weighted load wins (peer with more relative capacity available)
-            // This means fast peers naturally get more chunks before being deprioritized
-            // Direct comparison without epsilon - let Double.compare handle precision
-            int weightedLoadComparison = Double.compare(weightedLoad1, weightedLoad2);
-            if (weightedLoadComparison != 0) {
-                return weightedLoadComparison;
-            }
-            
-            // 2. Lower round trip time wins (tie-breaker when weighted loads are exactly equal)
-            //    This handles the case where both peers have 0 load and ensures fast peers are preferred
-            if (c1.roundTripTime != c2.roundTripTime) {
-                return Long.compare(c1.roundTripTime, c2.roundTripTime);
-            }
-            
-            // 3. Lower queue size wins (tie-breaker for same weighted load and RTT)
-            if (c1.queueSize != c2.queueSize) {
-                return Integer.compare(c1.queueSize, c2.queueSize);
-            }
-            
-            // 4. Lower hop count wins (final tie-breaker within tier)
-            if (c1.hopCount != c2.hopCount) {
-                return Integer.compare(c1.hopCount, c2.hopCount);
-            }
-            
-            // 5. Consistent ordering by address
-            return c1.peer.getPeerData().getAddress().toString()
-                    .compareTo(c2.peer.getPeerData().getAddress().toString());
-        });
-        
-        Peer selectedPeer = selectedTier.get(0).peer;
-        
-        return selectedPeer;
-    }
-    
-    /**
-     * Helper class to track peer candidates for selection.
-     */
-    private static class PeerCandidate {
-        final Peer peer;
-        final int currentLoad;
-        final int hopCount;
-        final int queueSize;
-        final long roundTripTime; // Round trip time in ms (lower is better)
-        
-        PeerCandidate(Peer peer, int currentLoad, int hopCount, int queueSize, long roundTripTime) {
-            this.peer = peer;
-            this.currentLoad = currentLoad;
-            this.hopCount = hopCount;
-            this.queueSize = queueSize;
-            this.roundTripTime = roundTripTime;
-        }
-    }
-
     /**
      * Send a batch of chunks for a signature, distributing across available peers.
-     * Uses adaptive batch sizing based on peer RTT to prevent queue buildup.
-     * Each peer gets up to maxChunks of DIFFERENT chunks (no duplicates).
-     * Total sent can be maxChunks * numPeers.
-     * For initial batch, prioritizes peers by hop count (hop 0 = best, directly connected).
+     * Uses {@link ArbitraryDataSwarmScheduler} to spread chunks rarest-first across every peer advertising them,
+     * with per-peer windows sized from measured throughput, and endgame duplication of the last few chunks.
+     * Each peer's window is capped at requestedMaxChunks, and real queue capacity is still checked before sending.
      * 
      * @param batch the signature batch to process
-     * @param requestedMaxChunks requested maximum number of chunks to send per peer (may be reduced adaptively)
+     * @param requestedMaxChunks requested maximum number of chunks outstanding per peer (may be reduced adaptively)
      * @param adfm the ArbitraryDataFileManager instance
-     * @param isInitialBatch true if this is the initial batch (uses hop-priority sorting), false for incremental batches
+     * @param isInitialBatch true if this is the initial batch, false for incremental batches
      * @param connectedPeersSnapshot optional snapshot of handshaked peers; if null, a fresh snapshot is taken (avoids repeated snapshots when caller passes one from processAllBatches)
      */
     private void sendBatchForSignature(SignatureBatch batch, int requestedMaxChunks, ArbitraryDataFileManager adfm, boolean isInitialBatch, PeerList connectedPeersSnapshot) {
@@ -975,254 +762,212 @@ public class ArbitraryDataFileRequestThread {
         // Use caller-provided snapshot when available (e.g. from processAllBatches) to avoid repeated getImmutableHandshakedPeers() per batch
         PeerList connectedPeers = connectedPeersSnapshot != null ? connectedPeersSnapshot : NetworkData.getInstance().getImmutableHandshakedPeers();
 
-        // Get all unrequested chunks
-        List<PendingChunk> unrequestedChunks = batch.pendingChunks.values().stream()
-                .filter(chunk -> !adfm.arbitraryDataFileRequests.containsKey(chunk.responseInfo.getHash58()))
-                .collect(Collectors.toList());
+        // Build chunk availability from the peers that advertised each pending chunk
+        // Peers we already tried for a chunk, peers in cooldown for this file, and very slow peers are excluded
+        Map<String, List<String>> availability = new LinkedHashMap<>();
+        Map<String, Set<String>> inFlight = new HashMap<>();
+        Map<String, Peer> peersByAddress = new HashMap<>();
+        Map<String, Boolean> eligibility = new HashMap<>();
 
-        if (unrequestedChunks.isEmpty()) {
-            return;
+        for (PendingChunk chunk : batch.pendingChunks.values()) {
+            String hash58 = chunk.responseInfo.getHash58();
+            Set<String> triedPeers = adfm.getTriedPeersForChunk(batch.signature58, hash58);
+
+            List<String> peerAddresses = new ArrayList<>();
+            for (Peer peer : chunk.getAvailablePeers(connectedPeers)) {
+                String peerAddress = peer.getPeerData().getAddress().toString();
+                if (triedPeers.contains(peerAddress)) {
+                    continue; // Already tried this peer for this chunk (timeout or in-flight); retry from another peer
+                }
+                boolean eligible = eligibility.computeIfAbsent(peerAddress, a -> isPeerEligible(peer, batch.signature58, adfm));
+                if (!eligible) {
+                    continue;
+                }
+                peersByAddress.putIfAbsent(peerAddress, peer);
+                peerAddresses.add(peerAddress);
+            }
+
+            availability.put(hash58, peerAddresses);
+            if (adfm.arbitraryDataFileRequests.containsKey(hash58)) {
+                inFlight.put(hash58, triedPeers);
+            }
         }
 
-        // Create immutable snapshots once per chunk to avoid repeated allocations
-        // This prevents massive allocation pressure from getAvailablePeers() being called in loops
-        // Resolve Peer objects on-demand from connectedPeers (filters out disconnected peers)
-        Map<PendingChunk, List<Peer>> peerSnapshots = new HashMap<>();
-        for (PendingChunk chunk : unrequestedChunks) {
-            peerSnapshots.put(chunk, Collections.unmodifiableList(chunk.getAvailablePeers(connectedPeers)));
+        if (availability.isEmpty()) {
+            return;
         }
 
-        LOGGER.trace("Processing {} unrequested chunks for signature {}", unrequestedChunks.size(), batch.signature58);
-
-        // Get unique list of available connected peers
-        // Use Map keyed by PeerData for consistent deduplication (Peer.equals/hashCode may be inconsistent)
-        Map<PeerData, Peer> availablePeersMap = new HashMap<>();
-        for (PendingChunk chunk : unrequestedChunks) {
-            for (Peer peer : peerSnapshots.get(chunk)) {
-                // Verify peer is still connected
-                Peer connectedPeer = connectedPeers.get(peer.getPeerData());
-                if (connectedPeer != null) {
-                    // Use PeerData as key for consistent deduplication
-                    availablePeersMap.put(connectedPeer.getPeerData(), connectedPeer);
-                    LOGGER.trace("Peer {} is connected for signature {}", connectedPeer, batch.signature58);
-                } else {
-                    LOGGER.trace("Peer {} is NOT connected (skipping) for signature {}", peer, batch.signature58);
-                }
+        LOGGER.trace("Processing {} pending chunks ({} in flight) across {} peers for signature {}",
+                availability.size(), inFlight.size(), peersByAddress.size(), batch.signature58);
+
+        // Per-peer throughput, in chunks per second, used to size each peer's window
+        Map<String, Double> chunksPerSecond = new HashMap<>();
+        for (Map.Entry<String, Peer> entry : peersByAddress.entrySet()) {
+            Double rate = getChunksPerSecond(entry.getValue());
+            if (rate != null) {
+                chunksPerSecond.put(entry.getKey(), rate);
             }
         }
 
-        if (availablePeersMap.isEmpty()) {
-            LOGGER.trace("No connected peers available for signature {}", batch.signature58);
-            return;
+        ArbitraryDataSwarmScheduler<String> scheduler = new ArbitraryDataSwarmScheduler<>(requestedMaxChunks);
+        ArbitraryDataSwarmScheduler.Schedule<String> schedule = scheduler.schedule(availability, inFlight,
+                chunksPerSecond, adfm.getInFlightCountsByPeer());
+
+        // No peer available (e.g. all tried for this chunk) - remove so we don't retry forever
+        for (String hash58 : schedule.getUnavailable()) {
+            batch.pendingChunks.remove(hash58);
+            adfm.clearChunk(hash58, batch.signature58);
         }
 
-        // Sort peers for consistent ordering across batches
-        List<Peer> availablePeersList = new ArrayList<>(availablePeersMap.values());
-        availablePeersList.sort((p1, p2) -> 
-            p1.getPeerData().getAddress().toString().compareTo(p2.getPeerData().getAddress().toString())
-        );
+        if (schedule.isEndgame()) {
+            LOGGER.debug("Endgame for signature {}: {} new requests, {} duplicate requests",
+                    batch.signature58, schedule.getRequestCount(), schedule.getDuplicateCount());
+        }
 
-     
+        int totalSent = 0;
+        totalSent += sendScheduledRequests(schedule.getRequests(), false, peersByAddress, transactionData, batch, adfm);
+        totalSent += sendScheduledRequests(schedule.getDuplicates(), true, peersByAddress, transactionData, batch, adfm);
 
-        // Always use MAX_BATCH_SIZE - let per-peer capacity checks throttle individual peers
-        // The capacity-proportional load balancing and RTT-aware queue checks provide sufficient protection
-        int maxChunks = requestedMaxChunks;
+        LOGGER.trace("Sent {} chunk requests for signature {} (initial batch: {})", totalSent, batch.signature58, isInitialBatch);
+    }
 
-        // isInitialBatch is passed as parameter to correctly identify initial vs incremental batches
-        // (The flag batch.initialBatchSent is already set to true before calling this method for initial batches)
+    /**
+     * Returns false if a peer shouldn't be asked for any chunks of this file right now.
+     */
+    private static boolean isPeerEligible(Peer peer, String signature58, ArbitraryDataFileManager adfm) {
+        String peerAddress = peer.getPeerData().getAddress().toString();
+
+        // Check if this peer is in cooldown for this file (sent invalid data for ANY chunk of this file before)
+        if (adfm.isSignaturePeerInCooldown(signature58, peerAddress)) {
+            LOGGER.debug("Skipping peer {} for file {} - in 10min cooldown due to previous hash mismatch on this file",
+                peerAddress, signature58);
+            return false;
+        }
 
-        // Get current time and stale threshold for priority system (used by both initial and incremental batches)
-        Long now = NTP.getTime();
-        long staleThreshold = 5 * 1000; // 5 seconds in milliseconds
+        // Skip peers with RTT > 10 seconds - they're too slow and would block download progress
+        // Peer will automatically get another chance after 10 seconds of inactivity (RTT reset)
+        Long roundTripTime = peer.getDownloadSpeedTracker().getLatestRoundTripTime();
+        if (roundTripTime != null && roundTripTime > MAX_USABLE_RTT_MS) {
+            LOGGER.debug("Skipping peer {} for file {} - RTT {}ms exceeds maximum usable threshold of {}ms (will retry after idle reset)",
+                peer, signature58, roundTripTime, MAX_USABLE_RTT_MS);
+            return false;
+        }
 
-        // Distribute chunks across peers
-        // Each chunk goes to ONE peer (no duplicates)
-        Map<Peer, List<PendingChunk>> chunksByPeer = new HashMap<>();
+        return true;
+    }
 
-        if (isInitialBatch) {
-            // For initial batch: process all chunks without sorting
-            // Hop count is incorporated into tier-based peer selection
-            
-            for (PendingChunk chunk : unrequestedChunks) {
-                Peer selectedPeer = selectPeerWithLoadBalancing(
-                    chunk,
-                    peerSnapshots,
-                    availablePeersMap,
-                    chunksByPeer,
-                    batch.signature58,
-                    adfm,
-                    now,
-                    staleThreshold
-                );
-                
-                if (selectedPeer != null) {
-                    chunksByPeer.computeIfAbsent(selectedPeer, k -> new ArrayList<>()).add(chunk);
-                } else {
-                    // No peer available (e.g. all tried for this chunk) - remove so we don't retry forever
-                    String hash58 = chunk.responseInfo.getHash58();
-                    batch.pendingChunks.remove(hash58);
-                    adfm.clearChunkReceived(hash58, batch.signature58);
-                }
-            }
-        } else {
-            // For subsequent batches: use same priority system as initial batch
-            // Prefer peers with recent data (latestArrivalTime <= 5 seconds)
-            // If all peers have stale data (> 5 seconds), fall back to hop count
-        
-            
-            for (PendingChunk chunk : unrequestedChunks) {
-                Peer selectedPeer = selectPeerWithLoadBalancing(
-                    chunk,
-                    peerSnapshots,
-                    availablePeersMap,
-                    chunksByPeer,
-                    batch.signature58,
-                    adfm,
-                    now,
-                    staleThreshold
-                );
-                
-                if (selectedPeer != null) {
-                    chunksByPeer.computeIfAbsent(selectedPeer, k -> new ArrayList<>()).add(chunk);
-                } else {
-                    String hash58 = chunk.responseInfo.getHash58();
-                    batch.pendingChunks.remove(hash58);
-                    adfm.clearChunkReceived(hash58, batch.signature58);
-                }
-            }
+    /**
+     * Returns a peer's throughput in chunks per second, or null if we have no recent data.
+     * Prefers measured throughput, falling back to one chunk per round trip.
+     */
+    private static Double getChunksPerSecond(Peer peer) {
+        Double throughput = peer.getDownloadSpeedTracker().getLatestThroughput();
+        if (throughput != null && throughput > 0) {
+            return throughput / ArbitraryDataFile.CHUNK_SIZE;
         }
+        Long roundTripTime = peer.getDownloadSpeedTracker().getLatestRoundTripTime();
+        if (roundTripTime != null && roundTripTime > 0) {
+            return 1000.0 / roundTripTime;
+        }
+        return null;
+    }
 
+    /**
+     * Queues scheduled chunk requests with each peer, subject to the peer's real queue capacity.
+     *
+     * @param requestsByPeer chunk hashes to request, keyed by peer address
+     * @param duplicates true if these are endgame requests for chunks already requested from another peer
+     * @return the number of requests queued
+     */
+    private int sendScheduledRequests(Map<String, List<String>> requestsByPeer, boolean duplicates, Map<String, Peer> peersByAddress,
+                                      ArbitraryTransactionData transactionData, SignatureBatch batch, ArbitraryDataFileManager adfm) {
         int totalSent = 0;
-        
-        // Maximum time we want to queue for each peer (in milliseconds)
-        // Prevents overwhelming slow peers with too many pending chunks
-        // Balanced to allow fast peers (≤3000ms) full batch, good peers (4000ms) get 30 chunks
-        final long MAX_QUEUE_DRAIN_TIME_MS = 120_000L; // 2 minutes of queued work
-
-        // Send up to maxChunks to EACH peer from their assigned list
-        for (Map.Entry<Peer, List<PendingChunk>> peerEntry : chunksByPeer.entrySet()) {
-            Peer peer = peerEntry.getKey();
-            
+
+        for (Map.Entry<String, List<String>> peerEntry : requestsByPeer.entrySet()) {
+            Peer peer = peersByAddress.get(peerEntry.getKey());
+            if (peer == null) {
+                continue;
+            }
+
             // Get RTT for time-based load calculation
             // RTT represents round-trip time per chunk in milliseconds
             Long rtt = peer.getDownloadSpeedTracker().getLatestRoundTripTime();
             long effectiveRTT = (rtt != null && rtt > 0) ? rtt : 5000L; // Default 5s if no data yet
-            
-            // Check peer's queue capacity using RTT-aware calculation
-            // Need to check both PeerSendManager queue and Peer sendQueue since messages flow:
-            // Batching → PeerSendManager.queue → Peer.sendQueue → network
-            PeerSendManager sendManager = PeerSendManagement.getInstance().getOrCreateSendManager(peer, true);
-            int sendManagerQueueSize = sendManager.getQueueMessageSize();
-            int peerSendQueueSize = peer.getSendQueueSize();
-            int peerSendQueueCapacity = peer.getSendQueueCapacity();
-            
-            // Total pending messages = messages in PeerSendManager + messages in Peer.sendQueue
-            int totalPendingMessages = sendManagerQueueSize + peerSendQueueSize;
-            
-            // Calculate time-to-drain: how long will current queue take to complete?
-            // This is more meaningful than just counting messages
-            long queueDrainTimeMs = totalPendingMessages * effectiveRTT;
-            
-            // Skip peer if queue will take too long to drain (peer is genuinely busy)
-            if (queueDrainTimeMs >= MAX_QUEUE_DRAIN_TIME_MS) {
-                LOGGER.debug("REQUESTER QUEUE BUSY: peer={}, queue={}, RTT={}ms, drainTime={}s, SKIPPING", 
-                    peer, totalPendingMessages, effectiveRTT, queueDrainTimeMs / 1000);
-                continue; // Skip this peer, try again next batch
-            }
-            
-            // Calculate how many chunks we can safely add without exceeding drain time threshold
-            // This ensures we don't queue more than MAX_QUEUE_DRAIN_TIME_MS worth of work
-            long remainingTimeMs = MAX_QUEUE_DRAIN_TIME_MS - queueDrainTimeMs;
-            int maxSafeChunks = (int) (remainingTimeMs / effectiveRTT);
-            
-            // Also respect physical queue capacity as a hard limit
-            int maxQueueSize = (int) (peerSendQueueCapacity * 0.8); // 80% safety margin
-            int availableQueueSpace = maxQueueSize - totalPendingMessages;
-            
-            if (availableQueueSpace <= 0) {
-                LOGGER.debug("REQUESTER QUEUE FULL: peer={}, PeerSendMgr={}, Peer.sendQueue={}/{}, total={}, capacity={}, SKIPPING", 
-                    peer, sendManagerQueueSize, peerSendQueueSize, peerSendQueueCapacity, 
-                    totalPendingMessages, peerSendQueueCapacity);
-                continue; // Physical queue is full
-            }
-
-            // Take minimum of: requested batch size, time-based limit, physical space
-            // Minimum of 1 chunk ensures even slow peers can make progress without blocking downloads
-            int maxChunksForThisPeer = Math.max(1, Math.min(Math.min(maxChunks, maxSafeChunks), availableQueueSpace));
-            
-            LOGGER.trace("REQUESTER QUEUE STATUS: peer={}, PeerSendMgr={}, Peer.sendQueue={}/{}, queue={}, RTT={}ms, drainTime={}s, sendingChunks={}", 
-                peer, sendManagerQueueSize, peerSendQueueSize, peerSendQueueCapacity, 
-                totalPendingMessages, effectiveRTT, queueDrainTimeMs / 1000, maxChunksForThisPeer);
-            
-            List<PendingChunk> chunksForThisPeer = peerEntry.getValue().stream()
-                    .limit(maxChunksForThisPeer)
-                    .collect(Collectors.toList());
+            int maxQueueSize = (int) (peer.getSendQueueCapacity() * 0.8); // 80% safety margin
+
+            for (String fileHash : peerEntry.getValue()) {
+                // Check both PeerSendManager queue and Peer sendQueue since messages flow:
+                // Batching → PeerSendManager.queue → Peer.sendQueue → network
+                PeerSendManager sendManager = PeerSendManagement.getInstance().getOrCreateSendManager(peer, true);
+                int totalPendingMessages = sendManager.getQueueMessageSize() + peer.getSendQueueSize();
+
+                // Physical queue capacity is a hard limit
+                if (totalPendingMessages >= maxQueueSize) {
+                    LOGGER.debug("REQUESTER QUEUE FULL: peer={}, queue={}/{}, stopping batch send for signature {}",
+                        peer, totalPendingMessages, maxQueueSize, batch.signature58);
+                    break;
+                }
 
-            int sentToThisPeer = 0;
-            for (PendingChunk chunk : chunksForThisPeer) {
-                // Re-check queue space before each message (in case it changed)
-                PeerSendManager currentSendManager = PeerSendManagement.getInstance().getOrCreateSendManager(peer, true);
-                int currentSendManagerQueueSize = currentSendManager.getQueueMessageSize();
-                int currentPeerSendQueueSize = peer.getSendQueueSize();
-                int currentTotalPending = currentSendManagerQueueSize + currentPeerSendQueueSize;
-                
-                // Check both time-based and physical capacity
-                long currentDrainTime = currentTotalPending * effectiveRTT;
-                int currentMaxQueueSize = (int) (peerSendQueueCapacity * 0.8);
-                
-                if (currentDrainTime >= MAX_QUEUE_DRAIN_TIME_MS || currentTotalPending >= currentMaxQueueSize) {
-                    LOGGER.trace("Peer {} queues reached limit (queue: {}, drainTime: {}s, physical: {}/{}), stopping batch send for signature {}", 
-                        peer, currentTotalPending, currentDrainTime / 1000, currentTotalPending, currentMaxQueueSize, batch.signature58);
-                    break; // Stop sending to this peer
+                // Time-to-drain: how long will the current queue take to complete?
+                // Slow peers still make progress, as an empty queue always has room
+                long queueDrainTimeMs = totalPendingMessages * effectiveRTT;
+                if (queueDrainTimeMs >= MAX_QUEUE_DRAIN_TIME_MS) {
+                    LOGGER.debug("REQUESTER QUEUE BUSY: peer={}, queue={}, RTT={}ms, drainTime={}s, stopping batch send for signature {}",
+                        peer, totalPendingMessages, effectiveRTT, queueDrainTimeMs / 1000, batch.signature58);
+                    break;
                 }
-                
-                String fileHash = chunk.responseInfo.getHash58();
-                
+
                 byte[] fileHashBytes = Base58.decode(fileHash);
                 if (fileHashBytes == null) {
                     LOGGER.warn("Could not decode hash {}", fileHash);
                     continue;
                 }
 
-                // Atomically mark as requesting - only proceed if we win the race
-                // This prevents duplicate requests when multiple threads process the same chunk
-                Long prev = adfm.arbitraryDataFileRequests.putIfAbsent(fileHash, NTP.getTime());
-                if (prev != null) {
-                    // Another thread already marked this as requesting - skip (chunk stays in pending for retry if that request times out)
+                if (!duplicates) {
+                    // Atomically mark as requesting - only proceed if we win the race
+                    // This prevents duplicate requests when multiple threads process the same chunk
+                    Long prev = adfm.arbitraryDataFileRequests.putIfAbsent(fileHash, NTP.getTime());
+                    if (prev != null) {
+                        // Another thread already marked this as requesting - skip (chunk stays in pending for retry if that request times out)
+                        continue;
+                    }
+                }
+                else if (!batch.pendingChunks.containsKey(fileHash)) {
+                    // Received since it was scheduled
                     continue;
                 }
-                
+
                 // Separately add to guard map for delayed validation (separate concern)
+                // Endgame duplicates are in flight with their own peer, so the slower copy is accepted and then discarded as already existing
                 adfm.addGuardTracking(fileHash);
 
                 try {
                     GetArbitraryDataFileMessage message = new GetArbitraryDataFileMessage(
                             transactionData.getSignature(), fileHashBytes);
-                    
+
                     // Record that we're assigning work to this peer
                     // This helps RTT reset work correctly - even if in-flight requests are slow,
                     // the peer can recover after 10s of no new assignments
                     peer.getDownloadSpeedTracker().recordChunkAssigned();
-                    
+
                     // Pass fileHash for tracking in PeerSendManager pipeline
-                    PeerSendManagement.getInstance().getOrCreateSendManager(peer, true).queueMessage(message, fileHash);
-                    
+                    sendManager.queueMessage(message, fileHash);
+
                     adfm.recordChunkRequested(fileHash, batch.signature58, peer.getPeerData().getAddress().toString());
-                    sentToThisPeer++;
                     totalSent++;
                     // Chunk stays in pendingChunks until we receive it (onChunkReceived) or cleanup expires the request
                 } catch (MessageException e) {
                     LOGGER.error("Failed to create or queue message for hash {}: {}", fileHash, e.getMessage());
-                    adfm.arbitraryDataFileRequests.remove(fileHash);
-                    adfm.removeGuardTracking(fileHash);
+                    if (!duplicates) {
+                        adfm.arbitraryDataFileRequests.remove(fileHash);
+                        adfm.removeGuardTracking(fileHash);
+                    }
                     // Chunk stays in pendingChunks so we can retry from another peer
                 }
             }
-
-            
         }
 
-       
+        return totalSent;
     }
 
 
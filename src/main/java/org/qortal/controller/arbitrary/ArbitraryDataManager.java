@@ -20,6 +20,7 @@ import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.arbitrary.ArbitraryDataFile;
+import org.qortal.arbitrary.ArbitraryDataRenderCache;
 import org.qortal.arbitrary.ArbitraryDataResource;
 import org.qortal.arbitrary.metadata.ArbitraryDataTransactionMetadata;
 import org.qortal.arbitrary.misc.Service;
@@ -866,6 +867,9 @@ public class ArbitraryDataManager extends Thread {
 				this.arbitraryDataCachedResources.remove(key);
 			}
 
+			// Drop any rewritten HTML rendered from the previous state
+			ArbitraryDataRenderCache.getInstance().invalidate(key);
+
 			// Also remove from the failed builds queue in case it previously failed due to missing chunks
 			ArbitraryDataBuildManager buildManager = ArbitraryDataBuildManager.getInstance();
 			if (buildManager.arbitraryDataFailedBuilds.containsKey(key)) {
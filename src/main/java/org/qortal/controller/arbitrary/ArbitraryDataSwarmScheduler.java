@@ -0,0 +1,216 @@
+package org.qortal.controller.arbitrary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Swarm-style scheduler for QDN chunk requests.
+ *
+ * Given the chunks of a resource that we are still missing, and the peers advertising each
+ * of them, this decides which chunks to request from which peers:
+ *
+ * - Chunks are spread across every peer advertising them, rather than following the
+ *   first peer that responded.
+ * - Each peer gets a request window sized from its measured throughput, so fast peers
+ *   are kept busy and slow peers aren't flooded.
+ * - Chunks are assigned rarest-first, so chunks held by only one or two peers are
+ *   requested before their holders are occupied with commonly available chunks.
+ * - Once only a few chunks remain outstanding, endgame mode duplicates them to the
+ *   fastest other peers holding them, so a single slow peer can't hold up completion.
+ *
+ * The scheduler is pure: it holds no network state, and peers are identified by an
+ * arbitrary key (peer address in production, fake peers in tests).
+ *
+ * @param <K> peer key type
+ */
+public class ArbitraryDataSwarmScheduler<K> {
+
+    /** Seconds of work to keep outstanding with each peer */
+    public static final double WINDOW_SECONDS = 4.0;
+    /** Every usable peer can have at least this many requests outstanding */
+    public static final int MIN_WINDOW = 1;
+    /** Throughput assumed for peers we have no measurement for (a window of 10, like the initial batch) */
+    public static final double DEFAULT_CHUNKS_PER_SECOND = 2.5;
+    /** Endgame starts once this many chunks (or fewer) remain outstanding */
+    public static final int ENDGAME_THRESHOLD = 4;
+    /** Maximum number of additional peers an outstanding chunk is requested from during endgame */
+    public static final int ENDGAME_DUPLICATES = 2;
+
+    public static class Schedule<K> {
+        private final Map<K, List<String>> requests = new LinkedHashMap<>();
+        private final Map<K, List<String>> duplicates = new LinkedHashMap<>();
+        private final List<String> unavailable = new ArrayList<>();
+        private boolean endgame = false;
+
+        /** New requests, by peer, in the order they should be sent */
+        public Map<K, List<String>> getRequests() {
+            return this.requests;
+        }
+
+        /** Endgame requests for chunks that are already being requested from another peer */
+        public Map<K, List<String>> getDuplicates() {
+            return this.duplicates;
+        }
+
+        /** Chunks that aren't in flight and have no peer left to request them from */
+        public List<String> getUnavailable() {
+            return this.unavailable;
+        }
+
+        public boolean isEndgame() {
+            return this.endgame;
+        }
+
+        public int getRequestCount() {
+            return this.requests.values().stream().mapToInt(List::size).sum();
+        }
+
+        public int getDuplicateCount() {
+            return this.duplicates.values().stream().mapToInt(List::size).sum();
+        }
+    }
+
+    private final int maxWindow;
+
+    /**
+     * @param maxWindow the maximum number of requests outstanding with any one peer
+     */
+    public ArbitraryDataSwarmScheduler(int maxWindow) {
+        this.maxWindow = Math.max(MIN_WINDOW, maxWindow);
+    }
+
+    /**
+     * Returns the request window for a peer with the given throughput.
+     *
+     * @param chunksPerSecond measured throughput, or null if unknown
+     */
+    public int getWindow(Double chunksPerSecond) {
+        double rate = (chunksPerSecond != null && chunksPerSecond > 0) ? chunksPerSecond : DEFAULT_CHUNKS_PER_SECOND;
+        long window = (long) Math.ceil(rate * WINDOW_SECONDS);
+        return (int) Math.max(MIN_WINDOW, Math.min(this.maxWindow, window));
+    }
+
+    /**
+     * Computes the next set of requests for a resource.
+     *
+     * @param availability every chunk still missing, mapped to the peers that advertise it and may be asked for it
+     * @param inFlight chunks that are currently being requested, mapped to the peers they've been requested from
+     * @param chunksPerSecond measured throughput for each peer; missing peers use {@link #DEFAULT_CHUNKS_PER_SECOND}
+     * @param inFlightByPeer the number of requests currently outstanding with each peer
+     * @return the schedule
+     */
+    public Schedule<K> schedule(Map<String, ? extends Collection<K>> availability,
+                                Map<String, ? extends Collection<K>> inFlight,
+                                Map<K, Double> chunksPerSecond,
+                                Map<K, Integer> inFlightByPeer) {
+        Schedule<K> schedule = new Schedule<>();
+
+        // Remaining window for each peer, and the load used to estimate completion time
+        Map<K, Integer> freeSlots = new HashMap<>();
+        Map<K, Integer> load = new HashMap<>();
+        for (Collection<K> peers : availability.values()) {
+            for (K peer : peers) {
+                if (!freeSlots.containsKey(peer)) {
+                    int outstanding = inFlightByPeer.getOrDefault(peer, 0);
+                    freeSlots.put(peer, Math.max(0, this.getWindow(chunksPerSecond.get(peer)) - outstanding));
+                    load.put(peer, outstanding);
+                }
+            }
+        }
+
+        // Rarest first, using hash as a tie-breaker so the order is stable
+        List<String> candidates = new ArrayList<>(availability.keySet());
+        candidates.sort(Comparator.<String>comparingInt(hash -> availability.get(hash).size())
+                .thenComparing(Comparator.naturalOrder()));
+
+        Map<String, Set<K>> requestedFrom = new HashMap<>();
+        int waiting = 0;
+
+        for (String hash : candidates) {
+            Collection<K> requested = inFlight.get(hash);
+            if (requested != null) {
+                requestedFrom.put(hash, new HashSet<>(requested));
+                continue;
+            }
+
+            Collection<K> peers = availability.get(hash);
+            if (peers.isEmpty()) {
+                schedule.unavailable.add(hash);
+                continue;
+            }
+
+            K selected = this.selectPeer(peers, Collections.emptySet(), freeSlots, load, chunksPerSecond);
+            if (selected == null) {
+                // Every holder is at its window, so wait for responses
+                waiting++;
+                continue;
+            }
+
+            this.assign(schedule.requests, selected, hash, freeSlots, load);
+            requestedFrom.computeIfAbsent(hash, h -> new HashSet<>()).add(selected);
+        }
+
+        int outstanding = candidates.size() - schedule.unavailable.size();
+        if (waiting > 0 || outstanding == 0 || outstanding > ENDGAME_THRESHOLD) {
+            return schedule;
+        }
+
+        // Endgame: every remaining chunk is requested, so race the slowest ones on the fastest other peers
+        schedule.endgame = true;
+        for (String hash : candidates) {
+            Set<K> requested = requestedFrom.get(hash);
+            if (requested == null) {
+                continue;
+            }
+
+            while (requested.size() < 1 + ENDGAME_DUPLICATES) {
+                K selected = this.selectPeer(availability.get(hash), requested, freeSlots, load, chunksPerSecond);
+                if (selected == null) {
+                    break;
+                }
+                this.assign(schedule.duplicates, selected, hash, freeSlots, load);
+                requested.add(selected);
+            }
+        }
+
+        return schedule;
+    }
+
+    /**
+     * Picks the peer with free window that is expected to deliver the chunk soonest,
+     * i.e. the lowest (load + 1) / throughput. Earlier peers win ties.
+     */
+    private K selectPeer(Collection<K> peers, Set<K> exclude, Map<K, Integer> freeSlots, Map<K, Integer> load,
+                         Map<K, Double> chunksPerSecond) {
+        K best = null;
+        double bestCompletion = Double.MAX_VALUE;
+
+        for (K peer : peers) {
+            if (exclude.contains(peer) || freeSlots.getOrDefault(peer, 0) <= 0) {
+                continue;
+            }
+            Double rate = chunksPerSecond.get(peer);
+            double effectiveRate = (rate != null && rate > 0) ? rate : DEFAULT_CHUNKS_PER_SECOND;
+            double completion = (load.getOrDefault(peer, 0) + 1) / effectiveRate;
+            if (completion < bestCompletion) {
+                best = peer;
+                bestCompletion = completion;
+            }
+        }
+        return best;
+    }
+
+    private void assign(Map<K, List<String>> target, K peer, String hash, Map<K, Integer> freeSlots, Map<K, Integer> load) {
+        target.computeIfAbsent(peer, p -> new ArrayList<>()).add(hash);
+        freeSlots.merge(peer, -1, Integer::sum);
+        load.merge(peer, 1, Integer::sum);
+    }
+}
@@ -7,6 +7,7 @@ import org.qortal.api.resource.TransactionsResource.ConfirmationStatus;
 import org.qortal.data.naming.NameData;
 import org.qortal.data.transaction.*;
 import org.qortal.naming.Name;
+import org.qortal.naming.NameRegistryCache;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
@@ -187,6 +188,15 @@ public class NamesDatabaseIntegrityCheck {
         boolean integrityCheckFailed = false;
         try (final Repository repository = RepositoryManager.getRepository()) {
 
+            // Check the in-memory name registry matches the Names and PrimaryNames tables
+            List<String> registryDifferences = NameRegistryCache.getInstance().verify(repository.getNameRepository());
+            if (!registryDifferences.isEmpty()) {
+                for (String difference : registryDifferences)
+                    LOGGER.warn("Name registry cache mismatch: {}", difference);
+
+                LOGGER.warn("Name registry cache didn't match repository, so has been reloaded");
+            }
+
             // Fetch all the (confirmed) REGISTER_NAME transactions
             List<RegisterNameTransactionData> registerNameTransactions = this.fetchRegisterNameTransactions();
 
@@ -15,9 +15,11 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.List;
 
 public abstract class Crypto {
 
@@ -28,6 +30,33 @@ public abstract class Crypto {
 	public static final byte AT_ADDRESS_VERSION = 23; // A
 	public static final byte NODE_ADDRESS_VERSION = 53; // N
 
+	public static final int DIGEST_LENGTH = 32;
+
+	/** Below this many signatures, batch verification isn't any quicker */
+	private static final int MIN_BATCH_VERIFY_SIZE = 4;
+
+	/** SHA-256 message digests are reused by each thread, instead of looking up the algorithm on every call */
+	private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 message digest not available");
+		}
+	});
+
+	/** Scratch output for truncated digests */
+	private static final ThreadLocal<byte[]> SHA256_OUTPUT = ThreadLocal.withInitial(() -> new byte[DIGEST_LENGTH]);
+
+	private static final ThreadLocal<MessageDigest> RIPEMD160 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("RIPEMD160");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("RIPEMD160 message digest not available");
+		}
+	});
+
+	private static final int ADDRESS_CHECKSUM_LENGTH = 4;
+
 	/**
 	 * Returns 32-byte SHA-256 digest of message passed in input.
 	 * 
@@ -39,13 +68,7 @@ public abstract class Crypto {
 		if (input == null)
 			return null;
 
-		try {
-			// SHA2-256
-			MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
-			return sha256.digest(input);
-		} catch (NoSuchAlgorithmException e) {
-			throw new RuntimeException("SHA-256 message digest not available");
-		}
+		return sha256().digest(input);
 	}
 
 	/**
@@ -59,14 +82,76 @@ public abstract class Crypto {
 		if (input == null)
 			return null;
 
-		try {
-			// SHA2-256
-			MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+		MessageDigest sha256 = sha256();
+		sha256.update(input);
+		return sha256.digest();
+	}
+
+	/**
+	 * Returns 32-byte SHA-256 digest of passed inputs, as if they were concatenated,
+	 * but without the need to concatenate them first.
+	 * 
+	 * @param inputs
+	 *            variable-length byte[] messages
+	 * @return byte[32] digest
+	 */
+	public static byte[] digest(byte[]... inputs) {
+		MessageDigest sha256 = sha256();
+
+		for (byte[] input : inputs)
 			sha256.update(input);
-			return sha256.digest();
-		} catch (NoSuchAlgorithmException e) {
-			throw new RuntimeException("SHA-256 message digest not available");
+
+		return sha256.digest();
+	}
+
+	/**
+	 * Writes 32-byte SHA-256 digest of <tt>length</tt> bytes of <tt>input</tt>, starting at <tt>offset</tt>,
+	 * into <tt>output</tt> at <tt>outputOffset</tt>.
+	 */
+	public static void digest(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+		MessageDigest sha256 = sha256();
+		sha256.update(input, offset, length);
+		digestInto(sha256, output, outputOffset, DIGEST_LENGTH);
+	}
+
+	/**
+	 * Writes the first <tt>length</tt> bytes of SHA-256 digest of <tt>input</tt> into <tt>output</tt> at <tt>outputOffset</tt>,
+	 * e.g. for 4-byte checksums.
+	 * <p>
+	 * Consumes <tt>input</tt>, like {@link #digest(ByteBuffer)}.
+	 */
+	public static void digest(ByteBuffer input, byte[] output, int outputOffset, int length) {
+		MessageDigest sha256 = sha256();
+		sha256.update(input);
+		digestInto(sha256, output, outputOffset, length);
+	}
+
+	/** Returns this thread's SHA-256 message digest, ready for use. */
+	private static MessageDigest sha256() {
+		MessageDigest sha256 = SHA256.get();
+		// In case previous use was interrupted by an exception
+		sha256.reset();
+		return sha256;
+	}
+
+	private static void digestInto(MessageDigest sha256, byte[] output, int outputOffset, int length) {
+		if (length == DIGEST_LENGTH) {
+			try {
+				sha256.digest(output, outputOffset, DIGEST_LENGTH);
+			} catch (DigestException e) {
+				throw new IllegalArgumentException("Output buffer too small for SHA-256 digest", e);
+			}
+			return;
 		}
+
+		byte[] digest = SHA256_OUTPUT.get();
+		try {
+			sha256.digest(digest, 0, DIGEST_LENGTH);
+		} catch (DigestException e) {
+			throw new RuntimeException("SHA-256 message digest failed", e);
+		}
+
+		System.arraycopy(digest, 0, output, outputOffset, length);
 	}
 
 	public static byte[] digestFileStream(File file) throws IOException {
@@ -93,7 +178,13 @@ public abstract class Crypto {
 	 * @return byte[32] digest, or null if SHA-256 algorithm can't be accessed
 	 */
 	public static byte[] doubleDigest(byte[] input) {
-		return digest(digest(input));
+		if (input == null)
+			return null;
+
+		byte[] digest = new byte[DIGEST_LENGTH];
+		digest(input, 0, input.length, digest, 0);
+
+		return sha256().digest(digest);
 	}
 
 	/**
@@ -175,12 +266,14 @@ public abstract class Crypto {
 	public static byte[] hash160(byte[] data) {
 		byte[] interim = digest(data);
 
-		try {
-			MessageDigest md160 = MessageDigest.getInstance("RIPEMD160");
-			return md160.digest(interim);
-		} catch (NoSuchAlgorithmException e) {
-			throw new RuntimeException("RIPEMD160 message digest not available");
-		}
+		return ripemd160().digest(interim);
+	}
+
+	/** Returns this thread's RIPEMD160 message digest, ready for use. */
+	private static MessageDigest ripemd160() {
+		MessageDigest md160 = RIPEMD160.get();
+		md160.reset();
+		return md160;
 	}
 
 	private static String toAddress(byte addressVersion, byte[] input) {
@@ -189,25 +282,16 @@ public abstract class Crypto {
 
 		// Use RIPEMD160 to create shorter address
 		// Use legit MD160
-		try {
-			MessageDigest md160 = MessageDigest.getInstance("RIPEMD160");
-			inputHash = md160.digest(inputHash);
-		} catch (NoSuchAlgorithmException e) {
-			throw new RuntimeException("RIPEMD160 message digest not available");
-		}
+		inputHash = ripemd160().digest(inputHash);
 
 		// Create address data using above hash and addressVersion (prepended)
-		byte[] addressBytes = new byte[inputHash.length + 1];
-		System.arraycopy(inputHash, 0, addressBytes, 1, inputHash.length);
-		addressBytes[0] = addressVersion;
-
-		// Generate checksum
-		byte[] checksum = doubleDigest(addressBytes);
+		byte[] addressWithChecksum = new byte[1 + inputHash.length + ADDRESS_CHECKSUM_LENGTH];
+		addressWithChecksum[0] = addressVersion;
+		System.arraycopy(inputHash, 0, addressWithChecksum, 1, inputHash.length);
 
 		// Append checksum
-		byte[] addressWithChecksum = new byte[addressBytes.length + 4];
-		System.arraycopy(addressBytes, 0, addressWithChecksum, 0, addressBytes.length);
-		System.arraycopy(checksum, 0, addressWithChecksum, addressBytes.length, 4);
+		int checksumOffset = addressWithChecksum.length - ADDRESS_CHECKSUM_LENGTH;
+		addressChecksum(addressWithChecksum, checksumOffset, addressWithChecksum, checksumOffset);
 
 		// Return Base58-encoded
 		return Base58.encode(addressWithChecksum);
@@ -261,16 +345,23 @@ public abstract class Crypto {
 		// Check by address type
 		for (byte addressVersion : addressVersions)
 			if (addressBytes[0] == addressVersion) {
-				byte[] addressWithoutChecksum = Arrays.copyOf(addressBytes, addressBytes.length - 4);
-				byte[] passedChecksum = Arrays.copyOfRange(addressBytes, addressBytes.length - 4, addressBytes.length);
+				int checksumOffset = addressBytes.length - ADDRESS_CHECKSUM_LENGTH;
 
-				byte[] generatedChecksum = Arrays.copyOf(doubleDigest(addressWithoutChecksum), 4);
-				return Arrays.equals(passedChecksum, generatedChecksum);
+				byte[] generatedChecksum = new byte[ADDRESS_CHECKSUM_LENGTH];
+				addressChecksum(addressBytes, checksumOffset, generatedChecksum, 0);
+				return Arrays.equals(addressBytes, checksumOffset, addressBytes.length, generatedChecksum, 0, ADDRESS_CHECKSUM_LENGTH);
 			}
 
 		return false;
 	}
 
+	/** Writes first 4 bytes of double SHA-256 digest of first <tt>length</tt> bytes of <tt>addressBytes</tt> into <tt>output</tt>. */
+	private static void addressChecksum(byte[] addressBytes, int length, byte[] output, int outputOffset) {
+		byte[] digest = new byte[DIGEST_LENGTH];
+		digest(addressBytes, 0, length, digest, 0);
+		digest(ByteBuffer.wrap(digest), output, outputOffset, ADDRESS_CHECKSUM_LENGTH);
+	}
+
 	public static byte[] toPublicKey(byte[] privateKey) {
 		return new Ed25519PrivateKeyParameters(privateKey, 0).generatePublicKey().getEncoded();
 	}
@@ -283,6 +374,33 @@ public abstract class Crypto {
 		}
 	}
 
+	/**
+	 * Returns whether each signature is valid, as per {@link #verify(byte[], byte[], byte[])}.
+	 * <p>
+	 * Signatures are verified together, using {@link Ed25519BatchVerifier}, which is quicker than
+	 * verifying them one at a time. If the batch fails, each signature is then verified individually
+	 * to find the invalid one(s).
+	 *
+	 * @return array of results, in same order as passed signatures
+	 */
+	public static boolean[] verifyBatch(List<byte[]> publicKeys, List<byte[]> signatures, List<byte[]> messages) {
+		int count = signatures.size();
+		if (publicKeys.size() != count || messages.size() != count)
+			throw new IllegalArgumentException("Public keys, signatures and messages must be the same size");
+
+		boolean[] results = new boolean[count];
+
+		if (count >= MIN_BATCH_VERIFY_SIZE && Ed25519BatchVerifier.verify(publicKeys, signatures, messages)) {
+			Arrays.fill(results, true);
+			return results;
+		}
+
+		for (int i = 0; i < count; ++i)
+			results[i] = verify(publicKeys.get(i), signatures.get(i), messages.get(i));
+
+		return results;
+	}
+
 	public static byte[] sign(Ed25519PrivateKeyParameters edPrivateKeyParams, byte[] message) {
 		byte[] signature = new byte[SIGNATURE_LENGTH];
 
@@ -0,0 +1,185 @@
+package org.qortal.crypto;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.math.raw.Nat256;
+
+import java.security.SecureRandom;
+import java.util.List;
+
+/**
+ * Batch verification of Ed25519 signatures.
+ * <p>
+ * Instead of checking <tt>[S]B = R + [k]A</tt> for each signature, a random linear combination is checked:
+ * <p>
+ * <tt>[&Sigma; z<sub>i</sub>S<sub>i</sub>]B - &Sigma; [z<sub>i</sub>]R<sub>i</sub> - &Sigma; [z<sub>i</sub>k<sub>i</sub>]A<sub>i</sub> = 0</tt>
+ * <p>
+ * using a single multi-scalar multiplication, so point doublings are shared by the whole batch.
+ * Random 128-bit <tt>z<sub>i</sub></tt> means an invalid signature only passes with negligible probability.
+ * <p>
+ * Like BouncyCastle's single signature verification, the check is multiplied by the cofactor,
+ * and small-order public keys are rejected, so a batch passes only if each signature would pass individually.
+ * <p>
+ * A failed batch doesn't say which signature is invalid - see {@link Crypto#verifyBatch(List, List, List)}.
+ */
+public abstract class Ed25519BatchVerifier extends BouncyCastleEd25519 {
+
+	private static final int WNAF_WIDTH = 5;
+	private static final int WEIGHT_INTS = 4;
+
+	private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+	/**
+	 * Returns whether all signatures are valid.
+	 * <p>
+	 * Returns <tt>false</tt> if any signature is invalid, or couldn't be batched, e.g. wrong length.
+	 */
+	public static boolean verify(List<byte[]> publicKeys, List<byte[]> signatures, List<byte[]> messages) {
+		int count = signatures.size();
+		if (publicKeys.size() != count || messages.size() != count)
+			return false;
+
+		precompute();
+
+		int[] weights = new int[count * WEIGHT_INTS];
+		byte[] weightBytes = new byte[count * WEIGHT_INTS * 4];
+		SECURE_RANDOM.nextBytes(weightBytes);
+		decode32(weightBytes, 0, weights, 0, weights.length);
+
+		Digest d = createDigest();
+		byte[] h = new byte[d.getDigestSize()];
+
+		int[] nB = new int[SCALAR_INTS];
+		int[] nZ = new int[SCALAR_INTS];
+		int[] nS = new int[SCALAR_INTS];
+		int[] nK = new int[SCALAR_INTS];
+
+		// Two points, -R and -A, per signature
+		byte[][] pointWnafs = new byte[count * 2][];
+		PointExt[][] pointTables = new PointExt[count * 2][];
+
+		for (int i = 0; i < count; ++i) {
+			byte[] publicKey = publicKeys.get(i);
+			byte[] signature = signatures.get(i);
+			byte[] message = messages.get(i);
+
+			if (publicKey == null || publicKey.length != PUBLIC_KEY_SIZE
+					|| signature == null || signature.length != SIGNATURE_SIZE
+					|| message == null)
+				return false;
+
+			// S out of bounds
+			decodeScalar(signature, POINT_BYTES, nS);
+			if (Nat256.gte(nS, L))
+				return false;
+
+			PointAffine pR = new PointAffine();
+			if (!decodePointVar(signature, 0, true, pR))
+				return false;
+
+			PointAffine pA = new PointAffine();
+			if (!decodePointVar(publicKey, 0, true, pA) || isSmallOrder(pA))
+				return false;
+
+			d.update(signature, 0, POINT_BYTES);
+			d.update(publicKey, 0, POINT_BYTES);
+			d.update(message, 0, message.length);
+			d.doFinal(h, 0);
+
+			decodeScalar(reduceScalar(h), 0, nK);
+
+			// Random, non-zero, 128-bit weight
+			Nat256.zero(nZ);
+			System.arraycopy(weights, i * WEIGHT_INTS, nZ, 0, WEIGHT_INTS);
+			nZ[0] |= 1;
+
+			// B's scalar accumulates z * S
+			mulAddModL(nZ, nS, nB);
+
+			// A's scalar is z * k
+			Nat256.zero(nS);
+			mulAddModL(nZ, nK, nS);
+
+			pointWnafs[i * 2] = getWnafVar(nZ, WNAF_WIDTH);
+			pointTables[i * 2] = pointPrecomputeVar(pointCopy(pR), 1 << (WNAF_WIDTH - 2));
+
+			pointWnafs[i * 2 + 1] = getWnafVar(nS, WNAF_WIDTH);
+			pointTables[i * 2 + 1] = pointPrecomputeVar(pointCopy(pA), 1 << (WNAF_WIDTH - 2));
+		}
+
+		byte[] baseWnaf = getWnafVar(nB, WNAF_WIDTH_BASE);
+
+		PointAccum r = new PointAccum();
+		pointSetNeutral(r);
+
+		for (int bit = 252;;) {
+			int wb = baseWnaf[bit];
+			if (wb != 0) {
+				int sign = wb >> 31;
+				int index = (wb ^ sign) >>> 1;
+
+				pointAddVar(sign != 0, precompBaseTable[index], r);
+			}
+
+			for (int p = 0; p < pointWnafs.length; ++p) {
+				int wp = pointWnafs[p][bit];
+				if (wp != 0) {
+					int sign = wp >> 31;
+					int index = (wp ^ sign) >>> 1;
+
+					pointAddVar(sign != 0, pointTables[p][index], r);
+				}
+			}
+
+			if (--bit < 0)
+				break;
+
+			pointDouble(r);
+		}
+
+		// Multiply by cofactor
+		pointDouble(r);
+		pointDouble(r);
+		pointDouble(r);
+
+		return isNeutral(r);
+	}
+
+	/** Sets <tt>acc = (acc + x * y) mod L</tt>, where <tt>acc</tt> and <tt>y</tt> are already reduced */
+	private static void mulAddModL(int[] x, int[] y, int[] acc) {
+		int[] product = new int[SCALAR_INTS * 2];
+		Nat256.mul(x, y, product);
+
+		byte[] productBytes = new byte[SCALAR_BYTES * 2];
+		for (int i = 0; i < product.length; ++i)
+			encode32(product[i], productBytes, i * 4);
+
+		int[] reduced = new int[SCALAR_INTS];
+		decodeScalar(reduceScalar(productBytes), 0, reduced);
+
+		// Both less than L, so sum can't overflow 256 bits
+		Nat256.addTo(reduced, acc);
+		if (Nat256.gte(acc, L))
+			Nat256.subFrom(L, acc);
+	}
+
+	private static boolean isSmallOrder(PointAffine p) {
+		PointAccum r = new PointAccum();
+		pointCopy(p, r);
+
+		pointDouble(r);
+		pointDouble(r);
+		pointDouble(r);
+
+		return isNeutral(r);
+	}
+
+	private static boolean isNeutral(PointAccum p) {
+		int[] t = F.create();
+		F.sub(p.y, p.z, t);
+		F.normalize(t);
+		F.normalize(p.x);
+
+		return F.isZeroVar(p.x) && F.isZeroVar(t);
+	}
+
+}
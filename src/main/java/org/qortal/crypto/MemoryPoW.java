@@ -3,10 +3,32 @@ package org.qortal.crypto;
 import org.qortal.utils.NTP;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MemoryPoW {
 
+	private static final long INITIAL_SEED = 8682522807148012L;
+	private static final long SEED_MULTIPLIER = 1181783497276652981L;
+
+	/** Work buffer kept by threads that verify many nonces, e.g. transaction validation workers. */
+	private static final ThreadLocal<long[][]> RETAINED_WORK_BUFFER = new ThreadLocal<>();
+
+	/**
+	 * Keeps work buffer, allocated by {@link #verify2(byte[], int, long, int)} or a multi-threaded compute2 search, for reuse by calling thread.
+	 * <p>
+	 * Only worth calling by long-lived threads that verify many nonces, as buffer isn't freed until thread exits.
+	 */
+	public static void retainWorkBuffer() {
+		if (RETAINED_WORK_BUFFER.get() == null)
+			RETAINED_WORK_BUFFER.set(new long[1][]);
+	}
+
 	/**
 	 * Compute a MemoryPoW nonce
 	 *
@@ -39,23 +61,13 @@ public class MemoryPoW {
 	public static Integer compute2(byte[] data, int workBufferLength, long difficulty, Long timeout) throws TimeoutException {
 		long startTime = NTP.getTime();
 
-		// Hash data with SHA256
-		byte[] hash = Crypto.digest(data);
-
-		long[] longHash = new long[4];
-		ByteBuffer byteBuffer = ByteBuffer.wrap(hash);
-		longHash[0] = byteBuffer.getLong();
-		longHash[1] = byteBuffer.getLong();
-		longHash[2] = byteBuffer.getLong();
-		longHash[3] = byteBuffer.getLong();
-		byteBuffer = null;
+		long[] longHash = hashData(data);
 
 		int longBufferLength = workBufferLength / 8;
 		long[] workBuffer = new long[longBufferLength];
 		long[] state = new long[4];
 
-		long seed = 8682522807148012L;
-		long seedMultiplier = 1181783497276652981L;
+		long seed = INITIAL_SEED;
 
 		// For each nonce...
 		int nonce = -1;
@@ -74,59 +86,184 @@ public class MemoryPoW {
 				}
 			}
 
-			seed *= seedMultiplier; // per nonce
+			seed *= SEED_MULTIPLIER; // per nonce
 
-			state[0] = longHash[0] ^ seed;
-			state[1] = longHash[1] ^ seed;
-			state[2] = longHash[2] ^ seed;
-			state[3] = longHash[3] ^ seed;
+			result = computeResult(longHash, seed, workBuffer, state);
+
+			// Return if final value > difficulty
+		} while (Long.numberOfLeadingZeros(result) < difficulty);
 
-			// Fill work buffer with random
-			for (int i = 0; i < workBuffer.length; ++i)
-				workBuffer[i] = xoshiro256p(state);
+		return nonce;
+	}
 
-			// Random bounce through whole buffer
-			result = workBuffer[0];
-			for (int i = 0; i < 1024; ++i) {
-				int index = (int) (xoshiro256p(state) & Integer.MAX_VALUE) % workBuffer.length;
-				result ^= workBuffer[index];
+	/**
+	 * Compute a MemoryPoW nonce using multiple threads, with optional timeout
+	 * <p>
+	 * Nonces are shared out between threads, with thread <tt>t</tt> trying nonces <tt>t</tt>, <tt>t + threadCount</tt>, etc.
+	 * Once a nonce is found, threads only carry on trying lower nonces, so the result is the same nonce
+	 * that {@link #compute2(byte[], int, long, Long)} would return.
+	 * <p>
+	 * The calling thread searches too, so <tt>threadCount - 1</tt> searches are run using <tt>workerPool</tt>,
+	 * which should be a long-lived pool with at least that many threads. Each pool thread keeps its work buffer
+	 * for the next call, as with {@link #retainWorkBuffer()}.
+	 * <p>
+	 * If timeout is reached after a nonce is found, but before all lower nonces are tried,
+	 * the (valid) nonce found is returned instead of giving up.
+	 *
+	 * @param data
+	 * @param workBufferLength
+	 * @param difficulty
+	 * @param timeout maximum number of milliseconds to compute for before giving up,<br>or null if no timeout
+	 * @param workerPool pool to run other threads' searches, or null to only use calling thread
+	 * @param threadCount number of threads to use, including calling thread
+	 * @return nonce, or -1 if interrupted
+	 * @throws TimeoutException
+	 */
+	public static Integer compute2(byte[] data, int workBufferLength, long difficulty, Long timeout, ExecutorService workerPool, int threadCount) throws TimeoutException {
+		if (workerPool == null || threadCount <= 1)
+			return compute2(data, workBufferLength, difficulty, timeout);
+
+		final Long deadline = timeout != null ? NTP.getTime() + timeout : null;
+
+		long[] longHash = hashData(data);
+
+		// Seed multiplier to skip over other threads' nonces
+		long strideMultiplier = 1;
+		for (int i = 0; i < threadCount; ++i)
+			strideMultiplier *= SEED_MULTIPLIER;
+
+		NonceSearch search = new NonceSearch(longHash, workBufferLength, difficulty, deadline, threadCount, strideMultiplier);
+
+		List<Future<?>> workers = new ArrayList<>(threadCount - 1);
+		for (int t = 1; t < threadCount; ++t) {
+			final int firstNonce = t;
+			workers.add(workerPool.submit(() -> {
+				retainWorkBuffer();
+				search.run(firstNonce);
+			}));
+		}
+
+		// Calling thread searches too, using its own work buffer
+		search.run(0);
+
+		boolean isInterrupted = Thread.currentThread().isInterrupted();
+		for (Future<?> worker : workers) {
+			while (true) {
+				try {
+					worker.get();
+					break;
+				} catch (InterruptedException e) {
+					// Stop other workers, but still wait for them to notice
+					isInterrupted = true;
+					search.isStopped = true;
+				} catch (ExecutionException e) {
+					throw new RuntimeException("MemoryPoW worker failed", e.getCause());
+				}
 			}
+		}
 
-			// Return if final value > difficulty
-		} while (Long.numberOfLeadingZeros(result) < difficulty);
+		if (isInterrupted) {
+			Thread.currentThread().interrupt();
+			// Exit fast with invalid value
+			return -1;
+		}
+
+		int nonce = search.foundNonce.get();
+		if (nonce == Integer.MAX_VALUE)
+			throw new TimeoutException("Timeout reached");
 
 		return nonce;
 	}
 
+	/** Nonce search shared by threads in {@link #compute2(byte[], int, long, Long, ExecutorService, int)} */
+	private static class NonceSearch {
+		private final long[] longHash;
+		private final int workBufferLength;
+		private final long difficulty;
+		private final Long deadline;
+		private final int threadCount;
+		private final long strideMultiplier;
+
+		/** Lowest nonce found so far, or Integer.MAX_VALUE if none */
+		private final AtomicInteger foundNonce = new AtomicInteger(Integer.MAX_VALUE);
+		/** Set on timeout or interrupt */
+		private volatile boolean isStopped = false;
+
+		private NonceSearch(long[] longHash, int workBufferLength, long difficulty, Long deadline, int threadCount, long strideMultiplier) {
+			this.longHash = longHash;
+			this.workBufferLength = workBufferLength;
+			this.difficulty = difficulty;
+			this.deadline = deadline;
+			this.threadCount = threadCount;
+			this.strideMultiplier = strideMultiplier;
+		}
+
+		private void run(int firstNonce) {
+			long[] workBuffer = getWorkBuffer(this.workBufferLength / 8);
+			long[] state = new long[4];
+
+			long seed = INITIAL_SEED;
+			for (int i = 0; i <= firstNonce; ++i)
+				seed *= SEED_MULTIPLIER;
+
+			// No need to try nonces higher than one already found
+			for (int nonce = firstNonce; nonce < this.foundNonce.get(); nonce += this.threadCount, seed *= this.strideMultiplier) {
+				if (this.isStopped)
+					return;
+
+				if (Thread.currentThread().isInterrupted() || (this.deadline != null && NTP.getTime() > this.deadline)) {
+					this.isStopped = true;
+					return;
+				}
+
+				if (Long.numberOfLeadingZeros(computeResult(this.longHash, seed, workBuffer, state)) >= this.difficulty) {
+					this.foundNonce.accumulateAndGet(nonce, Math::min);
+					return;
+				}
+			}
+		}
+	}
+
 	public static boolean verify2(byte[] data, int workBufferLength, long difficulty, int nonce) {
 		return verify2(data, null, workBufferLength, difficulty, nonce);
 	}
 
 	public static boolean verify2(byte[] data, long[] workBuffer, int workBufferLength, long difficulty, int nonce) {
-		// Hash data with SHA256
-		byte[] hash = Crypto.digest(data);
-
-		long[] longHash = new long[4];
-		ByteBuffer byteBuffer = ByteBuffer.wrap(hash);
-		longHash[0] = byteBuffer.getLong();
-		longHash[1] = byteBuffer.getLong();
-		longHash[2] = byteBuffer.getLong();
-		longHash[3] = byteBuffer.getLong();
-		byteBuffer = null;
+		long[] longHash = hashData(data);
 
 		int longBufferLength = workBufferLength / 8;
 
 		if (workBuffer == null)
-			workBuffer = new long[longBufferLength];
+			workBuffer = getWorkBuffer(longBufferLength);
 
 		long[] state = new long[4];
 
-		long seed = 8682522807148012L;
-		long seedMultiplier = 1181783497276652981L;
+		long seed = INITIAL_SEED;
 
 		for (int i = 0; i <= nonce; ++i)
-			seed *= seedMultiplier;
+			seed *= SEED_MULTIPLIER;
+
+		long result = computeResult(longHash, seed, workBuffer, state);
 
+		return Long.numberOfLeadingZeros(result) >= difficulty;
+	}
+
+	/** Hash data with SHA256, as longs */
+	private static long[] hashData(byte[] data) {
+		byte[] hash = Crypto.digest(data);
+
+		long[] longHash = new long[4];
+		ByteBuffer byteBuffer = ByteBuffer.wrap(hash);
+		longHash[0] = byteBuffer.getLong();
+		longHash[1] = byteBuffer.getLong();
+		longHash[2] = byteBuffer.getLong();
+		longHash[3] = byteBuffer.getLong();
+
+		return longHash;
+	}
+
+	/** Returns final value for nonce's seed, to compare against difficulty */
+	private static long computeResult(long[] longHash, long seed, long[] workBuffer, long[] state) {
 		state[0] = longHash[0] ^ seed;
 		state[1] = longHash[1] ^ seed;
 		state[2] = longHash[2] ^ seed;
@@ -143,7 +280,19 @@ public class MemoryPoW {
 			result ^= workBuffer[index];
 		}
 
-		return Long.numberOfLeadingZeros(result) >= difficulty;
+		return result;
+	}
+
+	private static long[] getWorkBuffer(int longBufferLength) {
+		long[][] retainedWorkBuffer = RETAINED_WORK_BUFFER.get();
+		if (retainedWorkBuffer == null)
+			return new long[longBufferLength];
+
+		// Contents don't need clearing as whole buffer is filled before use
+		if (retainedWorkBuffer[0] == null || retainedWorkBuffer[0].length != longBufferLength)
+			retainedWorkBuffer[0] = new long[longBufferLength];
+
+		return retainedWorkBuffer[0];
 	}
 
 	private static final long xoshiro256p(long[] state) {
@@ -101,6 +101,47 @@ public abstract class Qortal25519Extras extends BouncyCastleEd25519 {
 		return publicKey;
 	}
 
+	/**
+	 * Returns <tt>aggregatePublicKey</tt> with <tt>addedPublicKeys</tt> added and <tt>removedPublicKeys</tt> subtracted.
+	 * <p>
+	 * Point addition is commutative, so this is the same as {@link #aggregatePublicKeys(Collection)}
+	 * of the updated collection of public keys, but only costs one point addition per change.
+	 *
+	 * @return updated aggregate public key, or null if any public key fails to decode
+	 */
+	public static byte[] updateAggregatePublicKey(byte[] aggregatePublicKey, Collection<byte[]> addedPublicKeys, Collection<byte[]> removedPublicKeys) {
+		PointAffine pA = new PointAffine();
+		if (!decodePointVar(aggregatePublicKey, 0, false, pA))
+			// Failed to decode
+			return null;
+
+		PointAccum rAccum = new PointAccum();
+		pointCopy(pA, rAccum);
+
+		for (byte[] publicKey : addedPublicKeys) {
+			if (!decodePointVar(publicKey, 0, false, pA))
+				// Failed to decode
+				return null;
+
+			pointAddVar(false, pointCopy(pA), rAccum);
+		}
+
+		for (byte[] publicKey : removedPublicKeys) {
+			if (!decodePointVar(publicKey, 0, false, pA))
+				// Failed to decode
+				return null;
+
+			pointAddVar(true, pointCopy(pA), rAccum);
+		}
+
+		byte[] publicKey = new byte[SCALAR_BYTES];
+		if (0 == encodePoint(rAccum, publicKey, 0))
+			// Failed to encode
+			return null;
+
+		return publicKey;
+	}
+
 	public static byte[] aggregateSignatures(Collection<byte[]> signatures) {
 		// Signatures are (R, s)
 		// R is a point
@@ -0,0 +1,51 @@
+package org.qortal.data.chat;
+
+import org.qortal.data.chat.ActiveChats.DirectChat;
+import org.qortal.data.chat.ActiveChats.GroupChat;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changes to a previously sent {@link ActiveChats}, as sent to active chats websocket clients in delta mode.
+ * <p>
+ * Group and direct chats are replaced by those with the same groupId / address,
+ * or added if not present. Direct chats listed in removedDirect are no longer active.
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ActiveChatsDelta {
+
+	// Properties
+
+	private boolean delta = true;
+
+	private List<GroupChat> groups = new ArrayList<>();
+
+	private List<DirectChat> direct = new ArrayList<>();
+
+	private List<String> removedDirect = new ArrayList<>();
+
+	// Constructors
+
+	public ActiveChatsDelta() {
+	}
+
+	public List<GroupChat> getGroups() {
+		return this.groups;
+	}
+
+	public List<DirectChat> getDirect() {
+		return this.direct;
+	}
+
+	public List<String> getRemovedDirect() {
+		return this.removedDirect;
+	}
+
+	public boolean isEmpty() {
+		return this.groups.isEmpty() && this.direct.isEmpty() && this.removedDirect.isEmpty();
+	}
+
+}
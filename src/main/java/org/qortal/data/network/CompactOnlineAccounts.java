@@ -0,0 +1,315 @@
+package org.qortal.data.network;
+
+import org.qortal.transform.Transformer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, compact, set of online accounts for a single online timestamp.
+ * <p>
+ * Instead of one {@link OnlineAccountData} object (plus set entry, boxed nonce, public key and signature arrays) per account,
+ * public keys, nonces and signatures are packed into primitive arrays, sorted by public key.
+ * This is also reward-share index order, and means accounts with the same leading byte are contiguous.
+ * <p>
+ * Reward-share indexes themselves aren't stored, as they're only ranks of public keys,
+ * which change whenever a reward-share is created or removed.
+ * <p>
+ * Only one entry is kept per public key. An entry without a usable nonce is replaced by one with a usable nonce.
+ * <p>
+ * Changes return a new instance, so readers never need locking.
+ */
+public class CompactOnlineAccounts {
+
+	private static final int PUBLIC_KEY_LENGTH = Transformer.PUBLIC_KEY_LENGTH;
+	private static final int SIGNATURE_LENGTH = Transformer.SIGNATURE_LENGTH;
+
+	/** Stored in place of missing nonce */
+	private static final int NO_NONCE = -1;
+
+	private static final Comparator<OnlineAccountData> PUBLIC_KEY_ORDER = (a, b) -> Arrays.compareUnsigned(a.getPublicKey(), b.getPublicKey());
+
+	private final long timestamp;
+	private final int count;
+	/** Public keys, sorted, packed end to end */
+	private final byte[] publicKeys;
+	private final int[] nonces;
+	/** Signatures, in same order as public keys, packed end to end, or null if not kept */
+	private final byte[] signatures;
+
+	private CompactOnlineAccounts(long timestamp, int count, byte[] publicKeys, int[] nonces, byte[] signatures) {
+		this.timestamp = timestamp;
+		this.count = count;
+		this.publicKeys = publicKeys;
+		this.nonces = nonces;
+		this.signatures = signatures;
+	}
+
+	/**
+	 * Returns empty set of online accounts.
+	 *
+	 * @param hasSignatures whether signatures are kept, e.g. not for online accounts from blocks
+	 */
+	public static CompactOnlineAccounts empty(long timestamp, boolean hasSignatures) {
+		return new CompactOnlineAccounts(timestamp, 0, new byte[0], new int[0], hasSignatures ? new byte[0] : null);
+	}
+
+	public long getTimestamp() {
+		return this.timestamp;
+	}
+
+	public int size() {
+		return this.count;
+	}
+
+	public boolean isEmpty() {
+		return this.count == 0;
+	}
+
+	/** Returns position of public key, or negative value if not present, like {@link Arrays#binarySearch(int[], int)}. */
+	public int indexOf(byte[] publicKey) {
+		int low = 0;
+		int high = this.count - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int comparison = comparePublicKey(mid, publicKey);
+
+			if (comparison < 0)
+				low = mid + 1;
+			else if (comparison > 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+
+		return -(low + 1);
+	}
+
+	/** Returns whether this contains online account with same public key and same, usable, nonce. */
+	public boolean contains(OnlineAccountData onlineAccountData) {
+		Integer nonce = onlineAccountData.getNonce();
+		if (nonce == null || nonce < 0)
+			return false;
+
+		int index = indexOf(onlineAccountData.getPublicKey());
+		return index >= 0 && this.nonces[index] == nonce;
+	}
+
+	/** Returns whether adding online account would make no difference, i.e. it's already present, or isn't superior to entry present. */
+	public boolean isKnown(OnlineAccountData onlineAccountData) {
+		int index = indexOf(onlineAccountData.getPublicKey());
+		if (index < 0)
+			return false;
+
+		return this.nonces[index] >= 0 || !hasUsableNonce(onlineAccountData);
+	}
+
+	/** Removes entries from <tt>onlineAccounts</tt> that are also in this set, with matching nonce. */
+	public void removeKnown(Collection<OnlineAccountData> onlineAccounts) {
+		onlineAccounts.removeIf(this::contains);
+	}
+
+	public OnlineAccountData get(int index) {
+		if (index < 0 || index >= this.count)
+			throw new IndexOutOfBoundsException(index);
+
+		byte[] publicKey = Arrays.copyOfRange(this.publicKeys, index * PUBLIC_KEY_LENGTH, (index + 1) * PUBLIC_KEY_LENGTH);
+
+		byte[] signature = null;
+		if (this.signatures != null)
+			signature = Arrays.copyOfRange(this.signatures, index * SIGNATURE_LENGTH, (index + 1) * SIGNATURE_LENGTH);
+
+		Integer nonce = this.nonces[index] >= 0 ? this.nonces[index] : null;
+
+		return new OnlineAccountData(this.timestamp, signature, publicKey, nonce);
+	}
+
+	public List<OnlineAccountData> getOnlineAccounts() {
+		return getOnlineAccounts(0, this.count);
+	}
+
+	/** Returns online accounts whose public keys start with one of passed leading bytes. */
+	public List<OnlineAccountData> getOnlineAccounts(Set<Byte> leadingBytes) {
+		List<OnlineAccountData> onlineAccounts = new ArrayList<>();
+
+		for (Byte leadingByte : leadingBytes) {
+			int from = firstIndexOfLeadingByte(leadingByte & 0xff);
+			int to = firstIndexOfLeadingByte((leadingByte & 0xff) + 1);
+
+			onlineAccounts.addAll(getOnlineAccounts(from, to));
+		}
+
+		return onlineAccounts;
+	}
+
+	private List<OnlineAccountData> getOnlineAccounts(int from, int to) {
+		List<OnlineAccountData> onlineAccounts = new ArrayList<>(to - from);
+
+		for (int i = from; i < to; ++i)
+			onlineAccounts.add(get(i));
+
+		return onlineAccounts;
+	}
+
+	/**
+	 * Returns hash-summary of online accounts with public keys starting with <tt>leadingByte</tt>,
+	 * i.e. XOR of public keys, except for leading byte, or null if there are none.
+	 */
+	public byte[] getHash(byte leadingByte) {
+		int from = firstIndexOfLeadingByte(leadingByte & 0xff);
+		int to = firstIndexOfLeadingByte((leadingByte & 0xff) + 1);
+		if (from == to)
+			return null;
+
+		byte[] hash = Arrays.copyOfRange(this.publicKeys, from * PUBLIC_KEY_LENGTH, (from + 1) * PUBLIC_KEY_LENGTH);
+
+		for (int i = from + 1; i < to; ++i) {
+			int offset = i * PUBLIC_KEY_LENGTH;
+
+			// Start from index 1 to keep static leading byte
+			for (int b = 1; b < PUBLIC_KEY_LENGTH; ++b)
+				hash[b] ^= this.publicKeys[offset + b];
+		}
+
+		return hash;
+	}
+
+	/** Returns hash-summaries for all leading bytes present, keyed by leading byte. */
+	public Map<Byte, byte[]> getHashes() {
+		Map<Byte, byte[]> hashes = new HashMap<>();
+
+		for (int i = 0; i < this.count; ) {
+			byte leadingByte = this.publicKeys[i * PUBLIC_KEY_LENGTH];
+			hashes.put(leadingByte, getHash(leadingByte));
+
+			i = firstIndexOfLeadingByte((leadingByte & 0xff) + 1);
+		}
+
+		return hashes;
+	}
+
+	/**
+	 * Returns set with passed online accounts added, or this set if nothing changed.
+	 * <p>
+	 * Online accounts that are already known, as per {@link #isKnown(OnlineAccountData)}, are ignored.
+	 *
+	 * @param onlineAccounts online accounts to add, which must all have this set's timestamp
+	 * @param changedLeadingBytes if not null, leading bytes of public keys of added online accounts are added to this
+	 */
+	public CompactOnlineAccounts add(Collection<OnlineAccountData> onlineAccounts, Set<Byte> changedLeadingBytes) {
+		List<OnlineAccountData> additions = new ArrayList<>(onlineAccounts.size());
+		for (OnlineAccountData onlineAccountData : onlineAccounts) {
+			if (onlineAccountData.getTimestamp() != this.timestamp)
+				throw new IllegalArgumentException("Online account timestamp doesn't match");
+
+			if (onlineAccountData.getPublicKey() == null || onlineAccountData.getPublicKey().length != PUBLIC_KEY_LENGTH)
+				throw new IllegalArgumentException("Online account public key is invalid");
+
+			if (this.signatures != null && (onlineAccountData.getSignature() == null || onlineAccountData.getSignature().length != SIGNATURE_LENGTH))
+				throw new IllegalArgumentException("Online account signature is invalid");
+
+			if (!isKnown(onlineAccountData))
+				additions.add(onlineAccountData);
+		}
+
+		if (additions.isEmpty())
+			return this;
+
+		// Stable sort, so earlier duplicates are kept in preference to later ones, as if added one at a time
+		additions.sort(PUBLIC_KEY_ORDER);
+
+		int maxCount = this.count + additions.size();
+		byte[] newPublicKeys = new byte[maxCount * PUBLIC_KEY_LENGTH];
+		int[] newNonces = new int[maxCount];
+		byte[] newSignatures = this.signatures != null ? new byte[maxCount * SIGNATURE_LENGTH] : null;
+
+		int newCount = 0;
+		int existing = 0;
+
+		for (int a = 0; a < additions.size(); ++a) {
+			OnlineAccountData addition = additions.get(a);
+			byte[] publicKey = addition.getPublicKey();
+
+			// Copy existing entries that come before this addition
+			while (existing < this.count && comparePublicKey(existing, publicKey) < 0)
+				newCount = copyEntry(existing++, newCount, newPublicKeys, newNonces, newSignatures);
+
+			// Replacing existing entry?
+			if (existing < this.count && comparePublicKey(existing, publicKey) == 0)
+				existing++;
+
+			// Duplicate within additions? Only replace if superior
+			if (newCount > 0 && Arrays.equals(newPublicKeys, (newCount - 1) * PUBLIC_KEY_LENGTH, newCount * PUBLIC_KEY_LENGTH, publicKey, 0, PUBLIC_KEY_LENGTH)) {
+				if (newNonces[newCount - 1] >= 0 || !hasUsableNonce(addition))
+					continue;
+
+				newCount--;
+			}
+
+			System.arraycopy(publicKey, 0, newPublicKeys, newCount * PUBLIC_KEY_LENGTH, PUBLIC_KEY_LENGTH);
+			newNonces[newCount] = hasUsableNonce(addition) ? addition.getNonce() : NO_NONCE;
+			if (newSignatures != null)
+				System.arraycopy(addition.getSignature(), 0, newSignatures, newCount * SIGNATURE_LENGTH, SIGNATURE_LENGTH);
+			newCount++;
+
+			if (changedLeadingBytes != null)
+				changedLeadingBytes.add(publicKey[0]);
+		}
+
+		// Copy remaining existing entries
+		while (existing < this.count)
+			newCount = copyEntry(existing++, newCount, newPublicKeys, newNonces, newSignatures);
+
+		if (newCount < maxCount) {
+			newPublicKeys = Arrays.copyOf(newPublicKeys, newCount * PUBLIC_KEY_LENGTH);
+			newNonces = Arrays.copyOf(newNonces, newCount);
+			if (newSignatures != null)
+				newSignatures = Arrays.copyOf(newSignatures, newCount * SIGNATURE_LENGTH);
+		}
+
+		return new CompactOnlineAccounts(this.timestamp, newCount, newPublicKeys, newNonces, newSignatures);
+	}
+
+	private int copyEntry(int index, int newIndex, byte[] newPublicKeys, int[] newNonces, byte[] newSignatures) {
+		System.arraycopy(this.publicKeys, index * PUBLIC_KEY_LENGTH, newPublicKeys, newIndex * PUBLIC_KEY_LENGTH, PUBLIC_KEY_LENGTH);
+		newNonces[newIndex] = this.nonces[index];
+		if (newSignatures != null)
+			System.arraycopy(this.signatures, index * SIGNATURE_LENGTH, newSignatures, newIndex * SIGNATURE_LENGTH, SIGNATURE_LENGTH);
+
+		return newIndex + 1;
+	}
+
+	private int comparePublicKey(int index, byte[] publicKey) {
+		int offset = index * PUBLIC_KEY_LENGTH;
+		return Arrays.compareUnsigned(this.publicKeys, offset, offset + PUBLIC_KEY_LENGTH, publicKey, 0, publicKey.length);
+	}
+
+	/** Returns index of first public key with unsigned leading byte at least <tt>leadingByte</tt>, which can be 0 to 256. */
+	private int firstIndexOfLeadingByte(int leadingByte) {
+		int low = 0;
+		int high = this.count;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if ((this.publicKeys[mid * PUBLIC_KEY_LENGTH] & 0xff) < leadingByte)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		return low;
+	}
+
+	private static boolean hasUsableNonce(OnlineAccountData onlineAccountData) {
+		return onlineAccountData.getNonce() != null && onlineAccountData.getNonce() >= 0;
+	}
+
+}
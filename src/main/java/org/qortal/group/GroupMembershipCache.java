@@ -0,0 +1,408 @@
+package org.qortal.group;
+
+import org.qortal.data.group.GroupAdminData;
+import org.qortal.data.group.GroupMemberData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.GroupRepository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory cache of each group's members and admins, as committed to the repository.
+ * <p>
+ * Addresses are mapped to integer account IDs, and each group's members and admins
+ * are held as sorted <tt>int</tt> arrays, so membership checks are a binary search
+ * without any repository access.
+ * <p>
+ * Groups are loaded on first use. After that, the cache is only updated with changes
+ * that have been committed: each repository session collects its membership changes
+ * in {@link PendingChanges}, which are applied by {@link #applyCommitted(PendingChanges)}
+ * after a successful commit, or dropped on rollback. Until then, that session should
+ * read its own modified groups from the repository instead (see {@link PendingChanges#isGroupModified(int)}).
+ * <p>
+ * Every applied change increments the cache's version, which also lets callers,
+ * such as websocket sessions, cheaply check whether an address's memberships
+ * have changed since they last looked (see {@link #hasMembershipChanged(String, long)}).
+ */
+public class GroupMembershipCache {
+
+	private static final int MAX_GROUPS = 10_000;
+	/** Number of recent membership changes remembered, per address, for {@link #hasMembershipChanged(String, long)} */
+	private static final int CHANGE_LOG_SIZE = 4096;
+	/** Account ID used in change log when change affects every address, e.g. group removal */
+	private static final int ALL_ACCOUNTS = -1;
+
+	private static final int[] NO_ACCOUNTS = new int[0];
+
+	private static final GroupMembershipCache instance = new GroupMembershipCache();
+
+	/** Immutable snapshot of group's members and admins, as sorted account IDs */
+	private static class GroupEntry {
+		private final int[] memberIds;
+		private final int[] adminIds;
+		/** Account IDs are only valid for the generation they were assigned in */
+		private final int accountIdGeneration;
+
+		private GroupEntry(int[] memberIds, int[] adminIds, int accountIdGeneration) {
+			this.memberIds = memberIds;
+			this.adminIds = adminIds;
+			this.accountIdGeneration = accountIdGeneration;
+		}
+	}
+
+	private final Map<String, Integer> accountIdsByAddress = new HashMap<>();
+	/** Indexed by account ID */
+	private final List<String> addressesByAccountId = new ArrayList<>();
+	/** Incremented whenever account IDs are cleared */
+	private int accountIdGeneration = 0;
+
+	/** Access-ordered, so least-recently used groups are evicted first */
+	private final Map<Integer, GroupEntry> entriesByGroupId = new LinkedHashMap<>(1024, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, GroupEntry> eldest) {
+			return this.size() > MAX_GROUPS;
+		}
+	};
+
+	/** Incremented whenever committed changes are applied, or cache is cleared */
+	private long version = 0;
+
+	/** Ring buffer of (version, account ID) for recently changed memberships */
+	private final long[] changeLogVersions = new long[CHANGE_LOG_SIZE];
+	private final int[] changeLogAccountIds = new int[CHANGE_LOG_SIZE];
+	private int changeLogCount = 0;
+
+	private GroupMembershipCache() {
+	}
+
+	public static GroupMembershipCache getInstance() {
+		return instance;
+	}
+
+	// Lookups
+
+	public boolean isMember(GroupRepository groupRepository, int groupId, String address) throws DataException {
+		GroupEntry entry = this.getEntry(groupRepository, groupId);
+		return contains(entry.memberIds, this.getAccountId(address));
+	}
+
+	public boolean isAdmin(GroupRepository groupRepository, int groupId, String address) throws DataException {
+		GroupEntry entry = this.getEntry(groupRepository, groupId);
+		return contains(entry.adminIds, this.getAccountId(address));
+	}
+
+	/** Returns addresses of group's members. */
+	public List<String> getMembers(GroupRepository groupRepository, int groupId) throws DataException {
+		while (true) {
+			GroupEntry entry = this.getEntry(groupRepository, groupId);
+
+			synchronized (this) {
+				// Cache cleared since entry was fetched, so its account IDs might now be for other addresses
+				if (entry.accountIdGeneration != this.accountIdGeneration)
+					continue;
+
+				List<String> members = new ArrayList<>(entry.memberIds.length);
+				for (int memberId : entry.memberIds)
+					members.add(this.addressesByAccountId.get(memberId));
+
+				return members;
+			}
+		}
+	}
+
+	public int countMembers(GroupRepository groupRepository, int groupId) throws DataException {
+		return this.getEntry(groupRepository, groupId).memberIds.length;
+	}
+
+	public int countAdmins(GroupRepository groupRepository, int groupId) throws DataException {
+		return this.getEntry(groupRepository, groupId).adminIds.length;
+	}
+
+	/** Returns current version, to be passed to {@link #hasMembershipChanged(String, long)} later. */
+	public synchronized long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Returns whether any of address's group memberships have changed since <tt>sinceVersion</tt>.
+	 * <p>
+	 * Can return <tt>true</tt> when unsure, e.g. if too many changes have happened since.
+	 */
+	public synchronized boolean hasMembershipChanged(String address, long sinceVersion) {
+		if (sinceVersion >= this.version)
+			return false;
+
+		Integer accountId = this.accountIdsByAddress.get(address);
+
+		// Walk back from newest change
+		int loggedCount = Math.min(this.changeLogCount, CHANGE_LOG_SIZE);
+		for (int i = 1; i <= loggedCount; ++i) {
+			int index = Math.floorMod(this.changeLogCount - i, CHANGE_LOG_SIZE);
+
+			if (this.changeLogVersions[index] <= sinceVersion)
+				return false;
+
+			int loggedAccountId = this.changeLogAccountIds[index];
+			if (loggedAccountId == ALL_ACCOUNTS || (accountId != null && loggedAccountId == accountId))
+				return true;
+		}
+
+		// Ran out of change log, so can't be sure
+		return this.changeLogCount > CHANGE_LOG_SIZE;
+	}
+
+	/**
+	 * Clears cache, e.g. because repository has been replaced.
+	 */
+	public synchronized void clear() {
+		this.entriesByGroupId.clear();
+		this.accountIdsByAddress.clear();
+		this.addressesByAccountId.clear();
+		++this.accountIdGeneration;
+		++this.version;
+		this.logChange(ALL_ACCOUNTS);
+	}
+
+	private GroupEntry getEntry(GroupRepository groupRepository, int groupId) throws DataException {
+		long loadVersion;
+
+		synchronized (this) {
+			GroupEntry entry = this.entriesByGroupId.get(groupId);
+			if (entry != null)
+				return entry;
+
+			loadVersion = this.version;
+		}
+
+		// Load outside lock
+		List<GroupMemberData> members = groupRepository.getGroupMembers(groupId);
+		List<GroupAdminData> admins = groupRepository.getGroupAdmins(groupId);
+
+		synchronized (this) {
+			int[] memberIds = new int[members.size()];
+			for (int i = 0; i < memberIds.length; ++i)
+				memberIds[i] = this.getOrAssignAccountId(members.get(i).getMember());
+
+			int[] adminIds = new int[admins.size()];
+			for (int i = 0; i < adminIds.length; ++i)
+				adminIds[i] = this.getOrAssignAccountId(admins.get(i).getAdmin());
+
+			Arrays.sort(memberIds);
+			Arrays.sort(adminIds);
+
+			GroupEntry entry = new GroupEntry(memberIds, adminIds, this.accountIdGeneration);
+
+			// Only cache if no changes were committed while loading, as we might have missed them
+			if (loadVersion == this.version)
+				this.entriesByGroupId.put(groupId, entry);
+
+			return entry;
+		}
+	}
+
+	/** Returns account ID for address, or -1 if address isn't in any cached group */
+	private synchronized int getAccountId(String address) {
+		Integer accountId = this.accountIdsByAddress.get(address);
+		return accountId != null ? accountId : -1;
+	}
+
+	private int getOrAssignAccountId(String address) {
+		Integer accountId = this.accountIdsByAddress.get(address);
+		if (accountId != null)
+			return accountId;
+
+		accountId = this.addressesByAccountId.size();
+		this.accountIdsByAddress.put(address, accountId);
+		this.addressesByAccountId.add(address);
+		return accountId;
+	}
+
+	private void logChange(int accountId) {
+		int index = this.changeLogCount % CHANGE_LOG_SIZE;
+		this.changeLogVersions[index] = this.version;
+		this.changeLogAccountIds[index] = accountId;
+		++this.changeLogCount;
+	}
+
+	// Updates
+
+	/**
+	 * Applies repository session's membership changes, after they have been committed.
+	 */
+	public synchronized void applyCommitted(PendingChanges pendingChanges) {
+		if (pendingChanges.changes.isEmpty())
+			return;
+
+		++this.version;
+
+		for (Change change : pendingChanges.changes) {
+			if (change.type == ChangeType.REMOVE_ALL) {
+				this.entriesByGroupId.clear();
+				this.logChange(ALL_ACCOUNTS);
+				continue;
+			}
+
+			if (change.type == ChangeType.REMOVE_GROUP) {
+				this.entriesByGroupId.remove(change.groupId);
+				this.logChange(ALL_ACCOUNTS);
+				continue;
+			}
+
+			int accountId = this.getOrAssignAccountId(change.address);
+
+			if (change.type == ChangeType.ADD_MEMBER || change.type == ChangeType.REMOVE_MEMBER)
+				this.logChange(accountId);
+
+			// Groups that aren't cached will be loaded with this change when next needed
+			GroupEntry entry = this.entriesByGroupId.get(change.groupId);
+			if (entry == null)
+				continue;
+
+			switch (change.type) {
+				case ADD_MEMBER:
+					entry = new GroupEntry(with(entry.memberIds, accountId), entry.adminIds, entry.accountIdGeneration);
+					break;
+
+				case REMOVE_MEMBER:
+					entry = new GroupEntry(without(entry.memberIds, accountId), entry.adminIds, entry.accountIdGeneration);
+					break;
+
+				case ADD_ADMIN:
+					entry = new GroupEntry(entry.memberIds, with(entry.adminIds, accountId), entry.accountIdGeneration);
+					break;
+
+				case REMOVE_ADMIN:
+					entry = new GroupEntry(entry.memberIds, without(entry.adminIds, accountId), entry.accountIdGeneration);
+					break;
+
+				default:
+					break;
+			}
+
+			this.entriesByGroupId.put(change.groupId, entry);
+		}
+	}
+
+	private enum ChangeType {
+		ADD_MEMBER, REMOVE_MEMBER, ADD_ADMIN, REMOVE_ADMIN, REMOVE_GROUP, REMOVE_ALL
+	}
+
+	private static class Change {
+		private final ChangeType type;
+		private final int groupId;
+		private final String address;
+
+		private Change(ChangeType type, int groupId, String address) {
+			this.type = type;
+			this.groupId = groupId;
+			this.address = address;
+		}
+	}
+
+	/**
+	 * Membership changes made by one repository session, not yet committed.
+	 * <p>
+	 * Not thread-safe, like the repository session itself.
+	 */
+	public static class PendingChanges {
+		private final List<Change> changes = new ArrayList<>();
+		/** Number of changes when each savepoint was set */
+		private final Deque<Integer> savepointSizes = new ArrayDeque<>();
+
+		public void addMember(int groupId, String address) {
+			this.changes.add(new Change(ChangeType.ADD_MEMBER, groupId, address));
+		}
+
+		public void removeMember(int groupId, String address) {
+			this.changes.add(new Change(ChangeType.REMOVE_MEMBER, groupId, address));
+		}
+
+		public void addAdmin(int groupId, String address) {
+			this.changes.add(new Change(ChangeType.ADD_ADMIN, groupId, address));
+		}
+
+		public void removeAdmin(int groupId, String address) {
+			this.changes.add(new Change(ChangeType.REMOVE_ADMIN, groupId, address));
+		}
+
+		public void removeGroup(int groupId) {
+			this.changes.add(new Change(ChangeType.REMOVE_GROUP, groupId, null));
+		}
+
+		/** For when affected group isn't known */
+		public void removeAll() {
+			this.changes.add(new Change(ChangeType.REMOVE_ALL, 0, null));
+		}
+
+		/** Whether group's membership has been changed, so cached membership doesn't apply to this session */
+		public boolean isGroupModified(int groupId) {
+			for (Change change : this.changes)
+				if (change.groupId == groupId || change.type == ChangeType.REMOVE_ALL)
+					return true;
+
+			return false;
+		}
+
+		public boolean isEmpty() {
+			return this.changes.isEmpty();
+		}
+
+		public void setSavepoint() {
+			this.savepointSizes.push(this.changes.size());
+		}
+
+		public void rollbackToSavepoint() {
+			Integer size = this.savepointSizes.poll();
+			if (size == null)
+				return;
+
+			this.changes.subList(size, this.changes.size()).clear();
+		}
+
+		public void clear() {
+			this.changes.clear();
+			this.savepointSizes.clear();
+		}
+	}
+
+	// Sorted int array helpers
+
+	private static boolean contains(int[] sortedIds, int id) {
+		return id >= 0 && Arrays.binarySearch(sortedIds, id) >= 0;
+	}
+
+	private static int[] with(int[] sortedIds, int id) {
+		int index = Arrays.binarySearch(sortedIds, id);
+		if (index >= 0)
+			return sortedIds;
+
+		int insertionPoint = -index - 1;
+		int[] newIds = new int[sortedIds.length + 1];
+		System.arraycopy(sortedIds, 0, newIds, 0, insertionPoint);
+		newIds[insertionPoint] = id;
+		System.arraycopy(sortedIds, insertionPoint, newIds, insertionPoint + 1, sortedIds.length - insertionPoint);
+		return newIds;
+	}
+
+	private static int[] without(int[] sortedIds, int id) {
+		int index = Arrays.binarySearch(sortedIds, id);
+		if (index < 0)
+			return sortedIds;
+
+		if (sortedIds.length == 1)
+			return NO_ACCOUNTS;
+
+		int[] newIds = new int[sortedIds.length - 1];
+		System.arraycopy(sortedIds, 0, newIds, 0, index);
+		System.arraycopy(sortedIds, index + 1, newIds, index, sortedIds.length - index - 1);
+		return newIds;
+	}
+
+}
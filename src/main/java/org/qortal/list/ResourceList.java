@@ -15,7 +15,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class ResourceList {
 
@@ -24,6 +26,13 @@ public class ResourceList {
     private String name;
     private List<String> list = Collections.synchronizedList(new ArrayList<>());
 
+    /**
+     * Immutable copies of list's items, exact and case-folded, for lookups without scanning the list.
+     * Replaced whenever the list is modified.
+     */
+    private volatile Set<String> items = Collections.emptySet();
+    private volatile Set<String> foldedItems = Collections.emptySet();
+
     /**
      * ResourceList
      * Creates or updates a list for the purpose of tracking resources on the Qortal network
@@ -74,7 +83,7 @@ public class ResourceList {
         writer.close();
     }
 
-    private boolean load() throws IOException {
+    private synchronized boolean load() throws IOException {
         Path path = this.getFilePath();
         File resourceListFile = new File(path.toString());
         if (!resourceListFile.exists()) {
@@ -83,7 +92,8 @@ public class ResourceList {
 
         try {
             String jsonString = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
-            this.list = ResourceList.listFromJSONString(jsonString);
+            this.list = Collections.synchronizedList(ResourceList.listFromJSONString(jsonString));
+            this.rebuildLookups();
         } catch (IOException e) {
             throw new IOException(String.format("Couldn't read contents from file %s", path.toString()));
         }
@@ -103,45 +113,82 @@ public class ResourceList {
 
     /* List management */
 
-    public void add(String resource) {
+    public synchronized void add(String resource) {
         if (resource == null || this.list == null) {
             return;
         }
         if (!this.contains(resource, true)) {
             this.list.add(resource);
+            this.rebuildLookups();
         }
     }
 
-    public void remove(String resource) {
+    public synchronized void remove(String resource) {
         if (resource == null || this.list == null) {
             return;
         }
-        this.list.remove(resource);
+        if (this.list.remove(resource)) {
+            this.rebuildLookups();
+        }
     }
 
-    public void clear() {
+    public synchronized void clear() {
         if (this.list == null) {
             return;
         }
         this.list.clear();
+        this.rebuildLookups();
     }
 
     public boolean contains(String resource, boolean caseSensitive) {
-        if (resource == null || this.list == null) {
+        if (resource == null) {
             return false;
         }
 
         if (caseSensitive) {
-            return this.list.contains(resource);
+            return this.items.contains(resource);
         }
         else {
-            return this.list.stream().anyMatch(resource::equalsIgnoreCase);
+            return this.foldedItems.contains(ResourceList.foldCase(resource));
+        }
+    }
+
+    /** Returns immutable set of list's items, case-folded using {@link #foldCase(String)}. */
+    public Set<String> getFoldedItems() {
+        return this.foldedItems;
+    }
+
+    private void rebuildLookups() {
+        Set<String> items = new HashSet<>();
+        Set<String> foldedItems = new HashSet<>();
+
+        synchronized (this.list) {
+            for (String item : this.list) {
+                items.add(item);
+                foldedItems.add(ResourceList.foldCase(item));
+            }
         }
+
+        this.items = Collections.unmodifiableSet(items);
+        this.foldedItems = Collections.unmodifiableSet(foldedItems);
     }
 
 
     /* Utils */
 
+    /**
+     * Returns resource with each character case-folded, such that two folded strings
+     * are equal when {@link String#equalsIgnoreCase(String)} would be true
+     * (for characters outside the supplementary planes, at least).
+     */
+    public static String foldCase(String resource) {
+        char[] chars = resource.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
     public static String listToJSONString(List<String> list) {
         if (list == null) {
             return null;
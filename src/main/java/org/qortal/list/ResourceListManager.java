@@ -10,7 +10,9 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ResourceListManager {
 
@@ -19,6 +21,70 @@ public class ResourceListManager {
     private static ResourceListManager instance;
     private List<ResourceList> lists = Collections.synchronizedList(new ArrayList<>());
 
+    /** Combined prefilter for all lists with a given name prefix, e.g. "blockedNames", built on demand */
+    private final Map<String, PrefixFilter> prefixFilters = new ConcurrentHashMap<>();
+    private final Object prefixFiltersLock = new Object();
+
+    /**
+     * Lists sharing a name prefix, with a bloom filter over all of their case-folded items,
+     * so that most items can be ruled out without checking each list.
+     */
+    private static class PrefixFilter {
+        private static final int BITS_PER_ITEM = 10;
+        private static final int HASH_COUNT = 4;
+
+        private final List<ResourceList> lists;
+        private final long[] bits;
+        private final int bitMask;
+
+        private PrefixFilter(List<ResourceList> lists) {
+            this.lists = lists;
+
+            int itemCount = 0;
+            for (ResourceList list : lists) {
+                itemCount += list.getFoldedItems().size();
+            }
+
+            // Power of two, so bit index is just a mask
+            int bitCount = Integer.highestOneBit(Math.max(64, itemCount * BITS_PER_ITEM - 1)) << 1;
+            this.bits = new long[bitCount / 64];
+            this.bitMask = bitCount - 1;
+
+            for (ResourceList list : lists) {
+                for (String foldedItem : list.getFoldedItems()) {
+                    int hash = foldedItem.hashCode();
+                    int step = secondHash(hash);
+                    for (int i = 0; i < HASH_COUNT; i++, hash += step) {
+                        int bitIndex = hash & this.bitMask;
+                        this.bits[bitIndex >>> 6] |= 1L << bitIndex;
+                    }
+                }
+            }
+        }
+
+        /** Returns false if no list contains item, ignoring case; true if some list might. */
+        private boolean mightContain(String item) {
+            if (this.lists.isEmpty()) {
+                return false;
+            }
+
+            int hash = ResourceList.foldCase(item).hashCode();
+            int step = secondHash(hash);
+            for (int i = 0; i < HASH_COUNT; i++, hash += step) {
+                int bitIndex = hash & this.bitMask;
+                if ((this.bits[bitIndex >>> 6] & (1L << bitIndex)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int secondHash(int hash) {
+            // Odd, so successive probes cover every bit
+            return Integer.rotateLeft(hash * 0x9E3779B9, 16) | 1;
+        }
+    }
+
 
     public ResourceListManager() {
         this.lists = this.fetchLists();
@@ -75,6 +141,7 @@ public class ResourceListManager {
         try {
             ResourceList list = new ResourceList(listName);
             this.lists.add(list);
+            this.listsChanged();
             return list;
 
         } catch (IOException e) {
@@ -87,15 +154,36 @@ public class ResourceListManager {
     private List<ResourceList> getListsByPrefix(String listNamePrefix) {
         List<ResourceList> lists = new ArrayList<>();
 
-        for (ResourceList list : this.lists) {
-            if (list != null && list.getName() != null && list.getName().startsWith(listNamePrefix)) {
-                lists.add(list);
+        synchronized (this.lists) {
+            for (ResourceList list : this.lists) {
+                if (list != null && list.getName() != null && list.getName().startsWith(listNamePrefix)) {
+                    lists.add(list);
+                }
             }
         }
 
         return lists;
     }
 
+    private PrefixFilter getPrefixFilter(String listNamePrefix) {
+        PrefixFilter prefixFilter = this.prefixFilters.get(listNamePrefix);
+        if (prefixFilter != null) {
+            return prefixFilter;
+        }
+
+        // Built under lock, so that it can't be cached after a concurrent listsChanged()
+        synchronized (this.prefixFiltersLock) {
+            return this.prefixFilters.computeIfAbsent(listNamePrefix, prefix -> new PrefixFilter(this.getListsByPrefix(prefix)));
+        }
+    }
+
+    /** Must be called after any list's items change, or a list is added */
+    private void listsChanged() {
+        synchronized (this.prefixFiltersLock) {
+            this.prefixFilters.clear();
+        }
+    }
+
     public boolean addToList(String listName, String item, boolean save) {
         ResourceList list = this.getList(listName);
         if (list == null) {
@@ -104,6 +192,7 @@ public class ResourceListManager {
 
         try {
             list.add(item);
+            this.listsChanged();
             if (save) {
                 list.save();
             }
@@ -123,6 +212,7 @@ public class ResourceListManager {
 
         try {
             list.remove(item);
+            this.listsChanged();
 
             if (save) {
                 list.save();
@@ -144,8 +234,16 @@ public class ResourceListManager {
     }
 
     public boolean listWithPrefixContains(String listNamePrefix, String item, boolean caseSensitive) {
-        List<ResourceList> lists = getListsByPrefix(listNamePrefix);
-        for (ResourceList list : lists) {
+        if (item == null) {
+            return false;
+        }
+
+        PrefixFilter prefixFilter = this.getPrefixFilter(listNamePrefix);
+        if (!prefixFilter.mightContain(item)) {
+            return false;
+        }
+
+        for (ResourceList list : prefixFilter.lists) {
             if (list.contains(item, caseSensitive)) {
                 return true;
             }
@@ -164,6 +262,7 @@ public class ResourceListManager {
         } catch (IOException e) {
             LOGGER.info("Unable to save list {} - reverting back to last saved state", list);
             list.revert();
+            this.listsChanged();
         }
     }
 
@@ -173,6 +272,7 @@ public class ResourceListManager {
             return;
         }
         list.revert();
+        this.listsChanged();
     }
 
     public String getJSONStringForList(String listName) {
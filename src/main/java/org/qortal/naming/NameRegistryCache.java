@@ -0,0 +1,488 @@
+package org.qortal.naming;
+
+import org.qortal.repository.DataException;
+import org.qortal.repository.NameRepository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * In-memory registry of every registered name's owner, and each owner's names and primary name,
+ * as committed to the repository.
+ * <p>
+ * Owner addresses are interned to integer owner IDs, shared by all of that owner's names,
+ * and each owner's names are held in registration order, so name and owner lookups
+ * don't need any repository access.
+ * <p>
+ * The whole registry is loaded on first use. After that, it is only updated with changes
+ * that have been committed: each repository session collects its name changes, i.e. those made
+ * while processing or orphaning REGISTER_NAME, UPDATE_NAME, BUY_NAME, SELL_NAME, etc., in
+ * {@link PendingChanges}, which are applied by {@link #applyCommitted(PendingChanges)} after
+ * a successful commit, or dropped on rollback. Until then, that session should read names
+ * from the repository instead.
+ */
+public class NameRegistryCache {
+
+	private static final String[] NO_NAMES = new String[0];
+
+	private static final NameRegistryCache instance = new NameRegistryCache();
+
+	/** Registry contents. Guarded by lock on {@link NameRegistryCache} instance. */
+	private static class Registry {
+		private final Map<String, Integer> ownerIdsByAddress = new HashMap<>();
+		private final List<String> addressesByOwnerId = new ArrayList<>();
+		/** Owner's names, in registration order */
+		private final List<String[]> namesByOwnerId = new ArrayList<>();
+		/** Owner's primary name, or null */
+		private final List<String> primaryNamesByOwnerId = new ArrayList<>();
+		/** Values are shared with ownerIdsByAddress, so each owner ID is only boxed once */
+		private final Map<String, Integer> ownerIdsByName = new HashMap<>();
+
+		private Registry(Map<String, String> ownersByName, Map<String, String> primaryNamesByOwner) {
+			for (Map.Entry<String, String> entry : ownersByName.entrySet())
+				this.putName(entry.getKey(), entry.getValue());
+
+			for (Map.Entry<String, String> entry : primaryNamesByOwner.entrySet())
+				this.setPrimaryName(entry.getKey(), entry.getValue());
+		}
+
+		private Integer getOrAssignOwnerId(String owner) {
+			Integer ownerId = this.ownerIdsByAddress.get(owner);
+			if (ownerId != null)
+				return ownerId;
+
+			ownerId = this.addressesByOwnerId.size();
+			this.ownerIdsByAddress.put(owner, ownerId);
+			this.addressesByOwnerId.add(owner);
+			this.namesByOwnerId.add(NO_NAMES);
+			this.primaryNamesByOwnerId.add(null);
+			return ownerId;
+		}
+
+		private String getOwner(String name) {
+			Integer ownerId = this.ownerIdsByName.get(name);
+			return ownerId != null ? this.addressesByOwnerId.get(ownerId) : null;
+		}
+
+		private String[] getNames(String owner) {
+			Integer ownerId = this.ownerIdsByAddress.get(owner);
+			return ownerId != null ? this.namesByOwnerId.get(ownerId) : NO_NAMES;
+		}
+
+		private String getPrimaryName(String owner) {
+			Integer ownerId = this.ownerIdsByAddress.get(owner);
+			return ownerId != null ? this.primaryNamesByOwnerId.get(ownerId) : null;
+		}
+
+		private void putName(String name, String owner) {
+			Integer ownerId = this.getOrAssignOwnerId(owner);
+			Integer previousOwnerId = this.ownerIdsByName.put(name, ownerId);
+
+			if (ownerId.equals(previousOwnerId))
+				return;
+
+			if (previousOwnerId != null)
+				this.namesByOwnerId.set(previousOwnerId, without(this.namesByOwnerId.get(previousOwnerId), name));
+
+			String[] names = this.namesByOwnerId.get(ownerId);
+			String[] newNames = Arrays.copyOf(names, names.length + 1);
+			newNames[names.length] = name;
+			this.namesByOwnerId.set(ownerId, newNames);
+		}
+
+		private void removeName(String name) {
+			Integer ownerId = this.ownerIdsByName.remove(name);
+			if (ownerId != null)
+				this.namesByOwnerId.set(ownerId, without(this.namesByOwnerId.get(ownerId), name));
+
+			// Repository cascades name deletion to PrimaryNames, whoever the owner was
+			Collections.replaceAll(this.primaryNamesByOwnerId, name, null);
+		}
+
+		private void setPrimaryName(String owner, String name) {
+			this.primaryNamesByOwnerId.set(this.getOrAssignOwnerId(owner), name);
+		}
+
+		private void removePrimaryName(String owner) {
+			Integer ownerId = this.ownerIdsByAddress.get(owner);
+			if (ownerId != null)
+				this.primaryNamesByOwnerId.set(ownerId, null);
+		}
+
+		private void clearPrimaryNames() {
+			Collections.fill(this.primaryNamesByOwnerId, null);
+		}
+
+		private void apply(Change change) {
+			switch (change.type) {
+				case PUT_NAME:
+					this.putName(change.name, change.owner);
+					break;
+
+				case REMOVE_NAME:
+					this.removeName(change.name);
+					break;
+
+				case SET_PRIMARY_NAME:
+					this.setPrimaryName(change.owner, change.name);
+					break;
+
+				case REMOVE_PRIMARY_NAME:
+					this.removePrimaryName(change.owner);
+					break;
+
+				case CLEAR_PRIMARY_NAMES:
+					this.clearPrimaryNames();
+					break;
+			}
+		}
+
+		/** Returns descriptions of any differences between this registry and <tt>other</tt>. */
+		private List<String> compare(Registry other) {
+			List<String> differences = new ArrayList<>();
+
+			for (String name : union(this.ownerIdsByName.keySet(), other.ownerIdsByName.keySet())) {
+				String owner = this.getOwner(name);
+				String otherOwner = other.getOwner(name);
+
+				if (!Objects.equals(owner, otherOwner))
+					differences.add(String.format("name %s owned by %s, but repository has %s", name, owner, otherOwner));
+			}
+
+			for (String owner : union(this.ownerIdsByAddress.keySet(), other.ownerIdsByAddress.keySet())) {
+				List<String> names = Arrays.asList(this.getNames(owner));
+				List<String> otherNames = Arrays.asList(other.getNames(owner));
+
+				if (names.size() != otherNames.size() || !names.containsAll(otherNames))
+					differences.add(String.format("owner %s has names %s, but repository has %s", owner, names, otherNames));
+
+				String primaryName = this.getPrimaryName(owner);
+				String otherPrimaryName = other.getPrimaryName(owner);
+
+				if (!Objects.equals(primaryName, otherPrimaryName))
+					differences.add(String.format("owner %s has primary name %s, but repository has %s", owner, primaryName, otherPrimaryName));
+			}
+
+			return differences;
+		}
+	}
+
+	private Registry registry = null;
+
+	/** Incremented whenever cache is cleared, so that registry loaded from a previous repository isn't used */
+	private long generation = 0;
+
+	/** Committed changes seen while registry is being loaded, or null if not loading */
+	private List<Change> changesDuringLoad = null;
+
+	/** Only one thread loads registry at a time */
+	private final Object loadLock = new Object();
+
+	private NameRegistryCache() {
+	}
+
+	public static NameRegistryCache getInstance() {
+		return instance;
+	}
+
+	// Lookups
+
+	public boolean nameExists(NameRepository nameRepository, String name) throws DataException {
+		return this.getOwner(nameRepository, name) != null;
+	}
+
+	/** Returns name's owner, or null if name isn't registered. */
+	public String getOwner(NameRepository nameRepository, String name) throws DataException {
+		Registry registry = this.getRegistry(nameRepository);
+
+		synchronized (this) {
+			return registry.getOwner(name);
+		}
+	}
+
+	/** Returns owner's names, in registration order. */
+	public List<String> getNames(NameRepository nameRepository, String owner) throws DataException {
+		Registry registry = this.getRegistry(nameRepository);
+
+		synchronized (this) {
+			return List.of(registry.getNames(owner));
+		}
+	}
+
+	/** Returns owner's primary name, or null if owner has no primary name. */
+	public String getPrimaryName(NameRepository nameRepository, String owner) throws DataException {
+		Registry registry = this.getRegistry(nameRepository);
+
+		synchronized (this) {
+			return registry.getPrimaryName(owner);
+		}
+	}
+
+	/**
+	 * Returns primary names of owners.
+	 *
+	 * @return map of owner to primary name, without entries for owners that have no primary name
+	 */
+	public Map<String, String> getPrimaryNames(NameRepository nameRepository, Collection<String> owners) throws DataException {
+		return this.getDisplayNames(nameRepository, true, owners);
+	}
+
+	/**
+	 * Returns owners' display names, e.g. as shown alongside chat messages.
+	 * <p>
+	 * This is the owner's primary name or, before primary names were introduced,
+	 * the first name it registered.
+	 *
+	 * @param usePrimaryNames whether to use primary names, i.e. after multiple-names-per-account feature trigger
+	 * @return map of owner to name, without entries for owners that have no name
+	 */
+	public Map<String, String> getDisplayNames(NameRepository nameRepository, boolean usePrimaryNames, Collection<String> owners) throws DataException {
+		Registry registry = this.getRegistry(nameRepository);
+		Map<String, String> names = new HashMap<>();
+
+		synchronized (this) {
+			for (String owner : owners) {
+				if (owner == null)
+					continue;
+
+				String name;
+				if (usePrimaryNames) {
+					name = registry.getPrimaryName(owner);
+				} else {
+					String[] ownerNames = registry.getNames(owner);
+					name = ownerNames.length > 0 ? ownerNames[0] : null;
+				}
+
+				if (name != null)
+					names.put(owner, name);
+			}
+		}
+
+		return names;
+	}
+
+	/** Returns snapshot of every registered name's owner. */
+	public Map<String, String> getOwnersByName(NameRepository nameRepository) throws DataException {
+		Registry registry = this.getRegistry(nameRepository);
+
+		synchronized (this) {
+			Map<String, String> ownersByName = new HashMap<>(registry.ownerIdsByName.size() * 4 / 3 + 1);
+
+			for (Map.Entry<String, Integer> entry : registry.ownerIdsByName.entrySet())
+				ownersByName.put(entry.getKey(), registry.addressesByOwnerId.get(entry.getValue()));
+
+			return ownersByName;
+		}
+	}
+
+	/**
+	 * Compares cached registry with repository, replacing cached registry if they differ.
+	 *
+	 * @return descriptions of any differences found
+	 */
+	public List<String> verify(NameRepository nameRepository) throws DataException {
+		synchronized (this.loadLock) {
+			return this.load(nameRepository, loadedRegistry -> {
+				if (this.registry == null)
+					// Nothing cached yet
+					return Collections.<String>emptyList();
+
+				List<String> differences = this.registry.compare(loadedRegistry);
+				if (!differences.isEmpty())
+					this.registry = loadedRegistry;
+
+				return differences;
+			});
+		}
+	}
+
+	/**
+	 * Clears cache, e.g. because repository has been replaced.
+	 */
+	public synchronized void clear() {
+		this.registry = null;
+		++this.generation;
+	}
+
+	private Registry getRegistry(NameRepository nameRepository) throws DataException {
+		synchronized (this) {
+			if (this.registry != null)
+				return this.registry;
+		}
+
+		synchronized (this.loadLock) {
+			long loadGeneration;
+
+			synchronized (this) {
+				// Another thread might have loaded registry while we waited
+				if (this.registry != null)
+					return this.registry;
+
+				loadGeneration = this.generation;
+			}
+
+			return this.load(nameRepository, loadedRegistry -> {
+				if (this.generation == loadGeneration)
+					this.registry = loadedRegistry;
+
+				return loadedRegistry;
+			});
+		}
+	}
+
+	/**
+	 * Loads registry from repository, then passes it to <tt>onLoaded</tt> while holding lock.
+	 * <p>
+	 * Changes committed while loading are applied to loaded registry too,
+	 * as repository reads may or may not have included them.
+	 * As each change just sets (or removes) a value, applying it again is harmless.
+	 * <p>
+	 * Caller must hold {@link #loadLock}.
+	 */
+	private <T> T load(NameRepository nameRepository, Function<Registry, T> onLoaded) throws DataException {
+		synchronized (this) {
+			this.changesDuringLoad = new ArrayList<>();
+		}
+
+		try {
+			Map<String, String> ownersByName = nameRepository.getAllNameOwners();
+			Map<String, String> primaryNamesByOwner = nameRepository.getAllPrimaryNames();
+			Registry loadedRegistry = new Registry(ownersByName, primaryNamesByOwner);
+
+			synchronized (this) {
+				for (Change change : this.changesDuringLoad)
+					loadedRegistry.apply(change);
+
+				return onLoaded.apply(loadedRegistry);
+			}
+		} finally {
+			synchronized (this) {
+				this.changesDuringLoad = null;
+			}
+		}
+	}
+
+	// Updates
+
+	/**
+	 * Applies repository session's name changes, after they have been committed.
+	 */
+	public synchronized void applyCommitted(PendingChanges pendingChanges) {
+		if (pendingChanges.changes.isEmpty())
+			return;
+
+		if (this.changesDuringLoad != null)
+			this.changesDuringLoad.addAll(pendingChanges.changes);
+
+		// Registry will be loaded with these changes when next needed
+		if (this.registry == null)
+			return;
+
+		for (Change change : pendingChanges.changes)
+			this.registry.apply(change);
+	}
+
+	private enum ChangeType {
+		PUT_NAME, REMOVE_NAME, SET_PRIMARY_NAME, REMOVE_PRIMARY_NAME, CLEAR_PRIMARY_NAMES
+	}
+
+	private static class Change {
+		private final ChangeType type;
+		private final String name;
+		private final String owner;
+
+		private Change(ChangeType type, String name, String owner) {
+			this.type = type;
+			this.name = name;
+			this.owner = owner;
+		}
+	}
+
+	/**
+	 * Name changes made by one repository session, not yet committed.
+	 * <p>
+	 * Not thread-safe, like the repository session itself.
+	 */
+	public static class PendingChanges {
+		private final List<Change> changes = new ArrayList<>();
+		/** Number of changes when each savepoint was set */
+		private final Deque<Integer> savepointSizes = new ArrayDeque<>();
+
+		/** Name registered, or existing name saved, e.g. with new owner */
+		public void putName(String name, String owner) {
+			this.changes.add(new Change(ChangeType.PUT_NAME, name, owner));
+		}
+
+		public void removeName(String name) {
+			this.changes.add(new Change(ChangeType.REMOVE_NAME, name, null));
+		}
+
+		public void setPrimaryName(String owner, String name) {
+			this.changes.add(new Change(ChangeType.SET_PRIMARY_NAME, name, owner));
+		}
+
+		public void removePrimaryName(String owner) {
+			this.changes.add(new Change(ChangeType.REMOVE_PRIMARY_NAME, null, owner));
+		}
+
+		public void clearPrimaryNames() {
+			this.changes.add(new Change(ChangeType.CLEAR_PRIMARY_NAMES, null, null));
+		}
+
+		public boolean isEmpty() {
+			return this.changes.isEmpty();
+		}
+
+		public void setSavepoint() {
+			this.savepointSizes.push(this.changes.size());
+		}
+
+		public void rollbackToSavepoint() {
+			Integer size = this.savepointSizes.poll();
+			if (size == null)
+				return;
+
+			this.changes.subList(size, this.changes.size()).clear();
+		}
+
+		public void clear() {
+			this.changes.clear();
+			this.savepointSizes.clear();
+		}
+	}
+
+	// Helpers
+
+	private static String[] without(String[] names, String name) {
+		int index = Arrays.asList(names).indexOf(name);
+		if (index < 0)
+			return names;
+
+		if (names.length == 1)
+			return NO_NAMES;
+
+		String[] newNames = new String[names.length - 1];
+		System.arraycopy(names, 0, newNames, 0, index);
+		System.arraycopy(names, index + 1, newNames, index, names.length - index - 1);
+		return newNames;
+	}
+
+	private static Collection<String> union(Collection<String> a, Collection<String> b) {
+		List<String> union = new ArrayList<>(a);
+		for (String s : b)
+			if (!a.contains(s))
+				union.add(s);
+
+		return union;
+	}
+
+}
@@ -1,6 +1,5 @@
 package org.qortal.network;
 
-import com.google.common.primitives.Bytes;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.controller.Controller;
@@ -420,7 +419,7 @@ public enum Handshake {
 					sharedSecret = Network.getInstance().getSharedSecret(peersPublicKey);
 					break;
 			}
-			final byte[] expectedData = Crypto.digest(Bytes.concat(sharedSecret, ourChallenge));
+			final byte[] expectedData = Crypto.digest(sharedSecret, ourChallenge);
 
 			byte[] data = responseMessage.getData();
 			if (!Arrays.equals(expectedData, data)) {
@@ -483,7 +482,7 @@ public enum Handshake {
 					sharedSecret = Network.getInstance().getSharedSecret(peersPublicKey);
 					break;
 			}
-			final byte[] data = Crypto.digest(Bytes.concat(sharedSecret, peersChallenge));
+			final byte[] data = Crypto.digest(sharedSecret, peersChallenge);
 
 			// We do this in a new thread as it can take a while...
 			responseExecutor.execute(() -> {
@@ -10,6 +10,8 @@ package org.qortal.network.helper;
  *
  * <p>It is separate from PeerSpeedTracker which tracks transfer time estimates.
  *
+ * <p>It also tracks an estimate of download throughput, used to size per-peer request windows.
+ *
  * <p>Not thread-safe — external synchronization is required if used concurrently.
  *
  * @since v5.0.4
@@ -22,6 +24,7 @@ public class PeerDownloadSpeedTracker {
     private Long averageRoundTripTime = null; // Exponential moving average of RTT (null = no data yet)
     private Long lastUpdateTime = null; // Timestamp of last RTT measurement
     private Long lastAssignedTime = null; // Timestamp when work was last assigned to this peer
+    private Double averageThroughput = null; // Exponential moving average of bytes per second (null = no data yet)
     
     // EMA smoothing factor: 0.3 means new samples get 30% weight, old average gets 70%
     // This balances responsiveness (adapts to changes) with stability (filters noise)
@@ -55,6 +58,9 @@ public class PeerDownloadSpeedTracker {
      * @param ms The time in milliseconds taken to transfer the {@code bytes}.
      */
     public void addNewTimeMetric(int bytes, int ms) {
+        long now = System.currentTimeMillis();
+        updateThroughput(bytes, ms, now);
+
         if (averageRoundTripTime == null) {
             // First measurement - use as initial value
             averageRoundTripTime = (long) ms;
@@ -63,7 +69,30 @@ public class PeerDownloadSpeedTracker {
             // This smooths out spikes while still adapting to changing conditions
             averageRoundTripTime = (long)(ALPHA * ms + (1 - ALPHA) * averageRoundTripTime);
         }
-        lastUpdateTime = System.currentTimeMillis();
+        lastUpdateTime = now;
+    }
+
+    /**
+     * Updates the throughput estimate.
+     *
+     * Requests are pipelined, so a single round trip includes time spent queued behind
+     * earlier requests. While a peer is busy, the interval between consecutive completions
+     * is a better measure of how fast it is actually delivering data, so that is used
+     * whenever a previous (non-idle) measurement exists.
+     */
+    private void updateThroughput(int bytes, int ms, long now) {
+        long interval = ms;
+        if (lastUpdateTime != null && now - lastUpdateTime <= IDLE_RESET_MS) {
+            interval = Math.min(ms, now - lastUpdateTime);
+        }
+        // Avoid dividing by zero when several chunks complete in the same millisecond
+        double sample = bytes * 1000.0 / Math.max(1L, interval);
+
+        if (averageThroughput == null) {
+            averageThroughput = sample;
+        } else {
+            averageThroughput = ALPHA * sample + (1 - ALPHA) * averageThroughput;
+        }
     }
 
     /**
@@ -92,6 +121,7 @@ public class PeerDownloadSpeedTracker {
         // requests from being excluded for longer than 10 seconds
         if (measurementIdle || assignmentIdle) {
             averageRoundTripTime = null;
+            averageThroughput = null;
             lastUpdateTime = null;
             lastAssignedTime = null;
             return null;
@@ -99,5 +129,19 @@ public class PeerDownloadSpeedTracker {
         
         return averageRoundTripTime;
     }
+
+    /**
+     * Returns the smoothed download throughput (exponential moving average),
+     * subject to the same idle reset as {@link #getLatestRoundTripTime()}.
+     *
+     * @return the average throughput in bytes per second, or null if no recent data
+     */
+    public Double getLatestThroughput() {
+        // Shares the idle reset logic, so stale throughput is cleared along with the RTT
+        if (getLatestRoundTripTime() == null) {
+            return null;
+        }
+        return averageThroughput;
+    }
 }
 
@@ -154,11 +154,13 @@ public abstract class Message {
 	}
 
 	protected static byte[] generateChecksum(byte[] data) {
-		return Arrays.copyOfRange(Crypto.digest(data), 0, CHECKSUM_LENGTH);
+		return generateChecksum(ByteBuffer.wrap(data));
 	}
 
 	protected static byte[] generateChecksum(ByteBuffer dataBuffer) {
-		return Arrays.copyOfRange(Crypto.digest(dataBuffer), 0, CHECKSUM_LENGTH);
+		byte[] checksum = new byte[CHECKSUM_LENGTH];
+		Crypto.digest(dataBuffer, checksum, 0, CHECKSUM_LENGTH);
+		return checksum;
 	}
 
 	public void checkValidOutgoing() throws MessageException {
@@ -0,0 +1,142 @@
+package org.qortal.notification;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Time-wheel of recently delivered notifications, used to suppress duplicates within a time window.
+ * <p>
+ * The window is split into {@code slots} ticks. Each key is recorded in the slot for the tick
+ * it was seen in, and whole slots are expired as the wheel turns, so expiry costs are proportional
+ * to the number of expiring keys, not the number of keys held.
+ * <p>
+ * Keys are 64-bit hashes of (session, dedup key) (see {@link #key(int, String)}), so no per-session
+ * maps or strings are retained, and a session's entries simply age out after it closes.
+ * A hash collision would, at worst, suppress one notification to one session.
+ * <p>
+ * Granularity is one tick, so a key is treated as a duplicate for between
+ * {@code windowMillis - tickMillis} and {@code windowMillis} after it was recorded.
+ */
+public class DedupTimeWheel {
+
+    private static final int INITIAL_SLOT_CAPACITY = 16;
+
+    private final long tickMillis;
+    private final int slotCount;
+
+    /** Keys recorded in each slot, valid up to {@code slotSizes[slot]} */
+    private final long[][] slotKeys;
+    private final int[] slotSizes;
+
+    /** key -> tick when recorded */
+    private final Map<Long, Long> tickByKey = new HashMap<>();
+
+    private long currentTick = Long.MIN_VALUE;
+
+    public DedupTimeWheel(long windowMillis, int slots) {
+        if (windowMillis <= 0 || slots <= 0)
+            throw new IllegalArgumentException("Window and slot count must be positive");
+
+        this.slotCount = slots;
+        this.tickMillis = (windowMillis + slots - 1) / slots;
+        this.slotKeys = new long[slots][];
+        this.slotSizes = new int[slots];
+
+        for (int i = 0; i < slots; ++i)
+            this.slotKeys[i] = new long[INITIAL_SLOT_CAPACITY];
+    }
+
+    /**
+     * Records key, unless it was already recorded within the window.
+     *
+     * @return {@code true} if key was recorded (i.e. not a duplicate), {@code false} otherwise
+     */
+    public synchronized boolean markIfAbsent(long key, long now) {
+        this.advance(now);
+
+        Long seenTick = this.tickByKey.get(key);
+        if (seenTick != null && this.currentTick - seenTick < this.slotCount)
+            return false;
+
+        this.tickByKey.put(key, this.currentTick);
+
+        int slot = (int) Math.floorMod(this.currentTick, (long) this.slotCount);
+        if (this.slotSizes[slot] == this.slotKeys[slot].length) {
+            long[] grown = new long[this.slotKeys[slot].length * 2];
+            System.arraycopy(this.slotKeys[slot], 0, grown, 0, this.slotSizes[slot]);
+            this.slotKeys[slot] = grown;
+        }
+        this.slotKeys[slot][this.slotSizes[slot]++] = key;
+
+        return true;
+    }
+
+    /**
+     * Turns wheel to current time, expiring keys older than the window.
+     */
+    public synchronized void advance(long now) {
+        long tick = Math.floorDiv(now, this.tickMillis);
+
+        if (this.currentTick == Long.MIN_VALUE || tick - this.currentTick >= this.slotCount) {
+            // First use, or every slot has expired
+            this.tickByKey.clear();
+            for (int slot = 0; slot < this.slotCount; ++slot)
+                this.clearSlot(slot);
+
+            this.currentTick = tick;
+            return;
+        }
+
+        // Ignore clock going backwards
+        while (this.currentTick < tick) {
+            ++this.currentTick;
+
+            // Slot for new tick holds keys recorded one full turn ago
+            int slot = (int) Math.floorMod(this.currentTick, (long) this.slotCount);
+            long[] keys = this.slotKeys[slot];
+            for (int i = 0; i < this.slotSizes[slot]; ++i) {
+                Long seenTick = this.tickByKey.get(keys[i]);
+                if (seenTick != null && this.currentTick - seenTick >= this.slotCount)
+                    this.tickByKey.remove(keys[i]);
+            }
+
+            this.clearSlot(slot);
+        }
+    }
+
+    /** Number of keys currently held */
+    public synchronized int size() {
+        return this.tickByKey.size();
+    }
+
+    private void clearSlot(int slot) {
+        // Release memory after a burst
+        if (this.slotKeys[slot].length > INITIAL_SLOT_CAPACITY * 64)
+            this.slotKeys[slot] = new long[INITIAL_SLOT_CAPACITY];
+
+        this.slotSizes[slot] = 0;
+    }
+
+    /**
+     * Returns 64-bit key for (session, dedup key) pair.
+     */
+    public static long key(int sessionId, String dedupKey) {
+        // FNV-1a over dedup key's chars
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < dedupKey.length(); ++i) {
+            hash ^= dedupKey.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= sessionId * 0x9e3779b97f4a7c15L;
+
+        // Final avalanche (from MurmurHash3's fmix64)
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
@@ -14,61 +14,51 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Central notification dispatch system.
  *
- * <h3>Multi-level index layout</h3>
- * <pre>
- *   eventIndex:  event  -&gt;  Map&lt;serviceKey, Map&lt;nameKey, List&lt;SubscriptionEntry&gt;&gt;&gt;
- * </pre>
- *
- * <p>For {@code RESOURCE_PUBLISHED}, the service and name keys from the subscription's
- * {@link ResourcePublishedFilter} are used so the index pre-narrows candidates before
- * the full filter evaluation.  For all other events the generic {@code filters} map
- * values for {@code "service"} and {@code "name"} are used as before.
- *
- * <p>Subscriptions without a service/name restriction are stored under the
- * wildcard key {@value #WILDCARD} so they are always visited.
+ * <h3>Subscription index</h3>
+ * <p>Subscriptions are compiled into a {@link SubscriptionMatcher} whenever a session's
+ * rules change. For {@code RESOURCE_PUBLISHED} it is keyed by service, name and
+ * identifier prefix from the subscription's {@link ResourcePublishedFilter}, so only
+ * subscriptions that could match an event are evaluated. For all other events the
+ * generic {@code filters} map values for {@code "service"} and {@code "name"} are used.
  *
  * <h3>Deduplication</h3>
  * <p>{@code RESOURCE_PUBLISHED} can fire from multiple places (unconfirmed import,
- * block processing, metadata pipeline).  A per-session seen-set with a
- * {@value #DEDUP_WINDOW_MS}ms TTL ensures each unique
- * {@code service+name+identifier} is delivered at most once per window per session.
+ * block processing, metadata pipeline).  A {@link DedupTimeWheel} with a
+ * {@value #DEDUP_WINDOW_MS}ms window ensures each unique transaction (or
+ * {@code service+name+identifier}) is delivered at most once per window per session.
+ * Generic events with a dedup key share the same wheel.
  */
 public class NotificationManager {
 
     private static final Logger LOGGER = LogManager.getLogger(NotificationManager.class);
 
-    static final String WILDCARD = "*";
-
     /** Notifications for the same resource within this window are deduplicated per session. */
     private static final long DEDUP_WINDOW_MS = 5 * 60 * 1000L; // 5 minutes
+    /** Number of slots in dedup time-wheel, i.e. expiry granularity of 10 seconds */
+    private static final int DEDUP_WHEEL_SLOTS = 30;
 
     private static NotificationManager instance;
 
     // session -> SessionSubscriptions
     private final Map<Session, SessionSubscriptions> sessions = new ConcurrentHashMap<>();
 
-    /**
-     * Three-level index: event type -> service -> name -> entries.
-     */
-    private final Map<String, Map<String, Map<String, List<SubscriptionEntry>>>> eventIndex = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSessionId = new AtomicInteger();
 
-    /**
-     * Deduplication map: session -> (resourceKey -> lastSentTimestamp).
-     * resourceKey = "service\0name\0identifier"
-     */
-    private final Map<Session, Map<String, Long>> recentlySent = new ConcurrentHashMap<>();
+    /** Compiled index of all sessions' subscriptions. */
+    private final SubscriptionMatcher matcher = new SubscriptionMatcher();
 
     /**
-     * Per-session dedup map for generic events: session -> ("type\0dedupKey" -> lastDispatchedTimestamp).
+     * Recently sent notifications, keyed by (session, "event\0dedupKey").
      * Prevents the same transaction firing multiple notifications to the same session when process() is
      * called more than once for the same tx (e.g. sync + group-approval paths).
-     * Entries are removed on session close and swept periodically for entries older than DEDUP_WINDOW_MS.
+     * Entries expire after DEDUP_WINDOW_MS, including those of closed sessions.
      */
-    private final Map<Session, Map<String, Long>> recentlySentEvents = new ConcurrentHashMap<>();
+    private final DedupTimeWheel recentlySent = new DedupTimeWheel(DEDUP_WINDOW_MS, DEDUP_WHEEL_SLOTS);
 
     private NotificationManager() {
     }
@@ -85,16 +75,14 @@ public class NotificationManager {
     // -------------------------------------------------------------------------
 
     public void onSessionOpen(Session session, String address) {
-        sessions.put(session, new SessionSubscriptions(session, address, Collections.emptyList()));
+        sessions.put(session, new SessionSubscriptions(session, nextSessionId.incrementAndGet(), address, Collections.emptyList()));
         LOGGER.debug("Notification session opened: address={}", address);
     }
 
     public void onSessionClose(Session session) {
         SessionSubscriptions subs = sessions.remove(session);
         if (subs != null) {
-            removeFromIndex(session);
-            recentlySent.remove(session);
-            recentlySentEvents.remove(session);
+            matcher.removeSession(session);
             LOGGER.debug("Notification session closed: address={}", subs.address);
         }
     }
@@ -104,18 +92,12 @@ public class NotificationManager {
     // -------------------------------------------------------------------------
 
     /**
-     * Sweeps stale dedup entries older than {@link #DEDUP_WINDOW_MS} from both
-     * per-session dedup maps. Call periodically (e.g. every minute) to bound
-     * memory for long-lived sessions.
+     * Expires dedup entries older than {@link #DEDUP_WINDOW_MS}. Entries are also
+     * expired as notifications are sent, but calling this periodically (e.g. every
+     * minute) releases memory when the node is quiet.
      */
     public void cleanupOldEntries(long now) {
-        long cutoff = now - DEDUP_WINDOW_MS;
-        for (Map<String, Long> sessionMap : recentlySentEvents.values()) {
-            sessionMap.entrySet().removeIf(e -> e.getValue() < cutoff);
-        }
-        for (Map<String, Long> sessionMap : recentlySent.values()) {
-            sessionMap.entrySet().removeIf(e -> e.getValue() < cutoff);
-        }
+        recentlySent.advance(now);
     }
 
     // -------------------------------------------------------------------------
@@ -133,9 +115,8 @@ public class NotificationManager {
             return;
         }
 
-        removeFromIndex(session);
         subs.subscriptions = new ArrayList<>(rules);
-        addToIndex(session, rules);
+        matcher.setSubscriptions(session, rules);
 
         LOGGER.debug("Subscriptions updated for address={}: {} rules", subs.address, rules.size());
     }
@@ -171,9 +152,8 @@ public class NotificationManager {
             }
         }
 
-        removeFromIndex(session);
         subs.subscriptions = merged;
-        addToIndex(session, merged);
+        matcher.setSubscriptions(session, merged);
 
         LOGGER.debug("Subscriptions merged for address={}: {} total rules", subs.address, merged.size());
     }
@@ -216,61 +196,12 @@ public class NotificationManager {
             }
         }
 
-        removeFromIndex(session);
         subs.subscriptions = kept;
-        addToIndex(session, kept);
+        matcher.setSubscriptions(session, kept);
 
         LOGGER.debug("Subscriptions removed for address={}: {} remaining", subs.address, kept.size());
     }
 
-    // -------------------------------------------------------------------------
-    // Index management
-    // -------------------------------------------------------------------------
-
-    private void addToIndex(Session session, List<NotificationSubscription> rules) {
-        for (NotificationSubscription rule : rules) {
-            String event = rule.getEvent();
-            if (event == null || event.isEmpty()) {
-                continue;
-            }
-
-            String serviceKey;
-            String nameKey;
-
-            if ("RESOURCE_PUBLISHED".equals(event) && rule.getResourceFilter() != null) {
-                ResourcePublishedFilter f = rule.getResourceFilter();
-                serviceKey = (f.service != null && !f.service.isEmpty()) ? f.service : WILDCARD;
-                if (f.names != null && f.names.size() == 1) {
-                    nameKey = f.names.get(0).toLowerCase();
-                } else {
-                    nameKey = WILDCARD;
-                }
-            } else {
-                serviceKey = filterValue(rule.getFilters(), "service");
-                nameKey    = filterValue(rule.getFilters(), "name");
-            }
-
-            SubscriptionEntry entry = new SubscriptionEntry(session, rule);
-
-            eventIndex
-                .computeIfAbsent(event,      e -> new ConcurrentHashMap<>())
-                .computeIfAbsent(serviceKey, s -> new ConcurrentHashMap<>())
-                .computeIfAbsent(nameKey,    n -> Collections.synchronizedList(new ArrayList<>()))
-                .add(entry);
-
-        }
-    }
-
-    private void removeFromIndex(Session session) {
-        for (Map<String, Map<String, List<SubscriptionEntry>>> serviceMap : eventIndex.values()) {
-            for (Map<String, List<SubscriptionEntry>> nameMap : serviceMap.values()) {
-                for (List<SubscriptionEntry> entries : nameMap.values()) {
-                    entries.removeIf(e -> e.session == session);
-                }
-            }
-        }
-    }
-
     // -------------------------------------------------------------------------
     // Event dispatch — RESOURCE_PUBLISHED (typed)
     // -------------------------------------------------------------------------
@@ -285,59 +216,8 @@ public class NotificationManager {
      * and will be evaluated later via {@link #processResourcePublished(ResourcePublishedEvent)}.
      */
     public void processResourcePublishedEarly(ResourcePublishedEvent ev) {
-        Map<String, Map<String, List<SubscriptionEntry>>> serviceMap = eventIndex.get("RESOURCE_PUBLISHED");
-        if (serviceMap == null) {
-            return;
-        }
-
-        List<String> serviceKeys = new ArrayList<>(2);
-        if (ev.service != null && !ev.service.isEmpty()) {
-            serviceKeys.add(ev.service);
-        }
-        serviceKeys.add(WILDCARD);
-
-        List<String> nameKeys = new ArrayList<>(2);
-        if (ev.name != null && !ev.name.isEmpty()) {
-            nameKeys.add(ev.name.toLowerCase());
-        }
-        nameKeys.add(WILDCARD);
-
-
-        for (String serviceKey : serviceKeys) {
-            Map<String, List<SubscriptionEntry>> nameMap = serviceMap.get(serviceKey);
-            if (nameMap == null) {
-                continue;
-            }
-
-            for (String nameKey : nameKeys) {
-                List<SubscriptionEntry> entries = nameMap.get(nameKey);
-                if (entries == null) {
-                    continue;
-                }
-
-                for (SubscriptionEntry entry : new ArrayList<>(entries)) {
-                    if (!entry.session.isOpen()) {
-                        continue;
-                    }
-
-                    if (entry.rule.isExpired()) {
-                        entries.remove(entry);
-                        continue;
-                    }
-
-                    ResourcePublishedFilter filter = entry.rule.getResourceFilter();
-
-                    if (filter != null && filter.requiresMetadata()) {
-                        continue;
-                    }
-
-                    boolean matched = filter == null || filter.matches(ev);
-
-                    if (matched) {
-                        sendResourcePublished(entry.session, ev, entry.rule);
-                    }
-                }
-            }
+        for (SubscriptionEntry entry : matcher.matchResourcePublished(ev, true)) {
+            sendResourcePublished(entry.session, ev, entry.rule);
         }
     }
 
@@ -348,52 +228,10 @@ public class NotificationManager {
      * Called after the cache pipeline completes and metadata is available in the event.
      */
     public void processResourcePublished(ResourcePublishedEvent ev) {
-        Map<String, Map<String, List<SubscriptionEntry>>> serviceMap = eventIndex.get("RESOURCE_PUBLISHED");
-        if (serviceMap == null) {
-            return;
-        }
-
-        // Narrow by service (exact match + wildcard)
-        List<String> serviceKeys = new ArrayList<>(2);
-        if (ev.service != null && !ev.service.isEmpty()) {
-            serviceKeys.add(ev.service);
-        }
-        serviceKeys.add(WILDCARD);
-
-        // Narrow by name (exact lower-case + wildcard)
-        List<String> nameKeys = new ArrayList<>(2);
-        if (ev.name != null && !ev.name.isEmpty()) {
-            nameKeys.add(ev.name.toLowerCase());
-        }
-        nameKeys.add(WILDCARD);
-
-        for (String serviceKey : serviceKeys) {
-            Map<String, List<SubscriptionEntry>> nameMap = serviceMap.get(serviceKey);
-            if (nameMap == null) continue;
-
-            for (String nameKey : nameKeys) {
-                List<SubscriptionEntry> entries = nameMap.get(nameKey);
-                if (entries == null) continue;
-
-                for (SubscriptionEntry entry : new ArrayList<>(entries)) {
-                    if (!entry.session.isOpen()) continue;
-
-                    if (entry.rule.isExpired()) {
-                        entries.remove(entry);
-                        continue;
-                    }
-
-                    ResourcePublishedFilter filter = entry.rule.getResourceFilter();
-
-                    // Skip subscriptions that don't need metadata — they were already
-                    // notified by the early fire in ArbitraryTransaction.process().
-                    if (filter != null && !filter.requiresMetadata()) continue;
-
-                    if (filter == null || filter.matches(ev)) {
-                        sendResourcePublished(entry.session, ev, entry.rule);
-                    }
-                }
-            }
+        // Subscriptions that don't need metadata aren't matched here — they were already
+        // notified by the early fire in ArbitraryTransaction.process().
+        for (SubscriptionEntry entry : matcher.matchResourcePublished(ev, false)) {
+            sendResourcePublished(entry.session, ev, entry.rule);
         }
     }
 
@@ -411,74 +249,28 @@ public class NotificationManager {
                 ? event.getType() + "\0" + event.getDedupKey()
                 : null;
 
-        Map<String, Map<String, List<SubscriptionEntry>>> serviceMap = eventIndex.get(event.getType());
-        if (serviceMap == null) {
-            return;
-        }
-
         long now = System.currentTimeMillis();
-        String eventService = event.getData().get("service");
-        String eventName    = event.getData().get("name");
-
-        List<String> serviceKeys = new ArrayList<>(2);
-        if (eventService != null && !eventService.isEmpty()) {
-            serviceKeys.add(eventService);
-        }
-        serviceKeys.add(WILDCARD);
-
-        for (String serviceKey : serviceKeys) {
-            Map<String, List<SubscriptionEntry>> nameMap = serviceMap.get(serviceKey);
-            if (nameMap == null) continue;
 
-            List<String> nameKeys = new ArrayList<>(2);
-            if (eventName != null && !eventName.isEmpty()) {
-                nameKeys.add(eventName);
-            }
-            nameKeys.add(WILDCARD);
-
-            for (String nameKey : nameKeys) {
-                List<SubscriptionEntry> entries = nameMap.get(nameKey);
-                if (entries == null) continue;
-
-                for (SubscriptionEntry entry : new ArrayList<>(entries)) {
-                    if (entry.session.isOpen() && matchesGeneric(entry.rule.getFilters(), event.getData())) {
-                        if (entry.rule.isExpired()) {
-                            entries.remove(entry);
-                            continue;
-                        }
-
-                        // Per-session dedup: skip if this session already received this event within the window
-                        if (dedupEventKey != null) {
-                            Map<String, Long> sessionSeen = recentlySentEvents
-                                    .computeIfAbsent(entry.session, s -> new ConcurrentHashMap<>());
-                            Long last = sessionSeen.put(dedupEventKey, now);
-                            if (last != null && (now - last) < DEDUP_WINDOW_MS) {
-                                continue;
-                            }
-                        }
-
-                        sendGenericNotification(entry.session, event, entry.rule);
-                    }
-                }
+        for (SubscriptionEntry entry : matcher.matchEvent(event)) {
+            // Per-session dedup: skip if this session already received this event within the window
+            if (dedupEventKey != null && !markSent(entry.session, dedupEventKey, now)) {
+                continue;
             }
+
+            sendGenericNotification(entry.session, event, entry.rule);
         }
     }
 
-    // -------------------------------------------------------------------------
-    // Filter matching — generic
-    // -------------------------------------------------------------------------
+    /**
+     * Records that a notification with the given dedup key is being sent to session.
+     *
+     * @return false if session was already sent this notification within the dedup window, or has closed
+     */
+    private boolean markSent(Session session, String dedupKey, long now) {
+        SessionSubscriptions subs = sessions.get(session);
+        if (subs == null) return false;
 
-    private boolean matchesGeneric(Map<String, String> filters, Map<String, String> data) {
-        if (filters == null || filters.isEmpty()) {
-            return true;
-        }
-        for (Map.Entry<String, String> filter : filters.entrySet()) {
-            String dataValue = data.get(filter.getKey());
-            if (dataValue == null || !dataValue.equalsIgnoreCase(filter.getValue())) {
-                return false;
-            }
-        }
-        return true;
+        return recentlySent.markIfAbsent(DedupTimeWheel.key(subs.id, dedupKey), now);
     }
 
     // -------------------------------------------------------------------------
@@ -491,15 +283,11 @@ public class NotificationManager {
         // Deduplicate: skip if we sent a notification for this tx signature to this session within the window.
         // Falls back to service+name+identifier if signature is unavailable.
         String dedupKey = ev.signature != null
-                ? ev.signature
-                : ev.service + "\0" + ev.name + "\0" + ev.identifier;
-        long now = System.currentTimeMillis();
-        Map<String, Long> seen = recentlySent.computeIfAbsent(session, s -> new ConcurrentHashMap<>());
-        Long lastSent = seen.get(dedupKey);
-        if (lastSent != null && (now - lastSent) < DEDUP_WINDOW_MS) {
+                ? "RESOURCE_PUBLISHED\0" + ev.signature
+                : "RESOURCE_PUBLISHED\0" + ev.service + "\0" + ev.name + "\0" + ev.identifier;
+        if (!markSent(session, dedupKey, System.currentTimeMillis())) {
             return;
         }
-        seen.put(dedupKey, now);
 
         try {
             StringBuilder sb = new StringBuilder(256);
@@ -865,12 +653,6 @@ public class NotificationManager {
     // Helpers
     // -------------------------------------------------------------------------
 
-    private static String filterValue(Map<String, String> filters, String key) {
-        if (filters == null) return WILDCARD;
-        String v = filters.get(key);
-        return (v != null && !v.isEmpty()) ? v : WILDCARD;
-    }
-
     static String jsonEscape(String s) {
         if (s == null) return "";
         return s.replace("\\", "\\\\")
@@ -201,21 +201,12 @@ public class ResourcePublishedFilter {
 
         // --- followedOnly ---
         if (Boolean.TRUE.equals(followedOnly)) {
-            List<String> followed = ListUtils.followedNames();
-            if (followed == null || followed.isEmpty()) return false;
-            String lName = ev.name != null ? ev.name.toLowerCase() : "";
-            boolean isFollowed = followed.stream().anyMatch(f -> f.toLowerCase().equals(lName));
-            if (!isFollowed) return false;
+            if (ev.name == null || !ListUtils.isFollowingName(ev.name)) return false;
         }
 
         // --- excludeBlocked ---
         if (Boolean.TRUE.equals(excludeBlocked)) {
-            List<String> blocked = ListUtils.blockedNames();
-            if (blocked != null && !blocked.isEmpty()) {
-                String lName = ev.name != null ? ev.name.toLowerCase() : "";
-                boolean isBlocked = blocked.stream().anyMatch(b -> b.toLowerCase().equals(lName));
-                if (isBlocked) return false;
-            }
+            if (ev.name != null && ListUtils.isNameBlocked(ev.name)) return false;
         }
 
         return true;
@@ -10,11 +10,14 @@ import java.util.List;
 public class SessionSubscriptions {
 
     public final Session session;
+    /** Small unique ID, used for compact dedup keys. */
+    public final int id;
     public final String address;
     public volatile List<NotificationSubscription> subscriptions;
 
-    public SessionSubscriptions(Session session, String address, List<NotificationSubscription> subscriptions) {
+    public SessionSubscriptions(Session session, int id, String address, List<NotificationSubscription> subscriptions) {
         this.session = session;
+        this.id = id;
         this.address = address;
         this.subscriptions = subscriptions;
     }
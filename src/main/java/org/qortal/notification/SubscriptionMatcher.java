@@ -0,0 +1,725 @@
+package org.qortal.notification;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.qortal.utils.ListUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compiled index of notification subscriptions.
+ * <p>
+ * Subscriptions are compiled once, when they are set, so that matching an event only visits
+ * subscriptions that could match, and the remaining checks compare against pre-lowercased values.
+ *
+ * <h3>RESOURCE_PUBLISHED</h3>
+ * <pre>
+ *   service (lower-case, or any)  -&gt;  name (lower-case, or any)  -&gt;  identifier-prefix trie
+ * </pre>
+ * <p>A subscription with several {@code names} is indexed under each name. Subscriptions with a
+ * prefix-matched {@code identifier} are placed at the trie node for that identifier, so only the nodes
+ * along the event's identifier are visited. Everything else is placed at the trie's root.
+ * <p>Subscriptions that need metadata are kept in a separate index from those that don't, so the
+ * early (on transaction arrival) and late (after metadata is cached) dispatches only visit their own.
+ * Subscriptions without a {@link ResourcePublishedFilter} are in both, as before.
+ *
+ * <h3>Other events</h3>
+ * <pre>
+ *   event type  -&gt;  service (lower-case, or any)  -&gt;  name (lower-case, or any)  -&gt;  entries
+ * </pre>
+ * <p>Filters are flattened into arrays for the remaining (case-insensitive) comparisons.
+ */
+public class SubscriptionMatcher {
+
+    private static final String RESOURCE_PUBLISHED = "RESOURCE_PUBLISHED";
+
+    // -------------------------------------------------------------------------
+    // Compiled RESOURCE_PUBLISHED subscriptions
+    // -------------------------------------------------------------------------
+
+    /** Lower-cased view of an event, with lazily evaluated followed/blocked lookups shared by all subscriptions. */
+    private static class ResourceEvent {
+        final ResourcePublishedEvent ev;
+        final String service;
+        final String name;
+        final String identifier;
+        final String title;
+        final String description;
+
+        private Boolean isFollowed;
+        private Boolean isBlocked;
+
+        ResourceEvent(ResourcePublishedEvent ev) {
+            this.ev = ev;
+            this.service = lowerCase(ev.service);
+            this.name = lowerCase(ev.name);
+            this.identifier = lowerCase(ev.identifier);
+            this.title = lowerCase(ev.title);
+            this.description = lowerCase(ev.description);
+        }
+
+        boolean isFollowed() {
+            if (this.isFollowed == null)
+                this.isFollowed = this.ev.name != null && ListUtils.isFollowingName(this.ev.name);
+
+            return this.isFollowed;
+        }
+
+        boolean isBlocked() {
+            if (this.isBlocked == null)
+                this.isBlocked = this.ev.name != null && ListUtils.isNameBlocked(this.ev.name);
+
+            return this.isBlocked;
+        }
+    }
+
+    /** Compiled form of a RESOURCE_PUBLISHED subscription, checking whatever its index position doesn't guarantee. */
+    private static class ResourceEntry {
+        final SubscriptionEntry entry;
+        final boolean early;
+        final boolean late;
+
+        // Index position
+        final String serviceKey;
+        final List<String> nameKeys;
+        final String identifierKey;
+
+        // Remaining checks, with lower-cased patterns (null if absent)
+        final boolean hasFilter;
+        final boolean prefix;
+        final boolean defaultResource;
+        final String query;
+        final String identifier;
+        final String title;
+        final String description;
+        final String[] keywords;
+        final Long after;
+        final Long before;
+        final boolean followedOnly;
+        final boolean excludeBlocked;
+
+        boolean removed = false;
+
+        ResourceEntry(SubscriptionEntry entry, ResourcePublishedFilter filter) {
+            this.entry = entry;
+
+            if (filter == null) {
+                // Matches everything, but only within service/name from generic filters, as before
+                Map<String, String> filters = entry.rule.getFilters();
+                this.early = true;
+                this.late = true;
+                this.serviceKey = filterKey(filters, "service");
+                String nameKey = filterKey(filters, "name");
+                this.nameKeys = Collections.singletonList(nameKey);
+                this.identifierKey = "";
+
+                this.hasFilter = false;
+                this.prefix = false;
+                this.defaultResource = false;
+                this.query = null;
+                this.identifier = null;
+                this.title = null;
+                this.description = null;
+                this.keywords = null;
+                this.after = null;
+                this.before = null;
+                this.followedOnly = false;
+                this.excludeBlocked = false;
+                return;
+            }
+
+            boolean requiresMetadata = filter.requiresMetadata();
+            this.early = !requiresMetadata;
+            this.late = requiresMetadata;
+
+            this.hasFilter = true;
+            this.prefix = Boolean.TRUE.equals(filter.prefix);
+            this.defaultResource = filter.defaultResource;
+            this.query = lowerCasePattern(filter.query);
+            this.title = lowerCasePattern(filter.title);
+            this.description = lowerCasePattern(filter.description);
+            this.after = filter.after;
+            this.before = filter.before;
+            this.followedOnly = Boolean.TRUE.equals(filter.followedOnly);
+            this.excludeBlocked = Boolean.TRUE.equals(filter.excludeBlocked);
+
+            if (filter.keywords != null && !filter.keywords.isEmpty()) {
+                this.keywords = new String[filter.keywords.size()];
+                for (int i = 0; i < this.keywords.length; ++i)
+                    this.keywords[i] = filter.keywords.get(i).trim().toLowerCase();
+            } else {
+                this.keywords = null;
+            }
+
+            this.serviceKey = lowerCasePattern(filter.service);
+
+            if (filter.names != null && !filter.names.isEmpty()) {
+                Set<String> lowerCaseNames = new LinkedHashSet<>();
+                for (String n : filter.names)
+                    if (n != null)
+                        lowerCaseNames.add(n.toLowerCase());
+
+                // If there are no usable names, nothing can match, so this isn't indexed at all
+                this.nameKeys = new ArrayList<>(lowerCaseNames);
+            } else {
+                this.nameKeys = Collections.singletonList(null);
+            }
+
+            String lIdentifier = lowerCasePattern(filter.identifier);
+            if (lIdentifier != null && this.prefix) {
+                // Guaranteed by trie position
+                this.identifierKey = lIdentifier;
+                this.identifier = null;
+            } else {
+                this.identifierKey = "";
+                this.identifier = lIdentifier;
+            }
+        }
+
+        boolean matches(ResourceEvent rev) {
+            if (!this.hasFilter)
+                return true;
+
+            // Service and names are guaranteed by index position
+
+            if (this.defaultResource && rev.identifier != null && !rev.identifier.isEmpty() && !rev.identifier.equals("default"))
+                return false;
+
+            if (this.query != null) {
+                if (this.defaultResource) {
+                    if (!this.stringMatches(rev.name, this.query))
+                        return false;
+                } else if (!this.stringMatches(rev.name, this.query)
+                        && !this.stringMatches(rev.identifier, this.query)
+                        && !this.stringMatches(rev.title, this.query)
+                        && !this.stringMatches(rev.description, this.query)) {
+                    return false;
+                }
+            }
+
+            if (this.identifier != null && !this.stringMatches(rev.identifier, this.identifier))
+                return false;
+
+            if (this.title != null && !this.stringMatches(rev.title, this.title))
+                return false;
+
+            if (this.description != null && !this.stringMatches(rev.description, this.description))
+                return false;
+
+            if (this.keywords != null) {
+                String lDesc = rev.description != null ? rev.description : "";
+                boolean anyKeyword = false;
+                for (String keyword : this.keywords)
+                    if (lDesc.contains(keyword)) {
+                        anyKeyword = true;
+                        break;
+                    }
+
+                if (!anyKeyword)
+                    return false;
+            }
+
+            Long created = rev.ev.created;
+            if (this.after != null && created != null && created <= this.after)
+                return false;
+            if (this.before != null && created != null && created >= this.before)
+                return false;
+
+            if (this.followedOnly && !rev.isFollowed())
+                return false;
+
+            if (this.excludeBlocked && rev.isBlocked())
+                return false;
+
+            return true;
+        }
+
+        private boolean stringMatches(String lField, String pattern) {
+            if (lField == null)
+                return false;
+
+            return this.prefix ? lField.startsWith(pattern) : lField.contains(pattern);
+        }
+    }
+
+    /** Node in identifier-prefix trie */
+    private static class TrieNode {
+        final List<ResourceEntry> entries = new ArrayList<>(1);
+        Map<Character, TrieNode> children;
+
+        boolean isEmpty() {
+            return this.entries.isEmpty() && (this.children == null || this.children.isEmpty());
+        }
+    }
+
+    /** Name level of RESOURCE_PUBLISHED index */
+    private static class NameIndex {
+        final TrieNode anyName = new TrieNode();
+        final Map<String, TrieNode> byName = new HashMap<>();
+
+        boolean isEmpty() {
+            return this.anyName.isEmpty() && this.byName.isEmpty();
+        }
+    }
+
+    /** Service level of RESOURCE_PUBLISHED index */
+    private static class ResourceIndex {
+        final NameIndex anyService = new NameIndex();
+        final Map<String, NameIndex> byService = new HashMap<>();
+
+        void add(ResourceEntry resourceEntry) {
+            NameIndex nameIndex = resourceEntry.serviceKey == null
+                    ? this.anyService
+                    : this.byService.computeIfAbsent(resourceEntry.serviceKey, k -> new NameIndex());
+
+            for (String nameKey : resourceEntry.nameKeys) {
+                TrieNode node = nameKey == null
+                        ? nameIndex.anyName
+                        : nameIndex.byName.computeIfAbsent(nameKey, k -> new TrieNode());
+
+                String identifierKey = resourceEntry.identifierKey;
+                for (int i = 0; i < identifierKey.length(); ++i) {
+                    if (node.children == null)
+                        node.children = new HashMap<>();
+
+                    node = node.children.computeIfAbsent(identifierKey.charAt(i), c -> new TrieNode());
+                }
+
+                node.entries.add(resourceEntry);
+            }
+
+            if (resourceEntry.serviceKey != null && nameIndex.isEmpty())
+                // No usable names
+                this.byService.remove(resourceEntry.serviceKey);
+        }
+
+        void remove(ResourceEntry resourceEntry) {
+            NameIndex nameIndex = resourceEntry.serviceKey == null
+                    ? this.anyService
+                    : this.byService.get(resourceEntry.serviceKey);
+            if (nameIndex == null)
+                return;
+
+            for (String nameKey : resourceEntry.nameKeys) {
+                TrieNode root = nameKey == null ? nameIndex.anyName : nameIndex.byName.get(nameKey);
+                if (root == null)
+                    continue;
+
+                removeFromTrie(root, resourceEntry.identifierKey, 0, resourceEntry);
+
+                if (nameKey != null && root.isEmpty())
+                    nameIndex.byName.remove(nameKey);
+            }
+
+            if (resourceEntry.serviceKey != null && nameIndex.isEmpty())
+                this.byService.remove(resourceEntry.serviceKey);
+        }
+
+        private static void removeFromTrie(TrieNode node, String identifierKey, int depth, ResourceEntry resourceEntry) {
+            if (depth == identifierKey.length()) {
+                node.entries.remove(resourceEntry);
+                return;
+            }
+
+            if (node.children == null)
+                return;
+
+            Character c = identifierKey.charAt(depth);
+            TrieNode child = node.children.get(c);
+            if (child == null)
+                return;
+
+            removeFromTrie(child, identifierKey, depth + 1, resourceEntry);
+
+            if (child.isEmpty())
+                node.children.remove(c);
+        }
+
+        void collect(ResourceEvent rev, List<ResourceEntry> candidates) {
+            if (rev.service != null && !rev.service.isEmpty()) {
+                NameIndex nameIndex = this.byService.get(rev.service);
+                if (nameIndex != null)
+                    collect(nameIndex, rev, candidates);
+            }
+
+            collect(this.anyService, rev, candidates);
+        }
+
+        private static void collect(NameIndex nameIndex, ResourceEvent rev, List<ResourceEntry> candidates) {
+            if (rev.name != null && !rev.name.isEmpty()) {
+                TrieNode root = nameIndex.byName.get(rev.name);
+                if (root != null)
+                    collect(root, rev, candidates);
+            }
+
+            collect(nameIndex.anyName, rev, candidates);
+        }
+
+        private static void collect(TrieNode node, ResourceEvent rev, List<ResourceEntry> candidates) {
+            candidates.addAll(node.entries);
+
+            if (rev.identifier == null)
+                return;
+
+            // Visit nodes along event's identifier, i.e. subscriptions with identifier prefixes of it
+            for (int i = 0; i < rev.identifier.length() && node.children != null; ++i) {
+                node = node.children.get(rev.identifier.charAt(i));
+                if (node == null)
+                    return;
+
+                candidates.addAll(node.entries);
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Compiled generic subscriptions
+    // -------------------------------------------------------------------------
+
+    private static class GenericEntry {
+        final SubscriptionEntry entry;
+        final String event;
+        final String serviceKey;
+        final String nameKey;
+        final String[] filterKeys;
+        final String[] filterValues;
+
+        boolean removed = false;
+
+        GenericEntry(SubscriptionEntry entry) {
+            this.entry = entry;
+            this.event = entry.rule.getEvent();
+
+            Map<String, String> filters = entry.rule.getFilters();
+            this.serviceKey = filterKey(filters, "service");
+            this.nameKey = filterKey(filters, "name");
+
+            int filterCount = filters != null ? filters.size() : 0;
+            this.filterKeys = new String[filterCount];
+            this.filterValues = new String[filterCount];
+
+            if (filterCount > 0) {
+                int i = 0;
+                for (Map.Entry<String, String> filter : filters.entrySet()) {
+                    this.filterKeys[i] = filter.getKey();
+                    this.filterValues[i] = filter.getValue();
+                    ++i;
+                }
+            }
+        }
+
+        boolean matches(Map<String, String> data) {
+            for (int i = 0; i < this.filterKeys.length; ++i) {
+                String dataValue = data.get(this.filterKeys[i]);
+                if (dataValue == null || !dataValue.equalsIgnoreCase(this.filterValues[i]))
+                    return false;
+            }
+
+            return true;
+        }
+    }
+
+    /** Service and name levels of generic index, using {@code null} for "any" */
+    private static class GenericIndex {
+        final Map<String, Map<String, List<GenericEntry>>> byService = new HashMap<>();
+
+        void add(GenericEntry genericEntry) {
+            this.byService.computeIfAbsent(genericEntry.serviceKey, k -> new HashMap<>())
+                    .computeIfAbsent(genericEntry.nameKey, k -> new ArrayList<>(1))
+                    .add(genericEntry);
+        }
+
+        void remove(GenericEntry genericEntry) {
+            Map<String, List<GenericEntry>> byName = this.byService.get(genericEntry.serviceKey);
+            if (byName == null)
+                return;
+
+            List<GenericEntry> entries = byName.get(genericEntry.nameKey);
+            if (entries == null)
+                return;
+
+            entries.remove(genericEntry);
+
+            if (entries.isEmpty())
+                byName.remove(genericEntry.nameKey);
+            if (byName.isEmpty())
+                this.byService.remove(genericEntry.serviceKey);
+        }
+
+        void collect(String service, String name, List<GenericEntry> candidates) {
+            if (service != null && !service.isEmpty())
+                collect(this.byService.get(service.toLowerCase()), name, candidates);
+
+            collect(this.byService.get(null), name, candidates);
+        }
+
+        private static void collect(Map<String, List<GenericEntry>> byName, String name, List<GenericEntry> candidates) {
+            if (byName == null)
+                return;
+
+            if (name != null && !name.isEmpty()) {
+                List<GenericEntry> entries = byName.get(name.toLowerCase());
+                if (entries != null)
+                    candidates.addAll(entries);
+            }
+
+            List<GenericEntry> entries = byName.get(null);
+            if (entries != null)
+                candidates.addAll(entries);
+        }
+    }
+
+    private static class SessionEntries {
+        final List<ResourceEntry> resourceEntries = new ArrayList<>();
+        final List<GenericEntry> genericEntries = new ArrayList<>();
+    }
+
+    // -------------------------------------------------------------------------
+
+    private final ResourceIndex earlyResourceIndex = new ResourceIndex();
+    private final ResourceIndex lateResourceIndex = new ResourceIndex();
+    private final Map<String, GenericIndex> genericIndexes = new HashMap<>();
+    private final Map<Session, SessionEntries> entriesBySession = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Replaces session's subscriptions in index.
+     */
+    public void setSubscriptions(Session session, List<NotificationSubscription> rules) {
+        SessionEntries sessionEntries = new SessionEntries();
+
+        // Compile outside lock
+        for (NotificationSubscription rule : rules) {
+            String event = rule.getEvent();
+            if (event == null || event.isEmpty())
+                continue;
+
+            SubscriptionEntry entry = new SubscriptionEntry(session, rule);
+
+            if (RESOURCE_PUBLISHED.equals(event))
+                sessionEntries.resourceEntries.add(new ResourceEntry(entry, rule.getResourceFilter()));
+            else
+                sessionEntries.genericEntries.add(new GenericEntry(entry));
+        }
+
+        this.lock.writeLock().lock();
+        try {
+            this.removeSessionLocked(session);
+
+            for (ResourceEntry resourceEntry : sessionEntries.resourceEntries) {
+                if (resourceEntry.early)
+                    this.earlyResourceIndex.add(resourceEntry);
+                if (resourceEntry.late)
+                    this.lateResourceIndex.add(resourceEntry);
+            }
+
+            for (GenericEntry genericEntry : sessionEntries.genericEntries)
+                this.genericIndexes.computeIfAbsent(genericEntry.event, k -> new GenericIndex()).add(genericEntry);
+
+            this.entriesBySession.put(session, sessionEntries);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void removeSession(Session session) {
+        this.lock.writeLock().lock();
+        try {
+            this.removeSessionLocked(session);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void removeSessionLocked(Session session) {
+        SessionEntries sessionEntries = this.entriesBySession.remove(session);
+        if (sessionEntries == null)
+            return;
+
+        for (ResourceEntry resourceEntry : sessionEntries.resourceEntries)
+            this.removeLocked(resourceEntry);
+
+        for (GenericEntry genericEntry : sessionEntries.genericEntries)
+            this.removeLocked(genericEntry);
+    }
+
+    private void removeLocked(ResourceEntry resourceEntry) {
+        if (resourceEntry.removed)
+            return;
+
+        if (resourceEntry.early)
+            this.earlyResourceIndex.remove(resourceEntry);
+        if (resourceEntry.late)
+            this.lateResourceIndex.remove(resourceEntry);
+
+        resourceEntry.removed = true;
+    }
+
+    private void removeLocked(GenericEntry genericEntry) {
+        if (genericEntry.removed)
+            return;
+
+        GenericIndex genericIndex = this.genericIndexes.get(genericEntry.event);
+        if (genericIndex != null) {
+            genericIndex.remove(genericEntry);
+
+            if (genericIndex.byService.isEmpty())
+                this.genericIndexes.remove(genericEntry.event);
+        }
+
+        genericEntry.removed = true;
+    }
+
+    /**
+     * Returns subscriptions, on open sessions, matching {@code RESOURCE_PUBLISHED} event.
+     * <p>
+     * Expired subscriptions are removed from index.
+     *
+     * @param early if {@code true}, only subscriptions that don't require metadata,
+     *              otherwise only subscriptions that do (plus subscriptions without a filter in both cases)
+     */
+    public List<SubscriptionEntry> matchResourcePublished(ResourcePublishedEvent ev, boolean early) {
+        ResourceEvent rev = new ResourceEvent(ev);
+        List<ResourceEntry> candidates = new ArrayList<>();
+
+        this.lock.readLock().lock();
+        try {
+            (early ? this.earlyResourceIndex : this.lateResourceIndex).collect(rev, candidates);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+
+        List<SubscriptionEntry> matches = new ArrayList<>();
+        List<ResourceEntry> expired = null;
+
+        for (ResourceEntry candidate : candidates) {
+            SubscriptionEntry entry = candidate.entry;
+
+            if (!entry.session.isOpen())
+                continue;
+
+            if (entry.rule.isExpired()) {
+                if (expired == null)
+                    expired = new ArrayList<>();
+                expired.add(candidate);
+                continue;
+            }
+
+            if (candidate.matches(rev))
+                matches.add(entry);
+        }
+
+        if (expired != null) {
+            this.lock.writeLock().lock();
+            try {
+                for (ResourceEntry resourceEntry : expired)
+                    this.removeLocked(resourceEntry);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * Returns subscriptions, on open sessions, matching generic event.
+     * <p>
+     * Expired subscriptions are removed from index.
+     */
+    public List<SubscriptionEntry> matchEvent(NotificationEvent event) {
+        Map<String, String> data = event.getData();
+        List<GenericEntry> candidates = new ArrayList<>();
+
+        this.lock.readLock().lock();
+        try {
+            GenericIndex genericIndex = this.genericIndexes.get(event.getType());
+            if (genericIndex == null)
+                return Collections.emptyList();
+
+            genericIndex.collect(data.get("service"), data.get("name"), candidates);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+
+        List<SubscriptionEntry> matches = new ArrayList<>();
+        List<GenericEntry> expired = null;
+
+        for (GenericEntry candidate : candidates) {
+            SubscriptionEntry entry = candidate.entry;
+
+            if (!entry.session.isOpen() || !candidate.matches(data))
+                continue;
+
+            if (entry.rule.isExpired()) {
+                if (expired == null)
+                    expired = new ArrayList<>();
+                expired.add(candidate);
+                continue;
+            }
+
+            matches.add(entry);
+        }
+
+        if (expired != null) {
+            this.lock.writeLock().lock();
+            try {
+                for (GenericEntry genericEntry : expired)
+                    this.removeLocked(genericEntry);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+
+        return matches;
+    }
+
+    /** Number of indexed subscriptions, across all sessions */
+    public int getSubscriptionCount() {
+        this.lock.readLock().lock();
+        try {
+            int count = 0;
+            for (SessionEntries sessionEntries : this.entriesBySession.values())
+                for (ResourceEntry resourceEntry : sessionEntries.resourceEntries)
+                    if (!resourceEntry.removed)
+                        ++count;
+
+            for (SessionEntries sessionEntries : this.entriesBySession.values())
+                for (GenericEntry genericEntry : sessionEntries.genericEntries)
+                    if (!genericEntry.removed)
+                        ++count;
+
+            return count;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Helpers
+    // -------------------------------------------------------------------------
+
+    /** Lower-cased filter value, or {@code null} for "any" */
+    private static String filterKey(Map<String, String> filters, String key) {
+        if (filters == null)
+            return null;
+
+        return lowerCasePattern(filters.get(key));
+    }
+
+    /** Lower-cased pattern, or {@code null} if absent */
+    private static String lowerCasePattern(String pattern) {
+        return pattern != null && !pattern.isEmpty() ? pattern.toLowerCase() : null;
+    }
+
+    private static String lowerCase(String value) {
+        return value != null ? value.toLowerCase() : null;
+    }
+}
@@ -4,7 +4,9 @@ import org.qortal.data.at.ATData;
 import org.qortal.data.at.ATStateData;
 import org.qortal.utils.ByteArray;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface ATRepository {
@@ -116,6 +118,15 @@ public interface ATRepository {
 	 */
 	public List<ATStateData> getBlockATStatesAtHeight(int height) throws DataException;
 
+	/**
+	 * Returns full ATStateData, saved at given height, for ATs with any of passed code hashes.
+	 * <p>
+	 * AT states without state data (e.g. trimmed) are not included.
+	 *
+	 * @return AT states keyed by AT's code hash, empty map if none found
+	 */
+	public Map<ByteArray, List<ATStateData>> getATStatesAtHeightByCodeHash(int height, Collection<byte[]> codeHashes) throws DataException;
+
 
 	/** Rebuild the latest AT states cache, necessary for AT state trimming/pruning.
 	 * <p>
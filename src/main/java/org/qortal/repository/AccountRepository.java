@@ -1,8 +1,11 @@
 package org.qortal.repository;
 
 import org.qortal.data.account.*;
+import org.qortal.utils.ByteArray;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -202,6 +205,14 @@ public interface AccountRepository {
 
 	public RewardShareData getRewardShare(byte[] rewardSharePublicKey) throws DataException;
 
+	/**
+	 * Returns minting accounts of passed reward-shares, keyed by reward-share public key.
+	 * <p>
+	 * This is a one-shot, batch form of looking up each reward-share's minter account.
+	 * Reward-shares that don't exist, or whose minter has no account, are omitted.
+	 */
+	public Map<ByteArray, AccountData> getRewardShareMinterAccounts(Collection<byte[]> rewardSharePublicKeys) throws DataException;
+
 	public List<byte[]> getRewardSharePublicKeys() throws DataException;
 
 	public boolean isRewardSharePublicKey(byte[] publicKey) throws DataException;
@@ -212,6 +223,7 @@ public interface AccountRepository {
 	/** Returns number of active self-shares involving passed public key as the minting account only. */
 	public int countSelfShares(byte[] mintingAccountPublicKey) throws DataException;
 
+	/** Returns all reward-shares, sorted by reward-share public key, i.e. in reward-share index order. */
 	public List<RewardShareData> getRewardShares() throws DataException;
 
 	public List<RewardShareData> findRewardShares(List<String> mintingAccounts, List<String> recipientAccounts, List<String> involvedAddresses, Integer limit, Integer offset, Boolean reverse) throws DataException;
@@ -69,6 +69,9 @@ public interface AssetRepository {
 
 	public List<TradeData> getTrades(long haveAssetId, long wantAssetId, Integer limit, Integer offset, Boolean reverse) throws DataException;
 
+	/** Returns cursor over trades, as per {@link #getTrades(long, long, Integer, Integer, Boolean)}, for processing one at a time. */
+	public RepositoryCursor<TradeData> getTradeCursor(long haveAssetId, long wantAssetId, Integer limit, Integer offset, Boolean reverse) throws DataException;
+
 	// Internal, non-API use
 	public default List<TradeData> getTrades(long haveAssetId, long wantAssetId) throws DataException {
 		return getTrades(haveAssetId, wantAssetId, null, null, null);
@@ -14,10 +14,16 @@ public interface ChatRepository {
 	 * Returns CHAT messages matching criteria.
 	 * <p>
 	 * Expects EITHER non-null txGroupID OR non-null sender and recipient addresses.
+	 * <p>
+	 * Messages are ordered by timestamp, then signature. If <tt>cursor</tt> is supplied,
+	 * only messages after (or before, if <tt>reverse</tt>) that message are returned,
+	 * which is much cheaper than using <tt>offset</tt> to page through long chats.
+	 *
+	 * @param cursor last message from previous page, already fetched by caller, or null
 	 */
 	public List<ChatMessage> getMessagesMatchingCriteria(Long before, Long after,
 			Integer txGroupId, byte[] reference, byte[] chatReferenceBytes, Boolean hasChatReference,
-			List<String> involving, String senderAddress, Encoding encoding,
+			List<String> involving, String senderAddress, Encoding encoding, ChatTransactionData cursor,
 			Integer limit, Integer offset, Boolean reverse) throws DataException;
 
 	public ChatMessage toChatMessage(ChatTransactionData chatTransactionData, Encoding encoding) throws DataException;
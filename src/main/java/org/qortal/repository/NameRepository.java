@@ -48,6 +48,12 @@ public interface NameRepository {
 
 	public int clearPrimaryNames() throws DataException;
 
+	/** Returns map of name -> owner address for every registered name, in registration order. Always read from repository, not cache. */
+	public Map<String, String> getAllNameOwners() throws DataException;
+
+	/** Returns map of owner address -> primary name for every owner with a primary name. Always read from repository, not cache. */
+	public Map<String, String> getAllPrimaryNames() throws DataException;
+
 	public List<String> getRecentNames(long startTimestamp) throws DataException;
 
 	public void save(NameData nameData) throws DataException;
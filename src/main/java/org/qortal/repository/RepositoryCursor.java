@@ -0,0 +1,55 @@
+package org.qortal.repository;
+
+/**
+ * Forward-only iteration over repository results, one entry at a time.
+ * <p>
+ * Unlike methods returning a <tt>List</tt>, entries are only produced when requested,
+ * so callers that process entries one by one (e.g. streaming API responses)
+ * don't need to hold the whole result set in memory.
+ * <p>
+ * A cursor is only valid while the repository session that created it is open,
+ * and should be closed once no longer needed.
+ *
+ * @param <T> entry type
+ */
+@FunctionalInterface
+public interface RepositoryCursor<T> extends AutoCloseable {
+
+	/**
+	 * Returns next entry, or null if there are no more entries.
+	 */
+	public T next() throws DataException;
+
+	@Override
+	public default void close() throws DataException {
+	}
+
+	/**
+	 * Returns cursor whose entries are this cursor's entries, converted using <tt>mapper</tt>.
+	 * <p>
+	 * Entries are only converted as they are requested. Closing the returned cursor also closes this cursor.
+	 */
+	public default <R> RepositoryCursor<R> map(Mapper<? super T, ? extends R> mapper) {
+		RepositoryCursor<T> source = this;
+
+		return new RepositoryCursor<>() {
+			@Override
+			public R next() throws DataException {
+				T entry = source.next();
+				return entry != null ? mapper.map(entry) : null;
+			}
+
+			@Override
+			public void close() throws DataException {
+				source.close();
+			}
+		};
+	}
+
+	/** Converts cursor entries, possibly using the repository to do so. */
+	@FunctionalInterface
+	public interface Mapper<T, R> {
+		public R map(T entry) throws DataException;
+	}
+
+}
@@ -77,6 +77,18 @@ public interface TransactionRepository {
 													  List<TransactionType> txTypes, Service service, String name, String address,
 													  ConfirmationStatus confirmationStatus, Integer limit, Integer offset, Boolean reverse) throws DataException;
 
+	/**
+	 * Returns cursor over signatures for transactions that match search criteria.
+	 * <p>
+	 * Same criteria as {@link #getSignaturesMatchingCriteria(Integer, Integer, Integer, List, Service, String, String, ConfirmationStatus, Integer, Integer, Boolean)}
+	 * but signatures are produced one at a time, for callers that expand and output each transaction in turn.
+	 * <p>
+	 * Cursor must be closed before repository session is closed.
+	 */
+	public RepositoryCursor<byte[]> getSignatureCursorMatchingCriteria(Integer startBlock, Integer blockLimit, Integer txGroupId,
+													  List<TransactionType> txTypes, Service service, String name, String address,
+													  ConfirmationStatus confirmationStatus, Integer limit, Integer offset, Boolean reverse) throws DataException;
+
 	/**
 	 * Returns signatures for transactions that match search criteria.
 	 * <p>
@@ -15,8 +15,10 @@ import org.qortal.utils.ByteArray;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -732,6 +734,52 @@ public class HSQLDBATRepository implements ATRepository {
 		return atStates;
 	}
 
+	@Override
+	public Map<ByteArray, List<ATStateData>> getATStatesAtHeightByCodeHash(int height, Collection<byte[]> codeHashes) throws DataException {
+		Map<ByteArray, List<ATStateData>> atStatesByCodeHash = new HashMap<>();
+		if (codeHashes.isEmpty())
+			return atStatesByCodeHash;
+
+		String sql = "SELECT ATs.code_hash, ATStates.AT_address, state_data, state_hash, fees, is_initial, ATStates.sleep_until_message_timestamp "
+				+ "FROM ATStates "
+				+ "JOIN ATs ON ATs.AT_address = ATStates.AT_address "
+				+ "JOIN ATStatesData ON ATStatesData.AT_address = ATStates.AT_address AND ATStatesData.height = ATStates.height "
+				+ "WHERE ATStates.height = ? "
+				+ "AND ATs.code_hash IN ("
+				+ String.join(", ", Collections.nCopies(codeHashes.size(), "?"))
+				+ ") "
+				+ "ORDER BY ATs.created_when ASC, ATStates.AT_address DESC";
+
+		List<Object> bindParams = new ArrayList<>(1 + codeHashes.size());
+		bindParams.add(height);
+		bindParams.addAll(codeHashes);
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql, bindParams.toArray())) {
+			if (resultSet == null)
+				return atStatesByCodeHash;
+
+			do {
+				byte[] codeHash = resultSet.getBytes(1);
+				String atAddress = resultSet.getString(2);
+				byte[] stateData = resultSet.getBytes(3); // Actually BLOB
+				byte[] stateHash = resultSet.getBytes(4);
+				long fees = resultSet.getLong(5);
+				boolean isInitial = resultSet.getBoolean(6);
+
+				Long sleepUntilMessageTimestamp = resultSet.getLong(7);
+				if (sleepUntilMessageTimestamp == 0 && resultSet.wasNull())
+					sleepUntilMessageTimestamp = null;
+
+				ATStateData atStateData = new ATStateData(atAddress, height, stateData, stateHash, fees, isInitial, sleepUntilMessageTimestamp);
+				atStatesByCodeHash.computeIfAbsent(ByteArray.wrap(codeHash), k -> new ArrayList<>()).add(atStateData);
+			} while (resultSet.next());
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch AT states by code hash for this height from repository", e);
+		}
+
+		return atStatesByCodeHash;
+	}
+
 
 	@Override
 	public void rebuildLatestAtStates(int maxHeight) throws DataException {
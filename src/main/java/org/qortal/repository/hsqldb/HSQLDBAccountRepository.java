@@ -2,14 +2,17 @@ package org.qortal.repository.hsqldb;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.qortal.account.RewardShareIndexCache;
 import org.qortal.asset.Asset;
 import org.qortal.data.account.*;
 import org.qortal.repository.AccountRepository;
 import org.qortal.repository.DataException;
+import org.qortal.utils.ByteArray;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -25,6 +28,9 @@ public class HSQLDBAccountRepository implements AccountRepository {
 
 	public static final String SELL = "sell";
 	public static final String BUY = "buy";
+
+	private static final int REWARD_SHARE_MINTERS_BATCH_SIZE = 500;
+
 	protected HSQLDBRepository repository;
 
 	public HSQLDBAccountRepository(HSQLDBRepository repository) {
@@ -751,8 +757,56 @@ public class HSQLDBAccountRepository implements AccountRepository {
 		}
 	}
 
+	@Override
+	public Map<ByteArray, AccountData> getRewardShareMinterAccounts(Collection<byte[]> rewardSharePublicKeys) throws DataException {
+		Map<ByteArray, AccountData> minterAccounts = new HashMap<>();
+		if (rewardSharePublicKeys == null || rewardSharePublicKeys.isEmpty())
+			return minterAccounts;
+
+		List<byte[]> publicKeys = new ArrayList<>(rewardSharePublicKeys);
+		for (int offset = 0; offset < publicKeys.size(); offset += REWARD_SHARE_MINTERS_BATCH_SIZE) {
+			List<byte[]> batch = publicKeys.subList(offset, Math.min(offset + REWARD_SHARE_MINTERS_BATCH_SIZE, publicKeys.size()));
+
+			StringBuilder sql = new StringBuilder(512);
+			sql.append("SELECT reward_share_public_key, account, reference, public_key, default_group_id, flags, level, "
+					+ "blocks_minted, blocks_minted_adjustment, blocks_minted_penalty "
+					+ "FROM RewardShares JOIN Accounts ON Accounts.account = RewardShares.minter "
+					+ "WHERE reward_share_public_key IN (");
+			sql.append(String.join(", ", Collections.nCopies(batch.size(), "?")));
+			sql.append(")");
+
+			try (ResultSet resultSet = this.repository.checkedExecute(sql.toString(), batch.toArray())) {
+				if (resultSet == null)
+					continue;
+
+				do {
+					byte[] rewardSharePublicKey = resultSet.getBytes(1);
+					String address = resultSet.getString(2);
+					byte[] reference = resultSet.getBytes(3);
+					byte[] publicKey = resultSet.getBytes(4);
+					int defaultGroupId = resultSet.getInt(5);
+					int flags = resultSet.getInt(6);
+					int level = resultSet.getInt(7);
+					int blocksMinted = resultSet.getInt(8);
+					int blocksMintedAdjustment = resultSet.getInt(9);
+					int blocksMintedPenalty = resultSet.getInt(10);
+
+					minterAccounts.put(ByteArray.wrap(rewardSharePublicKey), new AccountData(address, reference, publicKey, defaultGroupId,
+							flags, level, blocksMinted, blocksMintedAdjustment, blocksMintedPenalty));
+				} while (resultSet.next());
+			} catch (SQLException e) {
+				throw new DataException("Unable to fetch reward-share minter accounts from repository", e);
+			}
+		}
+
+		return minterAccounts;
+	}
+
 	@Override
 	public List<byte[]> getRewardSharePublicKeys() throws DataException {
+		if (!this.repository.haveRewardSharesChanged())
+			return RewardShareIndexCache.getInstance().getRewardSharePublicKeys(this);
+
 		String sql = "SELECT reward_share_public_key FROM RewardShares ORDER BY reward_share_public_key";
 
 		List<byte[]> rewardSharePublicKeys = new ArrayList<>();
@@ -805,7 +859,8 @@ public class HSQLDBAccountRepository implements AccountRepository {
 
 	@Override
 	public List<RewardShareData> getRewardShares() throws DataException {
-		String sql = "SELECT minter_public_key, minter, recipient, share_percent, reward_share_public_key FROM RewardShares";
+		String sql = "SELECT minter_public_key, minter, recipient, share_percent, reward_share_public_key FROM RewardShares "
+				+ "ORDER BY reward_share_public_key ASC";
 
 		List<RewardShareData> rewardShares = new ArrayList<>();
 
@@ -961,6 +1016,9 @@ public class HSQLDBAccountRepository implements AccountRepository {
 		if (indexes == null)
 			return null;
 
+		if (!this.repository.haveRewardSharesChanged())
+			return RewardShareIndexCache.getInstance().getRewardSharesByIndexes(this, indexes);
+
 		List<RewardShareData> rewardShares = new ArrayList<>();
 		if (indexes.length == 0)
 			return rewardShares;
@@ -1017,6 +1075,8 @@ public class HSQLDBAccountRepository implements AccountRepository {
 
 		try {
 			saveHelper.execute(this.repository);
+
+			this.repository.markRewardSharesChanged();
 		} catch (SQLException e) {
 			throw new DataException("Unable to save reward-share info into repository", e);
 		}
@@ -1026,6 +1086,8 @@ public class HSQLDBAccountRepository implements AccountRepository {
 	public void delete(byte[] minterPublickey, String recipient) throws DataException {
 		try {
 			this.repository.delete("RewardShares", "minter_public_key = ? and recipient = ?", minterPublickey, recipient);
+
+			this.repository.markRewardSharesChanged();
 		} catch (SQLException e) {
 			throw new DataException("Unable to delete reward-share info from repository", e);
 		}
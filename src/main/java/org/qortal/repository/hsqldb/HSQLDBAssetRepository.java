@@ -6,6 +6,7 @@ import org.qortal.data.asset.RecentTradeData;
 import org.qortal.data.asset.TradeData;
 import org.qortal.repository.AssetRepository;
 import org.qortal.repository.DataException;
+import org.qortal.repository.RepositoryCursor;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -546,14 +547,26 @@ public class HSQLDBAssetRepository implements AssetRepository {
 			throws DataException {
 		List<TradeData> trades = new ArrayList<>();
 
+		try (RepositoryCursor<TradeData> cursor = this.getTradeCursor(haveAssetId, wantAssetId, limit, offset, reverse)) {
+			TradeData trade;
+			while ((trade = cursor.next()) != null)
+				trades.add(trade);
+		}
+
+		return trades;
+	}
+
+	@Override
+	public RepositoryCursor<TradeData> getTradeCursor(long haveAssetId, long wantAssetId, Integer limit, Integer offset, Boolean reverse)
+			throws DataException {
 		// Cache have & want asset names for later use, which also saves a table join
 		AssetData haveAssetData = this.fromAssetId(haveAssetId);
 		if (haveAssetData == null)
-			return trades;
+			return () -> null;
 
 		AssetData wantAssetData = this.fromAssetId(wantAssetId);
 		if (wantAssetData == null)
-			return trades;
+			return () -> null;
 
 		StringBuilder sql = new StringBuilder(512);
 		sql.append("SELECT initiating_order_id, target_order_id, target_amount, initiator_amount, initiator_saving, traded_when "
@@ -566,24 +579,20 @@ public class HSQLDBAssetRepository implements AssetRepository {
 
 		HSQLDBRepository.limitOffsetSql(sql, limit, offset);
 
-		try (ResultSet resultSet = this.repository.checkedExecute(sql.toString(), haveAssetId, wantAssetId)) {
-			if (resultSet == null)
-				return trades;
+		try {
+			ResultSet resultSet = this.repository.checkedExecute(sql.toString(), haveAssetId, wantAssetId);
 
-			do {
-				byte[] initiatingOrderId = resultSet.getBytes(1);
-				byte[] targetOrderId = resultSet.getBytes(2);
-				long targetAmount = resultSet.getLong(3);
-				long initiatorAmount = resultSet.getLong(4);
-				long initiatorSaving = resultSet.getLong(5);
-				long timestamp = resultSet.getLong(6);
+			return new HSQLDBResultSetCursor<>(resultSet, rs -> {
+				byte[] initiatingOrderId = rs.getBytes(1);
+				byte[] targetOrderId = rs.getBytes(2);
+				long targetAmount = rs.getLong(3);
+				long initiatorAmount = rs.getLong(4);
+				long initiatorSaving = rs.getLong(5);
+				long timestamp = rs.getLong(6);
 
-				TradeData trade = new TradeData(initiatingOrderId, targetOrderId, targetAmount, initiatorAmount, initiatorSaving,
+				return new TradeData(initiatingOrderId, targetOrderId, targetAmount, initiatorAmount, initiatorSaving,
 						timestamp, haveAssetId, haveAssetData.getName(), wantAssetId, wantAssetData.getName());
-				trades.add(trade);
-			} while (resultSet.next());
-
-			return trades;
+			}, "Unable to fetch asset trades from repository");
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch asset trades from repository", e);
 		}
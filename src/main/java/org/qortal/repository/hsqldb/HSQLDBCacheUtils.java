@@ -16,6 +16,7 @@ import org.qortal.data.arbitrary.ArbitraryResourceData;
 import org.qortal.data.arbitrary.ArbitraryResourceMetadata;
 import org.qortal.data.arbitrary.ArbitraryResourceStatus;
 import org.qortal.data.transaction.TransactionData;
+import org.qortal.naming.NameRegistryCache;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
@@ -32,10 +33,12 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
@@ -201,11 +204,15 @@ public class HSQLDBCacheUtils {
             stream = stream.filter( candidate -> candidate.created < before.get().longValue() );
         }
 
-        if(exclude.isPresent())
-            stream = stream.filter( candidate -> !exclude.get().get().contains( candidate.name ));
+        // fetch each list once, rather than per candidate
+        if(exclude.isPresent()) {
+            Set<String> excludedNames = new HashSet<>(exclude.get().get());
+            stream = stream.filter( candidate -> !excludedNames.contains( candidate.name ));
+        }
 
         if( includeOnly.isPresent()) {
-            stream = stream.filter( candidate -> includeOnly.get().get().contains( candidate.name ));
+            Set<String> includedNames = new HashSet<>(includeOnly.get().get());
+            stream = stream.filter( candidate -> includedNames.contains( candidate.name ));
         }
 
         // filter by service
@@ -425,14 +432,16 @@ public class HSQLDBCacheUtils {
             keywordsLower = keywords.stream().map(String::toLowerCase).collect(Collectors.toList());
         }
 
-        List<String> followedLower = null;
+        Set<String> followedLower = null;
         if (followedNames != null && !followedNames.isEmpty()) {
             followedLower = followedNames.stream()
                     .filter(java.util.Objects::nonNull)
                     .map(String::toLowerCase)
-                    .collect(Collectors.toList());
+                    .collect(Collectors.toSet());
         }
 
+        Set<String> blockedSet = blockedNames != null ? new HashSet<>(blockedNames) : null;
+
         List<ArbitraryResourceData> result = new ArrayList<>(Math.min(limit, sorted.size()));
         for (ArbitraryResourceData r : sorted) {
             if (result.size() >= limit) break;
@@ -440,7 +449,7 @@ public class HSQLDBCacheUtils {
             Long created = r.created;
             if (created == null || created <= after) continue;
             if (before != null && created != null && created >= before) continue;
-            if (blockedNames != null && blockedNames.contains(r.name)) continue;
+            if (blockedSet != null && blockedSet.contains(r.name)) continue;
             if (followedLower != null) {
                 if (r.name == null || !followedLower.contains(r.name.toLowerCase())) continue;
             }
@@ -882,32 +891,36 @@ public class HSQLDBCacheUtils {
      * @param repository the data source
      *
      * @throws SQLException
+     * @throws DataException
      */
-    private static void fillNamepMap(ConcurrentHashMap<String, Integer> levelByName, Repository repository ) throws SQLException {
+    private static void fillNamepMap(ConcurrentHashMap<String, Integer> levelByName, Repository repository ) throws SQLException, DataException {
+
+        // names and their owners come from the name registry, so only leveled accounts need fetching
+        Map<String, String> ownersByName = NameRegistryCache.getInstance().getOwnersByName(repository.getNameRepository());
+
+        Map<String, Integer> levelByOwner = new HashMap<>();
 
         StringBuilder sql = new StringBuilder(512);
 
-        sql.append("SELECT name, level ");
-        sql.append("FROM NAMES ");
-        sql.append("INNER JOIN ACCOUNTS on owner = account ");
+        sql.append("SELECT account, level ");
+        sql.append("FROM ACCOUNTS ");
+        sql.append("WHERE level > 0");
 
         Lock readLock = HSQLDBRepository.CHECKPOINT_GATE.readLock();
         readLock.lock();
         try (Statement statement = repository.getConnection().createStatement();
              ResultSet resultSet = statement.executeQuery(sql.toString())) {
 
-            if (resultSet == null)
-                return;
-
-            if (!resultSet.next())
-                return;
-
-            do {
-                levelByName.put(resultSet.getString(1), resultSet.getInt(2));
-            } while(resultSet.next());
+            while (resultSet.next()) {
+                levelByOwner.put(resultSet.getString(1), resultSet.getInt(2));
+            }
         } finally {
             readLock.unlock();
         }
+
+        for (Map.Entry<String, String> entry : ownersByName.entrySet()) {
+            levelByName.put(entry.getKey(), levelByOwner.getOrDefault(entry.getValue(), 0));
+        }
     }
 
     /**
@@ -7,7 +7,6 @@ import org.qortal.data.chat.ActiveChats;
 import org.qortal.data.chat.ActiveChats.DirectChat;
 import org.qortal.data.chat.ActiveChats.GroupChat;
 import org.qortal.data.chat.ChatMessage;
-import org.qortal.data.group.GroupMemberData;
 import org.qortal.data.transaction.ChatTransactionData;
 import org.qortal.repository.ChatRepository;
 import org.qortal.repository.DataException;
@@ -18,10 +17,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import static org.qortal.data.chat.ChatMessage.Encoding;
 
@@ -38,33 +38,16 @@ public class HSQLDBChatRepository implements ChatRepository {
 	@Override
 	public List<ChatMessage> getMessagesMatchingCriteria(Long before, Long after, Integer txGroupId, byte[] referenceBytes,
 														 byte[] chatReferenceBytes, Boolean hasChatReference, List<String> involving, String senderAddress,
-														 Encoding encoding, Integer limit, Integer offset, Boolean reverse) throws DataException {
+														 Encoding encoding, ChatTransactionData cursor, Integer limit, Integer offset, Boolean reverse) throws DataException {
 		// Check args meet expectations
 		if ((txGroupId != null && involving != null && !involving.isEmpty())
 				|| (txGroupId == null && (involving == null || involving.size() != 2)))
 			throw new DataException("Invalid criteria for fetching chat messages from repository");
 
-		StringBuilder sql = new StringBuilder(1024);
+		boolean isReverse = reverse != null && reverse;
 
-		String tableName;
-
-		// if the PrimaryTable is available, then use it
-		if( this.repository.getBlockRepository().getBlockchainHeight() > BlockChain.getInstance().getMultipleNamesPerAccountHeight()) {
-			tableName = "PrimaryNames";
-		}
-		else {
-			tableName = "Names";
-		}
-
-		sql.append("SELECT created_when, tx_group_id, Transactions.reference, creator, "
-				+ "sender, SenderNames.name, recipient, RecipientNames.name, "
-				+ "chat_reference, data, is_text, is_encrypted, signature "
-				+ "FROM ChatTransactions "
-				+ "JOIN Transactions USING (signature) "
-				+ "LEFT OUTER JOIN " + tableName + " AS SenderNames ON SenderNames.owner = sender "
-				+ "LEFT OUTER JOIN " + tableName + " AS RecipientNames ON RecipientNames.owner = recipient ");
-
-		// WHERE clauses
+		// WHERE clauses, common to group and direct messages.
+		// These only use ChatTransactions columns, so that a page of signatures can be read in index order.
 
 		List<String> whereClauses = new ArrayList<>();
 		List<Object> bindParams = new ArrayList<>();
@@ -81,7 +64,7 @@ public class HSQLDBChatRepository implements ChatRepository {
 		}
 
 		if (referenceBytes != null) {
-			whereClauses.add("reference = ?");
+			whereClauses.add("EXISTS (SELECT TRUE FROM Transactions WHERE Transactions.signature = ChatTransactions.signature AND reference = ?)");
 			bindParams.add(referenceBytes);
 		}
 
@@ -102,68 +85,121 @@ public class HSQLDBChatRepository implements ChatRepository {
 			bindParams.add(senderAddress);
 		}
 
-		if (txGroupId != null) {
-			whereClauses.add("tx_group_id = " + txGroupId); // int safe to use literally
-			whereClauses.add("recipient IS NULL");
-		} else {
-			whereClauses.add("((sender = ? AND recipient = ?) OR (recipient = ? AND sender = ?))");
-			bindParams.addAll(involving);
-			bindParams.addAll(involving);
+		// Keyset pagination: only messages after cursor message, in (created_when, signature) order.
+		// Unlike OFFSET, this doesn't need to skip over earlier messages.
+		if (cursor != null) {
+			String comparison = isReverse ? "<" : ">";
+			// Range on created_when can be used by index, signature only breaks ties
+			whereClauses.add("created_when " + comparison + "= ? AND (created_when " + comparison + " ? OR signature " + comparison + " ?)");
+			bindParams.add(cursor.getTimestamp());
+			bindParams.add(cursor.getTimestamp());
+			bindParams.add(cursor.getSignature());
 		}
 
-		if (!whereClauses.isEmpty()) {
-			sql.append(" WHERE ");
+		// First select a page of signatures, walking an index in order, then fetch the rest of those messages.
+		// HSQLDB only reads an index in order if ORDER BY starts with the index's leading columns,
+		// even though those are fixed by the WHERE clauses, and not if the query also joins Transactions.
+		StringBuilder sql = new StringBuilder(2048);
+		List<Object> allBindParams = new ArrayList<>();
 
-			final int whereClausesSize = whereClauses.size();
-			for (int wci = 0; wci < whereClausesSize; ++wci) {
-				if (wci != 0)
-					sql.append(" AND ");
+		sql.append("SELECT ChatTransactions.created_when, ChatTransactions.tx_group_id, reference, creator, "
+				+ "sender, recipient, chat_reference, data, is_text, is_encrypted, signature "
+				+ "FROM (");
 
-				sql.append(whereClauses.get(wci));
+		if (txGroupId != null) {
+			List<String> groupWhereClauses = new ArrayList<>(whereClauses);
+			groupWhereClauses.add("tx_group_id = " + txGroupId); // int safe to use literally
+			groupWhereClauses.add("recipient IS NULL");
+
+			// if this is a group chat, then ensure that the sender is in the group
+			if (txGroupId > 0)
+				groupWhereClauses.add("EXISTS (SELECT TRUE FROM GroupMembers WHERE group_id = " + txGroupId + " AND address = sender)");
+
+			// Uses ChatTransactionsGroupIndex
+			appendChatPageSql(sql, groupWhereClauses, isReverse, "tx_group_id", "recipient");
+			HSQLDBRepository.limitOffsetSql(sql, limit, offset);
+			allBindParams.addAll(bindParams);
+
+			sql.append(") AS ChatPage ");
+		} else {
+			// Each direction of the conversation is a separate range of ChatTransactionsDirectIndex,
+			// so fetch enough from both and merge them
+			Integer subqueryLimit = limit != null && limit > 0
+					? Integer.valueOf(limit + (offset != null ? offset : 0))
+					: null;
+
+			List<String> directWhereClauses = new ArrayList<>(whereClauses);
+			directWhereClauses.add("sender = ?");
+			directWhereClauses.add("recipient = ?");
+
+			sql.append("(");
+			appendChatPageSql(sql, directWhereClauses, isReverse, "recipient", "sender");
+			HSQLDBRepository.limitOffsetSql(sql, subqueryLimit, null);
+			allBindParams.addAll(bindParams);
+			allBindParams.add(involving.get(0));
+			allBindParams.add(involving.get(1));
+
+			if (!involving.get(0).equals(involving.get(1))) {
+				sql.append(") UNION ALL (");
+				appendChatPageSql(sql, directWhereClauses, isReverse, "recipient", "sender");
+				HSQLDBRepository.limitOffsetSql(sql, subqueryLimit, null);
+				allBindParams.addAll(bindParams);
+				allBindParams.add(involving.get(1));
+				allBindParams.add(involving.get(0));
 			}
+
+			sql.append(")) AS ChatPage ");
 		}
 
-		sql.append(" ORDER BY Transactions.created_when");
-		sql.append((reverse == null || !reverse) ? " ASC" : " DESC");
+		sql.append("JOIN ChatTransactions USING (signature) "
+				+ "JOIN Transactions USING (signature)");
+		appendOrderBySql(sql, isReverse);
 
-		HSQLDBRepository.limitOffsetSql(sql, limit, offset);
+		// Direct messages' merged page still needs limiting
+		if (txGroupId == null)
+			HSQLDBRepository.limitOffsetSql(sql, limit, offset);
 
 		List<ChatMessage> chatMessages = new ArrayList<>();
 
-		try (ResultSet resultSet = this.repository.checkedExecute(sql.toString(), bindParams.toArray())) {
+		try (ResultSet resultSet = this.repository.checkedExecute(sql.toString(), allBindParams.toArray())) {
 			if (resultSet == null)
 				return chatMessages;
 
-			do {
-				long timestamp = resultSet.getLong(1);
-				int groupId = resultSet.getInt(2);
-				byte[] reference = resultSet.getBytes(3);
-				byte[] senderPublicKey = resultSet.getBytes(4);
-				String sender = resultSet.getString(5);
-				String senderName = resultSet.getString(6);
-				String recipient = resultSet.getString(7);
-				String recipientName = resultSet.getString(8);
-				byte[] chatReference = resultSet.getBytes(9);
-				byte[] data = resultSet.getBytes(10);
-				boolean isText = resultSet.getBoolean(11);
-				boolean isEncrypted = resultSet.getBoolean(12);
-				byte[] signature = resultSet.getBytes(13);
-
-				ChatMessage chatMessage = new ChatMessage(timestamp, groupId, reference, senderPublicKey, sender,
-						senderName, recipient, recipientName, chatReference, encoding, data, isText, isEncrypted, signature);
+			List<Object[]> rows = new ArrayList<>();
+			Set<String> addresses = new HashSet<>();
 
-				chatMessages.add(chatMessage);
+			do {
+				Object[] row = new Object[] {
+					resultSet.getLong(1),
+					resultSet.getInt(2),
+					resultSet.getBytes(3),
+					resultSet.getBytes(4),
+					resultSet.getString(5),
+					resultSet.getString(6),
+					resultSet.getBytes(7),
+					resultSet.getBytes(8),
+					resultSet.getBoolean(9),
+					resultSet.getBoolean(10),
+					resultSet.getBytes(11)
+				};
+
+				rows.add(row);
+				addresses.add((String) row[4]);
+				addresses.add((String) row[5]);
 			} while (resultSet.next());
 
-			// if this is a group chat, then ensure that the sender is in the group
-			if( txGroupId != null && txGroupId > 0 ) {
-				List<String> members
-					= this.repository.getGroupRepository()
-						.getGroupMembers(txGroupId).stream()
-						.map(GroupMemberData::getMember)
-						.collect(Collectors.toList());
-
-				chatMessages.removeIf( data -> !members.contains(data.getSender()) );
+			// Names come from cache, instead of joining names table twice per message
+			Map<String, String> namesByAddress = this.getNameRepository().getDisplayNames(this.usePrimaryNames(), addresses);
+
+			for (Object[] row : rows) {
+				String sender = (String) row[4];
+				String recipient = (String) row[5];
+
+				ChatMessage chatMessage = new ChatMessage((Long) row[0], (Integer) row[1], (byte[]) row[2], (byte[]) row[3],
+						sender, namesByAddress.get(sender), recipient, recipient != null ? namesByAddress.get(recipient) : null,
+						(byte[]) row[6], encoding, (byte[]) row[7], (Boolean) row[8], (Boolean) row[9], (byte[]) row[10]);
+
+				chatMessages.add(chatMessage);
 			}
 
 			return chatMessages;
@@ -172,50 +208,63 @@ public class HSQLDBChatRepository implements ChatRepository {
 		}
 	}
 
-	@Override
-	public ChatMessage toChatMessage(ChatTransactionData chatTransactionData, Encoding encoding) throws DataException {
+	private static void appendChatPageSql(StringBuilder sql, List<String> whereClauses, boolean isReverse, String... indexPrefixColumns) {
+		sql.append("SELECT signature FROM ChatTransactions WHERE ");
 
-		String tableName;
+		final int whereClausesSize = whereClauses.size();
+		for (int wci = 0; wci < whereClausesSize; ++wci) {
+			if (wci != 0)
+				sql.append(" AND ");
 
-		// if the PrimaryTable is available, then use it
-		if( this.repository.getBlockRepository().getBlockchainHeight() > BlockChain.getInstance().getMultipleNamesPerAccountHeight()) {
-			tableName = "PrimaryNames";
-		}
-		else {
-			tableName = "Names";
+			sql.append(whereClauses.get(wci));
 		}
 
-		String sql = "SELECT SenderNames.name, RecipientNames.name "
-				+ "FROM ChatTransactions "
-				+ "LEFT OUTER JOIN " + tableName + " AS SenderNames ON SenderNames.owner = sender "
-				+ "LEFT OUTER JOIN " + tableName + " AS RecipientNames ON RecipientNames.owner = recipient "
-				+ "WHERE signature = ?";
+		appendOrderBySql(sql, isReverse, indexPrefixColumns);
+	}
 
-		try (ResultSet resultSet = this.repository.checkedExecute(sql, chatTransactionData.getSignature())) {
-			if (resultSet == null)
-				return null;
-
-			String senderName = resultSet.getString(1);
-			String recipientName = resultSet.getString(2);
-
-			long timestamp = chatTransactionData.getTimestamp();
-			int groupId = chatTransactionData.getTxGroupId();
-			byte[] reference = chatTransactionData.getReference();
-			byte[] senderPublicKey = chatTransactionData.getSenderPublicKey();
-			String sender = chatTransactionData.getSender();
-			String recipient = chatTransactionData.getRecipient();
-			byte[] chatReference = chatTransactionData.getChatReference();
-			byte[] data = chatTransactionData.getData();
-			boolean isText = chatTransactionData.getIsText();
-			boolean isEncrypted = chatTransactionData.getIsEncrypted();
-			byte[] signature = chatTransactionData.getSignature();
-
-			return new ChatMessage(timestamp, groupId, reference, senderPublicKey, sender,
-					senderName, recipient, recipientName, chatReference, encoding, data,
-					isText, isEncrypted, signature);
-		} catch (SQLException e) {
-			throw new DataException("Unable to fetch convert chat transaction from repository", e);
-		}
+	private static void appendOrderBySql(StringBuilder sql, boolean isReverse, String... indexPrefixColumns) {
+		String direction = isReverse ? " DESC" : " ASC";
+
+		sql.append(" ORDER BY ");
+
+		for (String column : indexPrefixColumns)
+			sql.append(column).append(direction).append(", ");
+
+		// Signature breaks ties, so that order is stable for keyset pagination
+		sql.append("ChatTransactions.created_when").append(direction)
+				.append(", signature").append(direction);
+	}
+
+	private HSQLDBNameRepository getNameRepository() {
+		return (HSQLDBNameRepository) this.repository.getNameRepository();
+	}
+
+	/** Whether display names come from PrimaryNames table, rather than Names */
+	private boolean usePrimaryNames() throws DataException {
+		return this.repository.getBlockRepository().getBlockchainHeight() > BlockChain.getInstance().getMultipleNamesPerAccountHeight();
+	}
+
+	@Override
+	public ChatMessage toChatMessage(ChatTransactionData chatTransactionData, Encoding encoding) throws DataException {
+		String sender = chatTransactionData.getSender();
+		String recipient = chatTransactionData.getRecipient();
+
+		Map<String, String> namesByAddress = this.getNameRepository().getDisplayNames(this.usePrimaryNames(),
+				recipient != null ? List.of(sender, recipient) : List.of(sender));
+
+		long timestamp = chatTransactionData.getTimestamp();
+		int groupId = chatTransactionData.getTxGroupId();
+		byte[] reference = chatTransactionData.getReference();
+		byte[] senderPublicKey = chatTransactionData.getSenderPublicKey();
+		byte[] chatReference = chatTransactionData.getChatReference();
+		byte[] data = chatTransactionData.getData();
+		boolean isText = chatTransactionData.getIsText();
+		boolean isEncrypted = chatTransactionData.getIsEncrypted();
+		byte[] signature = chatTransactionData.getSignature();
+
+		return new ChatMessage(timestamp, groupId, reference, senderPublicKey, sender,
+				namesByAddress.get(sender), recipient, recipient != null ? namesByAddress.get(recipient) : null,
+				chatReference, encoding, data, isText, isEncrypted, signature);
 	}
 
 	@Override
@@ -227,15 +276,7 @@ public class HSQLDBChatRepository implements ChatRepository {
 	}
 	
 	private List<GroupChat> getActiveGroupChats(String address, Encoding encoding, Boolean hasChatReference) throws DataException {
-		String tableName;
-
-		// if the PrimaryTable is available, then use it
-		if( this.repository.getBlockRepository().getBlockchainHeight() > BlockChain.getInstance().getMultipleNamesPerAccountHeight()) {
-			tableName = "PrimaryNames";
-		}
-		else {
-			tableName = "Names";
-		}
+		boolean usePrimaryNames = this.usePrimaryNames();
 
 		Long now = NTP.getTime();
 		if (now == null)
@@ -260,13 +301,13 @@ public class HSQLDBChatRepository implements ChatRepository {
 		// Step 2: In one query, get all recent chat messages for the user's groups.
 		// Ordered by created_when DESC so first occurrence per group_id = latest message.
 		// This replaces 53 correlated lateral subqueries with a single efficient query.
-		String latestSql = "SELECT tx_group_id, created_when, CT.sender, SenderNames.name, CT.signature, CT.data "
+		// Sender names come from cache afterwards, instead of joining names table for every message.
+		String latestSql = "SELECT Transactions.tx_group_id, Transactions.created_when, CT.sender, CT.signature, CT.data "
 				+ "FROM Transactions "
 				+ "JOIN ChatTransactions CT ON CT.signature = Transactions.signature "
-				+ "LEFT OUTER JOIN " + tableName + " AS SenderNames ON SenderNames.owner = CT.sender "
 				+ "WHERE type = " + TransactionType.CHAT.value + " "
-				+ "AND created_when >= ? "
-				+ "AND tx_group_id IN (SELECT group_id FROM GroupMembers WHERE address = ?) ";
+				+ "AND Transactions.created_when >= ? "
+				+ "AND Transactions.tx_group_id IN (SELECT group_id FROM GroupMembers WHERE address = ?) ";
 
 		if (hasChatReference != null) {
 			if (hasChatReference) {
@@ -275,7 +316,7 @@ public class HSQLDBChatRepository implements ChatRepository {
 				latestSql += "AND CT.chat_reference IS NULL ";
 			}
 		}
-		latestSql += "ORDER BY created_when DESC";
+		latestSql += "ORDER BY Transactions.created_when DESC";
 
 		Map<Integer, Object[]> latestPerGroup = new HashMap<>();
 		try (ResultSet resultSet = this.repository.checkedExecute(latestSql, cutoffTimestamp, address)) {
@@ -286,9 +327,8 @@ public class HSQLDBChatRepository implements ChatRepository {
 						latestPerGroup.put(groupId, new Object[] {
 							resultSet.getLong(2),
 							resultSet.getString(3),
-							resultSet.getString(4),
-							resultSet.getBytes(5),
-							resultSet.getBytes(6)
+							resultSet.getBytes(4),
+							resultSet.getBytes(5)
 						});
 					}
 				} while (resultSet.next());
@@ -298,6 +338,12 @@ public class HSQLDBChatRepository implements ChatRepository {
 		}
 
 		// Step 3: Merge groups with their latest messages
+		List<String> senders = new ArrayList<>();
+		for (Object[] msg : latestPerGroup.values())
+			senders.add((String) msg[1]);
+
+		Map<String, String> namesByAddress = this.getNameRepository().getDisplayNames(usePrimaryNames, senders);
+
 		List<GroupChat> groupChats = new ArrayList<>();
 		for (Map.Entry<Integer, String> entry : userGroups.entrySet()) {
 			int groupId = entry.getKey();
@@ -305,20 +351,20 @@ public class HSQLDBChatRepository implements ChatRepository {
 			Object[] msg = latestPerGroup.get(groupId);
 
 			if (msg != null) {
-				groupChats.add(new GroupChat(groupId, groupName, (Long) msg[0], (String) msg[1], (String) msg[2], (byte[]) msg[3], encoding, (byte[]) msg[4]));
+				String sender = (String) msg[1];
+				groupChats.add(new GroupChat(groupId, groupName, (Long) msg[0], sender, namesByAddress.get(sender), (byte[]) msg[2], encoding, (byte[]) msg[3]));
 			} else {
 				groupChats.add(new GroupChat(groupId, groupName, null, null, null, null, encoding, null));
 			}
 		}
 
 		// Groupless chat (group 0) — separate query since it has special recipient IS NULL filter
-		String grouplessSql = "SELECT created_when, CT.sender, SenderNames.name, CT.signature, CT.data "
+		String grouplessSql = "SELECT Transactions.created_when, CT.sender, CT.signature, CT.data "
 				+ "FROM Transactions "
 				+ "JOIN ChatTransactions CT ON CT.signature = Transactions.signature "
-				+ "LEFT OUTER JOIN " + tableName + " AS SenderNames ON SenderNames.owner = CT.sender "
 				+ "WHERE type = " + TransactionType.CHAT.value + " "
-				+ "AND tx_group_id = 0 "
-				+ "AND created_when >= ? "
+				+ "AND Transactions.tx_group_id = 0 "
+				+ "AND Transactions.created_when >= ? "
 				+ "AND CT.recipient IS NULL ";
 
 		if (hasChatReference != null) {
@@ -328,7 +374,7 @@ public class HSQLDBChatRepository implements ChatRepository {
 				grouplessSql += "AND CT.chat_reference IS NULL ";
 			}
 		}
-		grouplessSql += "ORDER BY created_when DESC "
+		grouplessSql += "ORDER BY Transactions.created_when DESC "
 				+ "LIMIT 1";
 
 		try (ResultSet resultSet = this.repository.checkedExecute(grouplessSql, cutoffTimestamp)) {
@@ -341,11 +387,13 @@ public class HSQLDBChatRepository implements ChatRepository {
 			if (resultSet != null) {
 				timestamp = resultSet.getLong(1);
 				sender = resultSet.getString(2);
-				senderName = resultSet.getString(3);
-				signature = resultSet.getBytes(4);
-				data = resultSet.getBytes(5);
+				signature = resultSet.getBytes(3);
+				data = resultSet.getBytes(4);
 			}
 
+			if (sender != null)
+				senderName = this.getNameRepository().getDisplayNames(usePrimaryNames, List.of(sender)).get(sender);
+
 			GroupChat groupChat = new GroupChat(0, null, timestamp, sender, senderName, signature, encoding, data);
 			groupChats.add(groupChat);
 		} catch (SQLException e) {
@@ -356,15 +404,7 @@ public class HSQLDBChatRepository implements ChatRepository {
 	}
 
 	private List<DirectChat> getActiveDirectChats(String address, Boolean hasChatReference) throws DataException {
-		String tableName;
-
-		// if the PrimaryTable is available, then use it
-		if( this.repository.getBlockRepository().getBlockchainHeight() > BlockChain.getInstance().getMultipleNamesPerAccountHeight()) {
-			tableName = "PrimaryNames";
-		}
-		else {
-			tableName = "Names";
-		}
+		boolean usePrimaryNames = this.usePrimaryNames();
 
 		Long now = NTP.getTime();
 		if (now == null)
@@ -373,21 +413,18 @@ public class HSQLDBChatRepository implements ChatRepository {
 		long cutoffTimestamp = now - BlockChain.getInstance().getTransactionExpiryPeriod();
 
 		// Find chat messages involving address
-		String directSql = "SELECT other_address, name, latest_timestamp, sender, sender_name "
+		// Names come from cache afterwards, instead of joining names table for each chat
+		String directSql = "SELECT other_address, latest_timestamp, sender "
 				+ "FROM ("
 					+ "SELECT recipient FROM ChatTransactions "
-					+ "JOIN Transactions USING (signature) "
 					+ "WHERE sender = ? AND recipient IS NOT NULL AND created_when >= ? "
 					+ "UNION "
 					+ "SELECT sender FROM ChatTransactions "
-					+ "JOIN Transactions USING (signature) "
 					+ "WHERE recipient = ? AND created_when >= ?"
 				+ ") AS OtherParties (other_address) "
 				+ "CROSS JOIN LATERAL("
-					+ "SELECT created_when AS latest_timestamp, sender, name AS sender_name "
+					+ "SELECT created_when AS latest_timestamp, sender "
 					+ "FROM ChatTransactions "
-					+ "NATURAL JOIN Transactions "
-					+ "LEFT OUTER JOIN " + tableName + " AS SenderNames ON SenderNames.owner = sender "
 					+ "WHERE ((sender = other_address AND recipient = ?) "
 					+ "OR (sender = ? AND recipient = other_address)) "
 					+ "AND created_when >= ? ";
@@ -403,8 +440,7 @@ public class HSQLDBChatRepository implements ChatRepository {
 		
 			directSql += "ORDER BY created_when DESC "
 					+ "LIMIT 1"
-					+ ") AS LatestMessages "
-					+ "LEFT OUTER JOIN " + tableName + " ON owner = other_address";
+					+ ") AS LatestMessages";
 
 		Object[] bindParams = new Object[] { address, cutoffTimestamp, address, cutoffTimestamp, address, address, cutoffTimestamp };
 
@@ -413,16 +449,30 @@ public class HSQLDBChatRepository implements ChatRepository {
 			if (resultSet == null)
 				return directChats;
 
+			List<Object[]> rows = new ArrayList<>();
+			Set<String> addresses = new HashSet<>();
+
 			do {
-				String otherAddress = resultSet.getString(1);
-				String name = resultSet.getString(2);
-				long timestamp = resultSet.getLong(3);
-				String sender = resultSet.getString(4);
-				String senderName = resultSet.getString(5);
+				Object[] row = new Object[] {
+					resultSet.getString(1),
+					resultSet.getLong(2),
+					resultSet.getString(3)
+				};
+
+				rows.add(row);
+				addresses.add((String) row[0]);
+				addresses.add((String) row[2]);
+			} while (resultSet.next());
+
+			Map<String, String> namesByAddress = this.getNameRepository().getDisplayNames(usePrimaryNames, addresses);
 
-				DirectChat directChat = new DirectChat(otherAddress, name, timestamp, sender, senderName);
+			for (Object[] row : rows) {
+				String otherAddress = (String) row[0];
+				String sender = (String) row[2];
+
+				DirectChat directChat = new DirectChat(otherAddress, namesByAddress.get(otherAddress), (Long) row[1], sender, namesByAddress.get(sender));
 				directChats.add(directChat);
-			} while (resultSet.next());
+			}
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch active direct chats from repository", e);
 		}
@@ -1069,6 +1069,27 @@ public class HSQLDBDatabaseUpdates {
 
 					break;
 
+				case 52:
+					// Chat messages are fetched by (created_when, signature) order within a group or a direct
+					// conversation, so copy created_when and tx_group_id into ChatTransactions, where they can
+					// be covered by a single index, instead of joining Transactions first
+					LOGGER.info("Adding timestamps to chat transactions table - this can take a while...");
+					stmt.execute("ALTER TABLE ChatTransactions ADD created_when EpochMillis");
+					stmt.execute("ALTER TABLE ChatTransactions ADD tx_group_id GroupID");
+					stmt.execute("UPDATE ChatTransactions SET "
+							+ "created_when = (SELECT created_when FROM Transactions WHERE Transactions.signature = ChatTransactions.signature), "
+							+ "tx_group_id = (SELECT tx_group_id FROM Transactions WHERE Transactions.signature = ChatTransactions.signature)");
+					stmt.execute("ALTER TABLE ChatTransactions ALTER COLUMN created_when SET NOT NULL");
+					stmt.execute("ALTER TABLE ChatTransactions ALTER COLUMN tx_group_id SET NOT NULL");
+
+					LOGGER.info("Adding chat message indexes - this can take a while...");
+					// For paging through group chat messages (recipient IS NULL)
+					stmt.execute("CREATE INDEX ChatTransactionsGroupIndex ON ChatTransactions (tx_group_id, recipient, created_when, signature)");
+					// For paging through direct messages, one direction at a time. Replaces (recipient, sender) index.
+					stmt.execute("DROP INDEX ChatTransactionsRecipientIndex");
+					stmt.execute("CREATE INDEX ChatTransactionsDirectIndex ON ChatTransactions (recipient, sender, created_when, signature)");
+					break;
+
 				default:
 					// nothing to do
 					return false;
@@ -2,6 +2,7 @@ package org.qortal.repository.hsqldb;
 
 import org.qortal.data.group.*;
 import org.qortal.group.Group.ApprovalThreshold;
+import org.qortal.group.GroupMembershipCache;
 import org.qortal.repository.DataException;
 import org.qortal.repository.GroupRepository;
 
@@ -371,6 +372,9 @@ public class HSQLDBGroupRepository implements GroupRepository {
 		try {
 			// Remove group
 			this.repository.delete("Groups", "group_id = ?", groupId);
+
+			// Members and admins are removed by cascade
+			this.repository.getPendingGroupChanges().removeGroup(groupId);
 		} catch (SQLException e) {
 			throw new DataException("Unable to delete group info from repository", e);
 		}
@@ -381,6 +385,9 @@ public class HSQLDBGroupRepository implements GroupRepository {
 		try {
 			// Remove group
 			this.repository.delete("Groups", "group_name = ?", groupName);
+
+			// We don't know group's ID
+			this.repository.getPendingGroupChanges().removeAll();
 		} catch (SQLException e) {
 			throw new DataException("Unable to delete group info from repository", e);
 		}
@@ -434,6 +441,9 @@ public class HSQLDBGroupRepository implements GroupRepository {
 
 	@Override
 	public boolean adminExists(int groupId, String address) throws DataException {
+		if (!this.repository.getPendingGroupChanges().isGroupModified(groupId))
+			return GroupMembershipCache.getInstance().isAdmin(this, groupId, address);
+
 		try {
 			return this.repository.exists("GroupAdmins", "group_id = ? AND admin = ?", groupId, address);
 		} catch (SQLException e) {
@@ -473,6 +483,13 @@ public class HSQLDBGroupRepository implements GroupRepository {
 
 	@Override
 	public Integer countGroupAdmins(int groupId) throws DataException {
+		if (!this.repository.getPendingGroupChanges().isGroupModified(groupId)) {
+			int count = GroupMembershipCache.getInstance().countAdmins(this, groupId);
+
+			// There must be at least one admin: the group owner
+			return count != 0 ? count : null;
+		}
+
 		try (ResultSet resultSet = this.repository.checkedExecute("SELECT COUNT(*) FROM GroupAdmins WHERE group_id = ?", groupId)) {
 			int count = resultSet.getInt(1);
 
@@ -494,6 +511,8 @@ public class HSQLDBGroupRepository implements GroupRepository {
 
 		try {
 			saveHelper.execute(this.repository);
+
+			this.repository.getPendingGroupChanges().addAdmin(groupAdminData.getGroupId(), groupAdminData.getAdmin());
 		} catch (SQLException e) {
 			throw new DataException("Unable to save group admin info into repository", e);
 		}
@@ -503,6 +522,8 @@ public class HSQLDBGroupRepository implements GroupRepository {
 	public void deleteAdmin(int groupId, String address) throws DataException {
 		try {
 			this.repository.delete("GroupAdmins", "group_id = ? AND admin = ?", groupId, address);
+
+			this.repository.getPendingGroupChanges().removeAdmin(groupId, address);
 		} catch (SQLException e) {
 			throw new DataException("Unable to delete group admin info from repository", e);
 		}
@@ -530,6 +551,9 @@ public class HSQLDBGroupRepository implements GroupRepository {
 
 	@Override
 	public boolean memberExists(int groupId, String address) throws DataException {
+		if (!this.repository.getPendingGroupChanges().isGroupModified(groupId))
+			return GroupMembershipCache.getInstance().isMember(this, groupId, address);
+
 		try {
 			return this.repository.exists("GroupMembers", "group_id = ? AND address = ?", groupId, address);
 		} catch (SQLException e) {
@@ -570,6 +594,13 @@ public class HSQLDBGroupRepository implements GroupRepository {
 
 	@Override
 	public Integer countGroupMembers(int groupId) throws DataException {
+		if (!this.repository.getPendingGroupChanges().isGroupModified(groupId)) {
+			int count = GroupMembershipCache.getInstance().countMembers(this, groupId);
+
+			// There must be at least one member: the group owner
+			return count != 0 ? count : null;
+		}
+
 		try (ResultSet resultSet = this.repository.checkedExecute("SELECT COUNT(*) FROM GroupMembers WHERE group_id = ?", groupId)) {
 			int count = resultSet.getInt(1);
 
@@ -592,6 +623,8 @@ public class HSQLDBGroupRepository implements GroupRepository {
 
 		try {
 			saveHelper.execute(this.repository);
+
+			this.repository.getPendingGroupChanges().addMember(groupMemberData.getGroupId(), groupMemberData.getMember());
 		} catch (SQLException e) {
 			throw new DataException("Unable to save group member info into repository", e);
 		}
@@ -601,6 +634,8 @@ public class HSQLDBGroupRepository implements GroupRepository {
 	public void deleteMember(int groupId, String address) throws DataException {
 		try {
 			this.repository.delete("GroupMembers", "group_id = ? AND address = ?", groupId, address);
+
+			this.repository.getPendingGroupChanges().removeMember(groupId, address);
 		} catch (SQLException e) {
 			throw new DataException("Unable to delete group member info from repository", e);
 		}
@@ -1,6 +1,7 @@
 package org.qortal.repository.hsqldb;
 
 import org.qortal.data.naming.NameData;
+import org.qortal.naming.NameRegistryCache;
 import org.qortal.repository.DataException;
 import org.qortal.repository.NameRepository;
 
@@ -9,6 +10,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -23,6 +25,10 @@ public class HSQLDBNameRepository implements NameRepository {
 
 	@Override
 	public NameData fromName(String name) throws DataException {
+		// Most requested names, e.g. from peers, aren't registered
+		if (this.useCache() && !NameRegistryCache.getInstance().nameExists(this, name))
+			return null;
+
 		String sql = "SELECT reduced_name, owner, data, registered_when, updated_when, "
 				+ "is_for_sale, sale_price, reference, creation_group_id FROM Names WHERE name = ?";
 
@@ -57,6 +63,9 @@ public class HSQLDBNameRepository implements NameRepository {
 
 	@Override
 	public boolean nameExists(String name) throws DataException {
+		if (this.useCache())
+			return NameRegistryCache.getInstance().nameExists(this, name);
+
 		try {
 			return this.repository.exists("Names", "name = ?", name);
 		} catch (SQLException e) {
@@ -268,6 +277,12 @@ public class HSQLDBNameRepository implements NameRepository {
 
 	@Override
 	public List<NameData> getNamesByOwner(String owner, Integer limit, Integer offset, Boolean reverse) throws DataException {
+		List<NameData> names = new ArrayList<>();
+
+		// Most addresses don't own any names
+		if (this.useCache() && NameRegistryCache.getInstance().getNames(this, owner).isEmpty())
+			return names;
+
 		StringBuilder sql = new StringBuilder(512);
 
 		sql.append("SELECT name, reduced_name, data, registered_when, updated_when, "
@@ -278,8 +293,6 @@ public class HSQLDBNameRepository implements NameRepository {
 
 		HSQLDBRepository.limitOffsetSql(sql, limit, offset);
 
-		List<NameData> names = new ArrayList<>();
-
 		try (ResultSet resultSet = this.repository.checkedExecute(sql.toString(), owner)) {
 			if (resultSet == null)
 				return names;
@@ -341,6 +354,7 @@ public class HSQLDBNameRepository implements NameRepository {
 	public void removePrimaryName(String address) throws DataException {
 		try {
 			this.repository.delete("PrimaryNames", "owner = ?", address);
+			this.repository.getPendingNameChanges().removePrimaryName(address);
 		} catch (SQLException e) {
 			throw new DataException("Unable to delete primary name from repository", e);
 		}
@@ -348,6 +362,9 @@ public class HSQLDBNameRepository implements NameRepository {
 
 	@Override
 	public Optional<String> getPrimaryName(String address) throws DataException {
+		if (this.useCache())
+			return Optional.ofNullable(NameRegistryCache.getInstance().getPrimaryName(this, address));
+
 		String sql = "SELECT name FROM PrimaryNames WHERE owner = ?";
 
 		List<String> names = new ArrayList<>();
@@ -372,6 +389,9 @@ public class HSQLDBNameRepository implements NameRepository {
 		if (addresses == null || addresses.isEmpty())
 			return result;
 
+		if (this.useCache())
+			return NameRegistryCache.getInstance().getPrimaryNames(this, addresses);
+
 		List<String> list = addresses instanceof List<?> ? (List<String>) addresses : new ArrayList<>(addresses);
 		for (int offset = 0; offset < list.size(); offset += PRIMARY_NAMES_BATCH_SIZE) {
 			int end = Math.min(offset + PRIMARY_NAMES_BATCH_SIZE, list.size());
@@ -406,7 +426,9 @@ public class HSQLDBNameRepository implements NameRepository {
 		String sql = "INSERT INTO PrimaryNames (owner, name) VALUES (?, ?) ON DUPLICATE KEY UPDATE name = ?";
 
 		try{
-			return this.repository.executeCheckedUpdate(sql, address, primaryName, primaryName);
+			int count = this.repository.executeCheckedUpdate(sql, address, primaryName, primaryName);
+			this.repository.getPendingNameChanges().setPrimaryName(address, primaryName);
+			return count;
 		} catch (SQLException e) {
 			throw new DataException("Unable to set primary name", e);
 		}
@@ -416,12 +438,93 @@ public class HSQLDBNameRepository implements NameRepository {
 	public int clearPrimaryNames() throws DataException {
 
 		try {
-			return this.repository.delete("PrimaryNames");
+			int count = this.repository.delete("PrimaryNames");
+			this.repository.getPendingNameChanges().clearPrimaryNames();
+			return count;
 		} catch (SQLException e) {
 			throw new DataException("Unable to clear primary names from repository", e);
 		}
 	}
 
+	@Override
+	public Map<String, String> getAllNameOwners() throws DataException {
+		String sql = "SELECT name, owner FROM Names ORDER BY registered_when";
+
+		Map<String, String> ownersByName = new LinkedHashMap<>();
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql)) {
+			if (resultSet == null)
+				return ownersByName;
+
+			do {
+				ownersByName.put(resultSet.getString(1), resultSet.getString(2));
+			} while (resultSet.next());
+
+			return ownersByName;
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch name owners from repository", e);
+		}
+	}
+
+	@Override
+	public Map<String, String> getAllPrimaryNames() throws DataException {
+		String sql = "SELECT owner, name FROM PrimaryNames";
+
+		Map<String, String> primaryNamesByOwner = new HashMap<>();
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql)) {
+			if (resultSet == null)
+				return primaryNamesByOwner;
+
+			do {
+				primaryNamesByOwner.put(resultSet.getString(1), resultSet.getString(2));
+			} while (resultSet.next());
+
+			return primaryNamesByOwner;
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch primary names from repository", e);
+		}
+	}
+
+	/**
+	 * Returns display names for addresses, e.g. as shown alongside chat messages.
+	 * <p>
+	 * This is the address's primary name or, before primary names were introduced,
+	 * the first name it registered.
+	 *
+	 * @param usePrimaryNames whether to use <tt>PrimaryNames</tt> table, i.e. after multiple-names-per-account feature trigger
+	 * @return map of address to name, without entries for addresses that have no name
+	 */
+	/* package */ Map<String, String> getDisplayNames(boolean usePrimaryNames, Collection<String> owners) throws DataException {
+		if (this.useCache())
+			return NameRegistryCache.getInstance().getDisplayNames(this, usePrimaryNames, owners);
+
+		String sql = usePrimaryNames
+				? "SELECT owner, name FROM PrimaryNames WHERE owner = ?"
+				: "SELECT owner, name FROM Names WHERE owner = ? ORDER BY registered_when LIMIT 1";
+
+		Map<String, String> names = new HashMap<>();
+
+		for (String owner : owners) {
+			if (owner == null || names.containsKey(owner))
+				continue;
+
+			try (ResultSet resultSet = this.repository.checkedExecute(sql, owner)) {
+				if (resultSet != null)
+					names.put(owner, resultSet.getString(2));
+			} catch (SQLException e) {
+				throw new DataException("Unable to fetch names by owner from repository", e);
+			}
+		}
+
+		return names;
+	}
+
+	/** Whether this session can use cached names, i.e. hasn't modified any names itself */
+	private boolean useCache() {
+		return this.repository.getPendingNameChanges().isEmpty();
+	}
+
 	@Override
 	public void save(NameData nameData) throws DataException {
 		HSQLDBSaver saveHelper = new HSQLDBSaver("Names");
@@ -434,6 +537,7 @@ public class HSQLDBNameRepository implements NameRepository {
 
 		try {
 			saveHelper.execute(this.repository);
+			this.repository.getPendingNameChanges().putName(nameData.getName(), nameData.getOwner());
 		} catch (SQLException e) {
 			throw new DataException("Unable to save name info into repository", e);
 		}
@@ -443,6 +547,7 @@ public class HSQLDBNameRepository implements NameRepository {
 	public void delete(String name) throws DataException {
 		try {
 			this.repository.delete("Names", "name = ?", name);
+			this.repository.getPendingNameChanges().removeName(name);
 		} catch (SQLException e) {
 			throw new DataException("Unable to delete name info from repository", e);
 		}
@@ -3,9 +3,12 @@ package org.qortal.repository.hsqldb;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.crypto.Crypto;
+import org.qortal.account.RewardShareIndexCache;
 import org.qortal.globalization.Translator;
 import org.qortal.gui.SysTray;
 import org.qortal.controller.Controller;
+import org.qortal.group.GroupMembershipCache;
+import org.qortal.naming.NameRegistryCache;
 import org.qortal.repository.*;
 import org.qortal.repository.hsqldb.transaction.HSQLDBTransactionRepository;
 import org.qortal.settings.Settings;
@@ -55,6 +58,12 @@ public class HSQLDBRepository implements Repository {
 	/** True from first execute until commit/rollback/close; used for rollback-on-close. */
 	private boolean inTransaction = false;
 	protected final Map<String, PreparedStatement> preparedStatementCache = new HashMap<>();
+	/** Group membership changes to apply to cache once committed */
+	private final GroupMembershipCache.PendingChanges pendingGroupChanges = new GroupMembershipCache.PendingChanges();
+	/** Name changes to apply to cache once committed */
+	private final NameRegistryCache.PendingChanges pendingNameChanges = new NameRegistryCache.PendingChanges();
+	/** Whether reward-shares have been changed in this session, not yet committed */
+	private boolean haveRewardSharesChanged = false;
 	// We want the same object corresponding to the actual DB
 	protected final Object trimHeightsLock = RepositoryManager.getRepositoryFactory();
 	protected final Object latestATStatesLock = RepositoryManager.getRepositoryFactory();
@@ -197,6 +206,25 @@ public class HSQLDBRepository implements Repository {
 		return this.connection;
 	}
 
+	/** Group membership changes made in this session, not yet committed. */
+	/* package */ GroupMembershipCache.PendingChanges getPendingGroupChanges() {
+		return this.pendingGroupChanges;
+	}
+
+	/** Name changes made in this session, not yet committed. */
+	/* package */ NameRegistryCache.PendingChanges getPendingNameChanges() {
+		return this.pendingNameChanges;
+	}
+
+	/** Whether reward-shares have been changed in this session, not yet committed, so cached reward-shares don't apply. */
+	/* package */ boolean haveRewardSharesChanged() {
+		return this.haveRewardSharesChanged;
+	}
+
+	/* package */ void markRewardSharesChanged() {
+		this.haveRewardSharesChanged = true;
+	}
+
 	/** Called by HSQLDBSaver and any path that executes SQL without going through checkedExecuteResultSet/executeCheckedBatchUpdate. */
 	/* package */ void markTransactionStarted() {
 		this.inTransaction = true;
@@ -209,6 +237,15 @@ public class HSQLDBRepository implements Repository {
 		try {
 			this.connection.commit();
 
+			if (!this.pendingGroupChanges.isEmpty())
+				GroupMembershipCache.getInstance().applyCommitted(this.pendingGroupChanges);
+
+			if (!this.pendingNameChanges.isEmpty())
+				NameRegistryCache.getInstance().applyCommitted(this.pendingNameChanges);
+
+			if (this.haveRewardSharesChanged)
+				RewardShareIndexCache.getInstance().invalidate();
+
 			if (this.slowQueryThreshold != null) {
 				long queryTime = System.currentTimeMillis() - beforeQuery;
 
@@ -219,10 +256,23 @@ public class HSQLDBRepository implements Repository {
 				}
 			}
 		} catch (SQLException e) {
+			// We don't know what was committed, so cached group memberships, names and reward-shares can't be trusted
+			if (!this.pendingGroupChanges.isEmpty())
+				GroupMembershipCache.getInstance().clear();
+
+			if (!this.pendingNameChanges.isEmpty())
+				NameRegistryCache.getInstance().clear();
+
+			if (this.haveRewardSharesChanged)
+				RewardShareIndexCache.getInstance().clear();
+
 			throw new DataException("commit error", e);
 		} finally {
 			this.inTransaction = false;
 			this.savepoints.clear();
+			this.pendingGroupChanges.clear();
+			this.pendingNameChanges.clear();
+			this.haveRewardSharesChanged = false;
 
 			// Before clearing statements so we can log what led to assertion error
 			assertEmptyTransaction("transaction commit");
@@ -241,6 +291,9 @@ public class HSQLDBRepository implements Repository {
 		} finally {
 			this.inTransaction = false;
 			this.savepoints.clear();
+			this.pendingGroupChanges.clear();
+			this.pendingNameChanges.clear();
+			this.haveRewardSharesChanged = false;
 
 			// Before clearing statements so we can log what led to assertion error
 			assertEmptyTransaction("transaction rollback");
@@ -347,6 +400,8 @@ public class HSQLDBRepository implements Repository {
 
 			Savepoint savepoint = this.connection.setSavepoint();
 			this.savepoints.push(savepoint);
+			this.pendingGroupChanges.setSavepoint();
+			this.pendingNameChanges.setSavepoint();
 
 			// Update query log with savepoint ID
 			if (this.sqlStatements != null)
@@ -368,6 +423,8 @@ public class HSQLDBRepository implements Repository {
 				this.sqlStatements.add("ROLLBACK TO SAVEPOINT [" + savepoint.getSavepointId() + "]");
 
 			this.connection.rollback(savepoint);
+			this.pendingGroupChanges.rollbackToSavepoint();
+			this.pendingNameChanges.rollbackToSavepoint();
 		} catch (SQLException e) {
 			throw new DataException("savepoint rollback error", e);
 		}
@@ -421,6 +478,9 @@ public class HSQLDBRepository implements Repository {
 			this.preparedStatementCache.clear();
 			this.sqlStatements = null;
 			this.savepoints.clear();
+			this.pendingGroupChanges.clear();
+			this.pendingNameChanges.clear();
+			this.haveRewardSharesChanged = false;
 
 			// If a checkpoint has been requested, we could perform that now
 			this.maybeCheckpoint();
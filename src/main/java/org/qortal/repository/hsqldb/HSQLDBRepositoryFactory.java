@@ -6,7 +6,10 @@ import org.hsqldb.HsqlException;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.jdbc.HSQLDBPool;
 import org.hsqldb.jdbc.HSQLDBPoolMonitored;
+import org.qortal.account.RewardShareIndexCache;
 import org.qortal.data.system.DbConnectionInfo;
+import org.qortal.group.GroupMembershipCache;
+import org.qortal.naming.NameRegistryCache;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryFactory;
@@ -82,6 +85,11 @@ public class HSQLDBRepositoryFactory implements RepositoryFactory {
 		} catch (SQLException e) {
 			throw new DataException("Repository initialization error", e);
 		}
+
+		// Anything cached from a previous repository, e.g. before bootstrapping, no longer applies
+		GroupMembershipCache.getInstance().clear();
+		NameRegistryCache.getInstance().clear();
+		RewardShareIndexCache.getInstance().clear();
 	}
 
 	@Override
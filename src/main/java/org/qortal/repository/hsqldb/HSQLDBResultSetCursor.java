@@ -0,0 +1,70 @@
+package org.qortal.repository.hsqldb;
+
+import org.qortal.repository.DataException;
+import org.qortal.repository.RepositoryCursor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * RepositoryCursor that converts each row of a ResultSet into an entry as it is requested.
+ * <p>
+ * The ResultSet is expected to be as returned by {@link HSQLDBRepository#checkedExecute(String, Object...)},
+ * i.e. already pointing at the first row, or null if there are no rows.
+ * <p>
+ * As PreparedStatements are cached per repository session, the same SQL must not be executed again
+ * in the same session while this cursor is in use.
+ */
+public class HSQLDBResultSetCursor<T> implements RepositoryCursor<T> {
+
+	@FunctionalInterface
+	public interface RowMapper<T> {
+		public T map(ResultSet resultSet) throws SQLException, DataException;
+	}
+
+	private final ResultSet resultSet;
+	private final RowMapper<T> rowMapper;
+	private final String errorMessage;
+
+	private boolean hasRow;
+
+	public HSQLDBResultSetCursor(ResultSet resultSet, RowMapper<T> rowMapper, String errorMessage) {
+		this.resultSet = resultSet;
+		this.rowMapper = rowMapper;
+		this.errorMessage = errorMessage;
+
+		this.hasRow = resultSet != null;
+	}
+
+	@Override
+	public T next() throws DataException {
+		if (!this.hasRow)
+			return null;
+
+		try {
+			T entry = this.rowMapper.map(this.resultSet);
+
+			this.hasRow = this.resultSet.next();
+
+			return entry;
+		} catch (SQLException e) {
+			this.hasRow = false;
+			throw new DataException(this.errorMessage, e);
+		}
+	}
+
+	@Override
+	public void close() throws DataException {
+		this.hasRow = false;
+
+		if (this.resultSet == null)
+			return;
+
+		try {
+			this.resultSet.close();
+		} catch (SQLException e) {
+			throw new DataException(this.errorMessage, e);
+		}
+	}
+
+}
@@ -46,7 +46,8 @@ public class HSQLDBChatTransactionRepository extends HSQLDBTransactionRepository
 		saveHelper.bind("signature", chatTransactionData.getSignature()).bind("nonce", chatTransactionData.getNonce())
 				.bind("sender", chatTransactionData.getSender()).bind("recipient", chatTransactionData.getRecipient())
 				.bind("is_text", chatTransactionData.getIsText()).bind("is_encrypted", chatTransactionData.getIsEncrypted())
-				.bind("data", chatTransactionData.getData()).bind("chat_reference", chatTransactionData.getChatReference());
+				.bind("data", chatTransactionData.getData()).bind("chat_reference", chatTransactionData.getChatReference())
+				.bind("created_when", chatTransactionData.getTimestamp()).bind("tx_group_id", chatTransactionData.getTxGroupId());
 
 		try {
 			saveHelper.execute(this.repository);
@@ -13,8 +13,10 @@ import org.qortal.data.transaction.GroupApprovalTransactionData;
 import org.qortal.data.transaction.TransactionData;
 import org.qortal.data.transaction.TransferAssetTransactionData;
 import org.qortal.repository.DataException;
+import org.qortal.repository.RepositoryCursor;
 import org.qortal.repository.TransactionRepository;
 import org.qortal.repository.hsqldb.HSQLDBRepository;
+import org.qortal.repository.hsqldb.HSQLDBResultSetCursor;
 import org.qortal.repository.hsqldb.HSQLDBSaver;
 import org.qortal.transaction.Transaction.ApprovalStatus;
 import org.qortal.transaction.Transaction.TransactionType;
@@ -443,6 +445,20 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 													  ConfirmationStatus confirmationStatus, Integer limit, Integer offset, Boolean reverse) throws DataException {
 		List<byte[]> signatures = new ArrayList<>();
 
+		try (RepositoryCursor<byte[]> cursor = this.getSignatureCursorMatchingCriteria(startBlock, blockLimit, txGroupId,
+				txTypes, service, name, address, confirmationStatus, limit, offset, reverse)) {
+			byte[] signature;
+			while ((signature = cursor.next()) != null)
+				signatures.add(signature);
+		}
+
+		return signatures;
+	}
+
+	@Override
+	public RepositoryCursor<byte[]> getSignatureCursorMatchingCriteria(Integer startBlock, Integer blockLimit, Integer txGroupId,
+													  List<TransactionType> txTypes, Service service, String name, String address,
+													  ConfirmationStatus confirmationStatus, Integer limit, Integer offset, Boolean reverse) throws DataException {
 		boolean hasAddress = address != null && !address.isEmpty();
 		boolean hasTxTypes = txTypes != null && !txTypes.isEmpty();
 		boolean hasHeightRange = startBlock != null || blockLimit != null;
@@ -560,17 +576,11 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 
 		LOGGER.trace(() -> String.format("Transaction search SQL: %s", sql));
 
-		try (ResultSet resultSet = this.repository.checkedExecute(sql.toString(), bindParams.toArray())) {
-			if (resultSet == null)
-				return signatures;
-
-			do {
-				byte[] signature = resultSet.getBytes(1);
-
-				signatures.add(signature);
-			} while (resultSet.next());
+		try {
+			ResultSet resultSet = this.repository.checkedExecute(sql.toString(), bindParams.toArray());
 
-			return signatures;
+			return new HSQLDBResultSetCursor<>(resultSet, rs -> rs.getBytes(1),
+					"Unable to fetch matching transaction signatures from repository");
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch matching transaction signatures from repository", e);
 		}
@@ -232,6 +232,8 @@ public class Settings {
 	private int maxNetworkThreadPoolSize = 512;
 	/** Maximum number of threads for network proof-of-work compute, used during handshaking. */
 	private int networkPoWComputePoolSize = 4;
+	/** Number of threads searching for each of our online accounts' proof-of-work nonces, or 0 to use all available processors. */
+	private int onlineAccountsPoWThreadCount = 2;
 	/** Maximum number of retry attempts if a peer fails to respond with the requested data */
 	private int maxRetries = 3;
 
@@ -390,6 +392,8 @@ public class Settings {
 
 	/** Expiry time (ms) for (unencrypted) built/cached data */
 	private Long builtDataExpiryInterval = 7 * 24 * 60 * 60 * 1000L; // 7 days
+	/** Maximum total size (bytes) of precompressed variants of built text assets */
+	private long compressedVariantCacheSize = 256 * 1024 * 1024L; // 256MiB
 
 	/** Whether to validate every layer when building arbitrary data, or just the final layer */
 	private boolean validateAllDataLayers = false;
@@ -464,6 +468,11 @@ public class Settings {
 	 */
 	private int synchronizerThreadPriority = 10;
 
+	/** Maximum number of peers we search for common blocks with at the same time. */
+	private int commonBlockSearchThreadCount = 8;
+	/** Maximum time (ms) to spend searching for common block with each peer. */
+	private long commonBlockSearchTimeout = 30 * 1000L;
+
 	/**
 	 * Archiving Pause
 	 *
@@ -783,6 +792,9 @@ public class Settings {
 		if (this.minBlockchainPeers < 1 && !singleNodeTestnet)
 			throwValidationError("minBlockchainPeers must be at least 1");
 
+		if (this.commonBlockSearchThreadCount < 1)
+			throwValidationError("commonBlockSearchThreadCount must be at least 1");
+
 		if (this.topOnly)
 			throwValidationError("topOnly mode is no longer supported");
 
@@ -1040,6 +1052,16 @@ public class Settings {
 		return this.networkPoWComputePoolSize;
 	}
 
+	public int getOnlineAccountsPoWThreadCount() {
+		int availableProcessors = Runtime.getRuntime().availableProcessors();
+
+		if (this.onlineAccountsPoWThreadCount <= 0)
+			return availableProcessors;
+
+		// More threads than processors would only slow each other down
+		return Math.min(this.onlineAccountsPoWThreadCount, availableProcessors);
+	}
+
 	public int getMaxRetries() { return this.maxRetries; }
 
 	public long getRecoveryModeTimeout() {
@@ -1382,6 +1404,10 @@ public class Settings {
 		return this.builtDataExpiryInterval;
 	}
 
+	public long getCompressedVariantCacheSize() {
+		return this.compressedVariantCacheSize;
+	}
+
 	public boolean shouldValidateAllDataLayers() {
 		return this.validateAllDataLayers;
 	}
@@ -1450,6 +1476,14 @@ public class Settings {
 		return synchronizerThreadPriority;
 	}
 
+	public int getCommonBlockSearchThreadCount() {
+		return this.commonBlockSearchThreadCount;
+	}
+
+	public long getCommonBlockSearchTimeout() {
+		return this.commonBlockSearchTimeout;
+	}
+
 	public long getArchivingPause() {
 		return archivingPause;
 	}
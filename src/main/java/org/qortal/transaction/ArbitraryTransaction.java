@@ -11,7 +11,6 @@ import org.qortal.block.BlockChain;
 import org.qortal.controller.arbitrary.ArbitraryDataManager;
 import org.qortal.controller.arbitrary.ArbitraryTransactionDataHashWrapper;
 import org.qortal.controller.repository.NamesDatabaseIntegrityCheck;
-import org.qortal.crypto.Crypto;
 import org.qortal.crypto.MemoryPoW;
 import org.qortal.data.PaymentData;
 import org.qortal.data.arbitrary.ArbitraryResourceCache;
@@ -214,24 +213,7 @@ public class ArbitraryTransaction extends Transaction {
 	}
 
 	@Override
-	public boolean isSignatureValid() {
-		byte[] signature = this.transactionData.getSignature();
-		if (signature == null) {
-			return false;
-		}
-
-		byte[] transactionBytes;
-
-		try {
-			transactionBytes = ArbitraryTransactionTransformer.toBytesForSigning(this.transactionData);
-		} catch (TransformationException e) {
-			throw new RuntimeException("Unable to transform transaction to byte array for verification", e);
-		}
-
-		if (!Crypto.verify(this.transactionData.getCreatorPublicKey(), signature, transactionBytes)) {
-			return false;
-		}
-
+	protected boolean isNonceValid(byte[] transactionBytes) {
 		// Nonce wasn't added until version 5+
 		if (arbitraryTransactionData.getVersion() >= 5) {
 
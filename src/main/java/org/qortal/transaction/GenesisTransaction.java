@@ -86,6 +86,11 @@ public class GenesisTransaction extends Transaction {
 		return Arrays.equals(this.transactionData.getSignature(), this.calcSignature());
 	}
 
+	@Override
+	protected boolean isSignatureBatchable() {
+		return false;
+	}
+
 	@Override
 	public ValidationResult isValid() {
 		// Check amount is zero or positive
@@ -242,6 +242,11 @@ public class PresenceTransaction extends Transaction {
 */
 	}
 
+	@Override
+	protected boolean isSignatureBatchable() {
+		return false;
+	}
+
 	/**
 	 * Remove any PRESENCE transactions by the same signer that have older timestamps.
 	 */
@@ -513,8 +513,83 @@ public abstract class Transaction {
 		if (signature == null)
 			return false;
 
+		byte[] transactionBytes = this.getBytesForVerification();
+
+		if (!Crypto.verify(this.transactionData.getCreatorPublicKey(), signature, transactionBytes))
+			return false;
+
+		return this.isNonceValid(transactionBytes);
+	}
+
+	/**
+	 * Returns whether signatures of passed transactions are valid, as per {@link #isSignatureValid()}.
+	 * <p>
+	 * Creators' signatures are verified together using {@link Crypto#verifyBatch(List, List, List)},
+	 * which is quicker than calling {@link #isSignatureValid()} on each transaction.
+	 *
+	 * @return array of results, in same order as passed transactions
+	 */
+	public static boolean[] areSignaturesValid(List<Transaction> transactions) {
+		boolean[] results = new boolean[transactions.size()];
+
+		List<Integer> batchIndexes = new ArrayList<>();
+		List<byte[]> publicKeys = new ArrayList<>();
+		List<byte[]> signatures = new ArrayList<>();
+		List<byte[]> transactionsBytes = new ArrayList<>();
+
+		for (int i = 0; i < transactions.size(); ++i) {
+			Transaction transaction = transactions.get(i);
+
+			if (!transaction.isSignatureBatchable()) {
+				results[i] = transaction.isSignatureValid();
+				continue;
+			}
+
+			byte[] signature = transaction.transactionData.getSignature();
+			if (signature == null)
+				continue;
+
+			batchIndexes.add(i);
+			publicKeys.add(transaction.transactionData.getCreatorPublicKey());
+			signatures.add(signature);
+			transactionsBytes.add(transaction.getBytesForVerification());
+		}
+
+		boolean[] batchResults = Crypto.verifyBatch(publicKeys, signatures, transactionsBytes);
+
+		for (int b = 0; b < batchResults.length; ++b) {
+			if (!batchResults[b])
+				continue;
+
+			int i = batchIndexes.get(b);
+			results[i] = transactions.get(i).isNonceValid(transactionsBytes.get(b));
+		}
+
+		return results;
+	}
+
+	/**
+	 * Returns whether {@link #isSignatureValid()} is only a check of creator's signature,
+	 * followed by {@link #isNonceValid(byte[])}, so can be included in {@link #areSignaturesValid(List)}'s batch.
+	 */
+	protected boolean isSignatureBatchable() {
+		return true;
+	}
+
+	/**
+	 * Returns whether transaction's nonce is valid, if transaction type uses one.
+	 * <p>
+	 * Called once creator's signature has been verified.
+	 *
+	 * @param transactionBytes transaction bytes that creator signed, which can be modified, e.g. to clear nonce
+	 */
+	protected boolean isNonceValid(byte[] transactionBytes) {
+		return true;
+	}
+
+	private byte[] getBytesForVerification() {
 		try {
-			return Crypto.verify(this.transactionData.getCreatorPublicKey(), signature, TransactionTransformer.toBytesForSigning(transactionData));
+			return TransactionTransformer.toBytesForSigning(this.transactionData);
 		} catch (TransformationException e) {
 			throw new RuntimeException("Unable to transform transaction to byte array for verification", e);
 		}
@@ -0,0 +1,138 @@
+package org.qortal.test;
+
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.qortal.block.AggregatePublicKeyCache;
+import org.qortal.crypto.Qortal25519Extras;
+import org.qortal.transform.Transformer;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AggregatePublicKeyCacheTests {
+
+	private static final long TIMESTAMP = 1_600_000_000_000L;
+	private static final int BENCHMARK_ACCOUNTS = 2000;
+	private static final int BENCHMARK_ROUNDS = 10;
+
+	private final SecureRandom random = new SecureRandom();
+
+	private AggregatePublicKeyCache cache;
+
+	@Before
+	public void beforeTest() {
+		this.cache = AggregatePublicKeyCache.getInstance();
+		this.cache.clear();
+	}
+
+	@Test
+	public void testUpdateAggregatePublicKey() {
+		List<byte[]> publicKeys = generatePublicKeys(20);
+		byte[] aggregatePublicKey = Qortal25519Extras.aggregatePublicKeys(publicKeys);
+
+		List<byte[]> addedPublicKeys = generatePublicKeys(3);
+		List<byte[]> removedPublicKeys = new ArrayList<>(publicKeys.subList(5, 9));
+
+		List<byte[]> updatedPublicKeys = new ArrayList<>(publicKeys);
+		updatedPublicKeys.removeAll(removedPublicKeys);
+		updatedPublicKeys.addAll(addedPublicKeys);
+
+		byte[] expected = Qortal25519Extras.aggregatePublicKeys(updatedPublicKeys);
+		assertArrayEquals(expected, Qortal25519Extras.updateAggregatePublicKey(aggregatePublicKey, addedPublicKeys, removedPublicKeys));
+
+		// No changes
+		assertArrayEquals(aggregatePublicKey, Qortal25519Extras.updateAggregatePublicKey(aggregatePublicKey, Collections.emptyList(), Collections.emptyList()));
+
+		// Undecodable public key
+		byte[] badPublicKey = new byte[Transformer.PUBLIC_KEY_LENGTH];
+		badPublicKey[0] = 2;
+		assertNull(Qortal25519Extras.aggregatePublicKeys(List.of(badPublicKey)));
+		assertNull(Qortal25519Extras.updateAggregatePublicKey(aggregatePublicKey, List.of(badPublicKey), Collections.emptyList()));
+	}
+
+	@Test
+	public void testCachedAggregatePublicKeys() {
+		List<byte[]> publicKeys = generatePublicKeys(50);
+		byte[] encodedOnlineAccounts = new byte[] { 1, 2, 3 };
+
+		byte[] aggregatePublicKey = this.cache.getAggregatePublicKey(TIMESTAMP, encodedOnlineAccounts, publicKeys);
+		assertArrayEquals(Qortal25519Extras.aggregatePublicKeys(publicKeys), aggregatePublicKey);
+
+		// Cached
+		assertArrayEquals(aggregatePublicKey, this.cache.getAggregatePublicKey(TIMESTAMP, encodedOnlineAccounts, publicKeys));
+
+		// Next block's online accounts are slightly different
+		List<byte[]> nextPublicKeys = new ArrayList<>(publicKeys.subList(2, publicKeys.size()));
+		nextPublicKeys.addAll(generatePublicKeys(3));
+		byte[] nextEncodedOnlineAccounts = new byte[] { 1, 2, 4 };
+
+		assertArrayEquals(Qortal25519Extras.aggregatePublicKeys(nextPublicKeys),
+				this.cache.getAggregatePublicKey(TIMESTAMP, nextEncodedOnlineAccounts, nextPublicKeys));
+
+		// Same encoded online accounts, but reward-share indexes have shifted, so public keys differ
+		List<byte[]> shiftedPublicKeys = new ArrayList<>(publicKeys);
+		shiftedPublicKeys.set(10, generatePublicKeys(1).get(0));
+
+		assertArrayEquals(Qortal25519Extras.aggregatePublicKeys(shiftedPublicKeys),
+				this.cache.getAggregatePublicKey(TIMESTAMP, encodedOnlineAccounts, shiftedPublicKeys));
+
+		// Completely different online accounts
+		List<byte[]> otherPublicKeys = generatePublicKeys(5);
+		assertArrayEquals(Qortal25519Extras.aggregatePublicKeys(otherPublicKeys),
+				this.cache.getAggregatePublicKey(TIMESTAMP + 1, encodedOnlineAccounts, otherPublicKeys));
+
+		// Single public key
+		List<byte[]> singlePublicKey = otherPublicKeys.subList(0, 1);
+		assertArrayEquals(singlePublicKey.get(0), this.cache.getAggregatePublicKey(TIMESTAMP + 2, encodedOnlineAccounts, singlePublicKey));
+	}
+
+	@Test
+	@Ignore(value = "Benchmark, for informational use")
+	public void testCachedAggregatePublicKeyBenchmark() {
+		List<byte[]> publicKeys = generatePublicKeys(BENCHMARK_ACCOUNTS);
+		this.cache.getAggregatePublicKey(TIMESTAMP, new byte[] { 0 }, publicKeys);
+
+		long fullNanos = Long.MAX_VALUE;
+		long cachedNanos = Long.MAX_VALUE;
+
+		for (int round = 1; round <= BENCHMARK_ROUNDS; ++round) {
+			// A few accounts come and go with each block
+			publicKeys = new ArrayList<>(publicKeys.subList(2, publicKeys.size()));
+			publicKeys.addAll(generatePublicKeys(2));
+
+			long start = System.nanoTime();
+			byte[] expected = Qortal25519Extras.aggregatePublicKeys(publicKeys);
+			fullNanos = Math.min(fullNanos, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			byte[] actual = this.cache.getAggregatePublicKey(TIMESTAMP, new byte[] { (byte) round }, publicKeys);
+			cachedNanos = Math.min(cachedNanos, System.nanoTime() - start);
+
+			assertArrayEquals(expected, actual);
+		}
+
+		System.out.println(String.format("%d public keys: full aggregation %.2f ms, incremental %.2f ms",
+				BENCHMARK_ACCOUNTS, fullNanos / 1_000_000.0, cachedNanos / 1_000_000.0));
+	}
+
+	private List<byte[]> generatePublicKeys(int count) {
+		List<byte[]> publicKeys = new ArrayList<>(count);
+
+		for (int i = 0; i < count; ++i) {
+			byte[] privateKey = new byte[Transformer.PRIVATE_KEY_LENGTH];
+			this.random.nextBytes(privateKey);
+
+			byte[] publicKey = new byte[Transformer.PUBLIC_KEY_LENGTH];
+			Qortal25519Extras.generatePublicKey(privateKey, 0, publicKey, 0);
+			publicKeys.add(publicKey);
+		}
+
+		return publicKeys;
+	}
+
+}
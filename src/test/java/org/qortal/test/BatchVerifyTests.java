@@ -0,0 +1,191 @@
+package org.qortal.test;
+
+import com.google.common.hash.HashCode;
+import org.bouncycastle.crypto.Digest;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.qortal.crypto.Crypto;
+import org.qortal.crypto.Ed25519BatchVerifier;
+import org.qortal.crypto.Qortal25519Extras;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchVerifyTests extends Qortal25519Extras {
+
+	/** Point of order 8 */
+	private static final byte[] TORSION_POINT = HashCode.fromString("26e8958fc2b227b045c3f489f2ef98f0d5dfac05d3c63339b13802886d53fc05").asBytes();
+
+	private static final int BENCHMARK_BATCH_SIZE = 256;
+	private static final int BENCHMARK_ROUNDS = 10;
+
+	private final SecureRandom random = new SecureRandom();
+
+	private final List<byte[]> publicKeys = new ArrayList<>();
+	private final List<byte[]> signatures = new ArrayList<>();
+	private final List<byte[]> messages = new ArrayList<>();
+
+	@Test
+	public void testValidBatch() {
+		addSignatures(50);
+
+		assertTrue(Ed25519BatchVerifier.verify(this.publicKeys, this.signatures, this.messages));
+
+		boolean[] results = Crypto.verifyBatch(this.publicKeys, this.signatures, this.messages);
+		for (boolean result : results)
+			assertTrue(result);
+	}
+
+	@Test
+	public void testInvalidSignatureFound() {
+		addSignatures(50);
+
+		byte[] message = this.messages.get(17).clone();
+		message[0] ^= 1;
+		this.messages.set(17, message);
+
+		// S out of bounds
+		byte[] signature = this.signatures.get(33).clone();
+		signature[SIGNATURE_SIZE - 1] |= (byte) 0xf0;
+		this.signatures.set(33, signature);
+
+		assertFalse(Ed25519BatchVerifier.verify(this.publicKeys, this.signatures, this.messages));
+
+		boolean[] results = Crypto.verifyBatch(this.publicKeys, this.signatures, this.messages);
+		for (int i = 0; i < results.length; ++i)
+			assertEquals("signature " + i, i != 17 && i != 33, results[i]);
+	}
+
+	@Test
+	public void testSmallBatches() {
+		assertEquals(0, Crypto.verifyBatch(this.publicKeys, this.signatures, this.messages).length);
+
+		addSignatures(1);
+		assertTrue(Crypto.verifyBatch(this.publicKeys, this.signatures, this.messages)[0]);
+
+		this.signatures.set(0, new byte[SIGNATURE_SIZE]);
+		assertFalse(Crypto.verifyBatch(this.publicKeys, this.signatures, this.messages)[0]);
+	}
+
+	@Test
+	public void testTorsionComponentsMatchSingleVerify() {
+		addSignatures(10);
+
+		// Signature with torsion component in R, and public key with torsion component
+		byte[] privateKey = randomBytes(32);
+		byte[] message = randomBytes(100);
+		addSignature(privateKey, message, true, true);
+		assertTrue(Crypto.verify(this.publicKeys.get(10), this.signatures.get(10), message));
+
+		// Batch result must agree with single signature verification
+		assertTrue(Ed25519BatchVerifier.verify(this.publicKeys, this.signatures, this.messages));
+	}
+
+	@Test
+	public void testSmallOrderPublicKeyRejected() {
+		addSignatures(10);
+
+		// Public key is just torsion point, so [S]B = R passes cofactored check
+		byte[] r = reduceScalar(randomBytes(64));
+		byte[] R = new byte[POINT_BYTES];
+		scalarMultBaseEncoded(r, R, 0);
+
+		byte[] signature = new byte[SIGNATURE_SIZE];
+		System.arraycopy(R, 0, signature, 0, POINT_BYTES);
+		System.arraycopy(r, 0, signature, POINT_BYTES, SCALAR_BYTES);
+
+		byte[] message = randomBytes(100);
+		assertFalse(Crypto.verify(TORSION_POINT, signature, message));
+
+		this.publicKeys.add(TORSION_POINT);
+		this.signatures.add(signature);
+		this.messages.add(message);
+
+		assertFalse(Ed25519BatchVerifier.verify(this.publicKeys, this.signatures, this.messages));
+
+		boolean[] results = Crypto.verifyBatch(this.publicKeys, this.signatures, this.messages);
+		assertFalse(results[10]);
+		assertTrue(results[9]);
+	}
+
+	@Test
+	@Ignore(value = "Benchmark, for informational use")
+	public void testBatchVerifyBenchmark() {
+		addSignatures(BENCHMARK_BATCH_SIZE);
+
+		long batchNanos = Long.MAX_VALUE;
+		long singleNanos = Long.MAX_VALUE;
+
+		for (int round = 0; round < BENCHMARK_ROUNDS; ++round) {
+			long start = System.nanoTime();
+			assertTrue(Ed25519BatchVerifier.verify(this.publicKeys, this.signatures, this.messages));
+			batchNanos = Math.min(batchNanos, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < BENCHMARK_BATCH_SIZE; ++i)
+				assertTrue(Crypto.verify(this.publicKeys.get(i), this.signatures.get(i), this.messages.get(i)));
+			singleNanos = Math.min(singleNanos, System.nanoTime() - start);
+		}
+
+		System.out.println(String.format("%d signatures: batch %.1f us/signature, individually %.1f us/signature",
+				BENCHMARK_BATCH_SIZE,
+				batchNanos / 1000.0 / BENCHMARK_BATCH_SIZE,
+				singleNanos / 1000.0 / BENCHMARK_BATCH_SIZE));
+	}
+
+	private void addSignatures(int count) {
+		for (int i = 0; i < count; ++i)
+			addSignature(randomBytes(32), randomBytes(50 + i), false, false);
+	}
+
+	/** Signs message, optionally adding torsion component to R and/or public key */
+	private void addSignature(byte[] privateKey, byte[] message, boolean twistR, boolean twistPublicKey) {
+		Digest d = createDigest();
+		byte[] h = new byte[d.getDigestSize()];
+		d.update(privateKey, 0, privateKey.length);
+		d.doFinal(h, 0);
+
+		byte[] a = new byte[SCALAR_BYTES];
+		pruneScalar(h, 0, a);
+
+		byte[] publicKey = scalarMultBaseWithTorsion(a, twistPublicKey);
+
+		byte[] r = reduceScalar(randomBytes(64));
+		byte[] R = scalarMultBaseWithTorsion(r, twistR);
+
+		d.update(R, 0, POINT_BYTES);
+		d.update(publicKey, 0, POINT_BYTES);
+		d.update(message, 0, message.length);
+		d.doFinal(h, 0);
+		byte[] k = reduceScalar(h);
+
+		byte[] signature = new byte[SIGNATURE_SIZE];
+		System.arraycopy(R, 0, signature, 0, POINT_BYTES);
+		System.arraycopy(calculateS(r, k, a), 0, signature, POINT_BYTES, SCALAR_BYTES);
+
+		this.publicKeys.add(publicKey);
+		this.signatures.add(signature);
+		this.messages.add(message);
+	}
+
+	private static byte[] scalarMultBaseWithTorsion(byte[] scalar, boolean addTorsion) {
+		byte[] encoded = new byte[POINT_BYTES];
+		scalarMultBaseEncoded(scalar, encoded, 0);
+
+		if (!addTorsion)
+			return encoded;
+
+		// Point addition
+		return aggregatePublicKeys(List.of(encoded, TORSION_POINT));
+	}
+
+	private byte[] randomBytes(int length) {
+		byte[] bytes = new byte[length];
+		this.random.nextBytes(bytes);
+		return bytes;
+	}
+
+}
@@ -2,10 +2,13 @@ package org.qortal.test;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.qortal.account.Account;
 import org.qortal.block.Block;
 import org.qortal.block.BlockChain;
+import org.qortal.block.ChainWeightCalculator;
+import org.qortal.controller.Synchronizer;
 import org.qortal.data.block.BlockSummaryData;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
@@ -216,6 +219,158 @@ public class ChainWeightTests extends Common {
 		}
 	}
 
+	// Check that chain weights calculated by ChainWeightCalculator match Block.calcChainWeight()
+	@Test
+	public void testChainWeightCalculator() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			final int commonBlockHeight = 1;
+			BlockSummaryData commonBlockSummary = genBlockSummary(repository, commonBlockHeight);
+
+			List<List<BlockSummaryData>> peerChains = genPeerChains(repository, commonBlockSummary, 32, 20);
+
+			ChainWeightCalculator.clearBlockWeights();
+			ChainWeightCalculator chainWeightCalculator = new ChainWeightCalculator(commonBlockHeight, commonBlockSummary.getSignature());
+
+			// Same chains, cut short at various heights
+			for (int maxHeight : new int[] { commonBlockHeight + 20, commonBlockHeight + 10, commonBlockHeight + 1 })
+				for (List<BlockSummaryData> peerChain : peerChains) {
+					BigInteger expectedChainWeight = Block.calcChainWeight(commonBlockHeight, commonBlockSummary.getSignature(), peerChain, maxHeight);
+					assertEquals(expectedChainWeight, chainWeightCalculator.calcChainWeight(peerChain, maxHeight));
+				}
+
+			// Same blocks, but a different minter level
+			List<BlockSummaryData> peerChain = peerChains.get(0);
+			BigInteger chainWeight = chainWeightCalculator.calcChainWeight(peerChain, commonBlockHeight + 20);
+			peerChain.get(5).setMinterLevel(peerChain.get(5).getMinterLevel() + 1);
+
+			BigInteger expectedChainWeight = Block.calcChainWeight(commonBlockHeight, commonBlockSummary.getSignature(), peerChain, commonBlockHeight + 20);
+			assertEquals(expectedChainWeight, chainWeightCalculator.calcChainWeight(peerChain, commonBlockHeight + 20));
+			assertNotEquals(chainWeight, expectedChainWeight);
+		}
+	}
+
+	// Compare chain weight calculations for lots of peers sharing the same common block
+	@Test
+	@Ignore(value = "Benchmark, for informational use")
+	public void testChainWeightCalculatorBenchmark() throws DataException {
+		final int peerCount = 32;
+		final int blockCount = 200;
+		final int rounds = 5;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			final int commonBlockHeight = 1;
+			BlockSummaryData commonBlockSummary = genBlockSummary(repository, commonBlockHeight);
+			final int maxHeight = commonBlockHeight + blockCount;
+
+			List<List<BlockSummaryData>> peerChains = genPeerChains(repository, commonBlockSummary, peerCount, blockCount);
+
+			long uncachedNanos = Long.MAX_VALUE;
+			long firstRoundNanos = Long.MAX_VALUE;
+			long laterRoundNanos = Long.MAX_VALUE;
+
+			for (int round = 1; round <= rounds; ++round) {
+				List<BigInteger> expectedChainWeights = new ArrayList<>();
+
+				long start = System.nanoTime();
+				for (List<BlockSummaryData> peerChain : peerChains)
+					expectedChainWeights.add(calcUncachedChainWeight(commonBlockHeight, commonBlockSummary.getSignature(), peerChain, maxHeight));
+				uncachedNanos = Math.min(uncachedNanos, System.nanoTime() - start);
+
+				// First sync round after start-up, with nothing cached
+				ChainWeightCalculator.clearBlockWeights();
+				firstRoundNanos = Math.min(firstRoundNanos, timeChainWeights(commonBlockSummary, peerChains, maxHeight, expectedChainWeights));
+
+				// Subsequent sync rounds, where block weights are already cached
+				laterRoundNanos = Math.min(laterRoundNanos, timeChainWeights(commonBlockSummary, peerChains, maxHeight, expectedChainWeights));
+			}
+
+			System.out.println(String.format("%d peers with %d blocks after common block: uncached %.2f ms, first round %.2f ms, later rounds %.2f ms",
+					peerCount, blockCount, uncachedNanos / 1_000_000.0, firstRoundNanos / 1_000_000.0, laterRoundNanos / 1_000_000.0));
+		}
+	}
+
+	private static long timeChainWeights(BlockSummaryData commonBlockSummary, List<List<BlockSummaryData>> peerChains, int maxHeight, List<BigInteger> expectedChainWeights) {
+		long start = System.nanoTime();
+
+		ChainWeightCalculator chainWeightCalculator = new ChainWeightCalculator(commonBlockSummary.getHeight(), commonBlockSummary.getSignature());
+		List<BigInteger> chainWeights = new ArrayList<>();
+		for (List<BlockSummaryData> peerChain : peerChains)
+			chainWeights.add(chainWeightCalculator.calcChainWeight(peerChain, maxHeight));
+
+		long nanos = System.nanoTime() - start;
+
+		assertEquals(expectedChainWeights, chainWeights);
+
+		return nanos;
+	}
+
+	/** Chain weight calculated without any caching, as Block.calcChainWeight() did previously. */
+	private static BigInteger calcUncachedChainWeight(int commonBlockHeight, byte[] commonBlockSignature, List<BlockSummaryData> blockSummaries, int maxHeight) {
+		BigInteger cumulativeWeight = BigInteger.ZERO;
+		int parentHeight = commonBlockHeight;
+		byte[] parentBlockSignature = commonBlockSignature;
+
+		for (BlockSummaryData blockSummaryData : blockSummaries) {
+			cumulativeWeight = cumulativeWeight.shiftLeft(8).add(Block.calcBlockWeight(parentHeight, parentBlockSignature, blockSummaryData));
+
+			parentHeight = blockSummaryData.getHeight();
+			parentBlockSignature = blockSummaryData.getSignature();
+
+			if (NTP.getTime() >= BlockChain.getInstance().getCalcChainWeightTimestamp() && parentHeight >= maxHeight)
+				break;
+		}
+
+		return cumulativeWeight;
+	}
+
+	/** Generates chains after common block that mostly agree, but fork from each other towards their tips, as during normal sync. */
+	private List<List<BlockSummaryData>> genPeerChains(Repository repository, BlockSummaryData commonBlockSummary, int peerCount, int blockCount) throws DataException {
+		List<BlockSummaryData> sharedChain = genBlockSummaries(repository, blockCount, commonBlockSummary);
+		sharedChain.remove(0);
+		populateBlockSummariesMinterLevels(repository, sharedChain);
+
+		List<List<BlockSummaryData>> peerChains = new ArrayList<>();
+		for (int i = 0; i < peerCount; ++i) {
+			// Fork somewhere in the last few blocks, if at all
+			int forkCount = RANDOM.nextInt(Math.min(5, blockCount) + 1);
+
+			List<BlockSummaryData> peerChain = new ArrayList<>(sharedChain.subList(0, blockCount - forkCount));
+			for (int height = commonBlockSummary.getHeight() + peerChain.size() + 1; height <= commonBlockSummary.getHeight() + blockCount; ++height) {
+				BlockSummaryData blockSummary = genBlockSummary(repository, height);
+				populateBlockSummaryMinterLevel(repository, blockSummary);
+				peerChain.add(blockSummary);
+			}
+
+			peerChains.add(peerChain);
+		}
+
+		return peerChains;
+	}
+
+	// Check that batched minter level lookups match individual lookups
+	@Test
+	public void testPopulateBlockSummariesMinterLevels() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			BlockSummaryData commonBlockSummary = genBlockSummary(repository, 1);
+			List<BlockSummaryData> blockSummaries = genBlockSummaries(repository, 50, commonBlockSummary);
+			blockSummaries.remove(0);
+
+			// Block minted using reward-share that doesn't exist
+			byte[] unknownPublicKey = new byte[Transformer.PUBLIC_KEY_LENGTH];
+			RANDOM.nextBytes(unknownPublicKey);
+			blockSummaries.add(new BlockSummaryData(52, null, unknownPublicKey, 0));
+
+			Synchronizer.getInstance().populateBlockSummariesMinterLevels(repository, blockSummaries);
+
+			for (BlockSummaryData blockSummary : blockSummaries) {
+				int expectedMinterLevel = Account.getRewardShareEffectiveMintingLevel(repository, blockSummary.getMinterPublicKey());
+
+				// Zero levels are replaced with 1
+				assertEquals(Math.max(expectedMinterLevel, 1), blockSummary.getMinterLevel());
+			}
+		}
+	}
+
 	// Check that a higher level account wins more blocks
 	@Test
 	public void testMinterLevel() throws DataException {
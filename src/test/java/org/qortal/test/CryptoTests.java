@@ -6,6 +6,7 @@ import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
 import org.bouncycastle.crypto.params.Ed25519PublicKeyParameters;
 import org.bouncycastle.crypto.params.X25519PrivateKeyParameters;
 import org.bouncycastle.crypto.params.X25519PublicKeyParameters;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.qortal.account.PrivateKeyAccount;
 import org.qortal.block.BlockChain;
@@ -22,12 +23,14 @@ import javax.crypto.SecretKey;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Arrays;
@@ -55,6 +58,95 @@ public class CryptoTests extends Common {
 		assertArrayEquals(expected, digest);
 	}
 
+	@Test
+	public void testDigestVariants() {
+		byte[] input = new byte[1000];
+		new Random(1234L).nextBytes(input);
+		byte[] expected = Crypto.digest(input);
+
+		// Multiple buffers, as if concatenated
+		assertArrayEquals(expected, Crypto.digest(Arrays.copyOfRange(input, 0, 300), Arrays.copyOfRange(input, 300, 1000)));
+		assertArrayEquals(expected, Crypto.digest(new byte[0], input));
+
+		// Into caller's buffer, at offset
+		byte[] output = new byte[Crypto.DIGEST_LENGTH + 10];
+		Crypto.digest(input, 0, input.length, output, 10);
+		assertArrayEquals(expected, Arrays.copyOfRange(output, 10, output.length));
+
+		// Region of input
+		Crypto.digest(input, 100, 200, output, 0);
+		assertArrayEquals(Crypto.digest(Arrays.copyOfRange(input, 100, 300)), Arrays.copyOf(output, Crypto.DIGEST_LENGTH));
+
+		// Reused digests are unaffected by previous use
+		assertArrayEquals(expected, Crypto.digest(ByteBuffer.wrap(input)));
+		assertArrayEquals(expected, Crypto.digest(input));
+	}
+
+	@Test
+	public void testTruncatedDigest() {
+		byte[] input = HashCode.fromString("00").asBytes();
+		byte[] expected = HashCode.fromString("6e340b9c").asBytes();
+
+		byte[] checksum = new byte[4];
+		ByteBuffer inputBuffer = ByteBuffer.wrap(input);
+		Crypto.digest(inputBuffer, checksum, 0, checksum.length);
+
+		assertArrayEquals(expected, checksum);
+		// Input is consumed
+		assertFalse(inputBuffer.hasRemaining());
+	}
+
+	@Test
+	public void testAddressChecksum() {
+		byte[] publicKey = HashCode.fromString("775ada64a48a30b3bfc4f1db16bca512d4088704975a62bde78781ce0cba90d6").asBytes();
+		String address = Crypto.toAddress(publicKey);
+		assertTrue(Crypto.isValidAddress(address));
+
+		byte[] addressBytes = Base58.decode(address);
+		assertTrue(Crypto.isValidAddress(addressBytes));
+
+		addressBytes[addressBytes.length - 1] ^= 1;
+		assertFalse(Crypto.isValidAddress(addressBytes));
+	}
+
+	@Test
+	@Ignore(value = "Benchmark, for informational use")
+	public void testDigestBenchmark() throws NoSuchAlgorithmException {
+		final int rounds = 20;
+
+		// Typical small network message, and a full data chunk
+		byte[] message = new byte[200];
+		byte[] chunk = new byte[512 * 1024];
+		Random random = new Random();
+		random.nextBytes(message);
+		random.nextBytes(chunk);
+
+		for (byte[] input : new byte[][] { message, chunk }) {
+			final int iterations = input == message ? 100_000 : 100;
+
+			long newInstanceNanos = Long.MAX_VALUE;
+			long reusedNanos = Long.MAX_VALUE;
+
+			byte[] checksum = new byte[4];
+			for (int round = 0; round < rounds; ++round) {
+				long start = System.nanoTime();
+				for (int i = 0; i < iterations; ++i)
+					checksum = Arrays.copyOfRange(MessageDigest.getInstance("SHA-256").digest(input), 0, 4);
+				newInstanceNanos = Math.min(newInstanceNanos, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				for (int i = 0; i < iterations; ++i)
+					Crypto.digest(ByteBuffer.wrap(input), checksum, 0, 4);
+				reusedNanos = Math.min(reusedNanos, System.nanoTime() - start);
+			}
+
+			System.out.println(String.format("%d-byte checksum: new digest per call %.2f us, reused digest %.2f us",
+					input.length,
+					newInstanceNanos / 1000.0 / iterations,
+					reusedNanos / 1000.0 / iterations));
+		}
+	}
+
 	@Test
 	public void testFileDigest() throws IOException {
 		byte[] input = HashCode.fromString("00").asBytes();
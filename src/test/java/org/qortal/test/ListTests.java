@@ -92,6 +92,48 @@ public class ListTests {
         assertTrue(blockedNames.contains("testName5"));
     }
 
+    @Test
+    public void testListContains() {
+        ResourceListManager resourceListManager = ResourceListManager.getInstance();
+
+        resourceListManager.addToList("followedNames_CustomList1", "testName1", false);
+        resourceListManager.addToList("followedNames_CustomList2", "TestName2", false);
+        resourceListManager.addToList("blockedNames_CustomList1", "testName3", false);
+
+        assertTrue(resourceListManager.listContains("followedNames_CustomList1", "testName1", true));
+        assertFalse(resourceListManager.listContains("followedNames_CustomList1", "TESTNAME1", true));
+        assertTrue(resourceListManager.listContains("followedNames_CustomList1", "TESTNAME1", false));
+        assertFalse(resourceListManager.listContains("followedNames_CustomList1", "testName2", false));
+
+        assertTrue(ListUtils.isFollowingName("testname1"));
+        assertTrue(ListUtils.isFollowingName("testname2"));
+        assertFalse(ListUtils.isFollowingName("testName3"));
+        assertTrue(ListUtils.isNameBlocked("TESTNAME3"));
+        assertFalse(ListUtils.isNameBlocked(null));
+
+        assertTrue(resourceListManager.listWithPrefixContains("followedNames", "TestName2", true));
+        assertFalse(resourceListManager.listWithPrefixContains("followedNames", "testName2", true));
+
+        // Lookups follow later changes, including to newly-created lists
+        resourceListManager.removeFromList("followedNames_CustomList2", "TestName2", false);
+        assertFalse(ListUtils.isFollowingName("testname2"));
+
+        resourceListManager.addToList("followedNames_CustomList3", "testName4", false);
+        assertTrue(ListUtils.isFollowingName("testName4"));
+
+        resourceListManager.addToList("followedNames_CustomList1", "testName5", false);
+        assertTrue(ListUtils.isFollowingName("testName5"));
+
+        // Many items, some of which will share bloom filter bits
+        for (int i = 0; i < 1000; i++) {
+            resourceListManager.addToList("blockedNames_CustomList2", "blocked" + i, false);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(ListUtils.isNameBlocked("Blocked" + i));
+            assertFalse(ListUtils.isNameBlocked("unblocked" + i));
+        }
+    }
+
     @Test
     public void testDataPersistence() {
         // Ensure lists are empty to begin with
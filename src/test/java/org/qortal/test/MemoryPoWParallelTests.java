@@ -0,0 +1,93 @@
+package org.qortal.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.crypto.MemoryPoW;
+import org.qortal.utils.NTP;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+/** Quick tests of multi-threaded MemoryPoW nonce search, using small buffer and difficulty. */
+public class MemoryPoWParallelTests {
+
+	private static final int workBufferLength = 1024 * 1024;
+	private static final int difficulty = 6;
+	private static final int maxThreadCount = 4;
+
+	private ExecutorService workerPool;
+
+	@Before
+	public void beforeTest() {
+		// Needed for timeouts
+		NTP.setFixedOffset(0L);
+
+		this.workerPool = Executors.newFixedThreadPool(maxThreadCount - 1);
+	}
+
+	@After
+	public void afterTest() {
+		this.workerPool.shutdownNow();
+	}
+
+	@Test
+	public void testParallelComputeMatches() throws TimeoutException {
+		Random random = new Random();
+		byte[] data = new byte[256];
+
+		for (int i = 0; i < 10; ++i) {
+			random.nextBytes(data);
+
+			int expectedNonce = MemoryPoW.compute2(data, workBufferLength, difficulty);
+
+			for (int threadCount = 2; threadCount <= maxThreadCount; ++threadCount) {
+				int nonce = MemoryPoW.compute2(data, workBufferLength, difficulty, null, this.workerPool, threadCount);
+				assertEquals(expectedNonce, nonce);
+				assertTrue(MemoryPoW.verify2(data, workBufferLength, difficulty, nonce));
+			}
+		}
+	}
+
+	@Test
+	public void testSmallPoolComputeMatches() throws TimeoutException {
+		Random random = new Random();
+		byte[] data = new byte[256];
+
+		// Searches that can't start straight away still run once pool thread is free
+		ExecutorService smallWorkerPool = Executors.newFixedThreadPool(1);
+
+		try {
+			for (int i = 0; i < 10; ++i) {
+				random.nextBytes(data);
+
+				int expectedNonce = MemoryPoW.compute2(data, workBufferLength, difficulty);
+				assertEquals(expectedNonce, (int) MemoryPoW.compute2(data, workBufferLength, difficulty, null, smallWorkerPool, maxThreadCount));
+			}
+		} finally {
+			smallWorkerPool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testNoPoolComputeMatches() throws TimeoutException {
+		byte[] data = new byte[256];
+		new Random().nextBytes(data);
+
+		int expectedNonce = MemoryPoW.compute2(data, workBufferLength, difficulty);
+		assertEquals(expectedNonce, (int) MemoryPoW.compute2(data, workBufferLength, difficulty, null, null, maxThreadCount));
+	}
+
+	@Test(expected = TimeoutException.class)
+	public void testParallelComputeTimeout() throws TimeoutException {
+		byte[] data = new byte[] { (byte) 0xaa, (byte) 0xbb, (byte) 0xcc };
+
+		// Far too difficult to finish within timeout
+		MemoryPoW.compute2(data, workBufferLength, 40, 500L, this.workerPool, maxThreadCount);
+	}
+
+}
@@ -0,0 +1,71 @@
+package org.qortal.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.crypto.MemoryPoW;
+import org.qortal.utils.NTP;
+
+import static org.junit.Assert.*;
+
+/** Tests of MemoryPoW verification using a retained work buffer, as used by transaction validation workers. */
+public class MemoryPoWRetainedBufferTests {
+
+	private static final int workBufferLength = 8 * 1024 * 1024;
+
+	private static final byte[] data = new byte[] { (byte) 0xaa, (byte) 0xbb, (byte) 0xcc };
+
+	@Before
+	public void beforeTest() {
+		// Needed by compute2
+		NTP.setFixedOffset(0L);
+	}
+
+	@Test
+	public void testRetainedWorkBufferVerify() throws InterruptedException {
+		boolean[] results = new boolean[3];
+
+		// Retained work buffer is per thread, so use a new thread to avoid affecting other tests
+		runOnNewThread(() -> {
+			MemoryPoW.retainWorkBuffer();
+
+			// Reused work buffer must give same results
+			results[0] = MemoryPoW.verify2(data, workBufferLength, 8, 326);
+			results[1] = MemoryPoW.verify2(data, workBufferLength, 14, 11032);
+			results[2] = MemoryPoW.verify2(data, workBufferLength, 14, 11031);
+		});
+
+		assertTrue(results[0]);
+		assertTrue(results[1]);
+		assertFalse(results[2]);
+	}
+
+	@Test
+	public void testRetainedWorkBufferResized() throws InterruptedException {
+		final int smallWorkBufferLength = 1024 * 1024;
+		final int difficulty = 8;
+
+		int smallBufferNonce = MemoryPoW.compute2(data, smallWorkBufferLength, difficulty);
+
+		boolean[] results = new boolean[3];
+
+		runOnNewThread(() -> {
+			MemoryPoW.retainWorkBuffer();
+
+			// Retained buffer is replaced when a different size is needed
+			results[0] = MemoryPoW.verify2(data, smallWorkBufferLength, difficulty, smallBufferNonce);
+			results[1] = MemoryPoW.verify2(data, workBufferLength, difficulty, 326);
+			results[2] = MemoryPoW.verify2(data, smallWorkBufferLength, difficulty, smallBufferNonce);
+		});
+
+		assertTrue(results[0]);
+		assertTrue(results[1]);
+		assertTrue(results[2]);
+	}
+
+	private static void runOnNewThread(Runnable runnable) throws InterruptedException {
+		Thread thread = new Thread(runnable);
+		thread.start();
+		thread.join();
+	}
+
+}
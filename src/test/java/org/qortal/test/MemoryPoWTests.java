@@ -7,6 +7,9 @@ import org.qortal.repository.DataException;
 import org.qortal.test.common.Common;
 
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.Assert.*;
 
@@ -114,4 +117,32 @@ public class MemoryPoWTests {
 		assertTrue(MemoryPoW.verify2(data, workBufferLength, difficulty, expectedNonce));
 	}
 
+	@Test
+	public void testParallelComputeBenchmark() throws TimeoutException {
+		final int sampleSize = 10;
+		final int difficulty = 12;
+
+		Random random = new Random();
+		byte[][] samples = new byte[sampleSize][256];
+		for (byte[] sample : samples)
+			random.nextBytes(sample);
+
+		int maxThreadCount = Runtime.getRuntime().availableProcessors();
+		ExecutorService workerPool = Executors.newFixedThreadPool(maxThreadCount);
+
+		for (int threadCount = 1; threadCount <= maxThreadCount; threadCount *= 2) {
+			long startTime = System.currentTimeMillis();
+
+			for (byte[] sample : samples)
+				assertNotNull(MemoryPoW.compute2(sample, workBufferLength, difficulty, null, workerPool, threadCount));
+
+			System.out.printf("Difficulty: %d, threads: %d, mean time to nonce: %d ms%n",
+					difficulty,
+					threadCount,
+					(System.currentTimeMillis() - startTime) / sampleSize);
+		}
+
+		workerPool.shutdownNow();
+	}
+
 }
@@ -0,0 +1,214 @@
+package org.qortal.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.account.PrivateKeyAccount;
+import org.qortal.controller.TransactionImporter;
+import org.qortal.data.transaction.ChatTransactionData;
+import org.qortal.data.transaction.PaymentTransactionData;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.transaction.ChatTestTransaction;
+import org.qortal.test.common.transaction.TestTransaction;
+import org.qortal.transaction.ChatTransaction;
+import org.qortal.transaction.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TransactionImporterTests extends Common {
+
+	private static final Random RANDOM = new Random();
+
+	private TransactionImporter transactionImporter;
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+
+		this.transactionImporter = new TransactionImporter();
+	}
+
+	@After
+	public void afterTest() {
+		this.transactionImporter.shutdown();
+	}
+
+	@Test
+	public void testValidateSignaturesMatchesSerial() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			List<PrivateKeyAccount> accounts = List.of(
+					Common.getTestAccount(repository, "alice"),
+					Common.getTestAccount(repository, "bob"),
+					Common.getTestAccount(repository, "chloe"),
+					Common.getTestAccount(repository, "dilbert"));
+
+			// Enough transactions to be shared out between validation workers
+			List<Transaction> transactions = new ArrayList<>();
+			for (int i = 0; i < 100; ++i) {
+				PrivateKeyAccount sender = accounts.get(i % accounts.size());
+				Transaction transaction = Transaction.fromData(repository, buildPayment(repository, sender));
+
+				if (i % 7 == 3) {
+					// Unsigned
+				} else if (i % 7 == 5) {
+					// Signed by someone else
+					transaction.sign(accounts.get((i + 1) % accounts.size()));
+				} else if (i % 7 == 6) {
+					// Corrupted signature
+					transaction.sign(sender);
+					byte[] signature = transaction.getTransactionData().getSignature().clone();
+					signature[10] ^= 0x01;
+					transaction.getTransactionData().setSignature(signature);
+				} else {
+					transaction.sign(sender);
+				}
+
+				transactions.add(transaction);
+			}
+
+			// Proof-of-work nonces are checked by validation workers using retained work buffers
+			transactions.add(20, buildChat(repository, accounts.get(0), true));
+			transactions.add(70, buildChat(repository, accounts.get(1), false));
+
+			Boolean[] results = this.transactionImporter.validateSignatures(transactions);
+			assertEquals(transactions.size(), results.length);
+
+			// Results are in passed order, and same as validating each transaction in turn
+			int invalidCount = 0;
+			for (int i = 0; i < transactions.size(); ++i) {
+				Transaction transaction = transactions.get(i);
+				boolean isSignatureValid = Transaction.fromData(repository, transaction.getTransactionData()).isSignatureValid();
+
+				assertNotNull(results[i]);
+				assertEquals(String.format("result for transaction %d", i), isSignatureValid, results[i]);
+
+				if (!isSignatureValid)
+					++invalidCount;
+			}
+
+			// Unsigned, wrongly signed or corrupted payments, and bad nonce
+			assertEquals(3 * (100 / 7) + 1, invalidCount);
+
+			assertTrue(results[20]);
+			assertFalse(results[70]);
+		}
+	}
+
+	@Test
+	public void testValidateNoSignatures() {
+		assertEquals(0, this.transactionImporter.validateSignatures(Collections.emptyList()).length);
+	}
+
+	@Test
+	public void testValidationPriority() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+
+			long timestamp = System.currentTimeMillis();
+
+			Transaction lowFee = buildTransaction(repository, buildPayment(repository, alice), 1000L, timestamp);
+			Transaction highFee = buildTransaction(repository, buildPayment(repository, alice), 3000L, timestamp + 2);
+			Transaction older = buildTransaction(repository, buildPayment(repository, alice), 2000L, timestamp);
+			Transaction newer = buildTransaction(repository, buildPayment(repository, alice), 2000L, timestamp + 1);
+			// Same fee and older, but needs proof-of-work so checked after payments
+			Transaction chat = buildTransaction(repository, ChatTestTransaction.randomTransaction(repository, alice, true), 2000L, timestamp - 1);
+
+			List<Transaction> transactions = List.of(chat, lowFee, newer, highFee, older);
+
+			List<Transaction> expectedTransactions = List.of(highFee, older, newer, chat, lowFee);
+			assertEquals(expectedTransactions, TransactionImporter.getTransactionsToValidate(transactions));
+
+			// Same order, whatever order they were queued
+			List<Transaction> reversedTransactions = new ArrayList<>(transactions);
+			Collections.reverse(reversedTransactions);
+			assertEquals(expectedTransactions, TransactionImporter.getTransactionsToValidate(reversedTransactions));
+
+			// Signature is final tie-break
+			Transaction sameAsOlder = buildTransaction(repository, buildPayment(repository, alice), 2000L, timestamp);
+			List<Transaction> tiedTransactions = TransactionImporter.getTransactionsToValidate(List.of(sameAsOlder, older));
+			assertEquals(tiedTransactions, TransactionImporter.getTransactionsToValidate(List.of(older, sameAsOlder)));
+		}
+	}
+
+	@Test
+	public void testValidationCap() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+
+			long timestamp = System.currentTimeMillis();
+			final int transactionCount = TransactionImporter.MAX_VALIDATE_TRANSACTIONS_PER_CYCLE + 500;
+
+			// Fee increases with index
+			List<Transaction> transactions = new ArrayList<>(transactionCount);
+			for (int i = 0; i < transactionCount; ++i)
+				transactions.add(buildTransaction(repository, buildPayment(repository, alice), 1000L + i, timestamp));
+
+			Collections.shuffle(transactions, RANDOM);
+
+			List<Transaction> transactionsToValidate = TransactionImporter.getTransactionsToValidate(transactions);
+
+			// Only highest fees, highest first
+			assertEquals(TransactionImporter.MAX_VALIDATE_TRANSACTIONS_PER_CYCLE, transactionsToValidate.size());
+			for (int i = 0; i < transactionsToValidate.size(); ++i)
+				assertEquals(1000L + transactionCount - 1 - i, (long) transactionsToValidate.get(i).getTransactionData().getFee());
+
+			// Rest are left for next round
+			List<Transaction> remainingTransactions = new ArrayList<>(transactions);
+			remainingTransactions.removeAll(transactionsToValidate);
+			assertEquals(transactionCount - TransactionImporter.MAX_VALIDATE_TRANSACTIONS_PER_CYCLE,
+					TransactionImporter.getTransactionsToValidate(remainingTransactions).size());
+		}
+	}
+
+	private static TransactionData buildPayment(Repository repository, PrivateKeyAccount sender) throws DataException {
+		byte[] randomPrivateKey = new byte[32];
+		RANDOM.nextBytes(randomPrivateKey);
+		PrivateKeyAccount recipient = new PrivateKeyAccount(repository, randomPrivateKey);
+
+		return new PaymentTransactionData(TestTransaction.generateBase(sender), recipient.getAddress(), 100000L);
+	}
+
+	/** Returns transaction with passed fee and timestamp, and random signature, for ordering tests */
+	private static Transaction buildTransaction(Repository repository, TransactionData transactionData, long fee, long timestamp) {
+		transactionData.setFee(fee);
+		transactionData.setTimestamp(timestamp);
+
+		byte[] signature = new byte[64];
+		RANDOM.nextBytes(signature);
+		transactionData.setSignature(signature);
+
+		return Transaction.fromData(repository, transactionData);
+	}
+
+	/** Returns signed CHAT transaction, with valid nonce or with a nonce just below lowest valid nonce */
+	private static Transaction buildChat(Repository repository, PrivateKeyAccount sender, boolean wantValidNonce) throws DataException {
+		while (true) {
+			ChatTransactionData chatTransactionData = (ChatTransactionData) ChatTestTransaction.randomTransaction(repository, sender, true);
+			ChatTransaction chatTransaction = (ChatTransaction) Transaction.fromData(repository, chatTransactionData);
+
+			// Lowest valid nonce
+			chatTransaction.computeNonce();
+
+			if (!wantValidNonce) {
+				// Any lower nonce is invalid, but we need one to exist
+				if (chatTransactionData.getNonce() == 0)
+					continue;
+
+				chatTransactionData.setNonce(chatTransactionData.getNonce() - 1);
+			}
+
+			chatTransaction.sign(sender);
+			return chatTransaction;
+		}
+	}
+
+}
@@ -3,17 +3,21 @@ package org.qortal.test;
 import org.junit.Before;
 import org.junit.Test;
 import org.qortal.account.PrivateKeyAccount;
+import org.qortal.api.resource.TransactionsResource.ConfirmationStatus;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryCursor;
 import org.qortal.repository.RepositoryManager;
 import org.qortal.test.common.AccountUtils;
 import org.qortal.test.common.BlockUtils;
 import org.qortal.test.common.Common;
 import org.qortal.transaction.Transaction.TransactionType;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class TransactionSearchTests extends Common {
 
@@ -73,4 +77,49 @@ public class TransactionSearchTests extends Common {
 
 	}
 
+	@Test
+	public void testSignatureCursorMatchesList() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount chloe = Common.getTestAccount(repository, "chloe");
+
+			AccountUtils.pay(repository, alice, chloe.getAddress(), 1234L);
+			AccountUtils.pay(repository, chloe, alice.getAddress(), 5678L);
+			AccountUtils.pay(repository, alice, chloe.getAddress(), 9012L);
+
+			for (Boolean reverse : new Boolean[] { null, true, false }) {
+				List<byte[]> signatures = repository.getTransactionRepository().getSignaturesMatchingCriteria(null, null, null,
+						null, null, null, alice.getAddress(), ConfirmationStatus.CONFIRMED, null, null, reverse);
+				assertFalse(signatures.isEmpty());
+
+				List<byte[]> cursorSignatures = new ArrayList<>();
+				try (RepositoryCursor<byte[]> cursor = repository.getTransactionRepository().getSignatureCursorMatchingCriteria(null, null, null,
+						null, null, null, alice.getAddress(), ConfirmationStatus.CONFIRMED, null, null, reverse)) {
+					byte[] signature;
+					while ((signature = cursor.next()) != null)
+						cursorSignatures.add(signature);
+
+					// Exhausted cursors keep returning null
+					assertNull(cursor.next());
+				}
+
+				assertEquals(signatures.size(), cursorSignatures.size());
+				for (int i = 0; i < signatures.size(); ++i)
+					assertArrayEquals(signatures.get(i), cursorSignatures.get(i));
+			}
+
+			// Closing cursor early is fine
+			try (RepositoryCursor<byte[]> cursor = repository.getTransactionRepository().getSignatureCursorMatchingCriteria(null, null, null,
+					Arrays.asList(TransactionType.PAYMENT), null, null, null, ConfirmationStatus.BOTH, null, null, null)) {
+				assertNotNull(cursor.next());
+			}
+
+			// No matches
+			try (RepositoryCursor<byte[]> cursor = repository.getTransactionRepository().getSignatureCursorMatchingCriteria(null, null, null,
+					Arrays.asList(TransactionType.GROUP_KICK), null, null, null, ConfirmationStatus.BOTH, null, null, null)) {
+				assertNull(cursor.next());
+			}
+		}
+	}
+
 }
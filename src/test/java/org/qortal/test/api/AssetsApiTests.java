@@ -130,8 +130,8 @@ public class AssetsApiTests extends ApiCommon {
 
 	@Test
 	public void testGetAssetTrades() {
-		assertNotNull(this.assetsResource.getAssetTrades(0, 1, null, null, null));
-		assertNotNull(this.assetsResource.getAssetTrades(0, 1, 1, 1, true));
+		assertNotNull(this.assetsResource.getAssetTrades(0, 1, null, null, null, null));
+		assertNotNull(this.assetsResource.getAssetTrades(0, 1, 1, 1, true, null));
 	}
 
 	@Test
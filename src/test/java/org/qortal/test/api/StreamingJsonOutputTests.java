@@ -0,0 +1,314 @@
+package org.qortal.test.api;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.api.StreamingJsonOutput;
+import org.qortal.data.asset.TradeData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.RepositoryCursor;
+import org.qortal.test.common.Common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class StreamingJsonOutputTests extends Common {
+
+	/** Large enough that holding every entry in memory would be obvious */
+	private static final int LARGE_RESULT_SET_SIZE = 200_000;
+	/** Size of each trade's order IDs, which makes up most of an entry's heap usage */
+	private static final int ORDER_ID_LENGTH = 64;
+
+	/** Cursor that creates trades on demand, like a repository ResultSet, counting how many were produced */
+	private static class TradeCursor implements RepositoryCursor<TradeData> {
+		private final int count;
+		int produced = 0;
+
+		TradeCursor(int count) {
+			this.count = count;
+		}
+
+		@Override
+		public TradeData next() {
+			if (this.produced >= this.count)
+				return null;
+
+			return buildTrade(this.produced++);
+		}
+	}
+
+	/** Output stream that discards output, counting bytes and flushes */
+	private static class CountingOutputStream extends OutputStream {
+		long byteCount = 0;
+		int flushCount = 0;
+
+		@Override
+		public void write(int b) {
+			++this.byteCount;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			this.byteCount += len;
+		}
+
+		@Override
+		public void flush() {
+			++this.flushCount;
+		}
+	}
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@Test
+	public void testEmptyCursor() throws IOException, DataException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		int entryCount = StreamingJsonOutput.write(outputStream, TradeData.class, new TradeCursor(0));
+
+		assertEquals(0, entryCount);
+		assertEquals("[]", outputStream.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testOutputIsJsonArray() throws IOException, DataException, ParseException {
+		final int count = StreamingJsonOutput.FLUSH_INTERVAL * 2 + 3;
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		int entryCount = StreamingJsonOutput.write(outputStream, TradeData.class, new TradeCursor(count));
+		assertEquals(count, entryCount);
+
+		JSONArray entries = (JSONArray) new JSONParser().parse(outputStream.toString(StandardCharsets.UTF_8));
+		assertEquals(count, entries.size());
+
+		for (int i = 0; i < count; ++i) {
+			JSONObject entry = (JSONObject) entries.get(i);
+			assertEquals(1600000000000L + i, ((Number) entry.get("timestamp")).longValue());
+			assertNotNull(entry.get("initiatingOrderId"));
+			assertNotNull(entry.get("targetOrderId"));
+		}
+	}
+
+	@Test
+	public void testCursorOnlyAdvancesAsOutputIsWritten() throws IOException, DataException {
+		final int count = StreamingJsonOutput.FLUSH_INTERVAL * 20;
+		TradeCursor cursor = new TradeCursor(count);
+		List<Integer> producedAtFlush = new ArrayList<>();
+
+		OutputStream outputStream = new CountingOutputStream() {
+			@Override
+			public void flush() {
+				super.flush();
+				producedAtFlush.add(cursor.produced);
+			}
+		};
+
+		StreamingJsonOutput.write(outputStream, TradeData.class, cursor);
+
+		// Output is flushed every FLUSH_INTERVAL entries, before any more entries are read from cursor,
+		// so a blocked (slow) client stops the cursor from advancing
+		assertTrue(producedAtFlush.size() >= count / StreamingJsonOutput.FLUSH_INTERVAL);
+		for (int i = 0; i < count / StreamingJsonOutput.FLUSH_INTERVAL; ++i)
+			assertEquals((i + 1) * StreamingJsonOutput.FLUSH_INTERVAL, producedAtFlush.get(i).intValue());
+	}
+
+	@Test
+	public void testMappedCursor() throws IOException, DataException, ParseException {
+		final int count = 3;
+		int[] mappedCount = new int[1];
+		boolean[] closed = new boolean[1];
+		TradeCursor tradeCursor = new TradeCursor(count) {
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		};
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		try (RepositoryCursor<TradeData> trades = tradeCursor.map(tradeData -> {
+			++mappedCount[0];
+			return tradeData;
+		})) {
+			assertEquals(count, StreamingJsonOutput.write(outputStream, TradeData.class, trades));
+		}
+
+		assertEquals(count, mappedCount[0]);
+		// Closing mapped cursor also closes the cursor it maps
+		assertTrue(closed[0]);
+
+		JSONArray entries = (JSONArray) new JSONParser().parse(outputStream.toString(StandardCharsets.UTF_8));
+		assertEquals(count, entries.size());
+	}
+
+	@Test
+	public void testLargeResultSetMemoryUsage() throws IOException, DataException {
+		// Warm up JAXB context and marshaller so they aren't counted
+		StreamingJsonOutput.write(new CountingOutputStream(), TradeData.class, new TradeCursor(10));
+
+		long baseline = usedMemory();
+
+		// Stream large result set, sampling heap usage halfway through
+		long[] streamingPeak = new long[1];
+		TradeCursor cursor = new TradeCursor(LARGE_RESULT_SET_SIZE) {
+			@Override
+			public TradeData next() {
+				if (this.produced == LARGE_RESULT_SET_SIZE / 2)
+					streamingPeak[0] = usedMemory() - baseline;
+
+				return super.next();
+			}
+		};
+		CountingOutputStream outputStream = new CountingOutputStream();
+
+		int entryCount = StreamingJsonOutput.write(outputStream, TradeData.class, cursor);
+		assertEquals(LARGE_RESULT_SET_SIZE, entryCount);
+
+		// Compare with holding all entries in a list, as non-streaming endpoints do
+		List<TradeData> trades = new ArrayList<>(LARGE_RESULT_SET_SIZE);
+		for (int i = 0; i < LARGE_RESULT_SET_SIZE; ++i)
+			trades.add(buildTrade(i));
+		long listUsage = usedMemory() - baseline;
+		assertEquals(LARGE_RESULT_SET_SIZE, trades.size());
+
+		// List holds at least the order IDs of every trade
+		assertTrue(listUsage > (long) LARGE_RESULT_SET_SIZE * ORDER_ID_LENGTH * 2);
+		// Streaming holds (roughly) one entry at a time
+		assertTrue(streamingPeak[0] < listUsage / 10);
+	}
+
+	@Test
+	public void testDeadline() throws DataException {
+		final int count = StreamingJsonOutput.FLUSH_INTERVAL * 10;
+		TradeCursor cursor = new TradeCursor(count);
+
+		try {
+			// Deadline already passed, as though client was slow to read first entries
+			StreamingJsonOutput.write(new CountingOutputStream(), TradeData.class, cursor, System.currentTimeMillis() - 1);
+			fail("Streaming should have been aborted");
+		} catch (IOException e) {
+			// Expected
+		}
+
+		// Aborted at first flush, without reading rest of cursor
+		assertEquals(StreamingJsonOutput.FLUSH_INTERVAL, cursor.produced);
+	}
+
+	@Test
+	public void testConcurrentStreamsLimited() throws Exception {
+		final int count = StreamingJsonOutput.FLUSH_INTERVAL * 4;
+
+		// Slow clients, blocking as soon as any output reaches them
+		CountDownLatch blockedLatch = new CountDownLatch(StreamingJsonOutput.MAX_CONCURRENT_STREAMS);
+		CountDownLatch releaseLatch = new CountDownLatch(1);
+
+		List<Thread> slowClients = new ArrayList<>();
+		for (int i = 0; i < StreamingJsonOutput.MAX_CONCURRENT_STREAMS; ++i) {
+			OutputStream blockingOutputStream = new CountingOutputStream() {
+				private boolean isBlocked = false;
+
+				@Override
+				public void write(byte[] b, int off, int len) {
+					super.write(b, off, len);
+
+					if (this.isBlocked)
+						return;
+
+					this.isBlocked = true;
+					blockedLatch.countDown();
+					try {
+						releaseLatch.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+
+			Thread slowClient = new Thread(() -> {
+				try {
+					StreamingJsonOutput.stream(null, TradeData.class, repository -> new TradeCursor(count)).write(blockingOutputStream);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			slowClient.start();
+			slowClients.add(slowClient);
+		}
+
+		try {
+			assertTrue(blockedLatch.await(30, TimeUnit.SECONDS));
+
+			// Every stream is in use, so entries are all read (and session closed) before anything is written
+			TradeCursor cursor = new TradeCursor(count);
+			ProducedAtFirstWriteOutputStream outputStream = new ProducedAtFirstWriteOutputStream(cursor);
+			StreamingJsonOutput.stream(null, TradeData.class, repository -> cursor).write(outputStream);
+
+			assertEquals(count, outputStream.producedAtFirstWrite);
+			assertEquals(count, ((JSONArray) new JSONParser().parse(outputStream.toString(StandardCharsets.UTF_8))).size());
+		} finally {
+			releaseLatch.countDown();
+
+			for (Thread slowClient : slowClients)
+				slowClient.join();
+		}
+
+		// Streams available again, so entries are written as they are read
+		TradeCursor cursor = new TradeCursor(count);
+		ProducedAtFirstWriteOutputStream outputStream = new ProducedAtFirstWriteOutputStream(cursor);
+		StreamingJsonOutput.stream(null, TradeData.class, repository -> cursor).write(outputStream);
+
+		assertTrue(outputStream.producedAtFirstWrite < count);
+		assertEquals(count, ((JSONArray) new JSONParser().parse(outputStream.toString(StandardCharsets.UTF_8))).size());
+	}
+
+	/** Output stream that records how many entries cursor had produced when output was first written */
+	private static class ProducedAtFirstWriteOutputStream extends ByteArrayOutputStream {
+		private final TradeCursor cursor;
+		int producedAtFirstWrite = -1;
+
+		ProducedAtFirstWriteOutputStream(TradeCursor cursor) {
+			this.cursor = cursor;
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			if (this.producedAtFirstWrite < 0)
+				this.producedAtFirstWrite = this.cursor.produced;
+
+			super.write(b, off, len);
+		}
+	}
+
+	private static TradeData buildTrade(int i) {
+		byte[] initiator = new byte[ORDER_ID_LENGTH];
+		byte[] target = new byte[ORDER_ID_LENGTH];
+		initiator[0] = (byte) i;
+		target[0] = (byte) (i >> 8);
+
+		return new TradeData(initiator, target, 1000L + i, 2000L + i, 0L, 1600000000000L + i, 0L, "QORT", 1L, "TEST");
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+
+		for (int i = 0; i < 3; ++i)
+			System.gc();
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
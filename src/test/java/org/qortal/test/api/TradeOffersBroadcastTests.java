@@ -0,0 +1,117 @@
+package org.qortal.test.api;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.qortal.api.model.CrossChainOfferSummary;
+import org.qortal.api.websocket.WebSocketBroadcaster;
+import org.qortal.crosschain.AcctMode;
+import org.qortal.data.crosschain.CrossChainTradeData;
+import org.qortal.test.common.FakeWebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TradeOffersBroadcastTests {
+
+	private static final int SESSION_COUNT = 1000;
+	private static final int HISTORIC_OFFER_COUNT = 10000;
+
+	@Test
+	public void testBroadcastSendsSameOutputToMatchingSessions() throws IOException {
+		List<FakeWebSocketSession> fakeSessions = new ArrayList<>();
+		List<Session> sessions = new ArrayList<>();
+		List<String> blockchains = new ArrayList<>();
+		for (int i = 0; i < 10; ++i) {
+			FakeWebSocketSession fakeSession = new FakeWebSocketSession();
+			fakeSessions.add(fakeSession);
+			sessions.add(fakeSession.getSession());
+			blockchains.add(i % 2 == 0 ? "LITECOIN" : "BITCOIN");
+		}
+
+		// Closed sessions are skipped
+		fakeSessions.get(0).open = false;
+
+		String output = WebSocketBroadcaster.marshall(buildOffers(5, AcctMode.OFFERING));
+
+		int sent = WebSocketBroadcaster.broadcast(sessions, session -> "LITECOIN".equals(blockchains.get(sessions.indexOf(session))), output);
+		assertEquals(4, sent);
+
+		for (int i = 0; i < fakeSessions.size(); ++i) {
+			FakeWebSocketSession fakeSession = fakeSessions.get(i);
+			int expectedCount = i != 0 && "LITECOIN".equals(blockchains.get(i)) ? 1 : 0;
+			assertEquals(expectedCount, fakeSession.sendCount.get());
+			assertEquals(expectedCount * (long) output.length(), fakeSession.sentChars.get());
+		}
+	}
+
+	@Test
+	public void testMarshalledOutputMatchesPerSessionOutput() throws IOException {
+		List<CrossChainOfferSummary> offers = buildOffers(100, AcctMode.REDEEMED);
+
+		String shared = WebSocketBroadcaster.marshall(offers);
+		assertEquals(shared, WebSocketBroadcaster.marshall(offers));
+		assertTrue(shared.contains(offers.get(0).getQortalAtAddress()));
+	}
+
+	@Test
+	@Ignore(value = "Benchmark, for informational use")
+	public void testBroadcastBenchmark() throws IOException {
+		List<CrossChainOfferSummary> historicOffers = buildOffers(HISTORIC_OFFER_COUNT, AcctMode.REDEEMED);
+
+		List<FakeWebSocketSession> fakeSessions = new ArrayList<>();
+		List<Session> sessions = new ArrayList<>();
+		for (int i = 0; i < SESSION_COUNT; ++i) {
+			FakeWebSocketSession fakeSession = new FakeWebSocketSession();
+			fakeSessions.add(fakeSession);
+			sessions.add(fakeSession.getSession());
+		}
+
+		// Marshal once, send the same output to every session
+		long before = System.nanoTime();
+		String output = WebSocketBroadcaster.marshall(historicOffers);
+		int sent = WebSocketBroadcaster.broadcast(sessions, session -> true, output);
+		long sharedNanos = System.nanoTime() - before;
+
+		assertEquals(SESSION_COUNT, sent);
+		for (FakeWebSocketSession fakeSession : fakeSessions)
+			assertEquals(output.length(), fakeSession.sentChars.get());
+
+		// Marshal per session, for comparison, using a sample of sessions to keep the test quick
+		final int sampleSize = 10;
+		before = System.nanoTime();
+		for (int i = 0; i < sampleSize; ++i)
+			assertEquals(output, WebSocketBroadcaster.marshall(historicOffers));
+		long perSessionNanos = (System.nanoTime() - before) / sampleSize * SESSION_COUNT;
+
+		System.out.println(String.format("%d sessions, %d historic offers (%d chars): marshal once %dms, marshal per session ~%dms (extrapolated)",
+				SESSION_COUNT, HISTORIC_OFFER_COUNT, output.length(), sharedNanos / 1_000_000L, perSessionNanos / 1_000_000L));
+
+		assertTrue(sharedNanos < perSessionNanos);
+	}
+
+	private static List<CrossChainOfferSummary> buildOffers(int count, AcctMode mode) {
+		List<CrossChainOfferSummary> offers = new ArrayList<>(count);
+
+		for (int i = 0; i < count; ++i) {
+			CrossChainTradeData tradeData = new CrossChainTradeData();
+			tradeData.qortalAtAddress = String.format("AT%032d", i);
+			tradeData.qortalCreator = "QgV4s3xnzLhVBEJxcYui4u4q11yhUHsd9v";
+			tradeData.qortalCreatorTradeAddress = "QaUpHkhT5TAN3XCkq8wLnBTNFVgFg4Q3ro";
+			tradeData.qortAmount = 100_00000000L + i;
+			tradeData.expectedForeignAmount = 1_00000000L + i;
+			tradeData.tradeTimeout = 60;
+			tradeData.mode = mode;
+			tradeData.foreignBlockchain = "LITECOIN";
+			tradeData.acctName = "LitecoinACCTv3";
+
+			offers.add(new CrossChainOfferSummary(tradeData, 1600000000000L + i));
+		}
+
+		return offers;
+	}
+
+}
@@ -0,0 +1,204 @@
+package org.qortal.test.api;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.api.model.WebSocketSessionStats;
+import org.qortal.api.websocket.WebSocketPushPipeline;
+import org.qortal.test.common.FakeWebSocketSession;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WebSocketPushPipelineTests {
+
+	private static FakeWebSocketSession newSession(boolean autoComplete) {
+		FakeWebSocketSession fakeSession = new FakeWebSocketSession();
+		// Not completing writes until told to is like a slow client
+		fakeSession.autoComplete = autoComplete;
+		return fakeSession;
+	}
+
+	private long now;
+
+	@Before
+	public void beforeTest() {
+		this.now = 1_000_000L;
+	}
+
+	@Test
+	public void testPushDeliversInOrder() {
+		WebSocketPushPipeline pipeline = new WebSocketPushPipeline("test", 10, () -> this.now);
+		FakeWebSocketSession fakeSession = newSession(false);
+		pipeline.addSession(fakeSession.getSession());
+
+		for (int i = 0; i < 5; ++i)
+			pipeline.push("frame" + i);
+
+		// Only one write in flight at a time
+		assertEquals(1, fakeSession.received.size());
+		assertEquals(1, fakeSession.pendingWrites.size());
+
+		fakeSession.drain();
+
+		assertEquals(List.of("frame0", "frame1", "frame2", "frame3", "frame4"), fakeSession.received);
+		assertEquals(1, fakeSession.maxPendingWrites);
+
+		WebSocketSessionStats stats = pipeline.getSessionStats().get(0);
+		assertEquals(5, stats.sentFrames);
+		assertEquals(0, stats.droppedFrames);
+		assertEquals(0, stats.queuedFrames);
+		assertFalse(stats.isSending);
+	}
+
+	@Test
+	public void testSlowSessionDropsIntermediateFrames() {
+		WebSocketPushPipeline pipeline = new WebSocketPushPipeline("blocks", 3, () -> this.now);
+		FakeWebSocketSession fakeSession = newSession(false);
+		pipeline.addSession(fakeSession.getSession());
+
+		for (int i = 0; i < 10; ++i)
+			pipeline.push("block" + i);
+
+		// Queue never exceeds its bound
+		assertTrue(pipeline.getSessionStats().get(0).queuedFrames <= 3);
+
+		fakeSession.drain();
+
+		// First block was already being written, then intermediate blocks are dropped, but latest are delivered
+		assertEquals(List.of("block0", "block7", "block8", "block9"), fakeSession.received);
+
+		WebSocketSessionStats stats = pipeline.getSessionStats().get(0);
+		assertEquals(4, stats.sentFrames);
+		assertEquals(6, stats.droppedFrames);
+	}
+
+	@Test
+	public void testSlowSessionKeepsLatestStatus() {
+		WebSocketPushPipeline pipeline = new WebSocketPushPipeline("status", 1, () -> this.now);
+		FakeWebSocketSession fakeSession = newSession(false);
+		pipeline.addSession(fakeSession.getSession());
+
+		for (int i = 0; i < 100; ++i)
+			pipeline.push("status" + i);
+
+		fakeSession.drain();
+
+		assertEquals(List.of("status0", "status99"), fakeSession.received);
+		assertEquals(98, pipeline.getSessionStats().get(0).droppedFrames);
+	}
+
+	@Test
+	public void testSlowSessionDoesNotAffectOthers() {
+		WebSocketPushPipeline pipeline = new WebSocketPushPipeline("blocks", 3, () -> this.now);
+		FakeWebSocketSession slowSession = newSession(false);
+		FakeWebSocketSession fastSession = newSession(true);
+		pipeline.addSession(slowSession.getSession());
+		pipeline.addSession(fastSession.getSession());
+
+		final int frameCount = 1000;
+		for (int i = 0; i < frameCount; ++i)
+			pipeline.push("block" + i);
+
+		assertEquals(frameCount, fastSession.received.size());
+		assertEquals(1, slowSession.received.size());
+
+		slowSession.drain();
+		assertEquals(1 + 3, slowSession.received.size());
+		assertEquals("block" + (frameCount - 1), slowSession.received.get(slowSession.received.size() - 1));
+	}
+
+	@Test
+	public void testLagMetrics() {
+		WebSocketPushPipeline pipeline = new WebSocketPushPipeline("blocks", 10, () -> this.now);
+		FakeWebSocketSession fakeSession = newSession(false);
+		pipeline.addSession(fakeSession.getSession());
+
+		pipeline.push("block0"); // in flight
+		this.now += 100;
+		pipeline.push("block1"); // queued
+		this.now += 250;
+
+		WebSocketSessionStats stats = pipeline.getSessionStats().get(0);
+		assertEquals("blocks", stats.websocket);
+		assertEquals(1, stats.queuedFrames);
+		assertTrue(stats.isSending);
+		assertEquals(250, stats.lag);
+
+		// Complete block0, which starts block1
+		fakeSession.pollPendingWrite().writeSuccess();
+
+		stats = pipeline.getSessionStats().get(0);
+		assertEquals(0, stats.queuedFrames);
+		assertEquals(0, stats.lag);
+		assertEquals(350, stats.lastDeliveryTime);
+
+		this.now += 50;
+		fakeSession.drain();
+
+		stats = pipeline.getSessionStats().get(0);
+		assertEquals(2, stats.sentFrames);
+		assertEquals(300, stats.lastDeliveryTime);
+		assertEquals(350, stats.maxDeliveryTime);
+	}
+
+	@Test
+	public void testWriteFailureDropsQueue() {
+		WebSocketPushPipeline pipeline = new WebSocketPushPipeline("blocks", 10, () -> this.now);
+		FakeWebSocketSession fakeSession = newSession(false);
+		pipeline.addSession(fakeSession.getSession());
+
+		for (int i = 0; i < 5; ++i)
+			pipeline.push("block" + i);
+
+		fakeSession.open = false;
+		fakeSession.pollPendingWrite().writeFailed(new RuntimeException("closed"));
+
+		WebSocketSessionStats stats = pipeline.getSessionStats().get(0);
+		assertEquals(0, stats.queuedFrames);
+		assertEquals(4, stats.droppedFrames);
+		assertFalse(stats.isSending);
+		assertEquals(1, fakeSession.received.size());
+
+		pipeline.removeSession(fakeSession.getSession());
+		assertEquals(0, pipeline.getSessionCount());
+	}
+
+	@Test
+	public void testSendIsOrderedWithPushes() {
+		WebSocketPushPipeline pipeline = new WebSocketPushPipeline("blocks", 10, () -> this.now);
+		FakeWebSocketSession fakeSession = newSession(false);
+		FakeWebSocketSession otherSession = newSession(true);
+		pipeline.addSession(fakeSession.getSession());
+		pipeline.addSession(otherSession.getSession());
+
+		pipeline.push("block0");
+		pipeline.send(fakeSession.getSession(), "reply");
+		pipeline.push("block1");
+
+		fakeSession.drain();
+
+		assertEquals(List.of("block0", "reply", "block1"), fakeSession.received);
+		assertEquals(List.of("block0", "block1"), otherSession.received);
+	}
+
+	@Test
+	public void testSendIsNotCoalesced() {
+		WebSocketPushPipeline pipeline = new WebSocketPushPipeline("blocks", 2, () -> this.now);
+		FakeWebSocketSession fakeSession = newSession(false);
+		pipeline.addSession(fakeSession.getSession());
+
+		pipeline.push("block0"); // in flight
+		pipeline.push("block1");
+		pipeline.send(fakeSession.getSession(), "reply");
+		for (int i = 2; i < 10; ++i)
+			pipeline.push("block" + i);
+
+		fakeSession.drain();
+
+		// Intermediate blocks are dropped, but reply is kept, in order
+		assertEquals(List.of("block0", "reply", "block9"), fakeSession.received);
+		assertEquals(8, pipeline.getSessionStats().get(0).droppedFrames);
+	}
+
+}
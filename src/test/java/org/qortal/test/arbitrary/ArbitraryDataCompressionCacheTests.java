@@ -0,0 +1,196 @@
+package org.qortal.test.arbitrary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.arbitrary.ArbitraryDataCompressionCache;
+import org.qortal.arbitrary.ArbitraryDataRenderCache.RenderedPage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class ArbitraryDataCompressionCacheTests {
+
+	private static final byte[] SIGNATURE_1 = new byte[64];
+	private static final byte[] SIGNATURE_2 = new byte[64];
+	static {
+		SIGNATURE_2[0] = 1;
+	}
+
+	private Path workingPath;
+	private Path builtPath;
+
+	@Before
+	public void beforeTest() throws IOException {
+		this.workingPath = Files.createTempDirectory("qortal-compression-test");
+		this.builtPath = Files.createDirectories(this.workingPath.resolve("data"));
+	}
+
+	@After
+	public void afterTest() throws IOException {
+		try (Stream<Path> paths = Files.walk(this.workingPath)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private static byte[] textAsset(int length) {
+		StringBuilder stringBuilder = new StringBuilder();
+		while (stringBuilder.length() < length) {
+			stringBuilder.append("function test() { return \"qortal\"; }\n");
+		}
+		return stringBuilder.substring(0, length).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] gunzip(byte[] data) throws IOException {
+		try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(data))) {
+			return inputStream.readAllBytes();
+		}
+	}
+
+	@Test
+	public void testIsCompressible() {
+		assertTrue(ArbitraryDataCompressionCache.isCompressible("index.html"));
+		assertTrue(ArbitraryDataCompressionCache.isCompressible("/static/js/main.JS"));
+		assertTrue(ArbitraryDataCompressionCache.isCompressible("style.css"));
+		assertFalse(ArbitraryDataCompressionCache.isCompressible("image.png"));
+		assertFalse(ArbitraryDataCompressionCache.isCompressible("video.mp4"));
+		assertFalse(ArbitraryDataCompressionCache.isCompressible("LICENSE"));
+		assertFalse(ArbitraryDataCompressionCache.isCompressible(null));
+	}
+
+	@Test
+	public void testAcceptsGzip() {
+		assertTrue(ArbitraryDataCompressionCache.acceptsGzip("gzip, deflate, br"));
+		assertTrue(ArbitraryDataCompressionCache.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+		assertTrue(ArbitraryDataCompressionCache.acceptsGzip("*"));
+		assertFalse(ArbitraryDataCompressionCache.acceptsGzip("gzip;q=0"));
+		assertFalse(ArbitraryDataCompressionCache.acceptsGzip("br, deflate"));
+		assertFalse(ArbitraryDataCompressionCache.acceptsGzip(null));
+	}
+
+	@Test
+	public void testGzipVariant() throws IOException {
+		ArbitraryDataCompressionCache cache = new ArbitraryDataCompressionCache(1024 * 1024);
+		byte[] data = textAsset(10000);
+		Files.createDirectories(this.builtPath.resolve("js"));
+		Files.write(this.builtPath.resolve("js/main.js"), data);
+
+		Path variantPath = cache.getGzipVariant(this.builtPath, SIGNATURE_1, "js/main.js");
+		assertNotNull(variantPath);
+		assertTrue(variantPath.startsWith(this.workingPath.resolve("compressed")));
+		assertFalse(variantPath.startsWith(this.builtPath));
+		assertArrayEquals(data, gunzip(Files.readAllBytes(variantPath)));
+		assertEquals(Files.size(variantPath), cache.getTotalBytes());
+
+		// Served from the existing variant
+		assertEquals(variantPath, cache.getGzipVariant(this.builtPath, SIGNATURE_1, "js/main.js"));
+		assertEquals(1, cache.getVariantCount());
+
+		// A new build gets its own variant
+		Path rebuiltVariantPath = cache.getGzipVariant(this.builtPath, SIGNATURE_2, "js/main.js");
+		assertNotNull(rebuiltVariantPath);
+		assertNotEquals(variantPath, rebuiltVariantPath);
+		assertEquals(2, cache.getVariantCount());
+	}
+
+	@Test
+	public void testNotWorthCompressing() throws IOException {
+		ArbitraryDataCompressionCache cache = new ArbitraryDataCompressionCache(1024 * 1024);
+
+		Files.write(this.builtPath.resolve("small.js"), textAsset(100));
+		assertNull(cache.getGzipVariant(this.builtPath, SIGNATURE_1, "small.js"));
+
+		byte[] random = new byte[10000];
+		new Random(1).nextBytes(random);
+		Files.write(this.builtPath.resolve("random.txt"), random);
+		assertNull(cache.getGzipVariant(this.builtPath, SIGNATURE_1, "random.txt"));
+
+		assertNull(cache.getGzipVariant(this.builtPath, SIGNATURE_1, "missing.js"));
+		assertNull(cache.getGzipVariant(this.builtPath, SIGNATURE_1, "../outside.js"));
+		assertEquals(0, cache.getVariantCount());
+	}
+
+	@Test
+	public void testByteBudget() throws IOException {
+		for (int i = 0; i < 3; i++) {
+			Files.write(this.builtPath.resolve(i + ".js"), textAsset(100000 + i));
+		}
+
+		// Work out the size of a single variant, and allow room for two
+		ArbitraryDataCompressionCache unbounded = new ArbitraryDataCompressionCache(Long.MAX_VALUE);
+		Path variantPath = unbounded.getGzipVariant(this.builtPath, SIGNATURE_2, "0.js");
+		long budget = Files.size(variantPath) * 2 + Files.size(variantPath) / 2;
+
+		ArbitraryDataCompressionCache cache = new ArbitraryDataCompressionCache(budget);
+		Path first = cache.getGzipVariant(this.builtPath, SIGNATURE_1, "0.js");
+		Path second = cache.getGzipVariant(this.builtPath, SIGNATURE_1, "1.js");
+		assertNotNull(first);
+		assertNotNull(second);
+
+		// Touch the first variant, so that the second is least recently used
+		assertEquals(first, cache.getGzipVariant(this.builtPath, SIGNATURE_1, "0.js"));
+
+		Path third = cache.getGzipVariant(this.builtPath, SIGNATURE_1, "2.js");
+		assertNotNull(third);
+		assertEquals(2, cache.getVariantCount());
+		assertTrue(cache.getTotalBytes() <= budget);
+		assertTrue(Files.exists(first));
+		assertFalse(Files.exists(second));
+		assertTrue(Files.exists(third));
+	}
+
+	@Test
+	public void testExistingVariantsCounted() throws IOException {
+		for (int i = 0; i < 3; i++) {
+			Files.write(this.builtPath.resolve(i + ".js"), textAsset(100000 + i));
+		}
+
+		// Variants left behind by a previous run
+		ArbitraryDataCompressionCache previousCache = new ArbitraryDataCompressionCache(Long.MAX_VALUE);
+		Path first = previousCache.getGzipVariant(this.builtPath, SIGNATURE_1, "0.js");
+		Path second = previousCache.getGzipVariant(this.builtPath, SIGNATURE_1, "1.js");
+		Path third = previousCache.getGzipVariant(this.builtPath, SIGNATURE_1, "2.js");
+		first.toFile().setLastModified(1000L);
+		second.toFile().setLastModified(2000L);
+		third.toFile().setLastModified(3000L);
+
+		// Built files aren't variants, even if they look like one
+		Files.write(this.builtPath.resolve("archive.gz"), textAsset(1000));
+
+		// Allow room for two variants
+		long budget = Files.size(first) * 2 + Files.size(first) / 2;
+		ArbitraryDataCompressionCache cache = new ArbitraryDataCompressionCache(budget);
+		cache.addExistingVariants(this.workingPath);
+
+		assertEquals(2, cache.getVariantCount());
+		assertEquals(Files.size(second) + Files.size(third), cache.getTotalBytes());
+		assertFalse(Files.exists(first));
+		assertTrue(Files.exists(this.builtPath.resolve("archive.gz")));
+
+		// Existing variants are served without being recreated
+		assertEquals(third, cache.getGzipVariant(this.builtPath, SIGNATURE_1, "2.js"));
+		assertEquals(2, cache.getVariantCount());
+	}
+
+	@Test
+	public void testRenderedPageVariant() throws IOException {
+		byte[] data = textAsset(5000);
+		RenderedPage page = new RenderedPage("app-test-null", data, "index.html");
+		assertNotNull(page.getGzipData());
+		assertArrayEquals(data, gunzip(page.getGzipData()));
+		assertEquals(data.length + page.getGzipData().length, page.getSize());
+
+		RenderedPage smallPage = new RenderedPage("app-test-null", textAsset(100), "index.html");
+		assertNull(smallPage.getGzipData());
+	}
+
+}
@@ -3,9 +3,14 @@ package org.qortal.test.arbitrary;
 import org.junit.Before;
 import org.junit.Test;
 import org.qortal.arbitrary.ArbitraryDataFile;
+import org.qortal.arbitrary.ArbitraryDataFileChunk;
+import org.qortal.crypto.Crypto;
 import org.qortal.repository.DataException;
 import org.qortal.test.common.Common;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import static org.junit.Assert.*;
@@ -76,4 +81,64 @@ public class ArbitraryDataFileTests extends Common {
 		assertEquals(originalFileDigest, arbitraryDataFile.digest58());
 	}
 
+	@Test
+	public void testParallelSplitMatchesSequentialSplit() throws DataException, IOException {
+		// Deliberately not a multiple of the chunk size, so that the last chunk is partial
+		int fileSize = (int) (5.3f * 1024 * 1024);
+		byte[] randomData = new byte[fileSize];
+		new Random().nextBytes(randomData); // No need for SecureRandom here
+
+		// Sequential split
+		ArbitraryDataFile sequentialFile = new ArbitraryDataFile(randomData, null, false);
+		sequentialFile.save();
+		String originalFileDigest = sequentialFile.digest58();
+		assertEquals(6, sequentialFile.split(1 * 1024 * 1024));
+		List<byte[]> sequentialHashes = sequentialFile.chunkHashList();
+		byte[] sequentialChunkHashes = sequentialFile.chunkHashes();
+		sequentialFile.deleteAllChunks();
+
+		// Parallel split of the same data
+		ArbitraryDataFile parallelFile = new ArbitraryDataFile(randomData, null, false);
+		parallelFile.save();
+		assertEquals(6, parallelFile.splitParallel(1 * 1024 * 1024));
+		assertEquals(originalFileDigest, parallelFile.digest58());
+
+		// Chunk hashes (and therefore metadata) must be identical, and in the same order
+		List<byte[]> parallelHashes = parallelFile.chunkHashList();
+		assertEquals(sequentialHashes.size(), parallelHashes.size());
+		for (int i = 0; i < sequentialHashes.size(); i++) {
+			assertArrayEquals(sequentialHashes.get(i), parallelHashes.get(i));
+		}
+		assertArrayEquals(sequentialChunkHashes, parallelFile.chunkHashes());
+
+		// Chunk files on disk must match their hashes and contain the expected bytes
+		int offset = 0;
+		for (ArbitraryDataFileChunk chunk : parallelFile.getChunks()) {
+			assertArrayEquals(chunk.getHash(), Crypto.digest(chunk.getFilePath().toFile()));
+
+			byte[] chunkBytes = chunk.getBytes();
+			assertArrayEquals(Arrays.copyOfRange(randomData, offset, offset + chunkBytes.length), chunkBytes);
+			offset += chunkBytes.length;
+		}
+		assertEquals(fileSize, offset);
+
+		// Rebuild from the parallel chunks
+		parallelFile.delete();
+		assertFalse(parallelFile.exists());
+		assertTrue(parallelFile.join());
+		assertEquals(fileSize, parallelFile.size());
+		assertEquals(originalFileDigest, parallelFile.digest58());
+	}
+
+	@Test
+	public void testParallelSplitBelowChunkSize() throws DataException {
+		String dummyDataString = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ1234567890";
+		ArbitraryDataFile arbitraryDataFile = new ArbitraryDataFile(dummyDataString.getBytes(), null, false);
+		arbitraryDataFile.save();
+
+		assertEquals(0, arbitraryDataFile.splitParallel(ArbitraryDataFile.CHUNK_SIZE));
+		assertEquals(0, arbitraryDataFile.chunkCount());
+		assertEquals("3eyjYjturyVe61grRX42bprGr3Cvw6ehTy4iknVnosDj", arbitraryDataFile.digest58());
+	}
+
 }
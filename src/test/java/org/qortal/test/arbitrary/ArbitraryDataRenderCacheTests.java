@@ -0,0 +1,105 @@
+package org.qortal.test.arbitrary;
+
+import org.junit.Test;
+import org.qortal.arbitrary.ArbitraryDataRenderCache;
+import org.qortal.arbitrary.ArbitraryDataRenderCache.RenderedPage;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ArbitraryDataRenderCacheTests {
+
+	private static final byte[] SIGNATURE_1 = new byte[64];
+	private static final byte[] SIGNATURE_2 = new byte[64];
+	static {
+		SIGNATURE_2[0] = 1;
+	}
+
+	private static RenderedPage page(String resourceKey, String html) {
+		return new RenderedPage(resourceKey, html.getBytes(StandardCharsets.UTF_8), "index.html");
+	}
+
+	@Test
+	public void testGetAndPut() {
+		ArbitraryDataRenderCache cache = new ArbitraryDataRenderCache(1024 * 1024);
+		assertNull(cache.get("app-test-null", "/|light|en"));
+
+		RenderedPage page = page("app-test-null", "<html>light</html>");
+		cache.put("app-test-null", SIGNATURE_1, "/|light|en", page);
+		assertSame(page, cache.get("app-test-null", "/|light|en"));
+
+		// Different variants are cached separately
+		assertNull(cache.get("app-test-null", "/|dark|en"));
+		cache.put("app-test-null", SIGNATURE_1, "/|dark|en", page("app-test-null", "<html>dark</html>"));
+		assertEquals(2, cache.getPageCount());
+	}
+
+	@Test
+	public void testNoSignature() {
+		ArbitraryDataRenderCache cache = new ArbitraryDataRenderCache(1024 * 1024);
+		cache.put("app-test-null", null, "/", page("app-test-null", "<html></html>"));
+		assertNull(cache.get("app-test-null", "/"));
+		assertEquals(0, cache.getPageCount());
+	}
+
+	@Test
+	public void testInvalidation() {
+		ArbitraryDataRenderCache cache = new ArbitraryDataRenderCache(1024 * 1024);
+		cache.put("app-test-null", SIGNATURE_1, "/", page("app-test-null", "<html>test</html>"));
+		cache.put("app-other-null", SIGNATURE_1, "/", page("app-other-null", "<html>other</html>"));
+
+		cache.invalidate("app-test-null");
+		assertNull(cache.get("app-test-null", "/"));
+		assertNotNull(cache.get("app-other-null", "/"));
+		assertEquals(1, cache.getPageCount());
+		assertEquals("<html>other</html>".length(), cache.getTotalBytes());
+	}
+
+	@Test
+	public void testNewSignatureReplacesOldPages() {
+		ArbitraryDataRenderCache cache = new ArbitraryDataRenderCache(1024 * 1024);
+		cache.put("app-test-null", SIGNATURE_1, "/", page("app-test-null", "<html>v1</html>"));
+		cache.put("app-test-null", SIGNATURE_1, "/about", page("app-test-null", "<html>about v1</html>"));
+
+		RenderedPage updated = page("app-test-null", "<html>v2</html>");
+		cache.put("app-test-null", SIGNATURE_2, "/", updated);
+		assertSame(updated, cache.get("app-test-null", "/"));
+		assertNull(cache.get("app-test-null", "/about"));
+		assertEquals(1, cache.getPageCount());
+	}
+
+	@Test
+	public void testByteBudget() {
+		ArbitraryDataRenderCache cache = new ArbitraryDataRenderCache(100);
+		String html = "<html>" + "x".repeat(30) + "</html>"; // 43 bytes
+
+		cache.put("app-test-null", SIGNATURE_1, "/1", page("app-test-null", html));
+		cache.put("app-test-null", SIGNATURE_1, "/2", page("app-test-null", html));
+
+		// Touch the first page, so that the second is least recently used
+		assertNotNull(cache.get("app-test-null", "/1"));
+
+		cache.put("app-test-null", SIGNATURE_1, "/3", page("app-test-null", html));
+		assertEquals(2, cache.getPageCount());
+		assertTrue(cache.getTotalBytes() <= 100);
+		assertNotNull(cache.get("app-test-null", "/1"));
+		assertNull(cache.get("app-test-null", "/2"));
+		assertNotNull(cache.get("app-test-null", "/3"));
+	}
+
+	@Test
+	public void testEtags() {
+		RenderedPage page = page("app-test-null", "<html></html>");
+		assertEquals(page.getEtag(), page("app-test-null", "<html></html>").getEtag());
+		assertNotEquals(page.getEtag(), page("app-test-null", "<html> </html>").getEtag());
+
+		assertTrue(ArbitraryDataRenderCache.etagMatches(page.getEtag(), page.getEtag()));
+		assertTrue(ArbitraryDataRenderCache.etagMatches("\"abc\", " + page.getEtag(), page.getEtag()));
+		assertTrue(ArbitraryDataRenderCache.etagMatches("W/" + page.getEtag(), page.getEtag()));
+		assertTrue(ArbitraryDataRenderCache.etagMatches("*", page.getEtag()));
+		assertFalse(ArbitraryDataRenderCache.etagMatches("\"abc\"", page.getEtag()));
+		assertFalse(ArbitraryDataRenderCache.etagMatches(null, page.getEtag()));
+	}
+
+}
@@ -0,0 +1,308 @@
+package org.qortal.test.arbitrary;
+
+import org.junit.Test;
+import org.qortal.controller.arbitrary.ArbitraryDataSwarmScheduler;
+import org.qortal.controller.arbitrary.ArbitraryDataSwarmScheduler.Schedule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ArbitraryDataSwarmSchedulerTests {
+
+	private static final int MAX_WINDOW = 40;
+	private static final long TICK_MS = 2000L; // Matches ArbitraryDataFileRequestThread batch interval
+	private static final long SIMULATION_LIMIT_MS = 60 * 60 * 1000L;
+
+	@Test
+	public void testRarestFirst() {
+		ArbitraryDataSwarmScheduler<String> scheduler = new ArbitraryDataSwarmScheduler<>(MAX_WINDOW);
+
+		// Peer A holds everything, but only has room for one request
+		Map<String, List<String>> availability = new LinkedHashMap<>();
+		availability.put("common1", Arrays.asList("A", "B", "C"));
+		availability.put("common2", Arrays.asList("A", "B", "C"));
+		availability.put("rare", Collections.singletonList("A"));
+
+		Map<String, Double> rates = new HashMap<>();
+		rates.put("A", 0.25); // Window of 1
+
+		Schedule<String> schedule = scheduler.schedule(availability, Collections.emptyMap(), rates, Collections.emptyMap());
+
+		assertEquals(Collections.singletonList("rare"), schedule.getRequests().get("A"));
+		assertEquals(3, schedule.getRequestCount());
+		assertTrue(schedule.getUnavailable().isEmpty());
+	}
+
+	@Test
+	public void testWindowsSizedFromThroughput() {
+		ArbitraryDataSwarmScheduler<String> scheduler = new ArbitraryDataSwarmScheduler<>(MAX_WINDOW);
+
+		assertEquals(1, scheduler.getWindow(0.1));
+		assertEquals(8, scheduler.getWindow(2.0));
+		assertEquals(MAX_WINDOW, scheduler.getWindow(1000.0));
+		assertEquals(scheduler.getWindow(ArbitraryDataSwarmScheduler.DEFAULT_CHUNKS_PER_SECOND), scheduler.getWindow(null));
+
+		// Outstanding requests count against the window
+		Map<String, List<String>> availability = new LinkedHashMap<>();
+		for (int i = 0; i < 20; i++) {
+			availability.put(String.format("chunk%02d", i), Collections.singletonList("A"));
+		}
+		Map<String, Double> rates = Collections.singletonMap("A", 2.0);
+		Map<String, Integer> inFlightByPeer = Collections.singletonMap("A", 5);
+
+		Schedule<String> schedule = scheduler.schedule(availability, Collections.emptyMap(), rates, inFlightByPeer);
+		assertEquals(3, schedule.getRequestCount());
+		assertFalse(schedule.isEndgame());
+	}
+
+	@Test
+	public void testFasterPeersGetMoreWork() {
+		ArbitraryDataSwarmScheduler<String> scheduler = new ArbitraryDataSwarmScheduler<>(MAX_WINDOW);
+
+		Map<String, List<String>> availability = new LinkedHashMap<>();
+		for (int i = 0; i < 30; i++) {
+			availability.put(String.format("chunk%02d", i), Arrays.asList("slow", "fast"));
+		}
+		Map<String, Double> rates = new HashMap<>();
+		rates.put("slow", 1.0);
+		rates.put("fast", 5.0);
+
+		Schedule<String> schedule = scheduler.schedule(availability, Collections.emptyMap(), rates, Collections.emptyMap());
+		assertEquals(4, schedule.getRequests().get("slow").size());
+		assertEquals(20, schedule.getRequests().get("fast").size());
+	}
+
+	@Test
+	public void testUnavailableChunks() {
+		ArbitraryDataSwarmScheduler<String> scheduler = new ArbitraryDataSwarmScheduler<>(MAX_WINDOW);
+
+		Map<String, List<String>> availability = new LinkedHashMap<>();
+		availability.put("orphan", Collections.emptyList());
+		availability.put("inflight", Collections.emptyList());
+		Map<String, Set<String>> inFlight = Collections.singletonMap("inflight", Collections.singleton("A"));
+
+		Schedule<String> schedule = scheduler.schedule(availability, inFlight, Collections.emptyMap(), Collections.emptyMap());
+		assertEquals(Collections.singletonList("orphan"), schedule.getUnavailable());
+		assertEquals(0, schedule.getRequestCount());
+	}
+
+	@Test
+	public void testEndgameDuplicatesToFastestPeers() {
+		ArbitraryDataSwarmScheduler<String> scheduler = new ArbitraryDataSwarmScheduler<>(MAX_WINDOW);
+
+		// Last chunk is stuck with a slow peer
+		Map<String, List<String>> availability = new LinkedHashMap<>();
+		availability.put("last", Arrays.asList("medium", "fast", "faster"));
+		Map<String, Set<String>> inFlight = Collections.singletonMap("last", Collections.singleton("slow"));
+
+		Map<String, Double> rates = new HashMap<>();
+		rates.put("slow", 0.1);
+		rates.put("medium", 1.0);
+		rates.put("fast", 4.0);
+		rates.put("faster", 8.0);
+
+		Schedule<String> schedule = scheduler.schedule(availability, inFlight, rates, Collections.singletonMap("slow", 1));
+		assertTrue(schedule.isEndgame());
+		assertEquals(0, schedule.getRequestCount());
+		assertEquals(ArbitraryDataSwarmScheduler.ENDGAME_DUPLICATES, schedule.getDuplicateCount());
+		assertEquals(Collections.singletonList("last"), schedule.getDuplicates().get("faster"));
+		assertEquals(Collections.singletonList("last"), schedule.getDuplicates().get("fast"));
+		assertNull(schedule.getDuplicates().get("medium"));
+
+		// Not in endgame while plenty of chunks remain
+		for (int i = 0; i < 10; i++) {
+			availability.put(String.format("chunk%02d", i), Arrays.asList("medium", "fast", "faster"));
+		}
+		schedule = scheduler.schedule(availability, inFlight, rates, Collections.emptyMap());
+		assertFalse(schedule.isEndgame());
+		assertEquals(0, schedule.getDuplicateCount());
+	}
+
+	/**
+	 * Simulation harness: in-process fake peers of varying speed, each advertising a subset
+	 * of the chunks, serving requests in order. Compares completion time against fetching
+	 * everything from the first peer that responded, as a single-source download would.
+	 */
+	@Test
+	public void testSwarmSimulation() {
+		final int chunkCount = 400;
+		final double[] peerRates = { 0.5, 1.0, 2.0, 4.0, 8.0, 0.2, 3.0, 6.0 };
+
+		Random random = new Random(1234L); // Fixed seed so the benchmark is repeatable
+		List<FakePeer> peers = new ArrayList<>();
+		for (int i = 0; i < peerRates.length; i++) {
+			peers.add(new FakePeer("peer" + i, peerRates[i]));
+		}
+
+		// The first peer has everything; every other peer holds a random ~60% of chunks
+		Map<String, List<String>> holders = new LinkedHashMap<>();
+		for (int c = 0; c < chunkCount; c++) {
+			String hash = String.format("chunk%04d", c);
+			List<String> holdersForChunk = new ArrayList<>();
+			for (FakePeer peer : peers) {
+				if (peer == peers.get(0) || random.nextDouble() < 0.6) {
+					holdersForChunk.add(peer.name);
+				}
+			}
+			holders.put(hash, holdersForChunk);
+		}
+
+		SimulationResult swarm = simulate(peers, holders, true);
+		SimulationResult singleSource = simulate(peers, holders, false);
+
+		assertTrue(swarm.completed);
+		assertTrue(singleSource.completed);
+
+		// First peer serves 0.5 chunks/s alone, whereas the swarm has ~25 chunks/s in total
+		assertTrue(String.format("swarm took %d ms, single source took %d ms", swarm.completionMs, singleSource.completionMs),
+				swarm.completionMs * 10 < singleSource.completionMs);
+
+		// Duplicates are bounded by endgame
+		assertTrue(swarm.duplicates <= ArbitraryDataSwarmScheduler.ENDGAME_THRESHOLD * ArbitraryDataSwarmScheduler.ENDGAME_DUPLICATES);
+		assertEquals(chunkCount + swarm.duplicates, swarm.requests);
+	}
+
+	private static class FakePeer {
+		final String name;
+		final double chunksPerSecond;
+		long nextFreeTime = 0;
+		int inFlight = 0;
+		boolean measured = false;
+
+		FakePeer(String name, double chunksPerSecond) {
+			this.name = name;
+			this.chunksPerSecond = chunksPerSecond;
+		}
+
+		/** Queues a request and returns the time it will complete */
+		long request(long now) {
+			long serviceMs = (long) (1000.0 / this.chunksPerSecond);
+			this.nextFreeTime = Math.max(now, this.nextFreeTime) + serviceMs;
+			this.inFlight++;
+			return this.nextFreeTime;
+		}
+	}
+
+	private static class Completion implements Comparable<Completion> {
+		final long time;
+		final FakePeer peer;
+		final String hash;
+
+		Completion(long time, FakePeer peer, String hash) {
+			this.time = time;
+			this.peer = peer;
+			this.hash = hash;
+		}
+
+		@Override
+		public int compareTo(Completion other) {
+			return Long.compare(this.time, other.time);
+		}
+	}
+
+	private static class SimulationResult {
+		boolean completed;
+		long completionMs;
+		int requests;
+		int duplicates;
+	}
+
+	private static SimulationResult simulate(List<FakePeer> peerList, Map<String, List<String>> holders, boolean swarm) {
+		Map<String, FakePeer> peers = new LinkedHashMap<>();
+		for (FakePeer peer : peerList) {
+			peers.put(peer.name, new FakePeer(peer.name, peer.chunksPerSecond));
+		}
+		FakePeer firstPeer = peers.get(peerList.get(0).name);
+
+		ArbitraryDataSwarmScheduler<String> scheduler = new ArbitraryDataSwarmScheduler<>(MAX_WINDOW);
+		Set<String> missing = new HashSet<>(holders.keySet());
+		Map<String, Set<String>> requestedFrom = new HashMap<>();
+		PriorityQueue<Completion> completions = new PriorityQueue<>();
+		SimulationResult result = new SimulationResult();
+
+		long now = 0;
+		while (!missing.isEmpty() && now < SIMULATION_LIMIT_MS) {
+			if (swarm) {
+				Map<String, List<String>> availability = new LinkedHashMap<>();
+				Map<String, Set<String>> inFlight = new HashMap<>();
+				for (String hash : missing) {
+					Set<String> requested = requestedFrom.getOrDefault(hash, Collections.emptySet());
+					List<String> available = new ArrayList<>(holders.get(hash));
+					available.removeAll(requested);
+					availability.put(hash, available);
+					if (!requested.isEmpty()) {
+						inFlight.put(hash, requested);
+					}
+				}
+
+				// Throughput only becomes known once a peer has delivered something, as with PeerDownloadSpeedTracker
+				Map<String, Double> rates = new HashMap<>();
+				Map<String, Integer> inFlightByPeer = new HashMap<>();
+				for (FakePeer peer : peers.values()) {
+					if (peer.measured) {
+						rates.put(peer.name, peer.chunksPerSecond);
+					}
+					inFlightByPeer.put(peer.name, peer.inFlight);
+				}
+
+				Schedule<String> schedule = scheduler.schedule(availability, inFlight, rates, inFlightByPeer);
+				assertTrue(schedule.getUnavailable().isEmpty());
+
+				for (Map<String, List<String>> requests : Arrays.asList(schedule.getRequests(), schedule.getDuplicates())) {
+					for (Map.Entry<String, List<String>> entry : requests.entrySet()) {
+						FakePeer peer = peers.get(entry.getKey());
+						for (String hash : entry.getValue()) {
+							assertTrue("Requested chunk from a peer that doesn't hold it", holders.get(hash).contains(peer.name));
+							requestedFrom.computeIfAbsent(hash, h -> new HashSet<>()).add(peer.name);
+							completions.add(new Completion(peer.request(now), peer, hash));
+						}
+					}
+				}
+				result.requests += schedule.getRequestCount() + schedule.getDuplicateCount();
+				result.duplicates += schedule.getDuplicateCount();
+			}
+			else {
+				// Single source: batches of up to MAX_WINDOW chunks, all from the first peer
+				int toSend = MAX_WINDOW - firstPeer.inFlight;
+				for (String hash : holders.keySet()) {
+					if (toSend <= 0) {
+						break;
+					}
+					if (missing.contains(hash) && !requestedFrom.containsKey(hash)) {
+						requestedFrom.put(hash, Collections.singleton(firstPeer.name));
+						completions.add(new Completion(firstPeer.request(now), firstPeer, hash));
+						result.requests++;
+						toSend--;
+					}
+				}
+			}
+
+			// Advance to the next scheduling tick, delivering anything that completes before then
+			long nextTick = now + TICK_MS;
+			while (!completions.isEmpty() && completions.peek().time <= nextTick) {
+				Completion completion = completions.poll();
+				completion.peer.inFlight--;
+				completion.peer.measured = true;
+				if (missing.remove(completion.hash) && missing.isEmpty()) {
+					result.completionMs = completion.time;
+				}
+			}
+			now = nextTick;
+		}
+
+		result.completed = missing.isEmpty();
+		return result;
+	}
+
+}
@@ -0,0 +1,188 @@
+package org.qortal.test.chat;
+
+import org.junit.Test;
+import org.qortal.api.websocket.ActiveChatsState;
+import org.qortal.data.chat.ActiveChats;
+import org.qortal.data.chat.ActiveChats.DirectChat;
+import org.qortal.data.chat.ActiveChats.GroupChat;
+import org.qortal.data.chat.ActiveChatsDelta;
+import org.qortal.data.transaction.BaseTransactionData;
+import org.qortal.data.transaction.ChatTransactionData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.qortal.data.chat.ChatMessage.Encoding;
+
+public class ActiveChatsStateTests {
+
+	private static final String ALICE = "QgV4s3xnzLhVBEJxcYui4u4q11yhUHsd9v";
+	private static final String BOB = "QaUpHkhT5TAN3XCkq8wLnBTNFVgFg4Q3ro";
+	private static final String CHLOE = "QiMvMsZ2T9hS1XchR6WcGiEM4fMQW8vFJz";
+
+	private static final long CUTOFF = 1000L;
+
+	private static ChatTransactionData chat(long timestamp, int txGroupId, String sender, String recipient, byte[] chatReference) {
+		BaseTransactionData baseTransactionData = new BaseTransactionData(timestamp, txGroupId, null, new byte[32], 0L, new byte[64]);
+		return new ChatTransactionData(baseTransactionData, sender, 0, recipient, chatReference, new byte[] { 1, 2, 3 }, true, false);
+	}
+
+	private static ActiveChatsState newState(Boolean hasChatReference) {
+		List<GroupChat> groups = new ArrayList<>();
+		groups.add(new GroupChat(5, "group5", 2000L, BOB, null, new byte[64], Encoding.BASE58, new byte[] { 9 }));
+		groups.add(new GroupChat(6, "group6", null, null, null, null, Encoding.BASE58, null));
+		groups.add(new GroupChat(0, null, null, null, null, null, Encoding.BASE58, null));
+
+		List<DirectChat> direct = new ArrayList<>();
+		direct.add(new DirectChat(BOB, "bob", 2000L, BOB, "bob"));
+
+		return new ActiveChatsState(ALICE, Encoding.BASE58, hasChatReference, new ActiveChats(groups, direct));
+	}
+
+	@Test
+	public void testInitialState() {
+		ActiveChatsState state = newState(null);
+		assertEquals(Set.of(5, 6), state.getGroupIds());
+
+		ActiveChats activeChats = state.toActiveChats();
+		assertEquals(3, activeChats.getGroups().size());
+		assertEquals(0, activeChats.getGroups().get(2).getGroupId());
+		assertEquals(1, activeChats.getDirect().size());
+
+		// Nothing has expired yet
+		assertTrue(state.apply(null, null, null, CUTOFF).isEmpty());
+	}
+
+	@Test
+	public void testGroupMessage() {
+		ActiveChatsState state = newState(null);
+
+		ChatTransactionData chatTransactionData = chat(3000L, 6, CHLOE, null, null);
+		assertTrue(state.isInterestedIn(chatTransactionData));
+
+		ActiveChatsDelta delta = state.apply(chatTransactionData, "chloe", null, CUTOFF);
+		assertEquals(1, delta.getGroups().size());
+		assertEquals(6, delta.getGroups().get(0).getGroupId());
+		assertEquals("group6", delta.getGroups().get(0).getGroupName());
+		assertEquals(Long.valueOf(3000L), delta.getGroups().get(0).getTimestamp());
+		assertEquals("chloe", delta.getGroups().get(0).getSenderName());
+		assertTrue(delta.getDirect().isEmpty());
+
+		// Full state reflects the change, keeping group order
+		GroupChat groupChat = state.toActiveChats().getGroups().get(1);
+		assertEquals(6, groupChat.getGroupId());
+		assertEquals(CHLOE, groupChat.getSender());
+
+		// Groupless chat
+		assertEquals(1, state.apply(chat(3000L, 0, CHLOE, null, null), null, null, CUTOFF).getGroups().size());
+	}
+
+	@Test
+	public void testIgnoredMessages() {
+		ActiveChatsState state = newState(null);
+
+		// Not a member of group 7
+		ChatTransactionData otherGroup = chat(3000L, 7, CHLOE, null, null);
+		assertFalse(state.isInterestedIn(otherGroup));
+		assertTrue(state.apply(otherGroup, null, null, CUTOFF).isEmpty());
+
+		// Direct message not involving Alice
+		ChatTransactionData otherDirect = chat(3000L, 0, BOB, CHLOE, null);
+		assertFalse(state.isInterestedIn(otherDirect));
+		assertTrue(state.apply(otherDirect, null, null, CUTOFF).isEmpty());
+
+		// Older than what we already have
+		assertTrue(state.apply(chat(1500L, 5, CHLOE, null, null), null, null, CUTOFF).isEmpty());
+		assertTrue(state.apply(chat(1500L, 0, BOB, ALICE, null), null, null, CUTOFF).isEmpty());
+
+		// Already expired
+		assertTrue(state.apply(chat(500L, 6, CHLOE, null, null), null, null, CUTOFF).isEmpty());
+	}
+
+	@Test
+	public void testDirectMessage() {
+		ActiveChatsState state = newState(null);
+
+		// New chat partner, with Alice as sender
+		ActiveChatsDelta delta = state.apply(chat(3000L, 0, ALICE, CHLOE, null), "alice", "chloe", CUTOFF);
+		assertEquals(1, delta.getDirect().size());
+		DirectChat directChat = delta.getDirect().get(0);
+		assertEquals(CHLOE, directChat.getAddress());
+		assertEquals("chloe", directChat.getName());
+		assertEquals(ALICE, directChat.getSender());
+		assertEquals("alice", directChat.getSenderName());
+		assertEquals(2, state.toActiveChats().getDirect().size());
+
+		// Existing chat partner, with Alice as recipient
+		delta = state.apply(chat(4000L, 0, BOB, ALICE, null), "bob", "alice", CUTOFF);
+		assertEquals(1, delta.getDirect().size());
+		assertEquals(BOB, delta.getDirect().get(0).getAddress());
+		assertEquals("bob", delta.getDirect().get(0).getName());
+		assertEquals(4000L, delta.getDirect().get(0).getTimestamp());
+		assertEquals(2, state.toActiveChats().getDirect().size());
+	}
+
+	@Test
+	public void testDirectMessageWithGroup() {
+		ActiveChatsState state = newState(null);
+
+		// Counts as group 6's latest message, as well as a direct chat
+		ChatTransactionData chatTransactionData = chat(3000L, 6, ALICE, CHLOE, null);
+		assertTrue(state.isInterestedIn(chatTransactionData));
+
+		ActiveChatsDelta delta = state.apply(chatTransactionData, "alice", "chloe", CUTOFF);
+		assertEquals(1, delta.getGroups().size());
+		assertEquals(6, delta.getGroups().get(0).getGroupId());
+		assertEquals(ALICE, delta.getGroups().get(0).getSender());
+		assertEquals(1, delta.getDirect().size());
+		assertEquals(CHLOE, delta.getDirect().get(0).getAddress());
+
+		// Not involving Alice, but still in one of her groups
+		ChatTransactionData otherDirect = chat(4000L, 5, BOB, CHLOE, null);
+		assertTrue(state.isInterestedIn(otherDirect));
+		delta = state.apply(otherDirect, "bob", "chloe", CUTOFF);
+		assertEquals(1, delta.getGroups().size());
+		assertEquals(5, delta.getGroups().get(0).getGroupId());
+		assertTrue(delta.getDirect().isEmpty());
+
+		// Groupless direct messages don't count towards groupless chat
+		delta = state.apply(chat(5000L, 0, BOB, ALICE, null), "bob", "alice", CUTOFF);
+		assertTrue(delta.getGroups().isEmpty());
+		assertEquals(1, delta.getDirect().size());
+	}
+
+	@Test
+	public void testExpiry() {
+		ActiveChatsState state = newState(null);
+
+		ActiveChatsDelta delta = state.apply(null, null, null, 2500L);
+		assertEquals(List.of(BOB), delta.getRemovedDirect());
+		assertEquals(1, delta.getGroups().size());
+		assertEquals(5, delta.getGroups().get(0).getGroupId());
+		assertNull(delta.getGroups().get(0).getTimestamp());
+
+		ActiveChats activeChats = state.toActiveChats();
+		assertTrue(activeChats.getDirect().isEmpty());
+		assertEquals(3, activeChats.getGroups().size());
+
+		// A new message with an expiring partner keeps the chat, and isn't reported as removed
+		ActiveChatsState newState = newState(null);
+		delta = newState.apply(chat(2400L, 0, BOB, ALICE, null), null, null, 2100L);
+		assertTrue(delta.getRemovedDirect().isEmpty());
+		assertEquals(1, delta.getDirect().size());
+	}
+
+	@Test
+	public void testChatReferenceFilter() {
+		ActiveChatsState withReference = newState(true);
+		assertTrue(withReference.apply(chat(3000L, 6, CHLOE, null, null), null, null, CUTOFF).isEmpty());
+		assertFalse(withReference.apply(chat(3000L, 6, CHLOE, null, new byte[64]), null, null, CUTOFF).isEmpty());
+
+		ActiveChatsState withoutReference = newState(false);
+		assertTrue(withoutReference.apply(chat(3000L, 6, CHLOE, null, new byte[64]), null, null, CUTOFF).isEmpty());
+		assertFalse(withoutReference.apply(chat(3000L, 6, CHLOE, null, null), null, null, CUTOFF).isEmpty());
+	}
+
+}
@@ -0,0 +1,287 @@
+package org.qortal.test.chat;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.controller.ChatNotifier;
+import org.qortal.data.transaction.BaseTransactionData;
+import org.qortal.data.transaction.ChatTransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.test.common.FakeWebSocketSession;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ChatNotifierTests {
+
+	private static final String ALICE = "QgV4s3xnzLhVBEJxcYui4u4q11yhUHsd9v";
+	private static final String BOB = "QaUpHkhT5TAN3XCkq8wLnBTNFVgFg4Q3ro";
+	private static final String CHLOE = "QiMvMsZ2T9hS1XchR6WcGiEM4fMQW8vFJz";
+
+	private ChatNotifier chatNotifier;
+	private List<String> received;
+	private Map<Integer, List<String>> membersByGroup;
+
+	@Before
+	public void beforeTest() {
+		this.membersByGroup = new HashMap<>();
+		this.membersByGroup.put(1, List.of(ALICE, BOB));
+
+		// Dispatch synchronously, so that results can be checked immediately
+		this.chatNotifier = new ChatNotifier(Runnable::run, this::getMembers);
+		this.received = new ArrayList<>();
+	}
+
+	private List<String> getMembers(int groupId) {
+		return this.membersByGroup.getOrDefault(groupId, List.of());
+	}
+
+	private static Session newSession() {
+		return new FakeWebSocketSession().getSession();
+	}
+
+	private static ChatTransactionData chat(int txGroupId, String sender, String recipient) {
+		BaseTransactionData baseTransactionData = new BaseTransactionData(0L, txGroupId, null, new byte[32], 0L, new byte[64]);
+		return new ChatTransactionData(baseTransactionData, sender, 0, recipient, null, new byte[0], true, false);
+	}
+
+	private ChatNotifier.Listener recorder(String name) {
+		return chatTransactionData -> this.received.add(name + ":" + (chatTransactionData == null ? "membership" : "chat"));
+	}
+
+	@Test
+	public void testGroupRouting() {
+		this.chatNotifier.registerForGroup(newSession(), 1, recorder("group1"));
+		this.chatNotifier.registerForGroup(newSession(), 2, recorder("group2"));
+
+		this.chatNotifier.onNewChatTransaction(chat(1, ALICE, null));
+		assertEquals(List.of("group1:chat"), this.received);
+
+		// Direct messages and membership changes don't go to group listeners
+		this.received.clear();
+		this.chatNotifier.onNewChatTransaction(chat(1, ALICE, BOB));
+		this.chatNotifier.onGroupMembershipChange();
+		assertTrue(this.received.isEmpty());
+	}
+
+	@Test
+	public void testAddressPairRouting() {
+		this.chatNotifier.registerForAddressPair(newSession(), ALICE, BOB, recorder("alice-bob"));
+		this.chatNotifier.registerForAddressPair(newSession(), BOB, CHLOE, recorder("bob-chloe"));
+		this.chatNotifier.registerForAddressPair(newSession(), CHLOE, CHLOE, recorder("chloe-chloe"));
+
+		// Either direction
+		this.chatNotifier.onNewChatTransaction(chat(0, BOB, ALICE));
+		assertEquals(List.of("alice-bob:chat"), this.received);
+
+		// Identical pair matches any direct message involving that address
+		this.received.clear();
+		this.chatNotifier.onNewChatTransaction(chat(0, ALICE, CHLOE));
+		assertEquals(List.of("chloe-chloe:chat"), this.received);
+
+		this.received.clear();
+		this.chatNotifier.onNewChatTransaction(chat(1, ALICE, null));
+		assertTrue(this.received.isEmpty());
+	}
+
+	@Test
+	public void testAddressRouting() {
+		this.chatNotifier.registerForAddress(newSession(), ALICE, recorder("alice"));
+		this.chatNotifier.registerForAddress(newSession(), CHLOE, recorder("chloe"));
+
+		this.chatNotifier.onNewChatTransaction(chat(0, BOB, ALICE));
+		assertEquals(List.of("alice:chat"), this.received);
+
+		// Group messages only go to group members' active chats listeners
+		this.received.clear();
+		this.chatNotifier.onNewChatTransaction(chat(1, BOB, null));
+		assertEquals(List.of("alice:chat"), this.received);
+
+		// Everyone sees group 0
+		this.received.clear();
+		this.chatNotifier.onNewChatTransaction(chat(0, BOB, null));
+		assertEquals(List.of("alice:chat", "chloe:chat"), this.received);
+
+		// Direct messages with a txGroupId also go to group members, as they count towards group's latest message, but only once each
+		this.received.clear();
+		this.chatNotifier.onNewChatTransaction(chat(1, BOB, ALICE));
+		assertEquals(List.of("alice:chat"), this.received);
+
+		this.received.clear();
+		this.chatNotifier.onNewChatTransaction(chat(1, BOB, CHLOE));
+		assertEquals(List.of("chloe:chat", "alice:chat"), this.received);
+
+		// Membership changes go to all active chats listeners
+		this.received.clear();
+		this.chatNotifier.onGroupMembershipChange();
+		assertEquals(List.of("alice:membership", "chloe:membership"), this.received);
+	}
+
+	@Test
+	public void testUnknownGroupMembersNotifiesAllAddresses() {
+		ChatNotifier failingNotifier = new ChatNotifier(Runnable::run, groupId -> {
+			throw new DataException("repository unavailable");
+		});
+		failingNotifier.registerForAddress(newSession(), ALICE, recorder("alice"));
+		failingNotifier.registerForAddress(newSession(), CHLOE, recorder("chloe"));
+
+		failingNotifier.onNewChatTransaction(chat(1, BOB, null));
+		assertEquals(List.of("alice:chat", "chloe:chat"), this.received);
+	}
+
+	@Test
+	public void testCatchAllAndDeregister() {
+		Session session = newSession();
+		this.chatNotifier.register(session, recorder("all"));
+		Session aliceSession = newSession();
+		this.chatNotifier.registerForAddress(aliceSession, ALICE, recorder("alice"));
+		assertEquals(2, this.chatNotifier.getListenerCount());
+
+		this.chatNotifier.onNewChatTransaction(chat(0, BOB, CHLOE));
+		assertEquals(List.of("all:chat"), this.received);
+
+		this.chatNotifier.deregister(session);
+		this.chatNotifier.deregister(aliceSession);
+		assertEquals(0, this.chatNotifier.getListenerCount());
+
+		this.received.clear();
+		this.chatNotifier.onNewChatTransaction(chat(0, BOB, ALICE));
+		this.chatNotifier.onGroupMembershipChange();
+		assertTrue(this.received.isEmpty());
+	}
+
+	@Test
+	public void testReregisterReplacesListener() {
+		Session session = newSession();
+		this.chatNotifier.registerForGroup(session, 1, recorder("group1"));
+		this.chatNotifier.registerForGroup(session, 2, recorder("group2"));
+		assertEquals(1, this.chatNotifier.getListenerCount());
+
+		this.chatNotifier.onNewChatTransaction(chat(1, ALICE, null));
+		this.chatNotifier.onNewChatTransaction(chat(2, ALICE, null));
+		assertEquals(List.of("group2:chat"), this.received);
+	}
+
+	@Test
+	public void testAsyncDispatch() throws InterruptedException {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		ChatNotifier asyncNotifier = new ChatNotifier(executor, this::getMembers);
+
+		List<Long> order = new ArrayList<>();
+		Thread callingThread = Thread.currentThread();
+		List<Thread> dispatchThreads = new ArrayList<>();
+		asyncNotifier.registerForGroup(newSession(), 1, chatTransactionData -> {
+			dispatchThreads.add(Thread.currentThread());
+			order.add(chatTransactionData.getTimestamp());
+		});
+
+		for (long i = 0; i < 100; i++) {
+			BaseTransactionData baseTransactionData = new BaseTransactionData(i, 1, null, new byte[32], 0L, new byte[64]);
+			asyncNotifier.onNewChatTransaction(new ChatTransactionData(baseTransactionData, ALICE, 0, null, null, new byte[0], true, false));
+		}
+
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(100, order.size());
+		for (int i = 0; i < 100; i++)
+			assertEquals(i, order.get(i).longValue());
+		assertFalse(dispatchThreads.contains(callingThread));
+	}
+
+	@Test
+	public void testSlowListenerDoesNotHoldUpOthers() throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		ChatNotifier asyncNotifier = new ChatNotifier(executor, this::getMembers);
+
+		CountDownLatch slowListenerReleased = new CountDownLatch(1);
+		CountDownLatch fastListenerNotified = new CountDownLatch(10);
+
+		asyncNotifier.registerForGroup(newSession(), 1, chatTransactionData -> {
+			try {
+				slowListenerReleased.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		asyncNotifier.registerForGroup(newSession(), 1, chatTransactionData -> fastListenerNotified.countDown());
+
+		for (int i = 0; i < 10; i++)
+			asyncNotifier.onNewChatTransaction(chat(1, ALICE, null));
+
+		try {
+			assertTrue(fastListenerNotified.await(10, TimeUnit.SECONDS));
+		} finally {
+			slowListenerReleased.countDown();
+			executor.shutdown();
+		}
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testMembershipChangesCoalesced() {
+		// Collect scheduled deliveries, to run later, like a listener that has fallen behind
+		List<Runnable> scheduled = new ArrayList<>();
+		ChatNotifier delayedNotifier = new ChatNotifier(scheduled::add, this::getMembers);
+		delayedNotifier.registerForAddress(newSession(), ALICE, recorder("alice"));
+
+		delayedNotifier.onGroupMembershipChange();
+		delayedNotifier.onNewChatTransaction(chat(0, BOB, ALICE));
+		delayedNotifier.onGroupMembershipChange();
+		delayedNotifier.onGroupMembershipChange();
+		delayedNotifier.onNewChatTransaction(chat(0, BOB, ALICE));
+
+		// Only one delivery run scheduled for the session
+		assertEquals(1, scheduled.size());
+		scheduled.get(0).run();
+
+		// Membership change still waiting when later ones happened covers them, but messages are all delivered
+		assertEquals(List.of("alice:membership", "alice:chat", "alice:chat"), this.received);
+
+		// Once delivered, next membership change is queued again
+		this.received.clear();
+		delayedNotifier.onGroupMembershipChange();
+		scheduled.get(1).run();
+		assertEquals(List.of("alice:membership"), this.received);
+	}
+
+	@Test
+	public void testOverflowClosesSession() {
+		// Collect scheduled deliveries, to run later, like a listener that has fallen behind
+		List<Runnable> scheduled = new ArrayList<>();
+		ChatNotifier delayedNotifier = new ChatNotifier(scheduled::add, this::getMembers);
+
+		FakeWebSocketSession fakeSession = new FakeWebSocketSession();
+		delayedNotifier.registerForAddress(fakeSession.getSession(), ALICE, recorder("alice"));
+
+		for (int i = 0; i < ChatNotifier.MAX_QUEUED_NOTIFICATIONS; i++)
+			delayedNotifier.onNewChatTransaction(chat(0, BOB, ALICE));
+
+		// Queue full, but nothing dropped yet
+		assertFalse(fakeSession.isClosed());
+		assertEquals(1, delayedNotifier.getListenerCount());
+
+		// One message too many
+		delayedNotifier.onNewChatTransaction(chat(0, BOB, ALICE));
+
+		// Rather than silently dropping messages, session is closed so client reconnects and re-fetches
+		assertTrue(fakeSession.isClosed());
+		assertEquals(ChatNotifier.CLOSE_CODE_TOO_SLOW, fakeSession.closeStatusCode.intValue());
+		assertEquals(0, delayedNotifier.getListenerCount());
+
+		// Nothing more is delivered to closed session
+		delayedNotifier.onNewChatTransaction(chat(0, BOB, ALICE));
+		for (Runnable runnable : scheduled)
+			runnable.run();
+		assertTrue(this.received.isEmpty());
+	}
+
+}
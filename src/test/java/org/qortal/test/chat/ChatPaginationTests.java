@@ -0,0 +1,151 @@
+package org.qortal.test.chat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.data.chat.ChatMessage;
+import org.qortal.data.transaction.BaseTransactionData;
+import org.qortal.data.transaction.ChatTransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.TestAccount;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.qortal.data.chat.ChatMessage.Encoding;
+
+public class ChatPaginationTests extends Common {
+
+	private static final long BASE_TIMESTAMP = 1_600_000_000_000L;
+
+	private final Random random = new Random(1234L);
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@Test
+	public void testGroupCursorMatchesOffset() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			TestAccount alice = Common.getTestAccount(repository, "alice");
+			TestAccount bob = Common.getTestAccount(repository, "bob");
+
+			// Several messages share timestamps, so order relies on signature tie-break
+			for (int i = 0; i < 30; ++i)
+				saveChat(repository, BASE_TIMESTAMP + i / 3, 0, i % 2 == 0 ? alice : bob, null);
+
+			// Direct message isn't part of group chat
+			saveChat(repository, BASE_TIMESTAMP, 0, alice, bob.getAddress());
+
+			for (boolean reverse : new boolean[] { false, true }) {
+				List<ChatMessage> allMessages = getGroupMessages(repository, null, null, null, reverse);
+				assertEquals(30, allMessages.size());
+
+				assertPagesMatch(allMessages, cursor -> getGroupMessages(repository, cursor, 7, null, reverse));
+
+				// Offset still works
+				List<ChatMessage> offsetPage = getGroupMessages(repository, null, 7, 14, reverse);
+				assertSameMessages(allMessages.subList(14, 21), offsetPage);
+			}
+		}
+	}
+
+	@Test
+	public void testDirectCursorMatchesOffset() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			TestAccount alice = Common.getTestAccount(repository, "alice");
+			TestAccount bob = Common.getTestAccount(repository, "bob");
+			TestAccount chloe = Common.getTestAccount(repository, "chloe");
+
+			// Conversation in both directions, with shared timestamps
+			for (int i = 0; i < 25; ++i) {
+				if (i % 3 == 0)
+					saveChat(repository, BASE_TIMESTAMP + i / 2, 0, bob, alice.getAddress());
+				else
+					saveChat(repository, BASE_TIMESTAMP + i / 2, 0, alice, bob.getAddress());
+			}
+
+			// Unrelated conversation and group message
+			saveChat(repository, BASE_TIMESTAMP, 0, alice, chloe.getAddress());
+			saveChat(repository, BASE_TIMESTAMP, 0, alice, null);
+
+			List<String> involving = List.of(alice.getAddress(), bob.getAddress());
+
+			for (boolean reverse : new boolean[] { false, true }) {
+				List<ChatMessage> allMessages = getDirectMessages(repository, involving, null, null, null, reverse);
+				assertEquals(25, allMessages.size());
+
+				assertPagesMatch(allMessages, cursor -> getDirectMessages(repository, involving, cursor, 4, null, reverse));
+
+				List<ChatMessage> offsetPage = getDirectMessages(repository, involving, null, 4, 8, reverse);
+				assertSameMessages(allMessages.subList(8, 12), offsetPage);
+			}
+		}
+	}
+
+	private interface PageFetcher {
+		List<ChatMessage> fetch(byte[] cursor) throws DataException;
+	}
+
+	/** Walks through all pages using cursor from last message of each page */
+	private static void assertPagesMatch(List<ChatMessage> allMessages, PageFetcher pageFetcher) throws DataException {
+		List<ChatMessage> pagedMessages = new ArrayList<>();
+		byte[] cursor = null;
+
+		while (true) {
+			List<ChatMessage> page = pageFetcher.fetch(cursor);
+			if (page.isEmpty())
+				break;
+
+			pagedMessages.addAll(page);
+			cursor = page.get(page.size() - 1).getSignature();
+		}
+
+		assertSameMessages(allMessages, pagedMessages);
+	}
+
+	private static void assertSameMessages(List<ChatMessage> expected, List<ChatMessage> actual) {
+		assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); ++i)
+			assertArrayEquals(expected.get(i).getSignature(), actual.get(i).getSignature());
+	}
+
+	private static List<ChatMessage> getGroupMessages(Repository repository, byte[] cursor, Integer limit, Integer offset, boolean reverse) throws DataException {
+		return repository.getChatRepository().getMessagesMatchingCriteria(null, null, 0, null, null, null, null, null,
+				Encoding.BASE58, fetchCursor(repository, cursor), limit, offset, reverse);
+	}
+
+	private static List<ChatMessage> getDirectMessages(Repository repository, List<String> involving, byte[] cursor, Integer limit, Integer offset, boolean reverse) throws DataException {
+		return repository.getChatRepository().getMessagesMatchingCriteria(null, null, null, null, null, null, involving, null,
+				Encoding.BASE58, fetchCursor(repository, cursor), limit, offset, reverse);
+	}
+
+	/** Fetches cursor message, as the API does before passing it to the repository */
+	private static ChatTransactionData fetchCursor(Repository repository, byte[] cursor) throws DataException {
+		if (cursor == null)
+			return null;
+
+		return (ChatTransactionData) repository.getTransactionRepository().fromSignature(cursor);
+	}
+
+	private void saveChat(Repository repository, long timestamp, int txGroupId, TestAccount sender, String recipient) throws DataException {
+		byte[] reference = new byte[64];
+		this.random.nextBytes(reference);
+		byte[] signature = new byte[64];
+		this.random.nextBytes(signature);
+
+		BaseTransactionData baseTransactionData = new BaseTransactionData(timestamp, txGroupId, reference, sender.getPublicKey(), 0L, signature);
+		ChatTransactionData chatTransactionData = new ChatTransactionData(baseTransactionData, sender.getAddress(), 0, recipient,
+				null, new byte[] { 1, 2, 3 }, true, false);
+
+		repository.getTransactionRepository().save(chatTransactionData);
+		repository.saveChanges();
+	}
+
+}
@@ -0,0 +1,116 @@
+package org.qortal.test.common;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Websocket session, for tests, that records what is sent to it.
+ * <p>
+ * Asynchronous writes complete immediately, unless <tt>autoComplete</tt> is off,
+ * in which case they wait in {@link #pendingWrites} until completed by the test, like a slow client.
+ */
+public class FakeWebSocketSession {
+
+	public final List<String> received = Collections.synchronizedList(new ArrayList<>());
+	public final AtomicInteger sendCount = new AtomicInteger();
+	public final AtomicLong sentChars = new AtomicLong();
+	public final Deque<WriteCallback> pendingWrites = new ArrayDeque<>();
+	public int maxPendingWrites = 0;
+
+	public volatile boolean open = true;
+	public volatile boolean autoComplete = true;
+	public volatile Integer closeStatusCode;
+	public volatile String closeReason;
+
+	private final Session session;
+
+	public FakeWebSocketSession() {
+		RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(), new Class<?>[] { RemoteEndpoint.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("sendString"))
+						this.onSend((String) args[0], args.length > 1 ? (WriteCallback) args[1] : null);
+
+					return null;
+				});
+
+		this.session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "hashCode":
+							return System.identityHashCode(proxy);
+
+						case "equals":
+							return proxy == args[0];
+
+						case "toString":
+							return "FakeWebSocketSession@" + Integer.toHexString(System.identityHashCode(proxy));
+
+						case "isOpen":
+							return this.open;
+
+						case "getRemote":
+							return remote;
+
+						case "close":
+							if (args != null && args.length == 2) {
+								this.closeStatusCode = (Integer) args[0];
+								this.closeReason = (String) args[1];
+							}
+							this.open = false;
+							return null;
+
+						default:
+							return null;
+					}
+				});
+	}
+
+	public Session getSession() {
+		return this.session;
+	}
+
+	public boolean isClosed() {
+		return !this.open;
+	}
+
+	/** Completes pending writes until there are none left */
+	public void drain() {
+		WriteCallback callback;
+		while ((callback = this.pollPendingWrite()) != null)
+			callback.writeSuccess();
+	}
+
+	public synchronized WriteCallback pollPendingWrite() {
+		return this.pendingWrites.pollFirst();
+	}
+
+	private void onSend(String message, WriteCallback callback) {
+		this.received.add(message);
+		this.sendCount.incrementAndGet();
+		this.sentChars.addAndGet(message.length());
+
+		if (callback == null)
+			return;
+
+		if (this.autoComplete) {
+			callback.writeSuccess();
+			return;
+		}
+
+		synchronized (this) {
+			this.pendingWrites.addLast(callback);
+			this.maxPendingWrites = Math.max(this.maxPendingWrites, this.pendingWrites.size());
+		}
+	}
+
+}
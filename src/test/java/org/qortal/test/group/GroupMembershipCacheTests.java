@@ -0,0 +1,292 @@
+package org.qortal.test.group;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.account.PrivateKeyAccount;
+import org.qortal.data.group.GroupMemberData;
+import org.qortal.data.transaction.LeaveGroupTransactionData;
+import org.qortal.group.GroupMembershipCache;
+import org.qortal.group.GroupMembershipCache.PendingChanges;
+import org.qortal.repository.DataException;
+import org.qortal.repository.GroupRepository;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.repository.hsqldb.HSQLDBGroupRepository;
+import org.qortal.repository.hsqldb.HSQLDBRepository;
+import org.qortal.test.common.BlockUtils;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.GroupUtils;
+import org.qortal.test.common.TransactionUtils;
+import org.qortal.test.common.transaction.TestTransaction;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GroupMembershipCacheTests extends Common {
+
+	private static final int UNKNOWN_GROUP_ID = 99999;
+
+	private GroupMembershipCache cache;
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+
+		this.cache = GroupMembershipCache.getInstance();
+	}
+
+	@After
+	public void afterTest() throws DataException {
+		Common.orphanCheck();
+	}
+
+	@Test
+	public void testLookups() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+			PrivateKeyAccount chloe = Common.getTestAccount(repository, "chloe");
+
+			int groupId = GroupUtils.createGroup(repository, alice, "cache-group", true);
+			GroupUtils.joinGroup(repository, bob, groupId);
+
+			GroupRepository groupRepository = repository.getGroupRepository();
+
+			assertTrue(this.cache.isMember(groupRepository, groupId, alice.getAddress()));
+			assertTrue(this.cache.isMember(groupRepository, groupId, bob.getAddress()));
+			assertFalse(this.cache.isMember(groupRepository, groupId, chloe.getAddress()));
+
+			// Owner is also admin
+			assertTrue(this.cache.isAdmin(groupRepository, groupId, alice.getAddress()));
+			assertFalse(this.cache.isAdmin(groupRepository, groupId, bob.getAddress()));
+
+			assertEquals(2, this.cache.countMembers(groupRepository, groupId));
+			assertEquals(1, this.cache.countAdmins(groupRepository, groupId));
+
+			List<String> members = this.cache.getMembers(groupRepository, groupId);
+			assertEquals(2, members.size());
+			assertTrue(members.contains(alice.getAddress()));
+			assertTrue(members.contains(bob.getAddress()));
+
+			// Cache agrees with repository
+			assertEquals(groupRepository.getGroupMembers(groupId).size(), this.cache.countMembers(groupRepository, groupId));
+			assertEquals(groupRepository.getGroupAdmins(groupId).size(), this.cache.countAdmins(groupRepository, groupId));
+
+			// Unknown group
+			assertFalse(this.cache.isMember(groupRepository, UNKNOWN_GROUP_ID, alice.getAddress()));
+			assertEquals(0, this.cache.countMembers(groupRepository, UNKNOWN_GROUP_ID));
+			assertTrue(this.cache.getMembers(groupRepository, UNKNOWN_GROUP_ID).isEmpty());
+		}
+	}
+
+	@Test
+	public void testCommittedChanges() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+			PrivateKeyAccount chloe = Common.getTestAccount(repository, "chloe");
+
+			int groupId = GroupUtils.createGroup(repository, alice, "cache-group", true);
+
+			// Other session caches group without Bob
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertFalse(this.cache.isMember(otherRepository.getGroupRepository(), groupId, bob.getAddress()));
+			}
+
+			long version = this.cache.getVersion();
+
+			GroupUtils.joinGroup(repository, bob, groupId);
+
+			// Committed join applied to cached group
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertTrue(this.cache.isMember(otherRepository.getGroupRepository(), groupId, bob.getAddress()));
+				assertEquals(2, this.cache.countMembers(otherRepository.getGroupRepository(), groupId));
+			}
+
+			assertTrue(this.cache.hasMembershipChanged(bob.getAddress(), version));
+			assertFalse(this.cache.hasMembershipChanged(chloe.getAddress(), version));
+
+			version = this.cache.getVersion();
+
+			leaveGroup(repository, bob, groupId);
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertFalse(this.cache.isMember(otherRepository.getGroupRepository(), groupId, bob.getAddress()));
+				assertEquals(1, this.cache.countMembers(otherRepository.getGroupRepository(), groupId));
+			}
+
+			assertTrue(this.cache.hasMembershipChanged(bob.getAddress(), version));
+		}
+	}
+
+	@Test
+	public void testRollbackNotApplied() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+
+			int groupId = GroupUtils.createGroup(repository, alice, "cache-group", true);
+			GroupUtils.joinGroup(repository, bob, groupId);
+
+			long version = this.cache.getVersion();
+
+			// Uncommitted removal is only seen by our session
+			repository.getGroupRepository().deleteMember(groupId, bob.getAddress());
+			assertFalse(repository.getGroupRepository().memberExists(groupId, bob.getAddress()));
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertTrue(this.cache.isMember(otherRepository.getGroupRepository(), groupId, bob.getAddress()));
+			}
+
+			repository.discardChanges();
+
+			// Rolled back removal never reaches cache
+			assertEquals(version, this.cache.getVersion());
+			assertTrue(this.cache.isMember(repository.getGroupRepository(), groupId, bob.getAddress()));
+			assertTrue(repository.getGroupRepository().memberExists(groupId, bob.getAddress()));
+		}
+	}
+
+	@Test
+	public void testOrphaning() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+
+			int groupId = GroupUtils.createGroup(repository, alice, "cache-group", true);
+			GroupUtils.joinGroup(repository, bob, groupId);
+			assertTrue(this.cache.isMember(repository.getGroupRepository(), groupId, bob.getAddress()));
+
+			// Orphan join
+			BlockUtils.orphanLastBlock(repository);
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertFalse(this.cache.isMember(otherRepository.getGroupRepository(), groupId, bob.getAddress()));
+				assertTrue(this.cache.isMember(otherRepository.getGroupRepository(), groupId, alice.getAddress()));
+			}
+
+			// Orphan group creation
+			BlockUtils.orphanLastBlock(repository);
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertFalse(this.cache.isMember(otherRepository.getGroupRepository(), groupId, alice.getAddress()));
+				assertEquals(0, this.cache.countAdmins(otherRepository.getGroupRepository(), groupId));
+			}
+		}
+	}
+
+	@Test
+	public void testChangeDuringLoadNotCached() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+
+			int groupId = GroupUtils.createGroup(repository, alice, "cache-group", true);
+
+			// Another session commits a change while group is being loaded by this session
+			GroupRepository loadingGroupRepository = new HSQLDBGroupRepository((HSQLDBRepository) repository) {
+				private boolean hasCommittedChange = false;
+
+				@Override
+				public List<GroupMemberData> getGroupMembers(int groupId, Integer limit, Integer offset, Boolean reverse) throws DataException {
+					List<GroupMemberData> members = super.getGroupMembers(groupId, limit, offset, reverse);
+
+					if (!this.hasCommittedChange) {
+						this.hasCommittedChange = true;
+
+						try (final Repository otherRepository = RepositoryManager.getRepository()) {
+							otherRepository.getGroupRepository().save(new GroupMemberData(groupId, bob.getAddress(), System.currentTimeMillis(), new byte[64]));
+							otherRepository.saveChanges();
+						}
+					}
+
+					return members;
+				}
+			};
+
+			// Loaded state is returned, but not cached, as it might predate change
+			assertFalse(this.cache.isMember(loadingGroupRepository, groupId, bob.getAddress()));
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertTrue(this.cache.isMember(otherRepository.getGroupRepository(), groupId, bob.getAddress()));
+
+				// Undo direct change, so orphaning leaves group empty
+				otherRepository.getGroupRepository().deleteMember(groupId, bob.getAddress());
+				otherRepository.saveChanges();
+			}
+		}
+	}
+
+	@Test
+	public void testSavepoints() {
+		PendingChanges pendingChanges = new PendingChanges();
+		pendingChanges.addMember(1, "chloe");
+
+		pendingChanges.setSavepoint();
+		pendingChanges.addMember(2, "dilbert");
+		assertTrue(pendingChanges.isGroupModified(2));
+
+		pendingChanges.rollbackToSavepoint();
+		assertFalse(pendingChanges.isGroupModified(2));
+		assertTrue(pendingChanges.isGroupModified(1));
+
+		pendingChanges.clear();
+		assertTrue(pendingChanges.isEmpty());
+	}
+
+	@Test
+	public void testHasMembershipChanged() {
+		final String alice = "alice";
+		final String bob = "bob";
+		final String chloe = "chloe";
+
+		long version = this.cache.getVersion();
+		assertFalse(this.cache.hasMembershipChanged(alice, version));
+
+		PendingChanges pendingChanges = new PendingChanges();
+		pendingChanges.addMember(1, chloe);
+		pendingChanges.addAdmin(1, bob);
+		this.cache.applyCommitted(pendingChanges);
+
+		assertTrue(this.cache.hasMembershipChanged(chloe, version));
+		// Admin changes don't affect membership
+		assertFalse(this.cache.hasMembershipChanged(bob, version));
+		assertFalse(this.cache.hasMembershipChanged(alice, version));
+		assertFalse(this.cache.hasMembershipChanged(chloe, this.cache.getVersion()));
+
+		// Group removal affects everyone
+		version = this.cache.getVersion();
+		pendingChanges.clear();
+		pendingChanges.removeGroup(2);
+		this.cache.applyCommitted(pendingChanges);
+		assertTrue(this.cache.hasMembershipChanged(alice, version));
+	}
+
+	@Test
+	public void testHasMembershipChangedAfterManyChanges() {
+		long version = this.cache.getVersion();
+
+		PendingChanges pendingChanges = new PendingChanges();
+		pendingChanges.addMember(1, "alice");
+		this.cache.applyCommitted(pendingChanges);
+
+		// Enough unrelated changes to overflow change log
+		for (int i = 0; i < 5000; ++i) {
+			pendingChanges.clear();
+			pendingChanges.addMember(1, "bob");
+			this.cache.applyCommitted(pendingChanges);
+		}
+
+		// Can't tell any more, so assume changed
+		assertTrue(this.cache.hasMembershipChanged("chloe", version));
+		assertFalse(this.cache.hasMembershipChanged("chloe", this.cache.getVersion() - 1));
+	}
+
+	private void leaveGroup(Repository repository, PrivateKeyAccount leaver, int groupId) throws DataException {
+		LeaveGroupTransactionData transactionData = new LeaveGroupTransactionData(TestTransaction.generateBase(leaver), groupId);
+		TransactionUtils.signAndMint(repository, transactionData, leaver);
+	}
+
+}
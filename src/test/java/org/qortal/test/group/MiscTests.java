@@ -184,6 +184,50 @@ public class MiscTests extends Common {
 		}
 	}
 
+	@Test
+	public void testMembershipAcrossSessions() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+
+			// Create group
+			int groupId = createGroup(repository, alice, "open-group", true);
+
+			// Other session sees Bob isn't a member, possibly caching that
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertFalse(isMember(otherRepository, bob.getAddress(), groupId));
+			}
+
+			// Bob to join
+			joinGroup(repository, bob, groupId);
+
+			// Other session sees committed membership
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertTrue(isMember(otherRepository, bob.getAddress(), groupId));
+			}
+
+			// Uncommitted removal is only seen by our session
+			repository.getGroupRepository().deleteMember(groupId, bob.getAddress());
+			assertFalse(isMember(repository, bob.getAddress(), groupId));
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertTrue(isMember(otherRepository, bob.getAddress(), groupId));
+			}
+
+			// Rolled back removal isn't seen by anyone
+			repository.discardChanges();
+			assertTrue(isMember(repository, bob.getAddress(), groupId));
+
+			// Orphan last block
+			BlockUtils.orphanLastBlock(repository);
+
+			// Other session sees Bob no longer a member
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertFalse(isMember(otherRepository, bob.getAddress(), groupId));
+			}
+		}
+	}
+
 	private Integer createGroup(Repository repository, PrivateKeyAccount owner, String groupName, boolean isOpen) throws DataException {
 		String description = groupName + " (description)";
 
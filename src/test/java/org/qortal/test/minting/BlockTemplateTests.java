@@ -0,0 +1,179 @@
+package org.qortal.test.minting;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.account.PrivateKeyAccount;
+import org.qortal.block.Block;
+import org.qortal.controller.BlockTemplate;
+import org.qortal.controller.OnlineAccountsManager;
+import org.qortal.data.transaction.PaymentTransactionData;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.TransactionUtils;
+import org.qortal.test.common.transaction.TestTransaction;
+import org.qortal.utils.Amounts;
+import org.qortal.utils.Base58;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class BlockTemplateTests extends Common {
+
+	private static final Random RANDOM = new Random();
+
+	@Before
+	public void beforeTest() throws DataException {
+		// Allows multiple unconfirmed transactions from the same account
+		Common.useSettings("test-settings-v2-disable-reference.json");
+	}
+
+	@After
+	public void afterTest() throws DataException {
+		Common.orphanCheck();
+	}
+
+	@Test
+	public void testHighestFeePerByteFirst() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+
+			// Sender can only afford one of the following payments
+			PrivateKeyAccount sender = randomAccount(repository);
+			TransactionData fundingTransactionData = new PaymentTransactionData(TestTransaction.generateBase(alice), sender.getAddress(), 10 * Amounts.MULTIPLIER);
+			TransactionUtils.signAndMint(repository, fundingTransactionData, alice);
+
+			long unitFee = fundingTransactionData.getFee();
+			TransactionData lowFeeTransactionData = importPayment(repository, sender, 6 * Amounts.MULTIPLIER, unitFee);
+			TransactionData highFeeTransactionData = importPayment(repository, sender, 6 * Amounts.MULTIPLIER, 5 * unitFee);
+
+			// Low-fee payment is earlier, but high-fee payment should win
+			assertTrue(lowFeeTransactionData.getTimestamp() < highFeeTransactionData.getTimestamp());
+
+			Block block = mintCandidateBlock(repository);
+			BlockTemplate.addTransactions(repository, block);
+
+			assertEquals(1, block.getTransactions().size());
+			assertArrayEquals(highFeeTransactionData.getSignature(), block.getTransactions().get(0).getTransactionData().getSignature());
+		}
+	}
+
+	@Test
+	public void testMixedFeesBlockIsValid() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+			PrivateKeyAccount chloe = Common.getTestAccount(repository, "chloe");
+
+			// Sender can only afford one of their payments
+			PrivateKeyAccount sender = randomAccount(repository);
+			TransactionData fundingTransactionData = new PaymentTransactionData(TestTransaction.generateBase(alice), sender.getAddress(), 10 * Amounts.MULTIPLIER);
+			TransactionUtils.signAndMint(repository, fundingTransactionData, alice);
+
+			long unitFee = fundingTransactionData.getFee();
+
+			List<TransactionData> expectedTransactions = List.of(
+					importPayment(repository, alice, Amounts.MULTIPLIER, unitFee),
+					importPayment(repository, bob, Amounts.MULTIPLIER, 3 * unitFee),
+					importPayment(repository, chloe, Amounts.MULTIPLIER, 2 * unitFee),
+					importPayment(repository, alice, Amounts.MULTIPLIER, 2 * unitFee),
+					importPayment(repository, sender, 6 * Amounts.MULTIPLIER, 2 * unitFee));
+			TransactionData unaffordableTransactionData = importPayment(repository, sender, 6 * Amounts.MULTIPLIER, unitFee);
+
+			Block block = mintCandidateBlock(repository);
+			BlockTemplate.addTransactions(repository, block);
+
+			// Everything except sender's lower-fee payment
+			// (Block keeps its transactions in timestamp order, whatever order they were chosen in)
+			List<String> signatures = getSignatures(block);
+			assertEquals(expectedTransactions.size(), signatures.size());
+			for (TransactionData transactionData : expectedTransactions)
+				assertTrue(signatures.contains(Base58.encode(transactionData.getSignature())));
+			assertFalse(signatures.contains(Base58.encode(unaffordableTransactionData.getSignature())));
+
+			block.sign();
+			assertEquals(Block.ValidationResult.OK, block.isValid());
+		}
+	}
+
+	@Test
+	public void testSkippedTransactionRetried() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+
+			// Sender can only afford one of their payments, unless they are funded again first
+			PrivateKeyAccount sender = randomAccount(repository);
+			TransactionData fundingTransactionData = new PaymentTransactionData(TestTransaction.generateBase(alice), sender.getAddress(), 10 * Amounts.MULTIPLIER);
+			TransactionUtils.signAndMint(repository, fundingTransactionData, alice);
+
+			long unitFee = fundingTransactionData.getFee();
+
+			// Earliest, so processed first in block, but lowest fee so tried last
+			TransactionData refundingTransactionData = new PaymentTransactionData(TestTransaction.generateBase(alice), sender.getAddress(), 10 * Amounts.MULTIPLIER);
+			refundingTransactionData.setFee(unitFee);
+			// Make sure it's earliest, even if following transactions are created within same millisecond
+			refundingTransactionData.setTimestamp(refundingTransactionData.getTimestamp() - 1000L);
+			TransactionUtils.signAndImportValid(repository, refundingTransactionData, alice);
+
+			TransactionData highFeeTransactionData = importPayment(repository, sender, 6 * Amounts.MULTIPLIER, 5 * unitFee);
+			// Tried before refund, when sender can't afford it
+			TransactionData dependentTransactionData = importPayment(repository, sender, 6 * Amounts.MULTIPLIER, 3 * unitFee);
+
+			Block block = mintCandidateBlock(repository);
+			BlockTemplate.addTransactions(repository, block);
+
+			// Same transactions as timestamp ordering would have chosen
+			List<String> signatures = getSignatures(block);
+			assertEquals(3, signatures.size());
+			assertTrue(signatures.contains(Base58.encode(refundingTransactionData.getSignature())));
+			assertTrue(signatures.contains(Base58.encode(highFeeTransactionData.getSignature())));
+			assertTrue(signatures.contains(Base58.encode(dependentTransactionData.getSignature())));
+
+			block.sign();
+			assertEquals(Block.ValidationResult.OK, block.isValid());
+		}
+	}
+
+	private static Block mintCandidateBlock(Repository repository) throws DataException {
+		PrivateKeyAccount mintingAccount = Common.getTestAccount(repository, "alice-reward-share");
+		OnlineAccountsManager.getInstance().ensureTestingAccountsOnline(mintingAccount);
+
+		Block block = Block.mint(repository, repository.getBlockRepository().getLastBlock(), mintingAccount);
+		assertNotNull(block);
+
+		return block;
+	}
+
+	private static List<String> getSignatures(Block block) {
+		return block.getTransactions().stream()
+				.map(transaction -> Base58.encode(transaction.getTransactionData().getSignature()))
+				.collect(Collectors.toList());
+	}
+
+	private static TransactionData importPayment(Repository repository, PrivateKeyAccount sender, long amount, long fee) throws DataException {
+		TransactionData paymentTransactionData = new PaymentTransactionData(TestTransaction.generateBase(sender), randomAccount(repository).getAddress(), amount);
+		paymentTransactionData.setFee(fee);
+
+		// Any reference will do
+		byte[] reference = new byte[64];
+		RANDOM.nextBytes(reference);
+		paymentTransactionData.setReference(reference);
+
+		TransactionUtils.signAndImportValid(repository, paymentTransactionData, sender);
+
+		return paymentTransactionData;
+	}
+
+	private static PrivateKeyAccount randomAccount(Repository repository) {
+		byte[] privateKey = new byte[32];
+		RANDOM.nextBytes(privateKey);
+		return new PrivateKeyAccount(repository, privateKey);
+	}
+
+}
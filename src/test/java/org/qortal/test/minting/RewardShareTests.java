@@ -4,8 +4,10 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.qortal.account.PrivateKeyAccount;
+import org.qortal.account.RewardShareIndexCache;
 import org.qortal.data.account.RewardShareData;
 import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.AccountRepository;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
@@ -17,6 +19,9 @@ import org.qortal.transaction.Transaction;
 import org.qortal.transaction.Transaction.ValidationResult;
 import org.qortal.utils.Base58;
 
+import java.util.List;
+import java.util.stream.IntStream;
+
 import static org.junit.Assert.*;
 
 public class RewardShareTests extends Common {
@@ -111,6 +116,77 @@ public class RewardShareTests extends Common {
 		}
 	}
 
+	@Test
+	public void testRewardShareIndexCache() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			RewardShareIndexCache cache = RewardShareIndexCache.getInstance();
+			assertRewardSharesByIndexesMatchRepository(repository);
+
+			// Create reward-share, committed by minting block
+			long version = cache.getVersion();
+			byte[] rewardSharePrivateKey = AccountUtils.rewardShare(repository, "alice", "bob", 12_80);
+			PrivateKeyAccount rewardShareAccount = new PrivateKeyAccount(repository, rewardSharePrivateKey);
+			assertTrue("Cache should have been invalidated", cache.getVersion() > version);
+
+			assertRewardSharesByIndexesMatchRepository(repository);
+			Integer index = repository.getAccountRepository().getRewardShareIndex(rewardShareAccount.getPublicKey());
+			List<RewardShareData> rewardShares = repository.getAccountRepository().getRewardSharesByIndexes(new int[] { index });
+			assertArrayEquals(rewardShareAccount.getPublicKey(), rewardShares.get(0).getRewardSharePublicKey());
+
+			// Index out of bounds
+			int rewardShareCount = repository.getAccountRepository().getRewardSharePublicKeys().size();
+			assertNull(repository.getAccountRepository().getRewardSharesByIndexes(new int[] { 0, rewardShareCount }));
+
+			// Uncommitted reward-share is seen by this session only
+			PrivateKeyAccount chloeAccount = Common.getTestAccount(repository, "chloe");
+			PrivateKeyAccount dilbertAccount = Common.getTestAccount(repository, "dilbert");
+			byte[] uncommittedPublicKey = new PrivateKeyAccount(repository, chloeAccount.getRewardSharePrivateKey(dilbertAccount.getPublicKey())).getPublicKey();
+			repository.getAccountRepository().save(new RewardShareData(chloeAccount.getPublicKey(), chloeAccount.getAddress(), dilbertAccount.getAddress(), uncommittedPublicKey, 0));
+
+			assertEquals(rewardShareCount + 1, repository.getAccountRepository().getRewardSharePublicKeys().size());
+			assertRewardSharesByIndexesMatchRepository(repository);
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertEquals(rewardShareCount, otherRepository.getAccountRepository().getRewardSharePublicKeys().size());
+			}
+
+			repository.discardChanges();
+			assertEquals(rewardShareCount, repository.getAccountRepository().getRewardSharePublicKeys().size());
+
+			// Orphan block to remove reward-share
+			version = cache.getVersion();
+			BlockUtils.orphanLastBlock(repository);
+			assertTrue("Cache should have been invalidated", cache.getVersion() > version);
+
+			assertRewardSharesByIndexesMatchRepository(repository);
+			assertNull(repository.getAccountRepository().getRewardShareIndex(rewardShareAccount.getPublicKey()));
+
+			assertTrue(cache.verify(repository.getAccountRepository()).isEmpty());
+		}
+	}
+
+	private static void assertRewardSharesByIndexesMatchRepository(Repository repository) throws DataException {
+		AccountRepository accountRepository = repository.getAccountRepository();
+
+		List<byte[]> rewardSharePublicKeys = accountRepository.getRewardSharePublicKeys();
+		int[] indexes = IntStream.range(0, rewardSharePublicKeys.size()).toArray();
+
+		List<RewardShareData> rewardShares = accountRepository.getRewardSharesByIndexes(indexes);
+		assertEquals(indexes.length, rewardShares.size());
+
+		for (int index : indexes) {
+			RewardShareData rewardShareData = rewardShares.get(index);
+			// Single index lookups are always answered by repository
+			RewardShareData repositoryRewardShareData = accountRepository.getRewardShareByIndex(index);
+
+			assertEquals(Base58.encode(repositoryRewardShareData.getRewardSharePublicKey()), Base58.encode(rewardShareData.getRewardSharePublicKey()));
+			assertEquals(Base58.encode(rewardSharePublicKeys.get(index)), Base58.encode(rewardShareData.getRewardSharePublicKey()));
+			assertEquals(repositoryRewardShareData.getRecipient(), rewardShareData.getRecipient());
+			assertEquals(repositoryRewardShareData.getSharePercent(), rewardShareData.getSharePercent());
+			assertEquals(index, (int) accountRepository.getRewardShareIndex(rewardShareData.getRewardSharePublicKey()));
+		}
+	}
+
 	@Test
 	public void testNegativeInitialShareInvalid() throws DataException {
 		try (final Repository repository = RepositoryManager.getRepository()) {
@@ -0,0 +1,326 @@
+package org.qortal.test.naming;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.account.PrivateKeyAccount;
+import org.qortal.block.BlockChain;
+import org.qortal.controller.repository.NamesDatabaseIntegrityCheck;
+import org.qortal.data.naming.NameData;
+import org.qortal.data.transaction.BuyNameTransactionData;
+import org.qortal.data.transaction.RegisterNameTransactionData;
+import org.qortal.data.transaction.SellNameTransactionData;
+import org.qortal.data.transaction.UpdateNameTransactionData;
+import org.qortal.naming.NameRegistryCache;
+import org.qortal.naming.NameRegistryCache.PendingChanges;
+import org.qortal.repository.DataException;
+import org.qortal.repository.NameRepository;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.repository.hsqldb.HSQLDBNameRepository;
+import org.qortal.repository.hsqldb.HSQLDBRepository;
+import org.qortal.test.common.BlockUtils;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.TransactionUtils;
+import org.qortal.test.common.transaction.TestTransaction;
+import org.qortal.transaction.RegisterNameTransaction;
+import org.qortal.utils.Amounts;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class NameRegistryCacheTests extends Common {
+
+	private NameRegistryCache cache;
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+
+		this.cache = NameRegistryCache.getInstance();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			// Primary names only apply after feature trigger
+			BlockUtils.mintBlocks(repository, BlockChain.getInstance().getMultipleNamesPerAccountHeight());
+		}
+	}
+
+	@After
+	public void afterTest() throws DataException {
+		Common.orphanCheck();
+
+		// Orphaning should also leave cache matching repository
+		assertCacheMatchesRepository();
+	}
+
+	@Test
+	public void testRegisterName() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+
+			registerName(repository, alice, "alice-name");
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				NameRepository nameRepository = otherRepository.getNameRepository();
+
+				assertTrue(this.cache.nameExists(nameRepository, "alice-name"));
+				// Names are case-sensitive
+				assertFalse(this.cache.nameExists(nameRepository, "ALICE-NAME"));
+				assertEquals(alice.getAddress(), this.cache.getOwner(nameRepository, "alice-name"));
+				assertEquals(List.of("alice-name"), this.cache.getNames(nameRepository, alice.getAddress()));
+				assertEquals("alice-name", this.cache.getPrimaryName(nameRepository, alice.getAddress()));
+			}
+			assertCacheMatchesRepository();
+
+			// Orphan register-name
+			BlockUtils.orphanLastBlock(repository);
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				NameRepository nameRepository = otherRepository.getNameRepository();
+
+				assertFalse(this.cache.nameExists(nameRepository, "alice-name"));
+				assertTrue(this.cache.getNames(nameRepository, alice.getAddress()).isEmpty());
+				assertNull(this.cache.getPrimaryName(nameRepository, alice.getAddress()));
+			}
+			assertCacheMatchesRepository();
+		}
+	}
+
+	@Test
+	public void testUpdateName() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+
+			registerName(repository, alice, "initial-name");
+
+			UpdateNameTransactionData transactionData = new UpdateNameTransactionData(TestTransaction.generateBase(alice), "initial-name", "new-name", "");
+			TransactionUtils.signAndMint(repository, transactionData, alice);
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				NameRepository nameRepository = otherRepository.getNameRepository();
+
+				assertFalse(this.cache.nameExists(nameRepository, "initial-name"));
+				assertEquals(alice.getAddress(), this.cache.getOwner(nameRepository, "new-name"));
+				assertEquals(List.of("new-name"), this.cache.getNames(nameRepository, alice.getAddress()));
+			}
+			assertCacheMatchesRepository();
+
+			// Orphan update-name
+			BlockUtils.orphanLastBlock(repository);
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				NameRepository nameRepository = otherRepository.getNameRepository();
+
+				assertTrue(this.cache.nameExists(nameRepository, "initial-name"));
+				assertFalse(this.cache.nameExists(nameRepository, "new-name"));
+				assertEquals(List.of("initial-name"), this.cache.getNames(nameRepository, alice.getAddress()));
+			}
+			assertCacheMatchesRepository();
+		}
+	}
+
+	@Test
+	public void testSellAndBuyName() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+			String name = "name-for-sale";
+			long price = 10 * Amounts.MULTIPLIER;
+
+			registerName(repository, alice, name);
+
+			SellNameTransactionData sellTransactionData = new SellNameTransactionData(TestTransaction.generateBase(alice), name, price);
+			TransactionUtils.signAndMint(repository, sellTransactionData, alice);
+
+			// Selling doesn't change owner
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertEquals(alice.getAddress(), this.cache.getOwner(otherRepository.getNameRepository(), name));
+			}
+			assertCacheMatchesRepository();
+
+			BuyNameTransactionData buyTransactionData = new BuyNameTransactionData(TestTransaction.generateBase(bob), name, price, alice.getAddress());
+			TransactionUtils.signAndMint(repository, buyTransactionData, bob);
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				NameRepository nameRepository = otherRepository.getNameRepository();
+
+				assertEquals(bob.getAddress(), this.cache.getOwner(nameRepository, name));
+				assertTrue(this.cache.getNames(nameRepository, alice.getAddress()).isEmpty());
+				assertEquals(List.of(name), this.cache.getNames(nameRepository, bob.getAddress()));
+				assertNull(this.cache.getPrimaryName(nameRepository, alice.getAddress()));
+				assertEquals(name, this.cache.getPrimaryName(nameRepository, bob.getAddress()));
+				assertEquals(Map.of(bob.getAddress(), name), this.cache.getPrimaryNames(nameRepository, List.of(alice.getAddress(), bob.getAddress())));
+			}
+			assertCacheMatchesRepository();
+
+			// Orphan buy-name
+			BlockUtils.orphanLastBlock(repository);
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				NameRepository nameRepository = otherRepository.getNameRepository();
+
+				assertEquals(alice.getAddress(), this.cache.getOwner(nameRepository, name));
+				assertTrue(this.cache.getNames(nameRepository, bob.getAddress()).isEmpty());
+				assertEquals(name, this.cache.getPrimaryName(nameRepository, alice.getAddress()));
+				assertNull(this.cache.getPrimaryName(nameRepository, bob.getAddress()));
+			}
+			assertCacheMatchesRepository();
+		}
+	}
+
+	@Test
+	public void testRollbackNotApplied() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+
+			registerName(repository, alice, "alice-name");
+
+			// Uncommitted removal is only seen by our session
+			repository.getNameRepository().delete("alice-name");
+			assertFalse(repository.getNameRepository().nameExists("alice-name"));
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertTrue(this.cache.nameExists(otherRepository.getNameRepository(), "alice-name"));
+			}
+
+			repository.discardChanges();
+
+			// Rolled back removal never reaches cache
+			assertTrue(repository.getNameRepository().nameExists("alice-name"));
+			assertCacheMatchesRepository();
+		}
+	}
+
+	@Test
+	public void testIntegrityCheckAgrees() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+
+			registerName(repository, alice, "alice-name");
+			registerName(repository, bob, "bob-name");
+
+			UpdateNameTransactionData transactionData = new UpdateNameTransactionData(TestTransaction.generateBase(bob), "bob-name", "bob-new-name", "");
+			TransactionUtils.signAndMint(repository, transactionData, bob);
+		}
+
+		// Rebuilding names from their transactions leaves registry matching repository
+		new NamesDatabaseIntegrityCheck().rebuildAllNames();
+		assertCacheMatchesRepository();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			NameRepository nameRepository = repository.getNameRepository();
+
+			assertEquals(nameRepository.getAllNameOwners(), this.cache.getOwnersByName(nameRepository));
+			assertFalse(this.cache.nameExists(nameRepository, "bob-name"));
+			assertTrue(this.cache.nameExists(nameRepository, "bob-new-name"));
+		}
+	}
+
+	@Test
+	public void testChangeDuringLoadApplied() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+
+			registerName(repository, alice, "alice-name");
+			NameData nameData = repository.getNameRepository().fromName("alice-name");
+
+			// Registry needs reloading
+			this.cache.clear();
+
+			// Another session commits a change after names were read, but before registry is ready
+			NameRepository loadingNameRepository = new HSQLDBNameRepository((HSQLDBRepository) repository) {
+				private boolean hasCommittedChange = false;
+
+				@Override
+				public Map<String, String> getAllNameOwners() throws DataException {
+					Map<String, String> ownersByName = super.getAllNameOwners();
+
+					if (!this.hasCommittedChange) {
+						this.hasCommittedChange = true;
+
+						try (final Repository otherRepository = RepositoryManager.getRepository()) {
+							otherRepository.getNameRepository().delete("alice-name");
+							otherRepository.saveChanges();
+						}
+					}
+
+					return ownersByName;
+				}
+			};
+
+			assertFalse(this.cache.nameExists(loadingNameRepository, "alice-name"));
+
+			// Undo direct change, including cascaded primary name, so orphaning finds name again
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				otherRepository.getNameRepository().save(nameData);
+				otherRepository.getNameRepository().setPrimaryName(alice.getAddress(), "alice-name");
+				otherRepository.saveChanges();
+			}
+			assertCacheMatchesRepository();
+		}
+	}
+
+	@Test
+	public void testVerify() throws DataException, SQLException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+
+			registerName(repository, alice, "alice-name");
+			NameData nameData = repository.getNameRepository().fromName("alice-name");
+			assertCacheMatchesRepository();
+
+			// Repository changed without cache being told
+			((HSQLDBRepository) repository).delete("Names", "name = ?", "alice-name");
+			repository.saveChanges();
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				// Name and its use as primary name (cascaded) are both different
+				assertFalse(this.cache.verify(otherRepository.getNameRepository()).isEmpty());
+
+				// Registry reloaded
+				assertFalse(this.cache.nameExists(otherRepository.getNameRepository(), "alice-name"));
+				assertTrue(this.cache.verify(otherRepository.getNameRepository()).isEmpty());
+			}
+
+			// Undo direct change, including cascaded primary name, so orphaning finds name again
+			repository.getNameRepository().save(nameData);
+			repository.getNameRepository().setPrimaryName(alice.getAddress(), "alice-name");
+			repository.saveChanges();
+			assertCacheMatchesRepository();
+		}
+	}
+
+	@Test
+	public void testSavepoints() {
+		PendingChanges pendingChanges = new PendingChanges();
+		pendingChanges.putName("chloe-name", "chloe");
+
+		pendingChanges.setSavepoint();
+		pendingChanges.removeName("chloe-name");
+
+		pendingChanges.rollbackToSavepoint();
+		assertFalse(pendingChanges.isEmpty());
+
+		pendingChanges.clear();
+		assertTrue(pendingChanges.isEmpty());
+	}
+
+	private void registerName(Repository repository, PrivateKeyAccount owner, String name) throws DataException {
+		RegisterNameTransactionData transactionData = new RegisterNameTransactionData(TestTransaction.generateBase(owner), name, "{}");
+		transactionData.setFee(new RegisterNameTransaction(null, null).getUnitFee(transactionData.getTimestamp()));
+		TransactionUtils.signAndMint(repository, transactionData, owner);
+	}
+
+	/** Checks cached registry against Names and PrimaryNames tables, as used by the names integrity check. */
+	private void assertCacheMatchesRepository() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			List<String> differences = this.cache.verify(repository.getNameRepository());
+			assertTrue(String.join("; ", differences), differences.isEmpty());
+		}
+	}
+
+}
@@ -0,0 +1,192 @@
+package org.qortal.test.network;
+
+import org.junit.Test;
+import org.qortal.controller.OnlineAccountsManager;
+import org.qortal.data.network.CompactOnlineAccounts;
+import org.qortal.data.network.OnlineAccountData;
+import org.qortal.transform.Transformer;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CompactOnlineAccountsTests {
+
+    private static final long TIMESTAMP = 1_600_000_000_000L;
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testAdd() {
+        CompactOnlineAccounts empty = CompactOnlineAccounts.empty(TIMESTAMP, true);
+        assertTrue(empty.isEmpty());
+
+        List<OnlineAccountData> onlineAccounts = generateOnlineAccounts(500);
+
+        Set<Byte> changedLeadingBytes = new HashSet<>();
+        CompactOnlineAccounts compactOnlineAccounts = empty.add(onlineAccounts, changedLeadingBytes);
+
+        // Original is unchanged
+        assertTrue(empty.isEmpty());
+        assertEquals(onlineAccounts.size(), compactOnlineAccounts.size());
+
+        Set<Byte> expectedLeadingBytes = new HashSet<>();
+        onlineAccounts.forEach(onlineAccountData -> expectedLeadingBytes.add(onlineAccountData.getPublicKey()[0]));
+        assertEquals(expectedLeadingBytes, changedLeadingBytes);
+
+        // Round trip, in public key order
+        List<OnlineAccountData> sortedOnlineAccounts = new ArrayList<>(onlineAccounts);
+        sortedOnlineAccounts.sort((a, b) -> Arrays.compareUnsigned(a.getPublicKey(), b.getPublicKey()));
+
+        List<OnlineAccountData> fetchedOnlineAccounts = compactOnlineAccounts.getOnlineAccounts();
+        assertEquals(sortedOnlineAccounts.size(), fetchedOnlineAccounts.size());
+
+        for (int i = 0; i < sortedOnlineAccounts.size(); ++i) {
+            OnlineAccountData expected = sortedOnlineAccounts.get(i);
+            OnlineAccountData actual = fetchedOnlineAccounts.get(i);
+
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            assertArrayEquals(expected.getPublicKey(), actual.getPublicKey());
+            assertArrayEquals(expected.getSignature(), actual.getSignature());
+            assertEquals(expected.getNonce(), actual.getNonce());
+
+            assertEquals(i, compactOnlineAccounts.indexOf(expected.getPublicKey()));
+        }
+
+        // Adding again changes nothing
+        changedLeadingBytes.clear();
+        assertSame(compactOnlineAccounts, compactOnlineAccounts.add(onlineAccounts, changedLeadingBytes));
+        assertTrue(changedLeadingBytes.isEmpty());
+
+        // Adding in batches gives the same result
+        CompactOnlineAccounts batched = empty
+                .add(onlineAccounts.subList(0, 100), null)
+                .add(onlineAccounts.subList(100, 101), null)
+                .add(onlineAccounts.subList(50, onlineAccounts.size()), null);
+        assertEquals(compactOnlineAccounts.getHashes().keySet(), batched.getHashes().keySet());
+        for (int i = 0; i < compactOnlineAccounts.size(); ++i)
+            assertEquals(compactOnlineAccounts.get(i), batched.get(i));
+    }
+
+    @Test
+    public void testOnlyOneEntryPerPublicKey() {
+        OnlineAccountData onlineAccountData = generateOnlineAccount(null);
+        byte[] publicKey = onlineAccountData.getPublicKey();
+
+        OnlineAccountData withNonce = new OnlineAccountData(TIMESTAMP, randomBytes(Transformer.SIGNATURE_LENGTH), publicKey, 1234);
+        OnlineAccountData withOtherNonce = new OnlineAccountData(TIMESTAMP, randomBytes(Transformer.SIGNATURE_LENGTH), publicKey, 5678);
+
+        CompactOnlineAccounts compactOnlineAccounts = CompactOnlineAccounts.empty(TIMESTAMP, true).add(List.of(onlineAccountData), null);
+        assertEquals(1, compactOnlineAccounts.size());
+        assertNull(compactOnlineAccounts.get(0).getNonce());
+
+        // Entry without nonce isn't contained, but is known
+        assertFalse(compactOnlineAccounts.contains(onlineAccountData));
+        assertTrue(compactOnlineAccounts.isKnown(onlineAccountData));
+        assertFalse(compactOnlineAccounts.isKnown(withNonce));
+
+        // Entry with nonce is superior, so replaces entry without nonce
+        Set<Byte> changedLeadingBytes = new HashSet<>();
+        compactOnlineAccounts = compactOnlineAccounts.add(List.of(withNonce), changedLeadingBytes);
+        assertEquals(1, compactOnlineAccounts.size());
+        assertEquals(Set.of(publicKey[0]), changedLeadingBytes);
+        assertEquals(withNonce, compactOnlineAccounts.get(0));
+        assertTrue(compactOnlineAccounts.contains(withNonce));
+
+        // Entries with other nonce, or without nonce, aren't superior so are ignored
+        assertTrue(compactOnlineAccounts.isKnown(withOtherNonce));
+        assertFalse(compactOnlineAccounts.contains(withOtherNonce));
+        assertSame(compactOnlineAccounts, compactOnlineAccounts.add(List.of(withOtherNonce, onlineAccountData), null));
+
+        // Duplicates within same addition: first usable nonce wins
+        CompactOnlineAccounts fromDuplicates = CompactOnlineAccounts.empty(TIMESTAMP, true)
+                .add(List.of(onlineAccountData, withNonce, withOtherNonce), null);
+        assertEquals(1, fromDuplicates.size());
+        assertEquals(withNonce, fromDuplicates.get(0));
+
+        // Hash of a single entry is its public key, not cancelled out by duplicates
+        assertArrayEquals(publicKey, fromDuplicates.getHash(publicKey[0]));
+    }
+
+    @Test
+    public void testRemoveKnown() {
+        List<OnlineAccountData> onlineAccounts = generateOnlineAccounts(100);
+        CompactOnlineAccounts compactOnlineAccounts = CompactOnlineAccounts.empty(TIMESTAMP, false).add(onlineAccounts.subList(0, 60), null);
+
+        Set<OnlineAccountData> blocksOnlineAccounts = new HashSet<>(onlineAccounts.subList(40, 100));
+
+        // Same public key, but different nonce, isn't removed
+        OnlineAccountData known = onlineAccounts.get(0);
+        OnlineAccountData differentNonce = new OnlineAccountData(TIMESTAMP, null, known.getPublicKey(), known.getNonce() + 1);
+        blocksOnlineAccounts.add(differentNonce);
+
+        compactOnlineAccounts.removeKnown(blocksOnlineAccounts);
+
+        Set<OnlineAccountData> expected = new HashSet<>(onlineAccounts.subList(60, 100));
+        expected.add(differentNonce);
+        assertEquals(expected, blocksOnlineAccounts);
+    }
+
+    @Test
+    public void testLeadingBytes() {
+        List<OnlineAccountData> onlineAccounts = generateOnlineAccounts(2000);
+        CompactOnlineAccounts compactOnlineAccounts = CompactOnlineAccounts.empty(TIMESTAMP, true).add(onlineAccounts, null);
+
+        // Include leading bytes that are negative when signed
+        Set<Byte> leadingBytes = Set.of((byte) 0x00, (byte) 0x7f, (byte) 0x80, (byte) 0xff);
+
+        Set<OnlineAccountData> expected = new HashSet<>();
+        for (OnlineAccountData onlineAccountData : onlineAccounts)
+            if (leadingBytes.contains(onlineAccountData.getPublicKey()[0]))
+                expected.add(onlineAccountData);
+
+        List<OnlineAccountData> actual = compactOnlineAccounts.getOnlineAccounts(leadingBytes);
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, new HashSet<>(actual));
+    }
+
+    @Test
+    public void testHashesMatch() {
+        List<OnlineAccountData> onlineAccounts = generateOnlineAccounts(2000);
+        CompactOnlineAccounts compactOnlineAccounts = CompactOnlineAccounts.empty(TIMESTAMP, true).add(onlineAccounts, null);
+
+        Map<Byte, byte[]> expectedHashes = new HashMap<>();
+        for (OnlineAccountData onlineAccountData : onlineAccounts)
+            expectedHashes.compute(onlineAccountData.getPublicKey()[0], (k, v) -> OnlineAccountsManager.xorByteArrayInPlace(v, onlineAccountData.getPublicKey()));
+
+        Map<Byte, byte[]> hashes = compactOnlineAccounts.getHashes();
+        assertEquals(expectedHashes.keySet(), hashes.keySet());
+
+        for (int leadingByte = 0; leadingByte < 256; ++leadingByte) {
+            byte[] expectedHash = expectedHashes.get((byte) leadingByte);
+
+            assertArrayEquals(expectedHash, compactOnlineAccounts.getHash((byte) leadingByte));
+            assertArrayEquals(expectedHash, hashes.get((byte) leadingByte));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongTimestamp() {
+        OnlineAccountData onlineAccountData = new OnlineAccountData(TIMESTAMP + 1, randomBytes(Transformer.SIGNATURE_LENGTH), randomBytes(Transformer.PUBLIC_KEY_LENGTH), 0);
+        CompactOnlineAccounts.empty(TIMESTAMP, true).add(List.of(onlineAccountData), null);
+    }
+
+    private static List<OnlineAccountData> generateOnlineAccounts(int count) {
+        List<OnlineAccountData> onlineAccounts = new ArrayList<>(count);
+
+        for (int i = 0; i < count; ++i)
+            onlineAccounts.add(generateOnlineAccount(RANDOM.nextInt(1_000_000)));
+
+        return onlineAccounts;
+    }
+
+    private static OnlineAccountData generateOnlineAccount(Integer nonce) {
+        return new OnlineAccountData(TIMESTAMP, randomBytes(Transformer.SIGNATURE_LENGTH), randomBytes(Transformer.PUBLIC_KEY_LENGTH), nonce);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+
+}
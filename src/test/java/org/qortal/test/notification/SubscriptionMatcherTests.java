@@ -0,0 +1,414 @@
+package org.qortal.test.notification;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.qortal.notification.DedupTimeWheel;
+import org.qortal.notification.NotificationEvent;
+import org.qortal.notification.NotificationSubscription;
+import org.qortal.notification.ResourcePublishedEvent;
+import org.qortal.notification.ResourcePublishedFilter;
+import org.qortal.notification.SubscriptionEntry;
+import org.qortal.notification.SubscriptionMatcher;
+import org.qortal.test.common.FakeWebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SubscriptionMatcherTests {
+
+	private static final String[] SERVICES = { "BLOG", "BLOG_POST", "MAIL_PRIVATE", "APP", "WEBSITE", "DOCUMENT", "VIDEO", "AUDIO" };
+	private static final String[] IDENTIFIER_STEMS = { "qortal_qmail_", "qblog-", "post-", "default", "q-tube-video-", "chat_" };
+	private static final String[] WORDS = { "qortal", "news", "update", "hello", "world", "release", "mail" };
+
+	private static final int BENCHMARK_SESSION_COUNT = 1_000;
+	private static final int BENCHMARK_SUBSCRIPTION_COUNT = 10_000;
+	private static final int BENCHMARK_NAME_COUNT = 5_000;
+	private static final int BENCHMARK_EVENT_COUNT = 100_000;
+
+	private static Session newSession() {
+		return new FakeWebSocketSession().getSession();
+	}
+
+	private static NotificationSubscription resourceSubscription(ResourcePublishedFilter filter) {
+		NotificationSubscription subscription = new NotificationSubscription();
+		subscription.setEvent("RESOURCE_PUBLISHED");
+		subscription.setResourceFilter(filter);
+		return subscription;
+	}
+
+	private static ResourcePublishedEvent event(String service, String name, String identifier) {
+		return new ResourcePublishedEvent(service, name, identifier, null, null, null, null, null, 1700000000000L, null);
+	}
+
+	@Test
+	public void testIdentifierPrefix() {
+		SubscriptionMatcher matcher = new SubscriptionMatcher();
+		Session session = newSession();
+
+		ResourcePublishedFilter filter = new ResourcePublishedFilter();
+		filter.service = "MAIL_PRIVATE";
+		filter.identifier = "qortal_qmail_Alice_";
+		filter.prefix = true;
+		matcher.setSubscriptions(session, List.of(resourceSubscription(filter)));
+
+		assertEquals(1, matcher.matchResourcePublished(event("MAIL_PRIVATE", "bob", "qortal_qmail_alice_mail_123"), true).size());
+		assertEquals(1, matcher.matchResourcePublished(event("mail_private", "bob", "QORTAL_QMAIL_ALICE_"), true).size());
+		assertEquals(0, matcher.matchResourcePublished(event("MAIL_PRIVATE", "bob", "qortal_qmail_alic"), true).size());
+		assertEquals(0, matcher.matchResourcePublished(event("MAIL_PRIVATE", "bob", "x_qortal_qmail_alice_"), true).size());
+		assertEquals(0, matcher.matchResourcePublished(event("MAIL_PRIVATE", "bob", null), true).size());
+		assertEquals(0, matcher.matchResourcePublished(event("BLOG", "bob", "qortal_qmail_alice_mail_123"), true).size());
+
+		// Doesn't need metadata, so not matched again by late dispatch
+		assertEquals(0, matcher.matchResourcePublished(event("MAIL_PRIVATE", "bob", "qortal_qmail_alice_mail_123"), false).size());
+	}
+
+	@Test
+	public void testMultipleNames() {
+		SubscriptionMatcher matcher = new SubscriptionMatcher();
+		Session session = newSession();
+
+		ResourcePublishedFilter filter = new ResourcePublishedFilter();
+		filter.names = List.of("Alice", "bob", "ALICE");
+		matcher.setSubscriptions(session, List.of(resourceSubscription(filter)));
+
+		assertEquals(1, matcher.matchResourcePublished(event("BLOG", "alice", "post"), true).size());
+		assertEquals(1, matcher.matchResourcePublished(event("APP", "Bob", null), true).size());
+		assertEquals(0, matcher.matchResourcePublished(event("BLOG", "carol", "post"), true).size());
+	}
+
+	@Test
+	public void testRemoveAndReplace() {
+		SubscriptionMatcher matcher = new SubscriptionMatcher();
+		Session session = newSession();
+		Session otherSession = newSession();
+
+		ResourcePublishedFilter filter = new ResourcePublishedFilter();
+		filter.service = "BLOG";
+		filter.identifier = "post-";
+		filter.prefix = true;
+		matcher.setSubscriptions(session, List.of(resourceSubscription(filter)));
+		matcher.setSubscriptions(otherSession, List.of(resourceSubscription(filter)));
+		assertEquals(2, matcher.matchResourcePublished(event("BLOG", "alice", "post-1"), true).size());
+
+		matcher.removeSession(session);
+		List<SubscriptionEntry> matches = matcher.matchResourcePublished(event("BLOG", "alice", "post-1"), true);
+		assertEquals(1, matches.size());
+		assertSame(otherSession, matches.get(0).session);
+
+		matcher.setSubscriptions(otherSession, List.of());
+		assertEquals(0, matcher.matchResourcePublished(event("BLOG", "alice", "post-1"), true).size());
+		assertEquals(0, matcher.getSubscriptionCount());
+	}
+
+	@Test
+	public void testExpiredSubscriptionsRemoved() {
+		SubscriptionMatcher matcher = new SubscriptionMatcher();
+		Session session = newSession();
+
+		NotificationSubscription expired = resourceSubscription(null);
+		expired.setExpiresWhen(System.currentTimeMillis() - 1000L);
+		NotificationSubscription payment = new NotificationSubscription();
+		payment.setEvent("PAYMENT_RECEIVED");
+		payment.setFilters(Map.of("recipient", "QRecipient"));
+		payment.setExpiresWhen(System.currentTimeMillis() - 1000L);
+
+		matcher.setSubscriptions(session, List.of(expired, payment));
+		assertEquals(2, matcher.getSubscriptionCount());
+
+		assertEquals(0, matcher.matchResourcePublished(event("BLOG", "alice", "post"), true).size());
+		assertEquals(0, matcher.matchEvent(new NotificationEvent("PAYMENT_RECEIVED", Map.of("recipient", "qrecipient"))).size());
+		assertEquals(0, matcher.getSubscriptionCount());
+	}
+
+	@Test
+	public void testGenericEvents() {
+		SubscriptionMatcher matcher = new SubscriptionMatcher();
+		Session session = newSession();
+
+		NotificationSubscription payment = new NotificationSubscription();
+		payment.setEvent("PAYMENT_RECEIVED");
+		payment.setFilters(Map.of("recipient", "QRecipient"));
+
+		NotificationSubscription named = new NotificationSubscription();
+		named.setEvent("OTHER");
+		named.setFilters(Map.of("name", "Alice", "service", "BLOG"));
+
+		matcher.setSubscriptions(session, List.of(payment, named));
+
+		assertEquals(1, matcher.matchEvent(new NotificationEvent("PAYMENT_RECEIVED", Map.of("recipient", "qrecipient", "amount", "1"))).size());
+		assertEquals(0, matcher.matchEvent(new NotificationEvent("PAYMENT_RECEIVED", Map.of("recipient", "QOther"))).size());
+		assertEquals(0, matcher.matchEvent(new NotificationEvent("PAYMENT_RECEIVED", Map.of("amount", "1"))).size());
+
+		assertEquals(1, matcher.matchEvent(new NotificationEvent("OTHER", Map.of("name", "alice", "service", "blog"))).size());
+		assertEquals(0, matcher.matchEvent(new NotificationEvent("OTHER", Map.of("name", "alice"))).size());
+	}
+
+	@Test
+	public void testMatchesSameAsFilter() {
+		Random random = new Random(12345L);
+		SubscriptionMatcher matcher = new SubscriptionMatcher();
+
+		List<NotificationSubscription> subscriptions = new ArrayList<>();
+		for (int s = 0; s < 200; ++s) {
+			Session session = newSession();
+
+			List<NotificationSubscription> rules = new ArrayList<>();
+			for (int r = 0; r < 10; ++r)
+				rules.add(resourceSubscription(random.nextInt(20) == 0 ? null : randomFilter(random, 50)));
+
+			matcher.setSubscriptions(session, rules);
+			subscriptions.addAll(rules);
+		}
+
+		int totalMatches = 0;
+		for (int e = 0; e < 5_000; ++e) {
+			ResourcePublishedEvent ev = randomEvent(random, 50);
+
+			for (boolean early : new boolean[] { true, false }) {
+				List<NotificationSubscription> expected = new ArrayList<>();
+				for (NotificationSubscription subscription : subscriptions) {
+					ResourcePublishedFilter filter = subscription.getResourceFilter();
+					boolean inPhase = filter == null || filter.requiresMetadata() != early;
+					if (inPhase && (filter == null || filter.matches(ev)))
+						expected.add(subscription);
+				}
+
+				Set<NotificationSubscription> actual = newIdentitySet();
+				for (SubscriptionEntry entry : matcher.matchResourcePublished(ev, early))
+					assertTrue("duplicate match", actual.add(entry.rule));
+
+				assertEquals(expected.size(), actual.size());
+				for (NotificationSubscription subscription : expected)
+					assertTrue(actual.contains(subscription));
+
+				totalMatches += expected.size();
+			}
+		}
+
+		// Make sure test isn't trivially passing
+		assertTrue(totalMatches > 1000);
+	}
+
+	@Test
+	public void testDedupTimeWheel() {
+		final long window = 5 * 60 * 1000L;
+		DedupTimeWheel wheel = new DedupTimeWheel(window, 30);
+		long now = 1_700_000_000_000L;
+
+		long key = DedupTimeWheel.key(1, "PAYMENT_RECEIVED\0sig");
+		long otherSessionKey = DedupTimeWheel.key(2, "PAYMENT_RECEIVED\0sig");
+		assertNotEquals(key, otherSessionKey);
+
+		assertTrue(wheel.markIfAbsent(key, now));
+		assertFalse(wheel.markIfAbsent(key, now + 1000L));
+		assertTrue(wheel.markIfAbsent(otherSessionKey, now + 1000L));
+
+		// Still a duplicate until (almost) a full window has passed
+		assertFalse(wheel.markIfAbsent(key, now + window - window / 30 - 1));
+
+		// Expired after window
+		wheel.advance(now + window + 1);
+		assertEquals(0, wheel.size());
+		assertTrue(wheel.markIfAbsent(key, now + window + 1));
+		assertEquals(1, wheel.size());
+
+		// Long gap clears everything
+		wheel.advance(now + 10 * window);
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testDedupTimeWheelBoundedMemory() {
+		final long window = 60 * 1000L;
+		DedupTimeWheel wheel = new DedupTimeWheel(window, 12);
+		long now = 1_700_000_000_000L;
+
+		// Many sessions each seeing many events, over several windows
+		int maxSize = 0;
+		for (int i = 0; i < 200_000; ++i) {
+			now += 3; // roughly 333 events per second
+			wheel.markIfAbsent(DedupTimeWheel.key(i % 500, "sig" + i), now);
+			maxSize = Math.max(maxSize, wheel.size());
+		}
+
+		// Only keys from (about) one window are held
+		assertTrue(maxSize <= window / 3 + window / 12 / 3 + 1);
+	}
+
+	@Test
+	@Ignore(value = "Benchmark, for informational use")
+	public void testBenchmark() {
+		Random random = new Random(54321L);
+		SubscriptionMatcher matcher = new SubscriptionMatcher();
+		List<NotificationSubscription> subscriptions = new ArrayList<>(BENCHMARK_SUBSCRIPTION_COUNT);
+
+		// Typical mix: mostly per-name or prefixed-identifier subscriptions (e.g. Q-Mail inboxes), a few broad ones
+		int subscriptionsPerSession = BENCHMARK_SUBSCRIPTION_COUNT / BENCHMARK_SESSION_COUNT;
+		for (int s = 0; s < BENCHMARK_SESSION_COUNT; ++s) {
+			Session session = newSession();
+
+			List<NotificationSubscription> rules = new ArrayList<>();
+			for (int r = 0; r < subscriptionsPerSession; ++r) {
+				ResourcePublishedFilter filter = new ResourcePublishedFilter();
+				filter.service = SERVICES[random.nextInt(SERVICES.length)];
+
+				switch (random.nextInt(10)) {
+					case 0:
+						// Broad, with metadata query
+						filter.query = WORDS[random.nextInt(WORDS.length)];
+						break;
+
+					case 1:
+					case 2:
+					case 3:
+						filter.identifier = IDENTIFIER_STEMS[random.nextInt(IDENTIFIER_STEMS.length)] + "name" + random.nextInt(BENCHMARK_NAME_COUNT) + "_";
+						filter.prefix = true;
+						break;
+
+					default:
+						filter.names = List.of("name" + random.nextInt(BENCHMARK_NAME_COUNT));
+						break;
+				}
+
+				rules.add(resourceSubscription(filter));
+			}
+
+			matcher.setSubscriptions(session, rules);
+			subscriptions.addAll(rules);
+		}
+		assertEquals(BENCHMARK_SUBSCRIPTION_COUNT, matcher.getSubscriptionCount());
+
+		List<ResourcePublishedEvent> events = new ArrayList<>(BENCHMARK_EVENT_COUNT);
+		for (int e = 0; e < BENCHMARK_EVENT_COUNT; ++e)
+			events.add(new ResourcePublishedEvent(SERVICES[random.nextInt(SERVICES.length)],
+					"name" + random.nextInt(BENCHMARK_NAME_COUNT),
+					IDENTIFIER_STEMS[random.nextInt(IDENTIFIER_STEMS.length)] + "name" + random.nextInt(BENCHMARK_NAME_COUNT) + "_" + e,
+					"sig" + e, WORDS[random.nextInt(WORDS.length)], null, null, null, 1700000000000L + e, null));
+
+		// Warm up
+		long indexedMatches = 0;
+		long scannedMatches = 0;
+		for (int e = 0; e < 1000; ++e) {
+			indexedMatches += matchIndexed(matcher, events.get(e));
+			scannedMatches += matchScanned(subscriptions, events.get(e));
+		}
+		assertEquals(scannedMatches, indexedMatches);
+
+		indexedMatches = 0;
+		long start = System.nanoTime();
+		for (ResourcePublishedEvent ev : events)
+			indexedMatches += matchIndexed(matcher, ev);
+		long indexedNanos = System.nanoTime() - start;
+
+		// Previous approach: visit (and re-evaluate) every subscription in service's bucket
+		scannedMatches = 0;
+		start = System.nanoTime();
+		for (ResourcePublishedEvent ev : events)
+			scannedMatches += matchScanned(subscriptions, ev);
+		long scannedNanos = System.nanoTime() - start;
+
+		assertEquals(scannedMatches, indexedMatches);
+
+		System.out.println(String.format("%d subscriptions, %d events, %d matches: indexed %d events/s (%.2f us/event), scanned %d events/s (%.2f us/event)",
+				BENCHMARK_SUBSCRIPTION_COUNT, BENCHMARK_EVENT_COUNT, indexedMatches,
+				BENCHMARK_EVENT_COUNT * 1_000_000_000L / indexedNanos, indexedNanos / 1000.0 / BENCHMARK_EVENT_COUNT,
+				BENCHMARK_EVENT_COUNT * 1_000_000_000L / scannedNanos, scannedNanos / 1000.0 / BENCHMARK_EVENT_COUNT));
+
+		assertTrue(indexedNanos < scannedNanos);
+	}
+
+	private static int matchIndexed(SubscriptionMatcher matcher, ResourcePublishedEvent ev) {
+		return matcher.matchResourcePublished(ev, true).size() + matcher.matchResourcePublished(ev, false).size();
+	}
+
+	private static int matchScanned(List<NotificationSubscription> subscriptions, ResourcePublishedEvent ev) {
+		int matches = 0;
+		for (NotificationSubscription subscription : subscriptions) {
+			ResourcePublishedFilter filter = subscription.getResourceFilter();
+			if (filter.service.equals(ev.service) && filter.matches(ev))
+				++matches;
+		}
+		return matches;
+	}
+
+	private static ResourcePublishedFilter randomFilter(Random random, int nameCount) {
+		ResourcePublishedFilter filter = new ResourcePublishedFilter();
+
+		if (random.nextBoolean())
+			filter.service = randomCase(random, SERVICES[random.nextInt(SERVICES.length)]);
+
+		if (random.nextInt(3) == 0) {
+			List<String> names = new ArrayList<>();
+			int count = 1 + random.nextInt(3);
+			for (int i = 0; i < count; ++i)
+				names.add(randomCase(random, "name" + random.nextInt(nameCount)));
+			filter.names = names;
+		}
+
+		if (random.nextInt(3) == 0) {
+			String stem = IDENTIFIER_STEMS[random.nextInt(IDENTIFIER_STEMS.length)];
+			// Sometimes just part of stem, to exercise inner trie nodes
+			filter.identifier = randomCase(random, stem.substring(0, 1 + random.nextInt(stem.length())));
+		}
+
+		filter.prefix = random.nextInt(3) == 0 ? null : random.nextBoolean();
+		filter.defaultResource = random.nextInt(10) == 0;
+
+		if (random.nextInt(6) == 0)
+			filter.query = WORDS[random.nextInt(WORDS.length)];
+		if (random.nextInt(8) == 0)
+			filter.title = WORDS[random.nextInt(WORDS.length)].substring(0, 2);
+		if (random.nextInt(8) == 0)
+			filter.description = WORDS[random.nextInt(WORDS.length)];
+		if (random.nextInt(8) == 0)
+			filter.keywords = List.of(" " + WORDS[random.nextInt(WORDS.length)].toUpperCase(), WORDS[random.nextInt(WORDS.length)]);
+
+		if (random.nextInt(8) == 0)
+			filter.after = 1700000000000L + random.nextInt(1000);
+		if (random.nextInt(8) == 0)
+			filter.before = 1700000000000L + random.nextInt(1000);
+
+		return filter;
+	}
+
+	private static ResourcePublishedEvent randomEvent(Random random, int nameCount) {
+		String service = random.nextInt(20) == 0 ? null : SERVICES[random.nextInt(SERVICES.length)];
+		String name = random.nextInt(20) == 0 ? null : randomCase(random, "name" + random.nextInt(nameCount));
+
+		String identifier;
+		switch (random.nextInt(4)) {
+			case 0:
+				identifier = null;
+				break;
+			case 1:
+				identifier = "default";
+				break;
+			default:
+				identifier = randomCase(random, IDENTIFIER_STEMS[random.nextInt(IDENTIFIER_STEMS.length)] + random.nextInt(100));
+				break;
+		}
+
+		String title = random.nextBoolean() ? WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] : null;
+		String description = random.nextBoolean() ? randomCase(random, WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]) : null;
+		Long created = random.nextInt(10) == 0 ? null : 1700000000000L + random.nextInt(1000);
+
+		return new ResourcePublishedEvent(service, name, identifier, null, title, description, null, null, created, null);
+	}
+
+	private static String randomCase(Random random, String value) {
+		return random.nextBoolean() ? value.toUpperCase() : value.toLowerCase();
+	}
+
+	private static Set<NotificationSubscription> newIdentitySet() {
+		return Collections.newSetFromMap(new IdentityHashMap<>());
+	}
+
+}